@@ -0,0 +1,60 @@
+package com.webank.weevent.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.core.fisco.constant.WeEventConstants;
+import com.webank.weevent.core.fisco.util.DataTypeUtils;
+import com.webank.weevent.core.fisco.util.EventId;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Encode and decode eventId, parse once in EventId against split for every field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventIdBenchmark {
+    private final String topicName = "com.weevent.benchmark";
+    private String eventId;
+
+    @Setup
+    public void setup() {
+        this.eventId = DataTypeUtils.encodeEventId(this.topicName, 1234567, 89L);
+    }
+
+    @Benchmark
+    public String encode() {
+        return DataTypeUtils.encodeEventId(this.topicName, 1234567, 89L);
+    }
+
+    @Benchmark
+    public long splitBlockNumber() {
+        String[] tokens = this.eventId.split(WeEventConstants.EVENT_ID_SPLIT_CHAR);
+        return DataTypeUtils.stringToLong(tokens[2]);
+    }
+
+    @Benchmark
+    public long parseBlockNumber() throws BrokerException {
+        return EventId.parse(this.eventId).getBlockNumber();
+    }
+
+    @Benchmark
+    public long splitAllFields() {
+        String[] tokens = this.eventId.split(WeEventConstants.EVENT_ID_SPLIT_CHAR);
+        return tokens[0].length() + DataTypeUtils.stringToLong(tokens[1]) + DataTypeUtils.stringToLong(tokens[2]);
+    }
+
+    @Benchmark
+    public long parseAllFields() throws BrokerException {
+        EventId parsed = EventId.parse(this.eventId);
+        return parsed.getTopicNameHash().length() + parsed.getSeq() + parsed.getBlockNumber();
+    }
+}
@@ -0,0 +1,112 @@
+package com.webank.weevent.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.JsonHelper;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.fisco.constant.WeEventConstants;
+import com.webank.weevent.core.fisco.util.DataTypeUtils;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageFactory;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+
+/**
+ * Encode a notified event into STOMP MESSAGE frame and MQTT PUBLISH packet.
+ * Broker is a spring boot application without a plain jar, so the steps are the same as
+ * BrokerStomp.encodeEvent and SessionStore.sendEvents, keep them in sync.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FrameEncodeBenchmark {
+    // notified event body, same in STOMP and MQTT
+    @Param({"64", "1024", "16384"})
+    public int contentSize;
+
+    private final String headerId = "sub-0";
+    private final String subscriptionId = "1c3d9fb0-4d1e-4c05-9b1b-1a3e4f5d6c7b";
+
+    private WeEvent event;
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        byte[] content = new byte[this.contentSize];
+        Arrays.fill(content, (byte) 'a');
+
+        Map<String, String> extensions = new HashMap<>();
+        extensions.put("weevent-format", "json");
+        extensions.put("weevent-device", "sensor-0001");
+
+        this.event = new WeEvent("com/weevent/device-1/status", content, extensions);
+        this.event.setEventId(DataTypeUtils.encodeEventId(this.event.getTopic(), 1234567, 89L));
+
+        this.channel = new EmbeddedChannel(MqttEncoder.INSTANCE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public byte[] stompMessage() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setSubscriptionId(this.headerId);
+        accessor.setNativeHeader("subscription-id", this.subscriptionId);
+        accessor.setMessageId(this.headerId);
+        accessor.setDestination(this.event.getTopic());
+        accessor.setContentType(new MimeType("text", "plain", StandardCharsets.UTF_8));
+        for (Map.Entry<String, String> custom : this.event.getExtensions().entrySet()) {
+            accessor.setNativeHeader(custom.getKey(), custom.getValue());
+        }
+        accessor.setNativeHeader(WeEventConstants.EXTENSIONS_EVENT_ID, this.event.getEventId());
+
+        MessageHeaders headers = accessor.getMessageHeaders();
+        Message<byte[]> message = MessageBuilder.createMessage(this.event.getContent(), headers);
+        return new StompEncoder().encode(message);
+    }
+
+    @Benchmark
+    public int mqttPublish() throws BrokerException {
+        byte[] content = JsonHelper.object2JsonBytes(this.event.getContent());
+        int remaining = 2 + this.event.getTopic().length() + content.length;
+        MqttMessage message = MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_LEAST_ONCE, false, remaining),
+                new MqttPublishVariableHeader(this.event.getTopic(), 1), Unpooled.wrappedBuffer(content));
+
+        this.channel.writeOutbound(message);
+        ByteBuf encoded = this.channel.readOutbound();
+        int size = encoded.readableBytes();
+        encoded.release();
+        return size;
+    }
+}
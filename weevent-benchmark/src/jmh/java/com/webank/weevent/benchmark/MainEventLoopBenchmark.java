@@ -0,0 +1,157 @@
+package com.webank.weevent.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.task.IBlockChain;
+import com.webank.weevent.core.task.MainEventLoop;
+import com.webank.weevent.core.task.NotifyTask;
+import com.webank.weevent.core.task.StoppableTask;
+import com.webank.weevent.core.task.Subscription;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * MainEventLoop catch up blocks behind the block height, against prefetch window(fisco.yml consumer.prefetch.block).
+ * Every block fetching from the simulated block chain cost a fixed latency, score is blocks dispatched per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MainEventLoopBenchmark {
+    // blocks behind in every invocation
+    private static final int BLOCK_COUNT = 200;
+
+    private static final int EVENT_PER_BLOCK = 2;
+
+    private static final String TOPIC_NAME = "com.weevent.benchmark";
+
+    private static final String GROUP_ID = "1";
+
+    // prefetch window, 0 means fetch one by one
+    @Param({"0", "4", "16", "64"})
+    public int consumerPrefetchBlock;
+
+    // simulated rpc latency of fetching one block, in ms
+    @Param({"5"})
+    public long latency;
+
+    private ExecutorService executor;
+
+    /*
+     * chain height is moved by the benchmark, loop() sleeps the rpc latency before returning the block's events
+     */
+    private static class SimulatedBlockChain implements IBlockChain {
+        private final long latency;
+        private final int prefetchBlock;
+        private final byte[] content = "hello weevent".getBytes(StandardCharsets.UTF_8);
+        final AtomicLong blockHeight = new AtomicLong(1);
+
+        SimulatedBlockChain(long latency, int prefetchBlock) {
+            this.latency = latency;
+            this.prefetchBlock = prefetchBlock;
+        }
+
+        @Override
+        public int getIdleTime() {
+            return 1;
+        }
+
+        @Override
+        public int getPrefetchBlock() {
+            return this.prefetchBlock;
+        }
+
+        @Override
+        public int getNotifyQueueSize() {
+            return 0;
+        }
+
+        @Override
+        public NotifyTask.OverflowPolicy getOverflowPolicy() {
+            return NotifyTask.OverflowPolicy.PAUSE;
+        }
+
+        @Override
+        public Long getBlockHeight(String groupId) {
+            return this.blockHeight.get();
+        }
+
+        @Override
+        public boolean hasBlockEventNotify() {
+            return false;
+        }
+
+        @Override
+        public List<WeEvent> loop(Long blockNum, String groupId) {
+            StoppableTask.idle(this.latency);
+
+            List<WeEvent> events = new ArrayList<>(EVENT_PER_BLOCK);
+            for (int i = 1; i <= EVENT_PER_BLOCK; i++) {
+                WeEvent event = new WeEvent(TOPIC_NAME, this.content);
+                event.setEventId(String.format("317e7c4c-%d-%d", i, blockNum));
+                events.add(event);
+            }
+            return events;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "benchmark-main-event-loop");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_COUNT)
+    public long catchUp() throws BrokerException, InterruptedException {
+        SimulatedBlockChain blockChain = new SimulatedBlockChain(this.latency, this.consumerPrefetchBlock);
+        MainEventLoop mainEventLoop = new MainEventLoop(this.executor, blockChain, GROUP_ID);
+
+        CountDownLatch latch = new CountDownLatch(BLOCK_COUNT * EVENT_PER_BLOCK);
+        Subscription subscription = new Subscription(blockChain, "", new String[]{TOPIC_NAME}, GROUP_ID, WeEvent.OFFSET_LAST, "",
+                new IConsumer.ConsumerListener() {
+                    @Override
+                    public void onEvent(String subscriptionId, WeEvent event) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onException(Throwable e) {
+                    }
+                });
+        mainEventLoop.addSubscription(subscription);
+
+        blockChain.blockHeight.addAndGet(BLOCK_COUNT);
+        mainEventLoop.doStart();
+        latch.await();
+        mainEventLoop.doStop();
+        return latch.getCount();
+    }
+}
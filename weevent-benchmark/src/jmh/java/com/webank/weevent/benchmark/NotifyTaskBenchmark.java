@@ -0,0 +1,79 @@
+package com.webank.weevent.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.task.NotifyTask;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Push a block's events into NotifyTask, and wait until the listener got all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class NotifyTaskBenchmark {
+    // events in one block
+    private static final int BLOCK_SIZE = 100;
+
+    private final byte[] content = "hello weevent".getBytes(StandardCharsets.UTF_8);
+    private final AtomicLong notified = new AtomicLong(0);
+    private NotifyTask notifyTask;
+    private Thread thread;
+    private long seq = 0;
+
+    @Setup
+    public void setup() {
+        this.notifyTask = new NotifyTask("benchmark", 100, new IConsumer.ConsumerListener() {
+            @Override
+            public void onEvent(String subscriptionId, WeEvent event) {
+                notified.incrementAndGet();
+            }
+
+            @Override
+            public void onException(Throwable e) {
+            }
+        });
+        this.thread = new Thread(this.notifyTask, this.notifyTask.getName());
+        this.thread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        this.notifyTask.doExit();
+        this.thread.join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK_SIZE)
+    public long pushAndNotify() {
+        // eventId is unique, otherwise skipped in NotifyTask
+        List<WeEvent> events = new ArrayList<>(BLOCK_SIZE);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            WeEvent event = new WeEvent("com.weevent.notify", this.content, new HashMap<>());
+            event.setEventId(String.valueOf(++this.seq));
+            events.add(event);
+        }
+        this.notifyTask.push(events);
+
+        while (this.notified.get() < this.seq) {
+            Thread.yield();
+        }
+        return this.notified.get();
+    }
+}
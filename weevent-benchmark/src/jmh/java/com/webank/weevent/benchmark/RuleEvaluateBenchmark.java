@@ -0,0 +1,116 @@
+package com.webank.weevent.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.JsonHelper;
+import com.webank.weevent.client.WeEvent;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.apache.commons.jexl3.JexlBuilder;
+import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlEngine;
+import org.apache.commons.jexl3.JexlExpression;
+import org.apache.commons.jexl3.MapContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Evaluate a CEP rule's payload and condition against an event.
+ * Processor is a spring boot application without a plain jar, so the steps are the same as
+ * CEPRuleMQ.hitRuleEngine(CommonUtil.checkJson, then jexl expression), keep them in sync.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RuleEvaluateBenchmark {
+    private final String payload = "{\"temperature\":30,\"humidity\":50,\"device\":\"sensor-0001\"}";
+    private final String condition = "temperature > 25 && humidity < 80";
+
+    private WeEvent event;
+    private JexlEngine jexl;
+    private JexlExpression expression;
+
+    @Setup
+    public void setup() {
+        String content = "{\"temperature\":36,\"humidity\":42,\"device\":\"sensor-0001\"}";
+        this.event = new WeEvent("com.weevent.rule", content.getBytes(StandardCharsets.UTF_8), new HashMap<>());
+
+        this.jexl = new JexlBuilder().create();
+        this.expression = this.jexl.createExpression(this.condition);
+    }
+
+    private static List<String> getKeys(String json) throws BrokerException {
+        Map<String, Object> map = JsonHelper.json2Object(json, new TypeReference<Map<String, Object>>() {
+        });
+        return new ArrayList<>(map.keySet());
+    }
+
+    // every key in content is in payload
+    private static boolean checkJson(String content, String payload) throws BrokerException {
+        List<String> payloadKeys = getKeys(payload);
+        for (String key : getKeys(content)) {
+            if (!payloadKeys.contains(key) && !"eventId".equals(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private JexlContext setContext(String content) throws BrokerException {
+        Map<String, Object> values = JsonHelper.json2Object(content, new TypeReference<Map<String, Object>>() {
+        });
+        JexlContext context = new MapContext();
+        for (String key : getKeys(this.payload)) {
+            context.set(key, values.get(key));
+        }
+        return context;
+    }
+
+    /**
+     * as CEPRuleMQ now, a new engine and expression for every event
+     */
+    @Benchmark
+    public boolean hitRule() throws BrokerException {
+        String content = new String(this.event.getContent(), StandardCharsets.UTF_8);
+        if (!checkJson(content, this.payload)) {
+            return false;
+        }
+        JexlEngine engine = new JexlBuilder().create();
+        return (Boolean) engine.createExpression(this.condition).evaluate(this.setContext(content));
+    }
+
+    /**
+     * engine is shared, expression is parsed for every event
+     */
+    @Benchmark
+    public boolean hitRuleSharedEngine() throws BrokerException {
+        String content = new String(this.event.getContent(), StandardCharsets.UTF_8);
+        if (!checkJson(content, this.payload)) {
+            return false;
+        }
+        return (Boolean) this.jexl.createExpression(this.condition).evaluate(this.setContext(content));
+    }
+
+    /**
+     * expression is parsed once
+     */
+    @Benchmark
+    public boolean hitRuleCompiled() throws BrokerException {
+        String content = new String(this.event.getContent(), StandardCharsets.UTF_8);
+        if (!checkJson(content, this.payload)) {
+            return false;
+        }
+        return (Boolean) this.expression.evaluate(this.setContext(content));
+    }
+}
@@ -0,0 +1,64 @@
+package com.webank.weevent.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.TopicInfo;
+import com.webank.weevent.core.cache.TopicInfoCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Check topic before publish, warm TopicInfoCache against rpc every time, for exist and non-existent topic.
+ * The rpc of TopicController.getTopicInfo is simulated with a fixed latency.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopicInfoCacheBenchmark {
+    private final String notExist = "com.weevent.not.exist";
+
+    @Param({"com.weevent.benchmark", "com.weevent.not.exist"})
+    public String topicName;
+
+    // simulated rpc latency, in microseconds
+    @Param({"500"})
+    public long latency;
+
+    private final TopicInfoCache cache = new TopicInfoCache(4096, 60000, 3000);
+
+    private Optional<TopicInfo> load(String topicName) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(this.latency));
+
+        if (this.notExist.equals(topicName)) {
+            return Optional.empty();
+        }
+        TopicInfo topicInfo = new TopicInfo();
+        topicInfo.setTopicName(topicName);
+        return Optional.of(topicInfo);
+    }
+
+    @Setup
+    public void setup() throws BrokerException {
+        this.cache.get(this.topicName, false, this::load);
+    }
+
+    @Benchmark
+    public Optional<TopicInfo> rpc() throws BrokerException {
+        return this.cache.get(this.topicName, true, this::load);
+    }
+
+    @Benchmark
+    public Optional<TopicInfo> warmCache() throws BrokerException {
+        return this.cache.get(this.topicName, false, this::load);
+    }
+}
@@ -0,0 +1,83 @@
+package com.webank.weevent.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.task.Subscription;
+import com.webank.weevent.core.task.TopicTrie;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Dispatch a block's events to subscriptions in MainEventLoop.
+ * Filter every subscription one by one, against match every event in TopicTrie.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TopicMatchBenchmark {
+    // subscriptions, half topic name and half topic pattern
+    @Param({"10", "100", "1000"})
+    public int subscriptionCount;
+
+    // events to match in every invocation
+    @Param({"100"})
+    public int eventCount;
+
+    private final List<String[]> subscriptions = new ArrayList<>();
+    private final TopicTrie<Integer> topicTrie = new TopicTrie<>();
+    private final List<WeEvent> events = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < this.subscriptionCount; i++) {
+            String topic;
+            if (i % 2 == 0) {
+                topic = String.format("com/weevent/device-%d/status", i);
+            } else if (i % 4 == 1) {
+                topic = String.format("com/weevent/device-%d/+", i);
+            } else {
+                topic = String.format("com/weevent/device-%d/#", i);
+            }
+            this.subscriptions.add(new String[]{topic});
+            this.topicTrie.add(topic, i);
+        }
+
+        byte[] content = "hello weevent".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < this.eventCount; i++) {
+            String topic = String.format("com/weevent/device-%d/status", i % Math.max(this.subscriptionCount, 1));
+            this.events.add(new WeEvent(topic, content, new HashMap<>()));
+        }
+    }
+
+    @Benchmark
+    public void filterEverySubscription(Blackhole blackhole) {
+        for (String[] topics : this.subscriptions) {
+            blackhole.consume(Subscription.filter(this.events, topics, ""));
+        }
+    }
+
+    @Benchmark
+    public void matchTopicTrie(Blackhole blackhole) {
+        for (WeEvent event : this.events) {
+            blackhole.consume(this.topicTrie.match(event.getTopic()));
+        }
+    }
+
+    @Benchmark
+    public boolean patternMatch() {
+        return Subscription.patternMatch("com/weevent/device-1/status", "com/weevent/+/status");
+    }
+}
@@ -0,0 +1,101 @@
+package com.webank.weevent.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.JsonHelper;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.fisco.util.DataTypeUtils;
+import com.webank.weevent.core.fisco.util.ExtensionsCodec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * WeEvent in json, used in rest, json rpc and ephemeral event.
+ * And extensions in json against binary header, see ExtensionsCodec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WeEventJsonBenchmark {
+    // WeEvent.content length
+    @Param({"64", "1024", "16384"})
+    public int contentSize;
+
+    private WeEvent event;
+    private byte[] eventJson;
+    private String extensionsJson;
+    private byte[] extensionsHeader;
+
+    @Setup
+    public void setup() throws BrokerException {
+        byte[] content = new byte[this.contentSize];
+        Arrays.fill(content, (byte) 'a');
+
+        Map<String, String> extensions = new HashMap<>();
+        extensions.put("weevent-format", "json");
+        extensions.put("weevent-device", "sensor-0001");
+        extensions.put("weevent-trace", "2f1e3c4b5a69788796a5b4c3d2e1f0ff");
+
+        this.event = new WeEvent("com.weevent.benchmark", content, extensions);
+        this.event.setEventId(DataTypeUtils.encodeEventId(this.event.getTopic(), 1234567, 89L));
+        this.eventJson = JsonHelper.object2JsonBytes(this.event);
+        this.extensionsJson = JsonHelper.object2Json(extensions);
+        this.extensionsHeader = ExtensionsCodec.encode(extensions);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws BrokerException {
+        return JsonHelper.object2JsonBytes(this.event);
+    }
+
+    @Benchmark
+    public WeEvent deserialize() throws BrokerException {
+        return JsonHelper.json2Object(this.eventJson, WeEvent.class);
+    }
+
+    @Benchmark
+    public byte[] contentToJson() throws BrokerException {
+        return JsonHelper.object2JsonBytes(new String(this.event.getContent(), StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String encodeExtensionsJson() throws BrokerException {
+        return JsonHelper.object2Json(this.event.getExtensions());
+    }
+
+    @Benchmark
+    public Map<String, String> decodeExtensionsJson() throws BrokerException {
+        return JsonHelper.json2Object(this.extensionsJson, new TypeReference<Map<String, String>>() {
+        });
+    }
+
+    @Benchmark
+    public byte[] encodeExtensionsHeader() {
+        return ExtensionsCodec.encode(this.event.getExtensions());
+    }
+
+    @Benchmark
+    public Map<String, String> decodeExtensionsHeader() throws BrokerException {
+        return ExtensionsCodec.decode(this.extensionsHeader);
+    }
+
+    // the publishEncoded path in FiscoBcosBroker4Producer
+    @Benchmark
+    public String extensionsHeaderToJson() throws BrokerException {
+        ExtensionsCodec.validate(this.extensionsHeader);
+        return ExtensionsCodec.toJson(this.extensionsHeader);
+    }
+}
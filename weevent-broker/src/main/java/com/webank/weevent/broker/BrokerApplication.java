@@ -12,12 +12,16 @@ import com.webank.weevent.core.IConsumer;
 import com.webank.weevent.core.IProducer;
 import com.webank.weevent.core.config.FabricConfig;
 import com.webank.weevent.core.config.FiscoConfig;
+import com.webank.weevent.core.config.SimulatorConfig;
 import com.webank.weevent.core.fabric.FabricBroker4Consumer;
 import com.webank.weevent.core.fabric.FabricBroker4Producer;
 import com.webank.weevent.core.fabric.sdk.FabricDelegate;
 import com.webank.weevent.core.fisco.FiscoBcosBroker4Consumer;
 import com.webank.weevent.core.fisco.FiscoBcosBroker4Producer;
 import com.webank.weevent.core.fisco.web3sdk.FiscoBcosDelegate;
+import com.webank.weevent.core.simulator.SimulatedChain;
+import com.webank.weevent.core.simulator.SimulatorBroker4Consumer;
+import com.webank.weevent.core.simulator.SimulatorBroker4Producer;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.googlecode.jsonrpc4j.ErrorResolver;
@@ -34,6 +38,7 @@ import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactor
 import org.springframework.boot.web.servlet.server.ConfigurableServletWebServerFactory;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -123,8 +128,9 @@ public class BrokerApplication {
     }
 
     // FiscoBcosDelegate
-    @Bean
+    @Bean(destroyMethod = "shutdown")
     @ConditionalOnProperty(prefix = "block.chain", name = "type", havingValue = "fisco")
+    @Profile("!simulator")
     public FiscoBcosDelegate fiscoBcosDelegate(FiscoConfig fiscoConfig) throws BrokerException {
         log.info("++++++++++ FISCO-BCOS Enter ++++++++++");
         fiscoConfig.load("");
@@ -136,6 +142,7 @@ public class BrokerApplication {
     // FabricDelegate
     @Bean
     @ConditionalOnProperty(prefix = "block.chain", name = "type", havingValue = "fabric")
+    @Profile("!simulator")
     public FabricDelegate fabricDelegate(FabricConfig fabricConfig) throws BrokerException {
         log.info("++++++++++ Fabric Enter ++++++++++");
         FabricDelegate fabricDelegate = new FabricDelegate();
@@ -180,6 +187,34 @@ public class BrokerApplication {
         return fabricBroker4Consumer;
     }
 
+    // in-process block chain for load testing, activate with spring.profiles.active=dev,simulator
+    @Bean(destroyMethod = "shutdown")
+    @Profile("simulator")
+    public SimulatedChain simulatedChain(SimulatorConfig simulatorConfig, FiscoConfig fiscoConfig) {
+        log.info("++++++++++ Simulator Enter ++++++++++");
+        // WeEventCoreConfig(timeout etc.) is in fisco.yml, protocols need it even without FISCO-BCOS
+        fiscoConfig.load("");
+        return new SimulatedChain(simulatorConfig);
+    }
+
+    // Simulator IProducer
+    @Bean
+    @Profile("simulator")
+    public IProducer simulatorIProducer(SimulatedChain simulatedChain) {
+        SimulatorBroker4Producer simulatorBroker4Producer = new SimulatorBroker4Producer(simulatedChain);
+        simulatorBroker4Producer.startProducer();
+        return simulatorBroker4Producer;
+    }
+
+    // Simulator IConsumer
+    @Bean
+    @Profile("simulator")
+    public IConsumer simulatorIConsumer(SimulatedChain simulatedChain, Executor taskExecutor) throws BrokerException {
+        SimulatorBroker4Consumer simulatorBroker4Consumer = new SimulatorBroker4Consumer(simulatedChain, taskExecutor);
+        simulatorBroker4Consumer.startConsumer();
+        return simulatorBroker4Consumer;
+    }
+
     // http filter
     @Bean
     public HttpInterceptorConfig interceptorConfig(WeEventConfig weEventConfig) {
@@ -32,12 +32,37 @@ public class WeEventConfig {
     @Value("${stomp.heartbeats:30}")
     private Integer stompHeartbeats;
 
+    @Value("${notify.batch.size:64}")
+    private Integer notifyBatchSize;
+
+    @Value("${notify.batch.linger:0}")
+    private Integer notifyBatchLinger;
+
     @Value("${mqtt.broker.tcp.port:0}")
     private Integer mqttTcpPort;
 
+    // MQTT over websocket in netty, not the one in web server's port
+    @Value("${mqtt.broker.websocket.port:0}")
+    private Integer mqttWebSocketPort;
+
+    @Value("${mqtt.broker.websocket.path:/mqtt}")
+    private String mqttWebSocketPath;
+
     @Value("${mqtt.broker.keepalive:60}")
     private Integer keepAlive;
 
+    // max PUBLISH in flight in one connection, stop reading from it if exceeded
+    @Value("${mqtt.broker.publish.inflight:64}")
+    private Integer mqttPublishInflight;
+
+    // max QoS 1 PUBLISH to one client waiting for PUBACK, resend them with DUP if reconnect in persist session
+    @Value("${mqtt.broker.subscribe.inflight:64}")
+    private Integer mqttSubscribeInflight;
+
+    // topic permission of user is cached at CONNECT, reload after expired, in seconds
+    @Value("${mqtt.broker.topic.auth.ttl:60}")
+    private Integer mqttTopicAuthTtl;
+
     @Value("${mqtt.broker.security.ssl:true}")
     private Boolean ssl;
     @Value("${mqtt.broker.security.ssl.client_auth:true}")
@@ -3,24 +3,26 @@ package com.webank.weevent.broker.protocol.mqtt;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.webank.weevent.broker.config.WeEventConfig;
-import com.webank.weevent.broker.entiry.AccountTopicAuthEntity;
 import com.webank.weevent.broker.entiry.AuthorSessions;
-import com.webank.weevent.broker.enums.IsDeleteEnum;
 import com.webank.weevent.broker.protocol.mqtt.command.Connect;
 import com.webank.weevent.broker.protocol.mqtt.command.DisConnect;
 import com.webank.weevent.broker.protocol.mqtt.command.PingReq;
 import com.webank.weevent.broker.protocol.mqtt.command.PubAck;
+import com.webank.weevent.broker.protocol.mqtt.command.PubComp;
+import com.webank.weevent.broker.protocol.mqtt.command.PubRec;
+import com.webank.weevent.broker.protocol.mqtt.command.PubRel;
 import com.webank.weevent.broker.protocol.mqtt.command.Publish;
 import com.webank.weevent.broker.protocol.mqtt.command.Subscribe;
 import com.webank.weevent.broker.protocol.mqtt.command.UnSubscribe;
 import com.webank.weevent.broker.protocol.mqtt.store.AuthService;
-import com.webank.weevent.broker.protocol.mqtt.store.MessageIdStore;
 import com.webank.weevent.broker.protocol.mqtt.store.PersistSession;
 import com.webank.weevent.broker.protocol.mqtt.store.SessionContext;
 import com.webank.weevent.broker.protocol.mqtt.store.SessionStore;
+import com.webank.weevent.broker.protocol.mqtt.store.TopicAuthCache;
 import com.webank.weevent.broker.repository.AccountRepository;
 import com.webank.weevent.broker.repository.AccountTopicAuthRepository;
 import com.webank.weevent.broker.utils.ZKStore;
@@ -69,23 +71,27 @@ public class ProtocolProcess {
     private final static Integer PUB = 2;
 
     private final int heartBeat;
+    private final int publishInflight;
 
     private final SessionStore sessionStore;
     // session id(channel id if from tcp) <-> clientId
     private final Map<String, AuthorSessions> authorSessions = new ConcurrentHashMap<>();
-    private final MessageIdStore messageIdStore = new MessageIdStore();
 
     // MQTT commands
     private final Connect connect;
     private final PingReq pingReq;
     private final Publish publish;
     private final PubAck pubAck;
+    private final PubRec pubRec;
+    private final PubRel pubRel;
+    private final PubComp pubComp;
     private final Subscribe subscribe;
     private final UnSubscribe unSubscribe;
     private final DisConnect disConnect;
 
-    private final Environment environment;
-    private final AccountTopicAuthRepository accountTopicAuthRepository;
+    // topic permission of user
+    private final boolean topicAuth;
+    private final TopicAuthCache topicAuthCache;
 
     @Autowired
     public ProtocolProcess(Environment environment,
@@ -106,31 +112,57 @@ public class ProtocolProcess {
             log.info("try to initialize ZKStore to persist MQTT session");
             zkStore = new ZKStore<>(PersistSession.class, "/WeEvent/mqtt", connectString);
         }
-        this.sessionStore = new SessionStore(producer, consumer, fiscoConfig.getWeEventCoreConfig().getTimeout(), this.messageIdStore, zkStore);
+        this.sessionStore = new SessionStore(producer,
+                consumer,
+                fiscoConfig.getWeEventCoreConfig().getTimeout(),
+                weEventConfig.getNotifyBatchSize(),
+                weEventConfig.getNotifyBatchLinger(),
+                weEventConfig.getMqttSubscribeInflight(),
+                zkStore);
         this.heartBeat = weEventConfig.getKeepAlive();
+        this.publishInflight = weEventConfig.getMqttPublishInflight();
 
         this.connect = new Connect(authService, this.sessionStore);
         this.pingReq = new PingReq();
         this.publish = new Publish(this.sessionStore);
-        this.pubAck = new PubAck(this.messageIdStore);
+        this.pubAck = new PubAck(this.sessionStore);
+        this.pubRec = new PubRec(this.sessionStore);
+        this.pubRel = new PubRel(this.sessionStore);
+        this.pubComp = new PubComp(this.sessionStore);
         this.subscribe = new Subscribe(this.sessionStore);
         this.unSubscribe = new UnSubscribe(this.sessionStore);
         this.disConnect = new DisConnect(this.sessionStore);
-        this.environment = environment;
-        this.accountTopicAuthRepository = accountTopicAuthRepository;
+        this.topicAuth = environment.getProperty("spring.security.user.topic.auth", Boolean.class, false);
+        this.topicAuthCache = new TopicAuthCache(accountTopicAuthRepository, weEventConfig.getMqttTopicAuthTtl() * 1000L);
     }
 
     public int getHeartBeat() {
         return heartBeat;
     }
 
+    public int getPublishInflight() {
+        return publishInflight;
+    }
+
+    public TopicAuthCache.Stat getTopicAuthStat() {
+        return this.topicAuthCache.getStat();
+    }
+
+    public void invalidateTopicAuth(String userName) {
+        this.topicAuthCache.invalidate(userName);
+    }
+
     public void cleanSession(String sessionId) {
-        if (this.authorSessions.containsKey(sessionId)) {
+        // remove first, so the connection is counted out only once
+        AuthorSessions authorSession = this.authorSessions.remove(sessionId);
+        if (authorSession != null) {
             log.info("clean session: {}", sessionId);
 
-            String clientId = this.authorSessions.get(sessionId).getClientId();
-            this.sessionStore.removeSession(clientId);
-            this.authorSessions.remove(sessionId);
+            this.sessionStore.removeSession(authorSession.getClientId());
+
+            if (this.topicAuth) {
+                this.topicAuthCache.disconnect(authorSession.getUserName());
+            }
         }
     }
 
@@ -160,8 +192,16 @@ public class ProtocolProcess {
         return Optional.empty();
     }
 
-    // CONNECT is different from the other command
-    public MqttConnAckMessage processConnect(MqttConnectMessage msg, SessionContext sessionData) {
+    /**
+     * CONNECT is different from the other command.
+     * CONNACK is completed after the topic permission is loaded in background, the caller should not read
+     * the next command before that.
+     *
+     * @param msg CONNECT from client
+     * @param sessionData session
+     * @return CONNACK, never completed exceptionally
+     */
+    public CompletableFuture<MqttConnAckMessage> processConnect(MqttConnectMessage msg, SessionContext sessionData) {
         log.info("CONNECT, client id: {}", sessionData.getClientId());
 
         MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.CONNACK, false, MqttQoS.AT_LEAST_ONCE, false, 0);
@@ -170,7 +210,7 @@ public class ProtocolProcess {
             log.error("MUST CONNECT only once in a connection");
             MqttMessage rsp = MqttMessageFactory.newMessage(fixedHeader,
                     new MqttConnAckVariableHeader(MqttConnectReturnCode.CONNECTION_REFUSED_UNACCEPTABLE_PROTOCOL_VERSION, false), null);
-            return (MqttConnAckMessage) rsp;
+            return CompletableFuture.completedFuture((MqttConnAckMessage) rsp);
         }
 
         MqttConnAckMessage rsp = (MqttConnAckMessage) this.connect.processConnect(msg, sessionData);
@@ -178,8 +218,20 @@ public class ProtocolProcess {
         if (rsp.variableHeader().connectReturnCode() == MqttConnectReturnCode.CONNECTION_ACCEPTED) {
             AuthorSessions sessionsParam = AuthorSessions.builder().clientId(sessionData.getClientId()).userName(msg.payload().userName()).build();
             this.authorSessions.put(sessionData.getSessionId(), sessionsParam);
+
+            // load topic permission once, PUBLISH/SUBSCRIBE check it in memory
+            if (this.topicAuth) {
+                return this.topicAuthCache.connect(msg.payload().userName()).handle((none, e) -> {
+                    if (e != null) {
+                        // the session is cleaned when channel closed
+                        return (MqttConnAckMessage) MqttMessageFactory.newMessage(fixedHeader,
+                                new MqttConnAckVariableHeader(MqttConnectReturnCode.CONNECTION_REFUSED_SERVER_UNAVAILABLE, false), null);
+                    }
+                    return rsp;
+                });
+            }
         }
-        return rsp;
+        return CompletableFuture.completedFuture(rsp);
     }
 
     public MqttPublishMessage genWillMessage(MqttConnectMessage connectMessage) {
@@ -196,7 +248,59 @@ public class ProtocolProcess {
         return null;
     }
 
+    /**
+     * PUBLISH without blocking the caller, see PublishWindow.
+     *
+     * @param req PUBLISH from client
+     * @param sessionId session id
+     * @param remoteIp remote ip
+     * @return response message need to send to remote if have
+     * @throws BrokerException throw exception if need close channel
+     */
+    public CompletableFuture<Optional<MqttMessage>> processPublish(MqttPublishMessage req, String sessionId, String remoteIp) throws BrokerException {
+        String clientId = this.authorize(req, sessionId);
+        return this.publish.processAsync(req, clientId, remoteIp);
+    }
+
     public Optional<MqttMessage> process(MqttMessage req, String sessionId, String remoteIp) throws BrokerException {
+        String clientId = this.authorize(req, sessionId);
+
+        switch (req.fixedHeader().messageType()) {
+            case PINGREQ:
+                return this.pingReq.process(req, clientId, remoteIp);
+
+            case PUBLISH:
+                return this.publish.process(req, clientId, remoteIp);
+
+            case PUBACK:
+                return this.pubAck.process(req, clientId, remoteIp);
+
+            case PUBREC:
+                return this.pubRec.process(req, clientId, remoteIp);
+
+            case PUBREL:
+                return this.pubRel.process(req, clientId, remoteIp);
+
+            case PUBCOMP:
+                return this.pubComp.process(req, clientId, remoteIp);
+
+            case SUBSCRIBE:
+                return this.subscribe.process(req, clientId, remoteIp);
+
+            case UNSUBSCRIBE:
+                return this.unSubscribe.process(req, clientId, remoteIp);
+
+            case DISCONNECT:
+                return this.disConnect.process(req, clientId, remoteIp);
+
+            default:
+                log.error("DO NOT support MQTT command, {}", req.fixedHeader().messageType());
+                throw new BrokerException(ErrorCode.MQTT_UNKNOWN_COMMAND);
+        }
+    }
+
+    // check session and topic permission, return client id
+    private String authorize(MqttMessage req, String sessionId) throws BrokerException {
         if (!this.authorSessions.containsKey(sessionId)) {
             log.error("MUST CONNECT first, skip it");
             throw new BrokerException(ErrorCode.MQTT_CONNECT_CONFLICT);
@@ -208,32 +312,26 @@ public class ProtocolProcess {
             throw new BrokerException(ErrorCode.MQTT_UNKNOWN_CLIENT_ID);
         }
 
-        boolean auth = environment.getProperty("spring.security.user.topic.auth", Boolean.class, false);
-        if (auth && req.fixedHeader().messageType().equals(MqttMessageType.PUBLISH)) {
-            boolean isAuth = false;
+        if (this.topicAuth && req.fixedHeader().messageType().equals(MqttMessageType.PUBLISH)) {
             String topicName = ((MqttPublishVariableHeader) req.variableHeader()).topicName();
             String userName = this.authorSessions.get(sessionId).getUserName();
 
-            List<AccountTopicAuthEntity> entities = accountTopicAuthRepository.findAllByUserNameAndDeleteAt(userName, IsDeleteEnum.NOT_DELETED.getCode());
-            for (AccountTopicAuthEntity entity : entities) {
-                if (entity.getTopicName().equals(topicName) && (entity.getPermission() == SUB_PUB || entity.getPermission() == SUB)) {
-                    isAuth = true;
-                }
-            }
+            Optional<Integer> permission = this.topicAuthCache.getPermission(userName, topicName);
+            boolean isAuth = permission.isPresent() && (SUB_PUB.equals(permission.get()) || SUB.equals(permission.get()));
             if (!isAuth) {
                 log.error("userName:{},topicName:{}, no publish permission", userName, topicName);
                 throw new BrokerException(ErrorCode.MQTT_NO_PUB_PERMISSION);
             }
         }
 
-        if (auth && req.fixedHeader().messageType().equals(MqttMessageType.SUBSCRIBE)) {
+        if (this.topicAuth && req.fixedHeader().messageType().equals(MqttMessageType.SUBSCRIBE)) {
             boolean isAuth = true;
             List<MqttTopicSubscription> topicSubscriptions = ((MqttSubscribePayload) req.payload()).topicSubscriptions();
             for (MqttTopicSubscription topicSubscription : topicSubscriptions) {
                 String topicName = topicSubscription.topicName();
                 String userName = this.authorSessions.get(sessionId).getUserName();
-                AccountTopicAuthEntity entity = accountTopicAuthRepository.findAllByUserNameAndTopicNameAndDeleteAt(userName, topicName, IsDeleteEnum.NOT_DELETED.getCode());
-                if (null != entity && (entity.getPermission() == SUB_PUB || entity.getPermission() == PUB)) {
+                Optional<Integer> permission = this.topicAuthCache.getPermission(userName, topicName);
+                if (permission.isPresent() && (SUB_PUB.equals(permission.get()) || PUB.equals(permission.get()))) {
                     continue;
                 }
                 log.error("userName:{},topicName:{}, no subscribe permission", userName, topicName);
@@ -245,28 +343,6 @@ public class ProtocolProcess {
             }
         }
 
-        switch (req.fixedHeader().messageType()) {
-            case PINGREQ:
-                return this.pingReq.process(req, clientId, remoteIp);
-
-            case PUBLISH:
-                return this.publish.process(req, clientId, remoteIp);
-
-            case PUBACK:
-                return this.pubAck.process(req, clientId, remoteIp);
-
-            case SUBSCRIBE:
-                return this.subscribe.process(req, clientId, remoteIp);
-
-            case UNSUBSCRIBE:
-                return this.unSubscribe.process(req, clientId, remoteIp);
-
-            case DISCONNECT:
-                return this.disConnect.process(req, clientId, remoteIp);
-
-            default:
-                log.error("DO NOT support MQTT command, {}", req.fixedHeader().messageType());
-                throw new BrokerException(ErrorCode.MQTT_UNKNOWN_COMMAND);
-        }
+        return clientId;
     }
 }
@@ -0,0 +1,103 @@
+package com.webank.weevent.broker.protocol.mqtt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * PUBLISH in flight in one connection.
+ * Publishing to block chain do not block the channel's event loop, the response(PUBACK) is sent from the completion
+ * callback in the event loop, and in the order of PUBLISH received(MQTT 3.1.1 section 4.6).
+ * The PUBLISH in the same topic go to block chain one by one, see SessionStore.publishMessageAsync, only the responses are asynchronous here.
+ * Stop reading from the channel if in flight is full, and resume after half of them is done.
+ * If a PUBLISH completed exceptionally, the channel is closed after the responses before it are sent.
+ * This class is not thread safe, all methods must be called in the channel's event loop.
+ */
+@Slf4j
+public class PublishWindow {
+    private static class Inflight {
+        private boolean done = false;
+        private boolean failed = false;
+        private Optional<MqttMessage> rsp = Optional.empty();
+    }
+
+    private final Channel channel;
+    // 0 means no limit
+    private final int maxInflight;
+    // in the order of received
+    private final Deque<Inflight> inflights = new ArrayDeque<>();
+
+    public PublishWindow(Channel channel, int maxInflight) {
+        this.channel = channel;
+        this.maxInflight = maxInflight;
+    }
+
+    public int size() {
+        return this.inflights.size();
+    }
+
+    /**
+     * add a PUBLISH in flight.
+     *
+     * @param future response message need to send to remote if have, close channel if completed exceptionally
+     */
+    public void submit(CompletableFuture<Optional<MqttMessage>> future) {
+        Inflight inflight = new Inflight();
+        this.inflights.addLast(inflight);
+        if (this.maxInflight > 0 && this.inflights.size() >= this.maxInflight && this.channel.config().isAutoRead()) {
+            log.warn("too many PUBLISH in flight, stop reading channel: {} size: {}", this.channel.id().asShortText(), this.inflights.size());
+            this.channel.config().setAutoRead(false);
+        }
+
+        future.whenComplete((rsp, e) -> {
+            // back to the event loop
+            try {
+                this.channel.eventLoop().execute(() -> this.complete(inflight, rsp, e));
+            } catch (RejectedExecutionException ex) {
+                log.error("event loop is shutdown, skip response");
+            }
+        });
+    }
+
+    private void complete(Inflight inflight, Optional<MqttMessage> rsp, Throwable e) {
+        inflight.done = true;
+        if (e == null) {
+            inflight.rsp = rsp;
+        } else {
+            log.error("PUBLISH failed in channel: {}, {}", this.channel.id().asShortText(), e.getMessage());
+            inflight.failed = true;
+        }
+
+        // send the done responses in head
+        boolean written = false;
+        while (!this.inflights.isEmpty() && this.inflights.peekFirst().done) {
+            Inflight head = this.inflights.pollFirst();
+            if (head.failed) {
+                log.error("close channel: {}", this.channel.id().asShortText());
+                this.inflights.clear();
+                this.channel.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+                return;
+            }
+            if (head.rsp.isPresent()) {
+                this.channel.write(head.rsp.get());
+                written = true;
+            }
+        }
+        if (written) {
+            this.channel.flush();
+        }
+
+        if (!this.channel.config().isAutoRead() && this.inflights.size() <= this.maxInflight / 2) {
+            log.info("resume reading channel: {} size: {}", this.channel.id().asShortText(), this.inflights.size());
+            this.channel.config().setAutoRead(true);
+        }
+    }
+}
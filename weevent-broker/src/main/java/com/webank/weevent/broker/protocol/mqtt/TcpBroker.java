@@ -14,6 +14,9 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.handler.codec.mqtt.MqttDecoder;
 import io.netty.handler.codec.mqtt.MqttEncoder;
 import io.netty.handler.logging.LogLevel;
@@ -39,6 +42,7 @@ public class TcpBroker {
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
     private Channel tcpChannel;
+    private Channel webSocketChannel;
 
     private ProtocolProcess protocolProcess;
 
@@ -60,30 +64,46 @@ public class TcpBroker {
 
     @PostConstruct
     public void start() throws Exception {
-        if (this.tcpChannel != null) {
+        if (this.bossGroup != null) {
             return;
         }
 
+        if (this.weEventConfig.getMqttTcpPort() <= 0 && this.weEventConfig.getMqttWebSocketPort() <= 0) {
+            return;
+        }
+        this.bossGroup = new NioEventLoopGroup();
+        this.workerGroup = new NioEventLoopGroup();
+
         // tcp
         if (this.weEventConfig.getMqttTcpPort() > 0) {
             log.info("setup MQTT over tcp on port: {}", this.weEventConfig.getMqttTcpPort());
-
-            this.bossGroup = new NioEventLoopGroup();
-            this.workerGroup = new NioEventLoopGroup();
             this.tcpChannel = tcpServer(this.weEventConfig.getMqttTcpPort());
         }
+
+        // websocket
+        if (this.weEventConfig.getMqttWebSocketPort() > 0) {
+            log.info("setup MQTT over websocket on port: {} path: {}", this.weEventConfig.getMqttWebSocketPort(), this.weEventConfig.getMqttWebSocketPath());
+            this.webSocketChannel = webSocketServer(this.weEventConfig.getMqttWebSocketPort());
+        }
     }
 
     @PreDestroy
     public void stop() {
-        if (this.tcpChannel == null) {
+        if (this.bossGroup == null) {
             return;
         }
 
         this.bossGroup.shutdownGracefully();
         this.workerGroup.shutdownGracefully();
-        this.tcpChannel.closeFuture().syncUninterruptibly();
-        this.tcpChannel = null;
+        if (this.tcpChannel != null) {
+            this.tcpChannel.closeFuture().syncUninterruptibly();
+            this.tcpChannel = null;
+        }
+        if (this.webSocketChannel != null) {
+            this.webSocketChannel.closeFuture().syncUninterruptibly();
+            this.webSocketChannel = null;
+        }
+        this.bossGroup = null;
     }
 
     private Channel tcpServer(int port) throws Exception {
@@ -111,4 +131,35 @@ public class TcpBroker {
                 });
         return serverBootstrap.bind(port).sync().channel();
     }
+
+    // the same as tcp, except websocket handshake and frame
+    private Channel webSocketServer(int port) throws Exception {
+        ServerBootstrap serverBootstrap = new ServerBootstrap();
+        serverBootstrap.group(this.bossGroup, this.workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .handler(new LoggingHandler(LogLevel.DEBUG))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel socketChannel) throws Exception {
+                        ChannelPipeline channelPipeline = socketChannel.pipeline();
+                        channelPipeline.addFirst("idle", new IdleStateHandler(
+                                0,
+                                0,
+                                weEventConfig.getKeepAlive()));
+
+                        if (weEventConfig.getSsl() && sslContext != null) {
+                            channelPipeline.addLast(sslContext.newHandler(socketChannel.alloc()));
+                        }
+                        channelPipeline.addLast("http", new HttpServerCodec());
+                        channelPipeline.addLast("aggregator", new HttpObjectAggregator(65536));
+                        // Sec-WebSocket-Protocol: mqtt
+                        channelPipeline.addLast("websocket", new WebSocketServerProtocolHandler(weEventConfig.getMqttWebSocketPath(), "mqtt, mqttv3.1, mqttv3.1.1"));
+                        channelPipeline.addLast("frame", WebSocketFrameCodec.INSTANCE);
+                        channelPipeline.addLast("decoder", new MqttDecoder());
+                        channelPipeline.addLast("encoder", MqttEncoder.INSTANCE);
+                        channelPipeline.addLast("broker", new TcpHandler(protocolProcess));
+                    }
+                });
+        return serverBootstrap.bind(port).sync().channel();
+    }
 }
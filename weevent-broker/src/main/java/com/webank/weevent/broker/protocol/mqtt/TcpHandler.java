@@ -2,6 +2,7 @@ package com.webank.weevent.broker.protocol.mqtt;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Optional;
 
 import com.webank.weevent.broker.protocol.mqtt.store.SessionContext;
@@ -10,7 +11,6 @@ import com.webank.weevent.client.BrokerException;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
-import io.netty.handler.codec.mqtt.MqttConnAckMessage;
 import io.netty.handler.codec.mqtt.MqttConnectMessage;
 import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
 import io.netty.handler.codec.mqtt.MqttMessage;
@@ -31,10 +31,18 @@ import lombok.extern.slf4j.Slf4j;
 public class TcpHandler extends SimpleChannelInboundHandler<MqttMessage> {
     private final ProtocolProcess protocolProcess;
 
+    // PUBLISH in flight in this connection
+    private PublishWindow publishWindow;
+
     public TcpHandler(ProtocolProcess protocolProcess) {
         this.protocolProcess = protocolProcess;
     }
 
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.publishWindow = new PublishWindow(ctx.channel(), this.protocolProcess.getPublishInflight());
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, MqttMessage msg) {
         String channelId = ctx.channel().id().asShortText();
@@ -59,11 +67,16 @@ public class TcpHandler extends SimpleChannelInboundHandler<MqttMessage> {
                     connectMessage.variableHeader().isCleanSession(),
                     willMessage);
 
-            MqttConnAckMessage rsp = this.protocolProcess.processConnect((MqttConnectMessage) msg, sessionData);
-            sendRemote(ctx.channel(), rsp);
-            if (rsp.variableHeader().connectReturnCode() != MqttConnectReturnCode.CONNECTION_ACCEPTED) {
-                ctx.channel().close();
-            }
+            // stop reading until CONNACK, topic permission is loading
+            ctx.channel().config().setAutoRead(false);
+            this.protocolProcess.processConnect((MqttConnectMessage) msg, sessionData).thenAccept(rsp -> {
+                sendRemote(ctx.channel(), rsp);
+                if (rsp.variableHeader().connectReturnCode() != MqttConnectReturnCode.CONNECTION_ACCEPTED) {
+                    ctx.channel().close();
+                } else {
+                    ctx.channel().config().setAutoRead(true);
+                }
+            });
             return;
         }
 
@@ -72,6 +85,12 @@ public class TcpHandler extends SimpleChannelInboundHandler<MqttMessage> {
 
         // process the other commands
         try {
+            // publish without blocking the event loop
+            if (msg.fixedHeader().messageType() == MqttMessageType.PUBLISH) {
+                this.publishWindow.submit(this.protocolProcess.processPublish((MqttPublishMessage) msg, channelId, remoteIp));
+                return;
+            }
+
             Optional<MqttMessage> rsp = this.protocolProcess.process(msg, channelId, remoteIp);
             rsp.ifPresent(mqttMessage -> sendRemote(ctx.channel(), mqttMessage));
 
@@ -127,4 +146,13 @@ public class TcpHandler extends SimpleChannelInboundHandler<MqttMessage> {
         log.info("send remote, channel: {} {}", channelId, msg.fixedHeader());
         channel.writeAndFlush(msg);
     }
+
+    public static void sendRemote(Channel channel, List<MqttMessage> msgs) {
+        String channelId = channel.id().asShortText();
+        log.info("send remote in batch, channel: {} message size: {}", channelId, msgs.size());
+        for (MqttMessage msg : msgs) {
+            channel.write(msg);
+        }
+        channel.flush();
+    }
 }
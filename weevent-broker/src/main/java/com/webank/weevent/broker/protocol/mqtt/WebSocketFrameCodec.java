@@ -0,0 +1,43 @@
+package com.webank.weevent.broker.protocol.mqtt;
+
+import java.util.List;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageCodec;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adapter between websocket binary frame and MQTT byte stream.
+ * MQTT control packet may be split into frames or batched in one frame, MqttDecoder deal with it as a stream.
+ * Ping/pong/close frame is dealt with in WebSocketServerProtocolHandler before.
+ */
+@Slf4j
+@ChannelHandler.Sharable
+public class WebSocketFrameCodec extends MessageToMessageCodec<WebSocketFrame, ByteBuf> {
+    public static final WebSocketFrameCodec INSTANCE = new WebSocketFrameCodec();
+
+    private WebSocketFrameCodec() {
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) {
+        out.add(new BinaryWebSocketFrame(msg.retain()));
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, WebSocketFrame msg, List<Object> out) {
+        if (msg instanceof BinaryWebSocketFrame || msg instanceof ContinuationWebSocketFrame) {
+            out.add(msg.content().retain());
+            return;
+        }
+
+        // MQTT 3.1.1 section 6.0, MUST close the connection if receive a not binary frame
+        log.error("MQTT need binary frame, close channel: {}", ctx.channel().id().asShortText());
+        ctx.close();
+    }
+}
@@ -1,9 +1,6 @@
 package com.webank.weevent.broker.protocol.mqtt;
 
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -13,9 +10,9 @@ import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.ErrorCode;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufAllocator;
-import io.netty.buffer.UnpooledByteBufAllocator;
-import io.netty.channel.ChannelHandlerContext;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.mqtt.MqttConnAckMessage;
 import io.netty.handler.codec.mqtt.MqttConnectMessage;
 import io.netty.handler.codec.mqtt.MqttConnectReturnCode;
@@ -43,15 +40,17 @@ import org.springframework.web.socket.handler.BinaryWebSocketHandler;
  * 2. stomp is supported by spring core originally.
  * 3. mqtt need deal with encode/decode carefully over spring websocket.
  * more websocket protocol see at https://tools.ietf.org/html/rfc6455.
+ * It's kept for the clients on web server's port, MQTT over websocket in netty is more efficient, see TcpBroker.
  *
  * @author matthewliu
  * @since 2018/04/09
+ * @deprecated use MQTT over websocket in netty instead, ws://host:${mqtt.broker.websocket.port}/mqtt, see TcpBroker.
  */
+@Deprecated
 @Slf4j
 @Component
 public class WebSocketMqtt extends BinaryWebSocketHandler implements SubProtocolCapable {
     private ProtocolProcess protocolProcess;
-    private final static ByteBufAllocator ALLOCATOR = new UnpooledByteBufAllocator(false);
 
     @Autowired
     public void setProtocolProcess(ProtocolProcess protocolProcess) {
@@ -97,7 +96,8 @@ public class WebSocketMqtt extends BinaryWebSocketHandler implements SubProtocol
                     connectMessage.variableHeader().isCleanSession(),
                     willMessage);
 
-            MqttConnAckMessage rsp = this.protocolProcess.processConnect((MqttConnectMessage) msg, sessionData);
+            // not in netty's event loop, waiting is fine
+            MqttConnAckMessage rsp = this.protocolProcess.processConnect((MqttConnectMessage) msg, sessionData).join();
             send2Remote(session, rsp);
             if (rsp.variableHeader().connectReturnCode() != MqttConnectReturnCode.CONNECTION_ACCEPTED) {
                 this.closeSession(session);
@@ -117,45 +117,44 @@ public class WebSocketMqtt extends BinaryWebSocketHandler implements SubProtocol
 
     // encode mqtt message into websocket BinaryMessage
     private static BinaryMessage encode(MqttMessage message) throws BrokerException {
-        ByteBuf byteBuf;
+        EmbeddedChannel channel = new EmbeddedChannel(MqttEncoder.INSTANCE);
         try {
-            //doEncode is not public access
-            Class<?> mqttEncoder = MqttEncoder.class;
-            Method doEncode = mqttEncoder.getDeclaredMethod("doEncode", ByteBufAllocator.class, MqttMessage.class);
-            doEncode.setAccessible(true);
-            byteBuf = (ByteBuf) doEncode.invoke(null, ALLOCATOR, message);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            log.error("invoke MqttEncoder.doEncode failed, {}", e.getMessage());
+            channel.writeOutbound(message);
+            ByteBuf byteBuf = channel.readOutbound();
+            if (byteBuf == null) {
+                log.error("encode mqtt message failed, no output");
+                throw new BrokerException(ErrorCode.MQTT_ENCODE_FAILED);
+            }
+
+            try {
+                byte[] data = new byte[byteBuf.readableBytes()];
+                byteBuf.readBytes(data);
+                return new BinaryMessage(data);
+            } finally {
+                byteBuf.release();
+            }
+        } catch (EncoderException e) {
+            log.error("encode mqtt message failed, {}", e.getMessage());
             throw new BrokerException(ErrorCode.MQTT_ENCODE_FAILED);
+        } finally {
+            channel.finishAndReleaseAll();
         }
-
-        return new BinaryMessage(byteBuf.array());
     }
 
     // decode mqtt message from websocket BinaryMessage
     private static MqttMessage decode(BinaryMessage message) throws BrokerException {
+        EmbeddedChannel channel = new EmbeddedChannel(new MqttDecoder());
         try {
-            ByteBufAllocator allocator = new UnpooledByteBufAllocator(false);
-            ByteBuf byteBuf = allocator.buffer(message.getPayloadLength());
-            byteBuf.writeBytes(message.getPayload().array());
-
-            Class<?> mqttDecoderClz = MqttDecoder.class;
-            Method decode = mqttDecoderClz.getDeclaredMethod("decode", ChannelHandlerContext.class, ByteBuf.class, List.class);
-            decode.setAccessible(true);
-
-            MqttDecoder mqttDecoder = new MqttDecoder();
-            List<Object> out = new ArrayList<>();
-            decode.invoke(mqttDecoder, null, byteBuf, out);
-
-            if (out.isEmpty()) {
+            channel.writeInbound(Unpooled.wrappedBuffer(message.getPayload()));
+            MqttMessage msg = channel.readInbound();
+            if (msg == null) {
                 log.error("decode mqtt message failed");
                 throw new BrokerException(ErrorCode.MQTT_DECODE_FAILED);
             }
 
-            return (MqttMessage) out.get(0);
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
-            log.error("decode mqtt message failed, {}", e.getMessage());
-            throw new BrokerException(ErrorCode.MQTT_DECODE_FAILED);
+            return msg;
+        } finally {
+            channel.finishAndReleaseAll();
         }
     }
 
@@ -170,6 +169,7 @@ public class WebSocketMqtt extends BinaryWebSocketHandler implements SubProtocol
     @Override
     public void afterConnectionEstablished(WebSocketSession session) {
         log.info("mqtt connection in, session id: {} remote: {}", session.getId(), session.getRemoteAddress());
+        log.warn("MQTT over websocket in web server's port is deprecated, use mqtt.broker.websocket.port instead");
     }
 
     @Override
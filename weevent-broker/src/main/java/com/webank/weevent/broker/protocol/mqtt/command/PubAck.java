@@ -2,7 +2,7 @@ package com.webank.weevent.broker.protocol.mqtt.command;
 
 import java.util.Optional;
 
-import com.webank.weevent.broker.protocol.mqtt.store.MessageIdStore;
+import com.webank.weevent.broker.protocol.mqtt.store.SessionStore;
 
 import io.netty.handler.codec.mqtt.MqttMessage;
 import io.netty.handler.codec.mqtt.MqttPubAckMessage;
@@ -15,10 +15,10 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class PubAck implements MqttCommand {
-    private final MessageIdStore messageIdStore;
+    private final SessionStore sessionStore;
 
-    public PubAck(MessageIdStore messageIdStore) {
-        this.messageIdStore = messageIdStore;
+    public PubAck(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
     }
 
     @Override
@@ -27,7 +27,7 @@ public class PubAck implements MqttCommand {
         int messageId = msg.variableHeader().messageId();
         log.info("PUBACK, message Id: {}", messageId);
 
-        this.messageIdStore.releaseMessageId(messageId);
+        this.sessionStore.releaseMessageId(clientId, messageId);
         return Optional.empty();
     }
 }
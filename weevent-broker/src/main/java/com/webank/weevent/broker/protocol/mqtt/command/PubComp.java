@@ -0,0 +1,30 @@
+package com.webank.weevent.broker.protocol.mqtt.command;
+
+import java.util.Optional;
+
+import com.webank.weevent.broker.protocol.mqtt.store.SessionStore;
+
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * PUBCOMP from client, the QoS 2 PUBLISH sent to client is done.
+ */
+@Slf4j
+public class PubComp implements MqttCommand {
+    private final SessionStore sessionStore;
+
+    public PubComp(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    @Override
+    public Optional<MqttMessage> process(MqttMessage req, String clientId, String remoteIp) {
+        int messageId = ((MqttMessageIdVariableHeader) req.variableHeader()).messageId();
+        log.info("PUBCOMP, message Id: {}", messageId);
+
+        this.sessionStore.releaseMessageId(clientId, messageId);
+        return Optional.empty();
+    }
+}
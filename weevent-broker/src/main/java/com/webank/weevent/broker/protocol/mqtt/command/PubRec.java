@@ -0,0 +1,31 @@
+package com.webank.weevent.broker.protocol.mqtt.command;
+
+import java.util.Optional;
+
+import com.webank.weevent.broker.protocol.mqtt.store.SessionStore;
+
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * PUBREC from client, the QoS 2 PUBLISH sent to client is received, reply PUBREL.
+ */
+@Slf4j
+public class PubRec implements MqttCommand {
+    private final SessionStore sessionStore;
+
+    public PubRec(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    @Override
+    public Optional<MqttMessage> process(MqttMessage req, String clientId, String remoteIp) {
+        int messageId = ((MqttMessageIdVariableHeader) req.variableHeader()).messageId();
+        log.info("PUBREC, message Id: {}", messageId);
+
+        // reply PUBREL even if unknown, client may lost the PUBCOMP state
+        this.sessionStore.pubRec(clientId, messageId);
+        return Optional.of(SessionStore.newPubRel(messageId));
+    }
+}
@@ -0,0 +1,37 @@
+package com.webank.weevent.broker.protocol.mqtt.command;
+
+import java.util.Optional;
+
+import com.webank.weevent.broker.protocol.mqtt.ProtocolProcess;
+import com.webank.weevent.broker.protocol.mqtt.store.SessionStore;
+
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageFactory;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * PUBREL from client, the QoS 2 PUBLISH from client is done, forget it's packet id and reply PUBCOMP.
+ */
+@Slf4j
+public class PubRel implements MqttCommand {
+    private final SessionStore sessionStore;
+
+    public PubRel(SessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    @Override
+    public Optional<MqttMessage> process(MqttMessage req, String clientId, String remoteIp) {
+        int messageId = ((MqttMessageIdVariableHeader) req.variableHeader()).messageId();
+        log.info("PUBREL, message Id: {}", messageId);
+
+        this.sessionStore.releaseReceived(clientId, messageId);
+        MqttMessage rsp = MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBCOMP, false, MqttQoS.AT_MOST_ONCE, false, ProtocolProcess.fixLengthOfMessageId),
+                MqttMessageIdVariableHeader.from(messageId), null);
+        return Optional.of(rsp);
+    }
+}
@@ -1,6 +1,8 @@
 package com.webank.weevent.broker.protocol.mqtt.command;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import com.webank.weevent.broker.protocol.mqtt.ProtocolProcess;
 import com.webank.weevent.broker.protocol.mqtt.store.SessionStore;
@@ -31,28 +33,71 @@ public class Publish implements MqttCommand {
 
     @Override
     public Optional<MqttMessage> process(MqttMessage req, String clientId, String remoteIp) throws BrokerException {
+        try {
+            return this.processAsync(req, clientId, remoteIp).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BrokerException) {
+                throw (BrokerException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * publish without blocking, PUBACK/PUBREC is in the completed future.
+     * QoS 2 PUBLISH is deduplicated by packet id until PUBREL, the duplicated one is not published again.
+     *
+     * @param req PUBLISH from client
+     * @param clientId client id
+     * @param remoteIp remote ip
+     * @return response message need to send to remote if have, completed exceptionally with BrokerException if need close channel
+     * @throws BrokerException throw exception if need close channel
+     */
+    public CompletableFuture<Optional<MqttMessage>> processAsync(MqttMessage req, String clientId, String remoteIp) throws BrokerException {
         MqttPublishMessage msg = (MqttPublishMessage) req;
         log.info("PUBLISH, {} Qos: {}", msg.variableHeader().topicName(), msg.fixedHeader().qosLevel());
 
         switch (msg.fixedHeader().qosLevel()) {
             case AT_MOST_ONCE: {
-                this.sessionStore.publishMessage(msg, false);
-                return Optional.empty();
+                return this.sessionStore.publishMessageAsync(clientId, msg, false).thenApply(result -> Optional.empty());
             }
 
             case AT_LEAST_ONCE: {
-                boolean result = this.sessionStore.publishMessage(msg, false);
-                MqttQoS qos = result ? MqttQoS.AT_LEAST_ONCE : MqttQoS.FAILURE;
-                MqttMessage rsp = MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBACK, false, qos, false, ProtocolProcess.fixLengthOfMessageId),
-                        MqttMessageIdVariableHeader.from(msg.variableHeader().packetId()), null);
-                return Optional.of(rsp);
+                int packetId = msg.variableHeader().packetId();
+                return this.sessionStore.publishMessageAsync(clientId, msg, false).thenApply(result -> {
+                    MqttQoS qos = result ? MqttQoS.AT_LEAST_ONCE : MqttQoS.FAILURE;
+                    MqttMessage rsp = MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBACK, false, qos, false, ProtocolProcess.fixLengthOfMessageId),
+                            MqttMessageIdVariableHeader.from(packetId), null);
+                    return Optional.of(rsp);
+                });
+            }
+
+            case EXACTLY_ONCE: {
+                int packetId = msg.variableHeader().packetId();
+                if (!this.sessionStore.markReceived(clientId, packetId)) {
+                    log.info("duplicated PUBLISH, reply PUBREC only. packet id: {}", packetId);
+                    return CompletableFuture.completedFuture(Optional.of(genPubRec(packetId)));
+                }
+
+                return this.sessionStore.publishMessageAsync(clientId, msg, false).thenApply(result -> {
+                    if (!result) {
+                        // PUBREC can not carry failure in 3.1.1, forget it and close channel, client will resend it after reconnect
+                        this.sessionStore.releaseReceived(clientId, packetId);
+                        throw new CompletionException(new BrokerException(ErrorCode.MQTT_PUBLISH_FAILED));
+                    }
+                    return Optional.of(genPubRec(packetId));
+                });
             }
 
-            case EXACTLY_ONCE:
             default: {
-                log.error("DOT NOT support Qos=2, close");
-                throw new BrokerException(ErrorCode.MQTT_NOT_SUPPORT_QOS2);
+                log.error("invalid Qos, {}", msg.fixedHeader().qosLevel());
+                throw new BrokerException(ErrorCode.MQTT_INVALID_QOS);
             }
         }
     }
+
+    private static MqttMessage genPubRec(int packetId) {
+        return MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBREC, false, MqttQoS.AT_MOST_ONCE, false, ProtocolProcess.fixLengthOfMessageId),
+                MqttMessageIdVariableHeader.from(packetId), null);
+    }
 }
@@ -11,7 +11,6 @@ import com.webank.weevent.broker.protocol.mqtt.ProtocolProcess;
 import com.webank.weevent.broker.protocol.mqtt.store.SessionStore;
 import com.webank.weevent.broker.protocol.mqtt.store.SubscribeData;
 import com.webank.weevent.client.BrokerException;
-import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.core.IConsumer;
 import com.webank.weevent.core.fisco.constant.WeEventConstants;
 
@@ -45,12 +44,6 @@ public class Subscribe implements MqttCommand {
         MqttSubscribeMessage msg = (MqttSubscribeMessage) req;
         log.info("SUBSCRIBE, {}", msg.payload().topicSubscriptions());
 
-        Optional<MqttTopicSubscription> notSupport = msg.payload().topicSubscriptions().stream().filter(item -> item.qualityOfService() == MqttQoS.EXACTLY_ONCE).findAny();
-        if (notSupport.isPresent()) {
-            log.error("DOT NOT support Qos=2, close");
-            throw new BrokerException(ErrorCode.MQTT_NOT_SUPPORT_QOS2);
-        }
-
         List<String> topics = msg.payload().topicSubscriptions().stream().map(MqttTopicSubscription::topicName).collect(Collectors.toList());
         if (topics.isEmpty()) {
             log.error("empty topic, skip it");
@@ -1,38 +1,163 @@
 package com.webank.weevent.broker.protocol.mqtt.store;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 
+import io.netty.handler.codec.mqtt.MqttQoS;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * Packet identifier allocator and QoS 1/2 inflight window of one session.
+ * The PUBLISH sent to client is in flight until PUBACK(QoS 1) or PUBCOMP(QoS 2), and resend when client reconnect.
+ * The QoS 2 PUBLISH received from client is remembered until PUBREL, to skip the duplicated one.
+ * It's thread safe and never blocks, the notify thread checks available before sending, see SessionStore.
+ *
  * @author websterchen
  * @version v1.0
  * @since 2019/6/8
  */
 @Slf4j
 public class MessageIdStore {
-    private final int MIN_MSG_ID = 1;
-    private final int MAX_MSG_ID = 65535;
-    private final Map<Integer, Integer> messageIdCache = new ConcurrentHashMap<>();
+    private static final int MIN_MSG_ID = 1;
+    private static final int MAX_MSG_ID = 65535;
+
+    /**
+     * PUBLISH waiting for PUBACK or PUBCOMP
+     */
+    @Getter
+    public static class Inflight {
+        private final int messageId;
+        private final String topic;
+        private final MqttQoS qos;
+        private final byte[] content;
+        // QoS 2 only, PUBREC received and PUBREL sent
+        private boolean released = false;
+
+        Inflight(int messageId, String topic, MqttQoS qos, byte[] content) {
+            this.messageId = messageId;
+            this.topic = topic;
+            this.qos = qos;
+            this.content = content;
+        }
+    }
+
+    // max PUBLISH in flight, 0 means no limit
+    private final int maxInflight;
+    // (messageId <-> PUBLISH), in the order of sent
+    private final Map<Integer, Inflight> inflights = new LinkedHashMap<>();
     private int nextMsgId = MIN_MSG_ID - 1;
+    // message id of QoS 2 PUBLISH received from client, waiting for PUBREL
+    private final Set<Integer> receivedIds = new HashSet<>();
+
+    public MessageIdStore(int maxInflight) {
+        this.maxInflight = maxInflight;
+    }
 
-    public int getNextMessageId() {
+    private int nextMessageId() {
         do {
-            nextMsgId++;
-            if (nextMsgId > MAX_MSG_ID) {
-                nextMsgId = MIN_MSG_ID;
+            this.nextMsgId++;
+            if (this.nextMsgId > MAX_MSG_ID) {
+                this.nextMsgId = MIN_MSG_ID;
             }
-        } while (messageIdCache.containsKey(nextMsgId));
-        messageIdCache.put(nextMsgId, nextMsgId);
-        return nextMsgId;
+        } while (this.inflights.containsKey(this.nextMsgId));
+        return this.nextMsgId;
+    }
+
+    /**
+     * free space in the inflight window.
+     *
+     * @return how many PUBLISH can be sent right now
+     */
+    public synchronized int available() {
+        int limit = this.maxInflight > 0 ? Math.min(this.maxInflight, MAX_MSG_ID) : MAX_MSG_ID;
+        return Math.max(limit - this.inflights.size(), 0);
+    }
+
+    /**
+     * allocate a message id and keep the PUBLISH in flight, without waiting.
+     * The window is checked by available before, more subscriptions in one session may go over it by one batch.
+     *
+     * @param topic topic name
+     * @param qos QoS level
+     * @param content payload
+     * @return message id, 0 if all the message id are in use
+     */
+    public synchronized int acquire(String topic, MqttQoS qos, byte[] content) {
+        if (this.inflights.size() >= MAX_MSG_ID) {
+            return 0;
+        }
+
+        int messageId = this.nextMessageId();
+        this.inflights.put(messageId, new Inflight(messageId, topic, qos, content));
+        return messageId;
     }
 
-    public void releaseMessageId(int messageId) {
-        try {
-            messageIdCache.remove(messageId);
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * QoS 2 PUBLISH is received by client, PUBREL is going to send.
+     *
+     * @param messageId message id
+     * @return false if not in flight
+     */
+    public synchronized boolean pubRec(int messageId) {
+        Inflight inflight = this.inflights.get(messageId);
+        if (inflight == null) {
+            log.warn("unknown message id in PUBREC, {}", messageId);
+            return false;
         }
+
+        inflight.released = true;
+        return true;
+    }
+
+    /**
+     * release the message id after PUBACK or PUBCOMP.
+     *
+     * @param messageId message id
+     * @return false if not in flight
+     */
+    public synchronized boolean release(int messageId) {
+        if (this.inflights.remove(messageId) == null) {
+            log.warn("unknown message id in PUBACK/PUBCOMP, {}", messageId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * all PUBLISH in flight, in the order of sent.
+     *
+     * @return PUBLISH list
+     */
+    public synchronized List<Inflight> listInflight() {
+        return new ArrayList<>(this.inflights.values());
+    }
+
+    /**
+     * remember the message id of QoS 2 PUBLISH from client.
+     *
+     * @param messageId message id
+     * @return false if it's a duplicated PUBLISH
+     */
+    public synchronized boolean markReceived(int messageId) {
+        return this.receivedIds.add(messageId);
+    }
+
+    /**
+     * forget the message id of QoS 2 PUBLISH from client, after PUBREL or publish failed.
+     *
+     * @param messageId message id
+     * @return false if not received
+     */
+    public synchronized boolean releaseReceived(int messageId) {
+        return this.receivedIds.remove(messageId);
+    }
+
+    public synchronized int size() {
+        return this.inflights.size();
     }
 }
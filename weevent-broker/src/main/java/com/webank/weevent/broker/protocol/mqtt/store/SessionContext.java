@@ -77,6 +77,18 @@ public class SessionContext {
         }
     }
 
+    // send in batch, flush once
+    public void sendRemote(List<MqttMessage> rsp) {
+        if (this.session != null) {
+            rsp.forEach(msg -> WebSocketMqtt.send2Remote(this.session, msg));
+            return;
+        }
+
+        if (this.channel != null) {
+            TcpHandler.sendRemote(this.channel, rsp);
+        }
+    }
+
     public void closeSession() {
         try {
             if (this.session != null) {
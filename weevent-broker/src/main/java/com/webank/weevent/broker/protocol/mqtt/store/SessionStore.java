@@ -1,30 +1,39 @@
 package com.webank.weevent.broker.protocol.mqtt.store;
 
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import com.webank.weevent.broker.protocol.mqtt.ProtocolProcess;
 import com.webank.weevent.broker.utils.ZKStore;
 import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.JsonHelper;
 import com.webank.weevent.client.SendResult;
 import com.webank.weevent.client.WeEvent;
 import com.webank.weevent.core.IConsumer;
 import com.webank.weevent.core.IProducer;
 import com.webank.weevent.core.fisco.constant.WeEventConstants;
+import com.webank.weevent.core.task.NotifyTask;
 
-import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.mqtt.MqttFixedHeader;
 import io.netty.handler.codec.mqtt.MqttMessage;
 import io.netty.handler.codec.mqtt.MqttMessageFactory;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
 import io.netty.handler.codec.mqtt.MqttMessageType;
 import io.netty.handler.codec.mqtt.MqttPublishMessage;
 import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -38,12 +47,23 @@ import lombok.extern.slf4j.Slf4j;
 public class SessionStore {
     private final IProducer producer;
     private final IConsumer consumer;
-    private final MessageIdStore messageIdStore;
+    private final int maxInflight;
     private final int timeout;
+    private final int batchSize;
+    private final int lingerTime;
+
+    // timer for publish timeout and resend
+    private final HashedWheelTimer timer = new HashedWheelTimer(new DefaultThreadFactory("mqtt-timer", true));
 
     // clientId <-> session
     private final Map<String, SessionContext> sessionContexts = new ConcurrentHashMap<>();
 
+    // clientId <-> packet id and PUBLISH in flight, keep it after connection closed if persist session
+    private final Map<String, MessageIdStore> messageIdStores = new ConcurrentHashMap<>();
+
+    // clientId/topic <-> the last PUBLISH to block chain, the next one in the same topic starts after it done
+    private final Map<String, CompletableFuture<Boolean>> publishTails = new ConcurrentHashMap<>();
+
     // persist session data update while connection open/close
     // PersistSession in local memory
     private final Map<String, PersistSession> persistSessions = new ConcurrentHashMap<>();
@@ -53,12 +73,16 @@ public class SessionStore {
     public SessionStore(IProducer producer,
                         IConsumer consumer,
                         int timeout,
-                        MessageIdStore messageIdStore,
+                        int batchSize,
+                        int lingerTime,
+                        int maxInflight,
                         ZKStore<PersistSession> zkStore) {
         this.producer = producer;
         this.consumer = consumer;
         this.timeout = timeout;
-        this.messageIdStore = messageIdStore;
+        this.batchSize = batchSize;
+        this.lingerTime = lingerTime;
+        this.maxInflight = maxInflight;
         this.zkStore = zkStore;
     }
 
@@ -67,6 +91,16 @@ public class SessionStore {
         log.info("add session context, client id: {}", clientId);
         this.sessionContexts.put(clientId, sessionContext);
 
+        if (sessionContext.isCleanSession()) {
+            this.messageIdStores.put(clientId, new MessageIdStore(this.maxInflight));
+        } else {
+            MessageIdStore messageIdStore = this.messageIdStores.computeIfAbsent(clientId, key -> new MessageIdStore(this.maxInflight));
+            // resend in timer, after CONNACK
+            if (messageIdStore.size() > 0) {
+                this.timer.newTimeout(handle -> this.resendInflight(clientId), 0, TimeUnit.MILLISECONDS);
+            }
+        }
+
         if (!sessionContext.isCleanSession()) {
             PersistSession value = new PersistSession(clientId);
 
@@ -146,21 +180,51 @@ public class SessionStore {
                 }
             }
 
+            // at most once, drop the oldest events if client is too slow
+            Map<IConsumer.SubscribeExt, String> subscribeExt = ext;
+            if (subscribeData.getMqttQoS() == MqttQoS.AT_MOST_ONCE) {
+                subscribeExt = new HashMap<>(ext);
+                subscribeExt.put(IConsumer.SubscribeExt.OverflowPolicy, NotifyTask.OverflowPolicy.DROP_OLDEST.name());
+            }
+
             String sid = this.consumer.subscribe(subscribeData.getTopic(),
                     subscribeData.getGroupId(),
                     offset,
-                    ext,
-                    new IConsumer.ConsumerListener() {
+                    subscribeExt,
+                    new IConsumer.BatchConsumerListener() {
                         @Override
-                        public void onEvent(String subscriptionId, WeEvent event) {
+                        public void onEvents(String subscriptionId, List<WeEvent> events) {
                             // send to subscribe
-                            int messageId = messageIdStore.getNextMessageId();
-                            sendEvent(subscribeData.getClientId(), subscriptionId, event, messageId);
+                            sendEvents(subscribeData.getClientId(), subscriptionId, events);
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batchSize;
+                        }
+
+                        @Override
+                        public int getLingerTime() {
+                            return lingerTime;
+                        }
+
+                        @Override
+                        public int getAvailable() {
+                            // QoS 0 is not in flight
+                            if (subscribeData.getMqttQoS() == MqttQoS.AT_MOST_ONCE) {
+                                return Integer.MAX_VALUE;
+                            }
+                            MessageIdStore messageIdStore = messageIdStores.get(subscribeData.getClientId());
+                            return messageIdStore == null ? Integer.MAX_VALUE : messageIdStore.available();
                         }
 
                         @Override
                         public void onException(Throwable e) {
                             log.error("consumer onException", e);
+                            if (e instanceof BrokerException
+                                    && ((BrokerException) e).getCode() == ErrorCode.SUBSCRIPTION_NOTIFY_QUEUE_FULL.getCode()) {
+                                getSession(subscribeData.getClientId()).ifPresent(SessionContext::closeSession);
+                            }
                         }
                     });
 
@@ -203,37 +267,125 @@ public class SessionStore {
         return Optional.empty();
     }
 
-    public boolean publishMessage(MqttPublishMessage msg, boolean will) {
+    /**
+     * publish without blocking the caller, the payload is copied before return.
+     * The PUBLISH from one client in the same topic go to block chain one by one in the order of received,
+     * the next one starts after the previous done(MQTT 3.1.1 section 4.6), different topics are in parallel.
+     *
+     * @param clientId client id
+     * @param msg PUBLISH from client
+     * @param will is will message
+     * @return true if success, false if failed or timeout, never completed exceptionally
+     */
+    public CompletableFuture<Boolean> publishMessageAsync(String clientId, MqttPublishMessage msg, boolean will) {
         byte[] messageBytes = new byte[msg.payload().readableBytes()];
         msg.payload().getBytes(msg.payload().readerIndex(), messageBytes);
         Map<String, String> extensions = new HashMap<>();
         if (will) {
             extensions.put(WeEventConstants.EXTENSIONS_WILL_MESSAGE, WeEventConstants.EXTENSIONS_WILL_MESSAGE);
         }
+        WeEvent event = new WeEvent(msg.variableHeader().topicName(), messageBytes, extensions);
+
+        // chain after the previous one in the same topic, a key conflict only serialize more
+        String key = clientId + "/" + event.getTopic();
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        CompletableFuture<Boolean> previous = this.publishTails.put(key, result);
+        result.whenComplete((done, e) -> this.publishTails.remove(key, result));
+        if (previous == null) {
+            this.doPublish(event, result);
+        } else {
+            previous.whenComplete((done, e) -> this.doPublish(event, result));
+        }
+        return result;
+    }
 
+    private void doPublish(WeEvent event, CompletableFuture<Boolean> result) {
         try {
-            WeEvent event = new WeEvent(msg.variableHeader().topicName(), messageBytes, extensions);
-            SendResult sendResult = this.producer.publish(event, "", this.timeout);
-            return sendResult.getStatus() == SendResult.SendResultStatus.SUCCESS;
+            CompletableFuture<SendResult> future = this.producer.publish(event, "");
+
+            Timeout expire = this.timer.newTimeout(handle -> {
+                if (result.complete(false)) {
+                    log.error("publish timeout, topic: {}", event.getTopic());
+                }
+            }, this.timeout, TimeUnit.MILLISECONDS);
+            future.whenComplete((sendResult, e) -> {
+                expire.cancel();
+                if (e != null) {
+                    log.error("exception in publish, {}", e.toString());
+                    result.complete(false);
+                    return;
+                }
+                result.complete(sendResult.getStatus() == SendResult.SendResultStatus.SUCCESS);
+            });
         } catch (BrokerException e) {
             log.error("exception in publish, {}", e.toString());
-            return false;
+            result.complete(false);
         }
     }
 
-    private void sendEvent(String clientId, String subscriptionId, WeEvent event, int messageId) {
-        ByteBuf payload = Unpooled.buffer();
-        int payloadSize;
-        try {
-            byte[] content = JsonHelper.object2JsonBytes(event.getContent());
-            payloadSize = content.length;
-            payload.writeBytes(content);
-        } catch (BrokerException e) {
-            log.error("json encode failed, {}", e.toString());
+    // PUBACK or PUBCOMP from client
+    public void releaseMessageId(String clientId, int messageId) {
+        MessageIdStore messageIdStore = this.messageIdStores.get(clientId);
+        if (messageIdStore != null) {
+            messageIdStore.release(messageId);
+        }
+    }
+
+    // PUBREC from client
+    public boolean pubRec(String clientId, int messageId) {
+        MessageIdStore messageIdStore = this.messageIdStores.get(clientId);
+        return messageIdStore != null && messageIdStore.pubRec(messageId);
+    }
+
+    // QoS 2 PUBLISH from client, return false if duplicated
+    public boolean markReceived(String clientId, int messageId) {
+        MessageIdStore messageIdStore = this.messageIdStores.get(clientId);
+        return messageIdStore == null || messageIdStore.markReceived(messageId);
+    }
+
+    // PUBREL from client, or publish failed
+    public void releaseReceived(String clientId, int messageId) {
+        MessageIdStore messageIdStore = this.messageIdStores.get(clientId);
+        if (messageIdStore != null) {
+            messageIdStore.releaseReceived(messageId);
+        }
+    }
+
+    public static MqttMessage newPubRel(int messageId) {
+        return MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBREL, false, MqttQoS.AT_LEAST_ONCE, false, ProtocolProcess.fixLengthOfMessageId),
+                MqttMessageIdVariableHeader.from(messageId), null);
+    }
+
+    private static MqttMessage newPublish(String topic, MqttQoS qos, int messageId, byte[] content, boolean dup) {
+        int remaining = ProtocolProcess.fixLengthOfMessageId + topic.length() + content.length;
+        return MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, dup, qos, false, remaining),
+                new MqttPublishVariableHeader(topic, messageId), Unpooled.wrappedBuffer(content));
+    }
+
+    // resend PUBLISH in flight with DUP flag, or PUBREL if PUBREC received, after reconnect, MQTT 3.1.1 section 4.4
+    private void resendInflight(String clientId) {
+        MessageIdStore messageIdStore = this.messageIdStores.get(clientId);
+        if (messageIdStore == null) {
             return;
         }
 
-        int finalPayloadSize = payloadSize;
+        this.getSession(clientId).ifPresent(context -> {
+            List<MqttMessage> messages = new ArrayList<>();
+            for (MessageIdStore.Inflight inflight : messageIdStore.listInflight()) {
+                if (inflight.isReleased()) {
+                    messages.add(newPubRel(inflight.getMessageId()));
+                } else {
+                    messages.add(newPublish(inflight.getTopic(), inflight.getQos(), inflight.getMessageId(), inflight.getContent(), true));
+                }
+            }
+            if (!messages.isEmpty()) {
+                log.info("resend PUBLISH in flight, client id: {} message size: {}", clientId, messages.size());
+                context.sendRemote(messages);
+            }
+        });
+    }
+
+    private void sendEvents(String clientId, String subscriptionId, List<WeEvent> events) {
         this.getSession(clientId).ifPresent(context -> {
             log.debug("subscription list in session context, {}", context.getSubscribeDataList());
 
@@ -242,26 +394,51 @@ public class SessionStore {
                     .filter(item -> item.getSubscriptionId().equals(subscriptionId))
                     .findFirst()
                     .ifPresent(subscribe -> {
-                        switch (subscribe.getMqttQoS()) {
-                            case AT_MOST_ONCE:
-                            case AT_LEAST_ONCE: {
-                                log.info("PUBLISH subscribe message to client, client id: {} {} {}", clientId, messageId, event);
-
-                                // update offset
-                                subscribe.setOffset(event.getEventId());
-
-                                int remaining = ProtocolProcess.fixLengthOfMessageId + subscribe.getTopic().length() + finalPayloadSize;
-                                //subscribe.getTopic() may be contain wildcard, use original topic in WeEvent
-                                MqttMessage rsp = MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, false, subscribe.getMqttQoS(), false, remaining),
-                                        new MqttPublishVariableHeader(event.getTopic(), messageId), payload);
-                                context.sendRemote(rsp);
+                        MessageIdStore messageIdStore = this.messageIdStores.get(clientId);
+                        if (messageIdStore == null) {
+                            return;
+                        }
+
+                        List<MqttMessage> messages = new ArrayList<>(events.size());
+                        boolean exhausted = false;
+                        for (WeEvent event : events) {
+                            byte[] content;
+                            try {
+                                content = JsonHelper.object2JsonBytes(event.getContent());
+                            } catch (BrokerException e) {
+                                log.error("json encode failed, {}", e.toString());
+                                continue;
                             }
-                            break;
 
-                            case EXACTLY_ONCE:
-                            default:
-                                log.error("DOT NOT support Qos=2");
-                                break;
+                            // QoS 0 do not need message id
+                            // the notify task has checked the inflight window, see getAvailable, do not wait here
+                            int messageId = 0;
+                            if (subscribe.getMqttQoS() != MqttQoS.AT_MOST_ONCE) {
+                                messageId = messageIdStore.acquire(event.getTopic(), subscribe.getMqttQoS(), content);
+                                if (messageId == 0) {
+                                    // the PUBLISH built before are in flight and offset is updated, send them before close
+                                    log.error("all the message id are in flight, client is too slow, close it. client id: {}", clientId);
+                                    exhausted = true;
+                                    break;
+                                }
+                            }
+                            log.debug("PUBLISH subscribe message to client, client id: {} {} {}", clientId, messageId, event);
+
+                            //subscribe.getTopic() may be contain wildcard, use original topic in WeEvent
+                            messages.add(newPublish(event.getTopic(), subscribe.getMqttQoS(), messageId, content, false));
+
+                            // update offset
+                            subscribe.setOffset(event.getEventId());
+                        }
+
+                        if (!messages.isEmpty()) {
+                            log.info("PUBLISH subscribe message to client, client id: {} message size: {} last eventId: {}",
+                                    clientId, messages.size(), subscribe.getOffset());
+                            // send all in one write
+                            context.sendRemote(messages);
+                        }
+                        if (exhausted) {
+                            context.closeSession();
                         }
                     });
         });
@@ -270,11 +447,14 @@ public class SessionStore {
     private void cleanContext(SessionContext sessionContext) {
         if (sessionContext.getWillMessage() != null) {
             log.info("publish will message");
-            this.publishMessage(sessionContext.getWillMessage(), true);
+            this.publishMessageAsync(sessionContext.getClientId(), sessionContext.getWillMessage(), true);
         }
 
         // deal with persist session
         if (sessionContext.isCleanSession()) {
+            // drop PUBLISH in flight
+            this.messageIdStores.remove(sessionContext.getClientId());
+
             // clean persist state in local memory
             this.persistSessions.remove(sessionContext.getClientId());
 
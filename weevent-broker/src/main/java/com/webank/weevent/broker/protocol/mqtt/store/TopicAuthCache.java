@@ -0,0 +1,216 @@
+package com.webank.weevent.broker.protocol.mqtt.store;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.webank.weevent.broker.entiry.AccountTopicAuthEntity;
+import com.webank.weevent.broker.enums.IsDeleteEnum;
+import com.webank.weevent.broker.repository.AccountTopicAuthRepository;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Topic permission of user in local memory.
+ * Loaded from database in background at CONNECT, and evicted after the user's last connection closed.
+ * An expired entry is still used while it's reloaded in background, so PUBLISH/SUBSCRIBE's authorization
+ * is always a memory lookup and never touches database in the event loop.
+ * Call invalidate after changing the user's permission in database, or it's seen after ttl.
+ */
+@Slf4j
+public class TopicAuthCache {
+    /**
+     * permissions of one user
+     */
+    private static class Entry {
+        // topic name <-> permission, null before the first loading
+        volatile Map<String, Integer> permissions;
+        volatile long expireAt;
+        // connections of this user, guarded by users map
+        int connections = 0;
+        // reloading in background
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        void update(Map<String, Integer> permissions, long expireAt) {
+            this.permissions = permissions;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * statistic of cache
+     */
+    @Data
+    public static class Stat {
+        private long hit;
+        // expired in lookup, reloaded in background
+        private long miss;
+        private double hitRate;
+        private int userCount;
+    }
+
+    private final AccountTopicAuthRepository accountTopicAuthRepository;
+    // time to live, in ms
+    private final long ttl;
+
+    // userName <-> permissions
+    private final Map<String, Entry> users = new ConcurrentHashMap<>();
+
+    // load and reload permissions, one by one
+    private final ExecutorService refresher = Executors.newSingleThreadExecutor(new DefaultThreadFactory("mqtt-topic-auth", true));
+
+    private final LongAdder hit = new LongAdder();
+    private final LongAdder miss = new LongAdder();
+
+    public TopicAuthCache(AccountTopicAuthRepository accountTopicAuthRepository, long ttl) {
+        this.accountTopicAuthRepository = accountTopicAuthRepository;
+        this.ttl = ttl;
+    }
+
+    private Map<String, Integer> query(String userName) {
+        List<AccountTopicAuthEntity> entities = this.accountTopicAuthRepository.findAllByUserNameAndDeleteAt(userName, IsDeleteEnum.NOT_DELETED.getCode());
+        Map<String, Integer> permissions = new HashMap<>();
+        for (AccountTopicAuthEntity entity : entities) {
+            permissions.put(entity.getTopicName(), entity.getPermission());
+        }
+        log.info("load topic permission, userName: {} size: {}", userName, permissions.size());
+        return permissions;
+    }
+
+    // load in refresher, after the loading in queue if have
+    private CompletableFuture<Void> load(String userName, Entry entry) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            this.refresher.execute(() -> {
+                try {
+                    entry.update(this.query(userName), System.currentTimeMillis() + this.ttl);
+                    future.complete(null);
+                } catch (RuntimeException e) {
+                    log.error("load topic permission failed, userName: " + userName, e);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.error("refresher is shutdown, skip loading");
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * count the connection in CONNECT, and load user's permissions from database in background.
+     * The caller should not accept any PUBLISH/SUBSCRIBE before the loading is done.
+     *
+     * @param userName user name
+     * @return completed after permissions loaded
+     */
+    public CompletableFuture<Void> connect(String userName) {
+        if (userName == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Entry entry = this.users.compute(userName, (key, value) -> {
+            Entry result = value == null ? new Entry() : value;
+            result.connections++;
+            return result;
+        });
+        return this.load(userName, entry);
+    }
+
+    /**
+     * reload user's permissions right now, used after it's changed in database.
+     * Lookups before the reloading is done still see the old permissions.
+     *
+     * @param userName user name
+     */
+    public void invalidate(String userName) {
+        Entry entry = this.users.get(userName);
+        if (entry == null) {
+            // not connected, loaded in next CONNECT
+            return;
+        }
+
+        log.info("invalidate topic permission, userName: {}", userName);
+        entry.expireAt = 0;
+        // always queue a new one, a reloading in flight may have read the old data
+        this.load(userName, entry);
+    }
+
+    /**
+     * connection closed, evict the user's permissions if it's the last one.
+     *
+     * @param userName user name
+     */
+    public void disconnect(String userName) {
+        if (userName == null) {
+            return;
+        }
+
+        this.users.computeIfPresent(userName, (key, entry) -> {
+            entry.connections--;
+            if (entry.connections > 0) {
+                return entry;
+            }
+            log.info("evict topic permission, userName: {}", userName);
+            return null;
+        });
+    }
+
+    // reload in background, at most one for every user
+    private void refresh(String userName, Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        this.load(userName, entry).whenComplete((none, e) -> entry.refreshing.set(false));
+    }
+
+    /**
+     * user's permission on topic.
+     *
+     * @param userName user name
+     * @param topicName topic name
+     * @return permission, empty if not authorized or not connected
+     */
+    public Optional<Integer> getPermission(String userName, String topicName) {
+        if (userName == null) {
+            return Optional.empty();
+        }
+
+        Entry entry = this.users.get(userName);
+        if (entry == null || entry.permissions == null) {
+            log.error("topic permission is not loaded, userName: {}", userName);
+            return Optional.empty();
+        }
+
+        if (entry.expireAt > System.currentTimeMillis()) {
+            this.hit.increment();
+        } else {
+            // use the expired one until reloaded
+            this.miss.increment();
+            this.refresh(userName, entry);
+        }
+
+        return Optional.ofNullable(entry.permissions.get(topicName));
+    }
+
+    public Stat getStat() {
+        Stat stat = new Stat();
+        stat.setHit(this.hit.sum());
+        stat.setMiss(this.miss.sum());
+        long total = stat.getHit() + stat.getMiss();
+        stat.setHitRate(total == 0 ? 0 : (double) stat.getHit() / total);
+        stat.setUserCount(this.users.size());
+        return stat;
+    }
+}
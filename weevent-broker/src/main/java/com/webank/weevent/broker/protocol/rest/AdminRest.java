@@ -9,6 +9,8 @@ import java.util.Map;
 import java.util.Optional;
 
 import com.webank.weevent.broker.config.BuildInfo;
+import com.webank.weevent.broker.protocol.mqtt.ProtocolProcess;
+import com.webank.weevent.broker.protocol.mqtt.store.TopicAuthCache;
 import com.webank.weevent.client.BaseResponse;
 import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.ErrorCode;
@@ -21,6 +23,7 @@ import com.webank.weevent.core.dto.SubscriptionInfo;
 import com.webank.weevent.core.dto.TbBlock;
 import com.webank.weevent.core.dto.TbNode;
 import com.webank.weevent.core.dto.TbTransHash;
+import com.webank.weevent.core.fisco.util.RejectionCounter;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -53,6 +56,7 @@ public class AdminRest {
     private IConsumer consumer;
     private BuildInfo buildInfo;
     private DiscoveryClient discoveryClient;
+    private ProtocolProcess protocolProcess;
 
     @Autowired
     public void setEnvironment(Environment environment) {
@@ -74,6 +78,11 @@ public class AdminRest {
         this.discoveryClient = discoveryClient;
     }
 
+    @Autowired
+    public void setProtocolProcess(ProtocolProcess protocolProcess) {
+        this.protocolProcess = protocolProcess;
+    }
+
     @RequestMapping(path = "/listGroup")
     public BaseResponse<List<String>> listGroup() throws BrokerException {
         return BaseResponse.buildSuccess(this.consumer.listGroupId());
@@ -145,6 +154,33 @@ public class AdminRest {
         return BaseResponse.buildSuccess(this.buildInfo);
     }
 
+    /**
+     * hit rate of MQTT topic permission cache
+     */
+    @RequestMapping(path = "/mqtt/topicAuthStat")
+    public BaseResponse<TopicAuthCache.Stat> getTopicAuthStat() {
+        return BaseResponse.buildSuccess(this.protocolProcess.getTopicAuthStat());
+    }
+
+    /**
+     * reload MQTT topic permission of the user, call it after t_account_topic_auth is changed
+     */
+    @RequestMapping(path = "/mqtt/invalidateTopicAuth")
+    public BaseResponse<Boolean> invalidateTopicAuth(@RequestParam(name = "userName") String userName) {
+        log.info("userName: {}", userName);
+
+        this.protocolProcess.invalidateTopicAuth(userName);
+        return BaseResponse.buildSuccess(true);
+    }
+
+    /**
+     * rejected task count of every named thread pool, (pool name <-> rejected count)
+     */
+    @RequestMapping(path = "/threadPool/rejected")
+    public BaseResponse<Map<String, Long>> getRejectedCounts() {
+        return BaseResponse.buildSuccess(RejectionCounter.getRejectedCounts());
+    }
+
     /**
      * get general
      */
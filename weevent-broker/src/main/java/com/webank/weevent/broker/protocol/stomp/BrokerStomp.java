@@ -1,5 +1,6 @@
 package com.webank.weevent.broker.protocol.stomp;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -438,16 +439,30 @@ public class BrokerStomp extends TextWebSocketHandler {
         }
 
         IConsumer.ConsumerListener listener;
-        listener = new IConsumer.ConsumerListener() {
+        listener = new IConsumer.BatchConsumerListener() {
             @Override
-            public void onEvent(String subscriptionId, WeEvent event) {
-                log.info("consumer onEvent, subscriptionId: {} event: {}", subscriptionId, event);
-                handleOnEvent(headerIdStr, subscriptionId, event, session);
+            public void onEvents(String subscriptionId, List<WeEvent> events) {
+                log.info("consumer onEvents, subscriptionId: {} event size: {}", subscriptionId, events.size());
+                handleOnEvents(headerIdStr, subscriptionId, events, session);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return weEventConfig.getNotifyBatchSize();
+            }
+
+            @Override
+            public int getLingerTime() {
+                return weEventConfig.getNotifyBatchLinger();
             }
 
             @Override
             public void onException(Throwable e) {
                 log.error("consumer onException", e);
+                if (e instanceof BrokerException
+                        && ((BrokerException) e).getCode() == ErrorCode.SUBSCRIPTION_NOTIFY_QUEUE_FULL.getCode()) {
+                    closeSession(session);
+                }
             }
         };
 
@@ -461,10 +476,27 @@ public class BrokerStomp extends TextWebSocketHandler {
         return subscriptionId;
     }
 
-    private void handleOnEvent(String headerIdStr,
+    // send all MESSAGE frames in one websocket message
+    private void handleOnEvents(String headerIdStr,
+                                String subscriptionId,
+                                List<WeEvent> events,
+                                WebSocketSession session) {
+        if (events.size() == 1) {
+            send2Remote(session, new TextMessage(encodeEvent(headerIdStr, subscriptionId, events.get(0))));
+            return;
+        }
+
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        for (WeEvent event : events) {
+            byte[] bytes = encodeEvent(headerIdStr, subscriptionId, event);
+            frames.write(bytes, 0, bytes.length);
+        }
+        send2Remote(session, new TextMessage(frames.toByteArray()));
+    }
+
+    private byte[] encodeEvent(String headerIdStr,
                                String subscriptionId,
-                               WeEvent event,
-                               WebSocketSession session) {
+                               WeEvent event) {
         StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
         // package the return frame
         accessor.setSubscriptionId(headerIdStr);
@@ -484,10 +516,7 @@ public class BrokerStomp extends TextWebSocketHandler {
         // payload == content
         MessageHeaders headers = accessor.getMessageHeaders();
         Message<byte[]> message = MessageBuilder.createMessage(event.getContent(), headers);
-        byte[] bytes = new StompEncoder().encode(message);
-
-        // send to remote
-        send2Remote(session, new TextMessage(bytes));
+        return new StompEncoder().encode(message);
     }
 
     /**
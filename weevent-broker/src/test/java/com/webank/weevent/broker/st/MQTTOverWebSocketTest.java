@@ -2,8 +2,11 @@ package com.webank.weevent.broker.st;
 
 import java.nio.charset.StandardCharsets;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.webank.weevent.broker.JUnitTestBase;
+import com.webank.weevent.broker.config.WeEventConfig;
 
 import io.netty.handler.codec.mqtt.MqttQoS;
 import lombok.extern.slf4j.Slf4j;
@@ -17,8 +20,11 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
 
 @Slf4j
+@TestPropertySource(properties = {"mqtt.broker.websocket.port=7003"})
 public class MQTTOverWebSocketTest extends JUnitTestBase {
     private final String topicName = "com.weevent.test";
 
@@ -29,6 +35,9 @@ public class MQTTOverWebSocketTest extends JUnitTestBase {
     private final String content = "hello mqtt via websocket";
     private MqttConnectOptions cleanupOptions;
 
+    @Autowired
+    private WeEventConfig weEventConfig;
+
     static class MessageListener implements IMqttMessageListener {
         public int received = 0;
 
@@ -212,6 +221,39 @@ public class MQTTOverWebSocketTest extends JUnitTestBase {
         }
     }
 
+    /**
+     * MQTT over websocket in netty(mqtt.broker.websocket.port)
+     */
+    @Test
+    public void testNettyWebSocket() {
+        try {
+            String nettyUrl = String.format("ws://localhost:%d%s",
+                    this.weEventConfig.getMqttWebSocketPort(), this.weEventConfig.getMqttWebSocketPath());
+            MqttClient nettyClient = new MqttClient(nettyUrl, UUID.randomUUID().toString(), null);
+            nettyClient.connect(this.cleanupOptions);
+
+            CountDownLatch latch = new CountDownLatch(1);
+            IMqttToken token = nettyClient.subscribeWithResponse(this.topicName, (topic, message) -> latch.countDown());
+            token.waitForCompletion();
+            Assert.assertEquals(token.getGrantedQos()[0], MqttQoS.AT_LEAST_ONCE.value());
+
+            MqttMessage message = new MqttMessage(this.content.getBytes(StandardCharsets.UTF_8));
+            message.setQos(1);
+            nettyClient.publish(this.topicName, message);
+
+            Assert.assertTrue(latch.await(this.actionTimeout, TimeUnit.MILLISECONDS));
+
+            nettyClient.disconnect();
+        } catch (MqttException e) {
+            log.error("exception", e);
+            Assert.fail();
+        } catch (InterruptedException e) {
+            log.error("exception", e);
+            Thread.currentThread().interrupt();
+            Assert.fail();
+        }
+    }
+
     @Test
     public void testSubscribeNotExist() {
         try {
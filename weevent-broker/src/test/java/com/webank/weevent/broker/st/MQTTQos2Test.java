@@ -0,0 +1,260 @@
+package com.webank.weevent.broker.st;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.broker.JUnitTestBase;
+import com.webank.weevent.broker.config.WeEventConfig;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.IProducer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.mqtt.MqttConnectMessage;
+import io.netty.handler.codec.mqtt.MqttConnectPayload;
+import io.netty.handler.codec.mqtt.MqttConnectVariableHeader;
+import io.netty.handler.codec.mqtt.MqttEncoder;
+import io.netty.handler.codec.mqtt.MqttFixedHeader;
+import io.netty.handler.codec.mqtt.MqttMessage;
+import io.netty.handler.codec.mqtt.MqttMessageFactory;
+import io.netty.handler.codec.mqtt.MqttMessageIdVariableHeader;
+import io.netty.handler.codec.mqtt.MqttMessageType;
+import io.netty.handler.codec.mqtt.MqttPublishVariableHeader;
+import io.netty.handler.codec.mqtt.MqttQoS;
+import io.netty.handler.codec.mqtt.MqttVersion;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * MQTT QoS 2 Tester.
+ * Paho client against the in-process TcpBroker, on the block chain simulator.
+ */
+@Slf4j
+@ActiveProfiles({"dev", "simulator"})
+@TestPropertySource(properties = {"mqtt.broker.tcp.port=7002", "simulator.block.interval=100"})
+public class MQTTQos2Test extends JUnitTestBase {
+    private final String topicName = "com.weevent.qos2";
+
+    private final String host = "localhost";
+    private final int actionTimeout = 3000;
+    // no more delivery in this window after the expected ones
+    private final int duplicatedWindow = 1000;
+
+    private int port;
+    private MqttClient mqttClient;
+    private final String content = "hello mqtt qos2";
+
+    @Autowired
+    private WeEventConfig weEventConfig;
+
+    @Autowired
+    private IProducer producer;
+
+    @Autowired
+    private IConsumer consumer;
+
+    static class MessageListener implements IMqttMessageListener {
+        // count down to 0 after the expected deliveries
+        public final CountDownLatch expected;
+        // count down to 0 only if there is one more delivery
+        public final CountDownLatch more;
+
+        MessageListener(int count) {
+            this.expected = new CountDownLatch(count);
+            this.more = new CountDownLatch(count + 1);
+        }
+
+        @Override
+        public void messageArrived(String topic, org.eclipse.paho.client.mqttv3.MqttMessage message) {
+            log.info("received message, {}", message.getPayload());
+            this.expected.countDown();
+            this.more.countDown();
+        }
+    }
+
+    @Before
+    public void before() throws Exception {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.port = this.weEventConfig.getMqttTcpPort();
+        this.producer.startProducer();
+        this.producer.open(this.topicName, "");
+
+        MqttConnectOptions options = new MqttConnectOptions();
+        options.setConnectionTimeout(this.actionTimeout);
+        options.setKeepAliveInterval(this.actionTimeout);
+        options.setMqttVersion(MqttConnectOptions.MQTT_VERSION_3_1_1);
+        options.setCleanSession(true);
+
+        this.mqttClient = new MqttClient("tcp://" + this.host + ":" + this.port, UUID.randomUUID().toString(), null);
+        this.mqttClient.connect(options);
+    }
+
+    @After
+    public void after() throws Exception {
+        if (this.mqttClient != null && this.mqttClient.isConnected()) {
+            this.mqttClient.disconnect();
+        }
+    }
+
+    // encode into bytes in MQTT 3.1.1
+    private static byte[] encode(MqttMessage message) {
+        EmbeddedChannel channel = new EmbeddedChannel(MqttEncoder.INSTANCE);
+        channel.writeOutbound(message);
+        ByteBuf buf = channel.readOutbound();
+        byte[] data = new byte[buf.readableBytes()];
+        buf.readBytes(data);
+        buf.release();
+        channel.finish();
+        return data;
+    }
+
+    // read a fixed 4 bytes packet(CONNACK, PUBREC, PUBCOMP), return the packet type
+    private static MqttMessageType readAck(DataInputStream input) throws Exception {
+        byte[] data = new byte[4];
+        input.readFully(data);
+        Assert.assertEquals(2, data[1]);
+        return MqttMessageType.valueOf((data[0] & 0xF0) >> 4);
+    }
+
+    // CONNECT in MQTT 3.1.1 with a clean session
+    private static void connect(OutputStream output, DataInputStream input) throws Exception {
+        MqttConnectMessage connect = new MqttConnectMessage(new MqttFixedHeader(MqttMessageType.CONNECT, false, MqttQoS.AT_MOST_ONCE, false, 0),
+                new MqttConnectVariableHeader(MqttVersion.MQTT_3_1_1.protocolName(), MqttVersion.MQTT_3_1_1.protocolLevel(),
+                        false, false, false, 0, false, true, 60),
+                new MqttConnectPayload(UUID.randomUUID().toString(), null, (byte[]) null, null, (byte[]) null));
+        output.write(encode(connect));
+        Assert.assertEquals(MqttMessageType.CONNACK, readAck(input));
+    }
+
+    /**
+     * PUBLISH -> PUBREC -> PUBREL -> PUBCOMP, and the event is on chain
+     */
+    @Test
+    public void testPublish() {
+        try {
+            // get the event id from a consumer
+            String uniqueContent = this.content + UUID.randomUUID().toString();
+            CompletableFuture<WeEvent> published = new CompletableFuture<>();
+            String subscriptionId = this.consumer.subscribe(this.topicName, WeEvent.DEFAULT_GROUP_ID, WeEvent.OFFSET_LAST, new HashMap<>(), new IConsumer.ConsumerListener() {
+                @Override
+                public void onEvent(String subscriptionId, WeEvent event) {
+                    if (uniqueContent.equals(new String(event.getContent(), StandardCharsets.UTF_8))) {
+                        published.complete(event);
+                    }
+                }
+
+                @Override
+                public void onException(Throwable e) {
+                    published.completeExceptionally(e);
+                }
+            });
+
+            int packetId = 1;
+            try (Socket socket = new Socket(this.host, this.port)) {
+                OutputStream output = socket.getOutputStream();
+                DataInputStream input = new DataInputStream(socket.getInputStream());
+                connect(output, input);
+
+                output.write(encode(MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.EXACTLY_ONCE, false, 0),
+                        new MqttPublishVariableHeader(this.topicName, packetId), Unpooled.wrappedBuffer(uniqueContent.getBytes(StandardCharsets.UTF_8)))));
+                Assert.assertEquals(MqttMessageType.PUBREC, readAck(input));
+
+                output.write(encode(MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBREL, false, MqttQoS.AT_LEAST_ONCE, false, 0),
+                        MqttMessageIdVariableHeader.from(packetId), null)));
+                Assert.assertEquals(MqttMessageType.PUBCOMP, readAck(input));
+            }
+
+            WeEvent event = published.get(this.actionTimeout, TimeUnit.MILLISECONDS);
+            this.consumer.unSubscribe(subscriptionId);
+
+            WeEvent onChain = this.producer.getEvent(event.getEventId(), WeEvent.DEFAULT_GROUP_ID);
+            Assert.assertEquals(this.topicName, onChain.getTopic());
+            Assert.assertEquals(uniqueContent, new String(onChain.getContent(), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.error("exception", e);
+            Assert.fail();
+        }
+    }
+
+    /**
+     * PUBLISH -> PUBREC -> PUBREL -> PUBCOMP, to subscriber
+     */
+    @Test
+    public void testSubscribe() {
+        try {
+            MessageListener listener = new MessageListener(1);
+            IMqttToken token = this.mqttClient.subscribeWithResponse(this.topicName, 2, listener);
+            token.waitForCompletion();
+            Assert.assertEquals(MqttQoS.EXACTLY_ONCE.value(), token.getGrantedQos()[0]);
+
+            org.eclipse.paho.client.mqttv3.MqttMessage message = new org.eclipse.paho.client.mqttv3.MqttMessage(this.content.getBytes(StandardCharsets.UTF_8));
+            message.setQos(2);
+            this.mqttClient.publish(this.topicName, message);
+
+            Assert.assertTrue(listener.expected.await(this.actionTimeout, TimeUnit.MILLISECONDS));
+            Assert.assertFalse(listener.more.await(this.duplicatedWindow, TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            log.error("exception", e);
+            Assert.fail();
+        }
+    }
+
+    /**
+     * the duplicated PUBLISH with the same packet id is published only once
+     */
+    @Test
+    public void testPublishDuplicated() {
+        try {
+            MessageListener listener = new MessageListener(1);
+            this.mqttClient.subscribeWithResponse(this.topicName, 2, listener).waitForCompletion();
+
+            int packetId = 1;
+            byte[] payload = this.content.getBytes(StandardCharsets.UTF_8);
+            try (Socket socket = new Socket(this.host, this.port)) {
+                OutputStream output = socket.getOutputStream();
+                DataInputStream input = new DataInputStream(socket.getInputStream());
+                connect(output, input);
+
+                // PUBLISH twice, the second is DUP
+                output.write(encode(MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.EXACTLY_ONCE, false, 0),
+                        new MqttPublishVariableHeader(this.topicName, packetId), Unpooled.wrappedBuffer(payload))));
+                output.write(encode(MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBLISH, true, MqttQoS.EXACTLY_ONCE, false, 0),
+                        new MqttPublishVariableHeader(this.topicName, packetId), Unpooled.wrappedBuffer(payload))));
+                Assert.assertEquals(MqttMessageType.PUBREC, readAck(input));
+                Assert.assertEquals(MqttMessageType.PUBREC, readAck(input));
+
+                output.write(encode(MqttMessageFactory.newMessage(new MqttFixedHeader(MqttMessageType.PUBREL, false, MqttQoS.AT_LEAST_ONCE, false, 0),
+                        MqttMessageIdVariableHeader.from(packetId), null)));
+                Assert.assertEquals(MqttMessageType.PUBCOMP, readAck(input));
+            }
+
+            Assert.assertTrue(listener.expected.await(this.actionTimeout, TimeUnit.MILLISECONDS));
+            Assert.assertFalse(listener.more.await(this.duplicatedWindow, TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            log.error("exception", e);
+            Assert.fail();
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.webank.weevent.broker.st;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import com.webank.weevent.broker.JUnitTestBase;
 
 import io.netty.handler.codec.mqtt.MqttQoS;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
 import org.eclipse.paho.client.mqttv3.IMqttMessageListener;
 import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
@@ -24,6 +31,8 @@ public class MQTTTest extends JUnitTestBase {
 
     private final String url = "tcp://localhost:7001";
     private final int actionTimeout = 3000;
+    // no more delivery in this window after the expected ones
+    private final int duplicatedWindow = 1000;
 
     private MqttClient mqttClient;
     private final String content = "hello mqtt via tcp";
@@ -41,6 +50,41 @@ public class MQTTTest extends JUnitTestBase {
         }
     }
 
+    /**
+     * record the deliveries with the given content prefix in arrived order, ignore the others in the same topic
+     */
+    static class SequenceListener implements IMqttMessageListener {
+        private final String prefix;
+        public final List<String> received = Collections.synchronizedList(new ArrayList<>());
+        // count down to 0 after the expected deliveries
+        public final CountDownLatch expected;
+        // count down to 0 only if there is one more delivery
+        public final CountDownLatch more;
+
+        SequenceListener(String prefix, int count) {
+            this.prefix = prefix;
+            this.expected = new CountDownLatch(count);
+            this.more = new CountDownLatch(count + 1);
+        }
+
+        @Override
+        public void messageArrived(String topic, MqttMessage message) {
+            String content = new String(message.getPayload(), StandardCharsets.UTF_8);
+            if (content.startsWith(this.prefix)) {
+                this.received.add(content);
+                this.expected.countDown();
+                this.more.countDown();
+            }
+        }
+    }
+
+    // exactly the sent ones in the same order, no more
+    private void assertSequence(SequenceListener listener, List<String> sent) throws InterruptedException {
+        Assert.assertTrue(listener.expected.await(this.actionTimeout, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(listener.more.await(this.duplicatedWindow, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(sent, new ArrayList<>(listener.received));
+    }
+
     @Before
     public void before() throws Exception {
         log.info("=============================={}.{}==============================",
@@ -208,13 +252,114 @@ public class MQTTTest extends JUnitTestBase {
         }
     }
 
-    @Test(expected = MqttException.class)
-    public void testPublishQos2() throws MqttException {
-        MqttMessage message = new MqttMessage(this.content.getBytes(StandardCharsets.UTF_8));
-        message.setQos(2);
-        this.mqttClient.publish(this.topicName, message);
+    /**
+     * many QoS1 PUBLISH in flight in one connection, all of them are delivered once in order
+     */
+    @Test
+    public void testPublishQos1Pipelined() {
+        try {
+            String prefix = UUID.randomUUID().toString();
+            int count = 100;
+            SequenceListener listener = new SequenceListener(prefix, count);
+            this.mqttClient.subscribeWithResponse(this.topicName, 1, listener).waitForCompletion();
+
+            MqttConnectOptions options = new MqttConnectOptions();
+            options.setConnectionTimeout(this.actionTimeout);
+            options.setKeepAliveInterval(this.actionTimeout);
+            options.setMqttVersion(MqttConnectOptions.MQTT_VERSION_3_1_1);
+            options.setCleanSession(true);
+            options.setMaxInflight(100);
+
+            MqttAsyncClient asyncClient = new MqttAsyncClient(this.url, UUID.randomUUID().toString(), null);
+            asyncClient.connect(options).waitForCompletion(this.actionTimeout);
+
+            List<String> sent = new ArrayList<>();
+            List<IMqttDeliveryToken> tokens = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String content = prefix + i;
+                sent.add(content);
+                MqttMessage message = new MqttMessage(content.getBytes(StandardCharsets.UTF_8));
+                message.setQos(1);
+                tokens.add(asyncClient.publish(this.topicName, message));
+            }
+            for (IMqttDeliveryToken token : tokens) {
+                token.waitForCompletion(this.actionTimeout);
+                Assert.assertTrue(token.isComplete());
+            }
+
+            asyncClient.disconnect().waitForCompletion(this.actionTimeout);
+            asyncClient.close();
+
+            this.assertSequence(listener, sent);
+        } catch (MqttException e) {
+            log.error("exception", e);
+            Assert.fail();
+        } catch (InterruptedException e) {
+            log.error("exception", e);
+            Thread.currentThread().interrupt();
+            Assert.fail();
+        }
+    }
 
-        Assert.assertTrue(true);
+    /**
+     * pipelined PUBLISH in the same topic are delivered in the order of sent
+     */
+    @Test
+    public void testPublishQos1Ordered() {
+        try {
+            String prefix = UUID.randomUUID().toString();
+            int count = 10;
+            SequenceListener listener = new SequenceListener(prefix, count);
+            this.mqttClient.subscribeWithResponse(this.topicName, 1, listener).waitForCompletion();
+
+            MqttConnectOptions options = new MqttConnectOptions();
+            options.setConnectionTimeout(this.actionTimeout);
+            options.setKeepAliveInterval(this.actionTimeout);
+            options.setMqttVersion(MqttConnectOptions.MQTT_VERSION_3_1_1);
+            options.setCleanSession(true);
+            options.setMaxInflight(10);
+
+            MqttAsyncClient asyncClient = new MqttAsyncClient(this.url, UUID.randomUUID().toString(), null);
+            asyncClient.connect(options).waitForCompletion(this.actionTimeout);
+
+            List<String> sent = new ArrayList<>();
+            List<IMqttDeliveryToken> tokens = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String content = prefix + i;
+                sent.add(content);
+                MqttMessage message = new MqttMessage(content.getBytes(StandardCharsets.UTF_8));
+                message.setQos(1);
+                tokens.add(asyncClient.publish(this.topicName, message));
+            }
+            for (IMqttDeliveryToken token : tokens) {
+                token.waitForCompletion(this.actionTimeout);
+            }
+            asyncClient.disconnect().waitForCompletion(this.actionTimeout);
+            asyncClient.close();
+
+            this.assertSequence(listener, sent);
+        } catch (MqttException e) {
+            log.error("exception", e);
+            Assert.fail();
+        } catch (InterruptedException e) {
+            log.error("exception", e);
+            Thread.currentThread().interrupt();
+            Assert.fail();
+        }
+    }
+
+    @Test
+    public void testPublishQos2() {
+        try {
+            MqttMessage message = new MqttMessage(this.content.getBytes(StandardCharsets.UTF_8));
+            message.setQos(2);
+            this.mqttClient.publish(this.topicName, message);
+
+            Assert.assertTrue(true);
+        } catch (MqttException e) {
+            log.error("exception", e);
+            Assert.fail();
+        }
     }
 
     @Test
@@ -330,12 +475,53 @@ public class MQTTTest extends JUnitTestBase {
         }
     }
 
-    @Test(expected = MqttException.class)
-    public void testSubscribeQos2() throws MqttException {
-        MessageListener listener = new MessageListener();
-        this.mqttClient.subscribeWithResponse(this.topicName, 2, listener).waitForCompletion();
+    /**
+     * more QoS 1 PUBLISH than the inflight window(mqtt.broker.subscribe.inflight), all of them are delivered once in order
+     */
+    @Test
+    public void testSubscribeQos1Window() {
+        try {
+            String prefix = UUID.randomUUID().toString();
+            int count = 100;
+            SequenceListener listener = new SequenceListener(prefix, count);
+            this.mqttClient.subscribeWithResponse(this.topicName, 1, listener).waitForCompletion();
+
+            List<String> sent = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String content = prefix + i;
+                sent.add(content);
+                MqttMessage message = new MqttMessage(content.getBytes(StandardCharsets.UTF_8));
+                message.setQos(1);
+                this.mqttClient.publish(this.topicName, message);
+            }
+
+            this.assertSequence(listener, sent);
+        } catch (Exception e) {
+            log.error("exception", e);
+            Assert.fail();
+        }
+    }
 
-        Assert.assertTrue(true);
+    @Test
+    public void testSubscribeQos2() {
+        try {
+            String prefix = UUID.randomUUID().toString();
+            SequenceListener listener = new SequenceListener(prefix, 1);
+            IMqttToken token = this.mqttClient.subscribeWithResponse(this.topicName, 2, listener);
+            token.waitForCompletion();
+
+            Assert.assertEquals(token.getGrantedQos()[0], MqttQoS.EXACTLY_ONCE.value());
+
+            String content = prefix + this.content;
+            MqttMessage message = new MqttMessage(content.getBytes(StandardCharsets.UTF_8));
+            message.setQos(2);
+            this.mqttClient.publish(this.topicName, message);
+
+            this.assertSequence(listener, Collections.singletonList(content));
+        } catch (Exception e) {
+            log.error("exception", e);
+            Assert.fail();
+        }
     }
 
     @Test
@@ -50,6 +50,29 @@ public class RestfulAdminTest extends JUnitTestBase {
         Assert.assertNotNull(rsp.getBody().getData());
     }
 
+    @Test
+    public void testGetTopicAuthStat() {
+        ResponseEntity<BaseResponse> rsp = admin.getForEntity(url + "mqtt/topicAuthStat", BaseResponse.class);
+        log.info("topicAuthStat, status: " + rsp.getStatusCode() + " body: " + rsp.getBody());
+
+        Assert.assertEquals(200, rsp.getStatusCodeValue());
+        Assert.assertNotNull(rsp.getBody());
+        Assert.assertEquals(0, rsp.getBody().getCode());
+        Assert.assertNotNull(rsp.getBody().getData());
+    }
+
+    @Test
+    public void testGetRejectedCounts() {
+        ResponseEntity<BaseResponse<Map<String, Long>>> rsp = admin.exchange(url + "threadPool/rejected", HttpMethod.GET, null, new ParameterizedTypeReference<BaseResponse<Map<String, Long>>>() {
+        });
+        log.info("threadPool rejected, status: " + rsp.getStatusCode() + " body: " + rsp.getBody());
+
+        Assert.assertEquals(200, rsp.getStatusCodeValue());
+        Assert.assertNotNull(rsp.getBody());
+        Assert.assertEquals(0, rsp.getBody().getCode());
+        Assert.assertNotNull(rsp.getBody().getData());
+    }
+
     @Test
     public void testListNodes() {
         ResponseEntity<BaseResponse<List<String>>> rsp = admin.exchange(url + "listNodes", HttpMethod.GET, null, new ParameterizedTypeReference<BaseResponse<List<String>>>() {
@@ -0,0 +1,88 @@
+package com.webank.weevent.broker.st;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import com.webank.weevent.broker.JUnitTestBase;
+import com.webank.weevent.client.BaseResponse;
+import com.webank.weevent.client.SendResult;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.client.jsonrpc.IBrokerRpc;
+import com.webank.weevent.core.config.FiscoConfig;
+
+import com.googlecode.jsonrpc4j.JsonRpcHttpClient;
+import com.googlecode.jsonrpc4j.ProxyUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Broker started on the block chain simulator, spring.profiles.active=dev,simulator.
+ * Same profile and properties as MQTTQos2Test, so the spring context is shared.
+ */
+@Slf4j
+@ActiveProfiles({"dev", "simulator"})
+@TestPropertySource(properties = {"mqtt.broker.tcp.port=7002", "simulator.block.interval=100"})
+public class SimulatorTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.simulator";
+    private final String content = "hello simulator";
+
+    @Autowired
+    private FiscoConfig fiscoConfig;
+
+    private String url;
+    private RestTemplate rest;
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.url = "http://localhost:" + this.listenPort + "/weevent-broker/";
+        this.rest = new RestTemplate();
+
+        ResponseEntity<BaseResponse<Boolean>> rsp = this.rest.exchange(this.url + "rest/open?topic={topic}&groupId={groupId}", HttpMethod.GET, null, new ParameterizedTypeReference<BaseResponse<Boolean>>() {
+        }, this.topicName, WeEvent.DEFAULT_GROUP_ID);
+        Assert.assertEquals(200, rsp.getStatusCodeValue());
+    }
+
+    /**
+     * WeEventCoreConfig is loaded without FISCO-BCOS delegate
+     */
+    @Test
+    public void testCoreConfig() {
+        Assert.assertNotNull(this.fiscoConfig.getWeEventCoreConfig());
+        Assert.assertTrue(this.fiscoConfig.getWeEventCoreConfig().getTimeout() > 0);
+    }
+
+    @Test
+    public void testRestPublish() {
+        SendResult sendResult = this.rest.getForEntity(this.url + "rest/publish?topic={topic}&content={content}", SendResult.class,
+                this.topicName, this.content).getBody();
+
+        Assert.assertNotNull(sendResult);
+        Assert.assertEquals(SendResult.SendResultStatus.SUCCESS, sendResult.getStatus());
+    }
+
+    /**
+     * json rpc publish with the timeout in WeEventCoreConfig
+     */
+    @Test
+    public void testJsonRpcPublish() throws Exception {
+        JsonRpcHttpClient client = new JsonRpcHttpClient(new URL(this.url + "jsonrpc"));
+        IBrokerRpc brokerRpc = ProxyUtil.createClientProxy(client.getClass().getClassLoader(), IBrokerRpc.class, client);
+
+        SendResult sendResult = brokerRpc.publish(this.topicName, WeEvent.DEFAULT_GROUP_ID, this.content.getBytes(StandardCharsets.UTF_8), new HashMap<>());
+        Assert.assertEquals(SendResult.SendResultStatus.SUCCESS, sendResult.getStatus());
+    }
+}
@@ -155,6 +155,8 @@ public enum ErrorCode {
     MQTT_NO_SUB_PERMISSION(200613, "no suscribe permission"),
     MQTT_NO_PUB_PERMISSION(200614, "no publish permission"),
     MQTT_SSL_ERROR(200615, "mqtt get ssl context error"),
+    MQTT_PUBLISH_FAILED(200616, "mqtt publish failed"),
+    MQTT_INVALID_QOS(200617, "invalid mqtt qos level"),
 
 
     FTP_INVALID_USERNAME_PASSWD(200700, "invalid username or password"),
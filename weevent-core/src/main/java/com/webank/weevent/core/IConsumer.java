@@ -1,5 +1,7 @@
 package com.webank.weevent.core;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import com.webank.weevent.client.BrokerException;
@@ -67,6 +69,52 @@ public interface IConsumer extends IEventTopic {
         }
     }
 
+    /**
+     * Interface for callback in batch, the events arrived in a short time are notified together.
+     */
+    interface BatchConsumerListener extends ConsumerListener {
+        /**
+         * Called while new events arrived.
+         *
+         * @param subscriptionId binding which subscription
+         * @param events the events in order, at least one
+         */
+        void onEvents(String subscriptionId, List<WeEvent> events);
+
+        @Override
+        default void onEvent(String subscriptionId, WeEvent event) {
+            this.onEvents(subscriptionId, Collections.singletonList(event));
+        }
+
+        /**
+         * max events in one batch.
+         *
+         * @return batch size
+         */
+        default int getBatchSize() {
+            return 64;
+        }
+
+        /**
+         * max time to wait for more events after the first one arrived.
+         *
+         * @return time in ms, 0 means just notify the events already arrived
+         */
+        default int getLingerTime() {
+            return 0;
+        }
+
+        /**
+         * max events the listener can take right now without blocking, e.g. the free inflight window of client.
+         * The notify task do not poll if it's 0, and check again a moment later.
+         *
+         * @return max events, Integer.MAX_VALUE means no limit
+         */
+        default int getAvailable() {
+            return Integer.MAX_VALUE;
+        }
+    }
+
     /**
      * defined key used in the param 'subscribe#ext'
      */
@@ -81,6 +129,8 @@ public interface IConsumer extends IEventTopic {
         RemoteIP,
         // Ephemeral notify
         Ephemeral,
+        // policy if notify queue is full, see NotifyTask.OverflowPolicy
+        OverflowPolicy,
     }
 
     /**
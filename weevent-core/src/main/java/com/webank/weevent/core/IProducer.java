@@ -9,6 +9,7 @@ import java.util.concurrent.TimeoutException;
 import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.SendResult;
 import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.fisco.util.ExtensionsCodec;
 
 /**
  * Base interface for event producer.
@@ -43,6 +44,21 @@ public interface IProducer extends IEventTopic {
      */
     CompletableFuture<SendResult> publish(WeEvent event, String groupId) throws BrokerException;
 
+    /**
+     * Publish an event with pre-encoded content and binary extensions header in asynchronous way.
+     *
+     * @param topic topic name
+     * @param content content
+     * @param extensionHeader binary extensions header, see ExtensionsCodec.encode
+     * @param groupId group id
+     * @return SendResult SendResult
+     * @throws BrokerException BrokerException
+     */
+    default CompletableFuture<SendResult> publishEncoded(String topic, byte[] content, byte[] extensionHeader, String groupId) throws BrokerException {
+        ExtensionsCodec.validate(extensionHeader);
+        return this.publish(new WeEvent(topic, content, ExtensionsCodec.decode(extensionHeader)), groupId);
+    }
+
     /**
      * Publish an event in synchronize way
      *
@@ -0,0 +1,229 @@
+package com.webank.weevent.core.cache;
+
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.WeEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local memory cache for events in block, shared by MainEventLoop, HistoryEventLoop and getEvent.
+ * It's a LRU cache bounded by the estimated bytes of events, key is (groupId, blockNumber).
+ * Concurrent loading of the same block is merged into one, the others wait for it's result.
+ */
+@Slf4j
+public class BlockEventCache {
+    /**
+     * load events in block from block chain
+     */
+    public interface Loader {
+        /**
+         * @param blockNum block height
+         * @return null if block is not ready
+         * @throws BrokerException BrokerException
+         */
+        List<WeEvent> load(Long blockNum) throws BrokerException;
+    }
+
+    // estimated fixed bytes for one event object
+    private static final int EVENT_OVERHEAD = 256;
+
+    // estimated fixed bytes for one block entry
+    private static final int BLOCK_OVERHEAD = 128;
+
+    // max bytes in cache
+    private final long capacity;
+
+    // (groupId-blockNumber <-> events), in access order
+    private final LinkedHashMap<String, List<WeEvent>> blocks = new LinkedHashMap<>(1024, 0.75f, true);
+
+    // (groupId-blockNumber <-> estimated bytes)
+    private final Map<String, Long> blockBytes = new HashMap<>();
+
+    // loading block, (groupId-blockNumber <-> result)
+    private final Map<String, CompletableFuture<List<WeEvent>>> loading = new ConcurrentHashMap<>();
+
+    private long bytes = 0;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+    private final AtomicLong loadCount = new AtomicLong(0);
+
+    /**
+     * @param capacity max bytes, cache nothing if not positive
+     */
+    public BlockEventCache(long capacity) {
+        this.capacity = capacity;
+
+        log.info("BlockEventCache initialized with capacity: {} bytes", this.capacity);
+    }
+
+    private static String key(String groupId, Long blockNum) {
+        return groupId + "-" + blockNum;
+    }
+
+    private static long estimate(List<WeEvent> events) {
+        long size = BLOCK_OVERHEAD;
+        for (WeEvent event : events) {
+            size += estimate(event);
+        }
+        return size;
+    }
+
+    // estimated bytes of one event, shared with EventIndex
+    static long estimate(WeEvent event) {
+        long size = EVENT_OVERHEAD;
+        size += event.getContent() == null ? 0 : event.getContent().length;
+        size += event.getTopic() == null ? 0 : event.getTopic().length() * 2L;
+        size += event.getEventId() == null ? 0 : event.getEventId().length() * 2L;
+        if (event.getExtensions() != null) {
+            for (Map.Entry<String, String> entry : event.getExtensions().entrySet()) {
+                size += (entry.getKey().length() + (entry.getValue() == null ? 0 : entry.getValue().length())) * 2L;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * get events in block from cache, or from loader if missed.
+     *
+     * @param groupId group id
+     * @param blockNum block height
+     * @param loader loader if missed
+     * @return null if block is not ready
+     * @throws BrokerException BrokerException
+     */
+    public List<WeEvent> get(String groupId, Long blockNum, Loader loader) throws BrokerException {
+        String key = key(groupId, blockNum);
+        synchronized (this) {
+            List<WeEvent> events = this.blocks.get(key);
+            if (events != null) {
+                this.hitCount.incrementAndGet();
+                return events;
+            }
+        }
+
+        CompletableFuture<List<WeEvent>> future = new CompletableFuture<>();
+        CompletableFuture<List<WeEvent>> exist = this.loading.putIfAbsent(key, future);
+        if (exist != null) {
+            log.debug("block is loading by other, wait for it, {}", key);
+            this.missCount.incrementAndGet();
+            return waitLoading(key, exist);
+        }
+
+        try {
+            // double check, may be loaded just now
+            synchronized (this) {
+                List<WeEvent> events = this.blocks.get(key);
+                if (events != null) {
+                    this.hitCount.incrementAndGet();
+                    future.complete(events);
+                    return events;
+                }
+            }
+
+            this.missCount.incrementAndGet();
+            this.loadCount.incrementAndGet();
+            List<WeEvent> events = loader.load(blockNum);
+            if (events != null) {
+                this.put(key, events);
+            }
+            future.complete(events);
+            return events;
+        } catch (BrokerException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.loading.remove(key, future);
+        }
+    }
+
+    private static List<WeEvent> waitLoading(String key, CompletableFuture<List<WeEvent>> future) throws BrokerException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BrokerException) {
+                throw (BrokerException) e.getCause();
+            }
+            log.error("load block failed, " + key, e);
+            throw new BrokerException(ErrorCode.WEB3SDK_RPC_ERROR);
+        } catch (InterruptedException e) {
+            log.error("wait block loading interrupted, {}", key);
+            Thread.currentThread().interrupt();
+            throw new BrokerException(ErrorCode.WEB3SDK_RPC_ERROR);
+        }
+    }
+
+    private synchronized void put(String key, List<WeEvent> events) {
+        long size = estimate(events);
+        if (size > this.capacity) {
+            log.debug("block is too large to cache, {} size: {}", key, size);
+            return;
+        }
+
+        if (this.blocks.put(key, events) != null) {
+            this.bytes -= this.blockBytes.get(key);
+        }
+        this.blockBytes.put(key, size);
+        this.bytes += size;
+
+        // evict the eldest
+        while (this.bytes > this.capacity && !this.blocks.isEmpty()) {
+            String eldest = this.blocks.keySet().iterator().next();
+            this.blocks.remove(eldest);
+            this.bytes -= this.blockBytes.remove(eldest);
+            log.debug("evict block from cache, {}", eldest);
+        }
+    }
+
+    public synchronized void clear() {
+        this.blocks.clear();
+        this.blockBytes.clear();
+        this.bytes = 0;
+    }
+
+    public synchronized int getSize() {
+        return this.blocks.size();
+    }
+
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    public long getCapacity() {
+        return this.capacity;
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * how many times loader is called really
+     *
+     * @return count
+     */
+    public long getLoadCount() {
+        return this.loadCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BlockEventCache{size=%d, bytes=%d, capacity=%d, hit=%d, miss=%d, load=%d}",
+                this.getSize(), this.getBytes(), this.capacity, this.getHitCount(), this.getMissCount(), this.getLoadCount());
+    }
+}
@@ -0,0 +1,368 @@
+package com.webank.weevent.core.cache;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.JsonHelper;
+import com.webank.weevent.client.WeEvent;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local disk store for events in block, used to replay history without fetching from block chain again.
+ * Every group has it's own directory, and data is appended into segment files one by one.
+ * Record in segment: block number(8 bytes) + data length(4 bytes) + crc32(4 bytes) + events in json.
+ * The index from block number to record is rebuilt from segments while loading.
+ * The eldest segment is deleted if the total size of group exceed the retention.
+ */
+@Slf4j
+public class BlockEventStore {
+    private static final int HEADER_LENGTH = 16;
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // root directory
+    private final Path root;
+
+    // max bytes in one segment file
+    private final long segmentSize;
+
+    // max bytes in one group
+    private final long retention;
+
+    // (groupId <-> store)
+    private final Map<String, GroupStore> groups = new ConcurrentHashMap<>();
+
+    // never open segment again after closed
+    private volatile boolean closed = false;
+
+    /**
+     * @param path root directory
+     * @param segmentSize max bytes in one segment file
+     * @param retention max bytes in one group
+     * @throws BrokerException BrokerException
+     */
+    public BlockEventStore(String path, long segmentSize, long retention) throws BrokerException {
+        this.root = Paths.get(path);
+        this.segmentSize = segmentSize;
+        this.retention = Math.max(retention, segmentSize);
+
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            log.error("create block event store directory failed, " + path, e);
+            throw new BrokerException(ErrorCode.FILE_WRITE_EXCEPTION);
+        }
+
+        log.info("BlockEventStore initialized in: {} segment size: {} retention: {}", this.root.toAbsolutePath(), this.segmentSize, this.retention);
+    }
+
+    private GroupStore getGroup(String groupId) throws IOException {
+        GroupStore groupStore = this.groups.get(groupId);
+        if (groupStore == null) {
+            synchronized (this.groups) {
+                if (this.closed) {
+                    throw new IOException("block event store is closed, " + this.root);
+                }
+                groupStore = this.groups.get(groupId);
+                if (groupStore == null) {
+                    groupStore = new GroupStore(this.root.resolve(groupId));
+                    this.groups.put(groupId, groupStore);
+                }
+            }
+        }
+        return groupStore;
+    }
+
+    /**
+     * read events in block from disk.
+     *
+     * @param groupId group id
+     * @param blockNum block height
+     * @return null if not exist
+     */
+    public List<WeEvent> read(String groupId, Long blockNum) {
+        try {
+            byte[] data = this.getGroup(groupId).read(blockNum);
+            if (data == null) {
+                return null;
+            }
+            return JsonHelper.json2Object(data, new TypeReference<List<WeEvent>>() {
+            });
+        } catch (IOException | BrokerException e) {
+            log.error(String.format("read block from disk failed, group: %s block: %d", groupId, blockNum), e);
+            return null;
+        }
+    }
+
+    /**
+     * append events in block into disk, skip if already exist.
+     *
+     * @param groupId group id
+     * @param blockNum block height
+     * @param events events in block
+     */
+    public void write(String groupId, Long blockNum, List<WeEvent> events) {
+        try {
+            this.getGroup(groupId).append(blockNum, JsonHelper.object2JsonBytes(events));
+        } catch (IOException | BrokerException e) {
+            log.error(String.format("write block into disk failed, group: %s block: %d", groupId, blockNum), e);
+        }
+    }
+
+    public boolean contains(String groupId, Long blockNum) {
+        try {
+            return this.getGroup(groupId).contains(blockNum);
+        } catch (IOException e) {
+            log.error("load block event store failed, group: " + groupId, e);
+            return false;
+        }
+    }
+
+    /**
+     * total bytes of the group in disk
+     *
+     * @param groupId group id
+     * @return bytes
+     */
+    public long getBytes(String groupId) {
+        try {
+            return this.getGroup(groupId).getBytes();
+        } catch (IOException e) {
+            log.error("load block event store failed, group: " + groupId, e);
+            return 0;
+        }
+    }
+
+    /**
+     * flush and close all segment files, the store can not be used any more.
+     */
+    public void close() {
+        synchronized (this.groups) {
+            this.closed = true;
+            for (GroupStore groupStore : this.groups.values()) {
+                groupStore.close();
+            }
+            this.groups.clear();
+        }
+        log.info("BlockEventStore closed, {}", this.root.toAbsolutePath());
+    }
+
+    /**
+     * one segment file
+     */
+    private static class Segment {
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private long size;
+
+        Segment(long id, Path file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = this.channel.size();
+        }
+
+        void flush() {
+            try {
+                this.channel.force(true);
+            } catch (IOException e) {
+                log.error("flush segment failed, " + this.file, e);
+            }
+        }
+
+        void close() {
+            try {
+                this.channel.close();
+            } catch (IOException e) {
+                log.error("close segment failed, " + this.file, e);
+            }
+        }
+    }
+
+    /**
+     * all segments in one group
+     */
+    private class GroupStore {
+        private final Path dir;
+
+        // (segment id <-> segment)
+        private final TreeMap<Long, Segment> segments = new TreeMap<>();
+
+        // (block number <-> [segment id, position])
+        private final Map<Long, long[]> index = new HashMap<>();
+
+        private long bytes = 0;
+
+        GroupStore(Path dir) throws IOException {
+            this.dir = dir;
+            Files.createDirectories(dir);
+
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            // segment file name is zero padded id
+            files.sort(null);
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Segment segment = new Segment(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                this.recover(segment);
+                this.segments.put(segment.id, segment);
+                this.bytes += segment.size;
+            }
+
+            log.info("load block event store, dir: {} segments: {} blocks: {} bytes: {}", dir, this.segments.size(), this.index.size(), this.bytes);
+        }
+
+        // rebuild index from segment, and truncate the broken tail if crash while writing
+        private void recover(Segment segment) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            long position = 0;
+            while (position + HEADER_LENGTH <= segment.size) {
+                header.clear();
+                segment.channel.read(header, position);
+                header.flip();
+                long blockNum = header.getLong();
+                int length = header.getInt();
+                int crc = header.getInt();
+                if (length < 0 || position + HEADER_LENGTH + length > segment.size) {
+                    break;
+                }
+
+                ByteBuffer data = ByteBuffer.allocate(length);
+                segment.channel.read(data, position + HEADER_LENGTH);
+                if (crc32(data.array()) != crc) {
+                    break;
+                }
+
+                this.index.put(blockNum, new long[]{segment.id, position});
+                position += HEADER_LENGTH + length;
+            }
+
+            if (position < segment.size) {
+                log.warn("truncate broken segment, {} {} -> {}", segment.file, segment.size, position);
+                segment.channel.truncate(position);
+                segment.size = position;
+            }
+        }
+
+        synchronized boolean contains(Long blockNum) {
+            return this.index.containsKey(blockNum);
+        }
+
+        synchronized long getBytes() {
+            return this.bytes;
+        }
+
+        synchronized byte[] read(Long blockNum) throws IOException {
+            long[] location = this.index.get(blockNum);
+            if (location == null) {
+                return null;
+            }
+
+            Segment segment = this.segments.get(location[0]);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            segment.channel.read(header, location[1]);
+            header.flip();
+            header.getLong();
+            int length = header.getInt();
+            int crc = header.getInt();
+
+            ByteBuffer data = ByteBuffer.allocate(length);
+            segment.channel.read(data, location[1] + HEADER_LENGTH);
+            if (crc32(data.array()) != crc) {
+                log.error("crc mismatch in segment, {} block: {}", segment.file, blockNum);
+                this.index.remove(blockNum);
+                return null;
+            }
+            return data.array();
+        }
+
+        synchronized void append(Long blockNum, byte[] data) throws IOException {
+            if (this.index.containsKey(blockNum)) {
+                return;
+            }
+
+            Segment active = this.segments.isEmpty() ? null : this.segments.lastEntry().getValue();
+            if (active == null || active.size >= segmentSize) {
+                long id = active == null ? 0 : active.id + 1;
+                active = new Segment(id, this.dir.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX)));
+                this.segments.put(id, active);
+                log.info("roll new segment, {}", active.file);
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + data.length);
+            buffer.putLong(blockNum);
+            buffer.putInt(data.length);
+            buffer.putInt(crc32(data));
+            buffer.put(data);
+            buffer.flip();
+
+            long position = active.size;
+            while (buffer.hasRemaining()) {
+                active.channel.write(buffer, position + buffer.position());
+            }
+            active.size += HEADER_LENGTH + data.length;
+            this.bytes += HEADER_LENGTH + data.length;
+            this.index.put(blockNum, new long[]{active.id, position});
+
+            this.retain();
+        }
+
+        // delete the eldest segment if exceed retention, always keep the active one
+        private void retain() {
+            while (this.bytes > retention && this.segments.size() > 1) {
+                Segment eldest = this.segments.pollFirstEntry().getValue();
+                Iterator<Map.Entry<Long, long[]>> iterator = this.index.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    if (iterator.next().getValue()[0] == eldest.id) {
+                        iterator.remove();
+                    }
+                }
+
+                this.bytes -= eldest.size;
+                eldest.close();
+                try {
+                    Files.deleteIfExists(eldest.file);
+                } catch (IOException e) {
+                    log.error("delete segment failed, " + eldest.file, e);
+                }
+                log.info("delete segment for retention, {}", eldest.file);
+            }
+        }
+
+        synchronized void close() {
+            for (Segment segment : this.segments.values()) {
+                segment.flush();
+                segment.close();
+            }
+            this.segments.clear();
+            this.index.clear();
+        }
+    }
+
+    private static int crc32(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        return (int) crc32.getValue();
+    }
+}
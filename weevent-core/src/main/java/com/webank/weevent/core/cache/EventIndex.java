@@ -0,0 +1,220 @@
+package com.webank.weevent.core.cache;
+
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.WeEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local memory index from eventId to the event and it's location in block, filled as blocks are loaded.
+ * getEvent is answered from the index without loading the block.
+ * Resuming subscription from an eventId still needs the rest of the block, the index gives the offset's position in it.
+ * It's a LRU index bounded by the estimated bytes of events, key is (groupId, eventId).
+ * Rebuild it from block chain after cold start, see rebuild.
+ */
+@Slf4j
+public class EventIndex {
+    /**
+     * location of event in block
+     */
+    public static final class Location {
+        private final long blockNumber;
+        // index of event in block's event list, see IBlockChain.loop
+        private final int position;
+        private final WeEvent event;
+        // estimated bytes of this entry
+        private final long size;
+
+        public Location(long blockNumber, int position, WeEvent event) {
+            this.blockNumber = blockNumber;
+            this.position = position;
+            this.event = event;
+            this.size = estimate(event);
+        }
+
+        public long getBlockNumber() {
+            return this.blockNumber;
+        }
+
+        public int getPosition() {
+            return this.position;
+        }
+
+        public WeEvent getEvent() {
+            return this.event;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Location{block=%d, position=%d}", this.blockNumber, this.position);
+        }
+    }
+
+    // estimated fixed bytes for one index entry besides the event, key and location
+    private static final int ENTRY_OVERHEAD = 192;
+
+    // max bytes in index
+    private final long capacity;
+
+    // (groupId-eventId <-> location), in access order
+    private final LinkedHashMap<String, Location> locations = new LinkedHashMap<>(1024, 0.75f, true);
+
+    private long bytes = 0;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * @param capacity max bytes, index nothing if not positive
+     */
+    public EventIndex(long capacity) {
+        this.capacity = capacity;
+
+        log.info("EventIndex initialized with capacity: {} bytes", this.capacity);
+    }
+
+    private static String key(String groupId, String eventId) {
+        return groupId + "-" + eventId;
+    }
+
+    static long estimate(WeEvent event) {
+        return ENTRY_OVERHEAD + BlockEventCache.estimate(event);
+    }
+
+    /**
+     * index all the events in block.
+     *
+     * @param groupId group id
+     * @param blockNum block height
+     * @param events all events in block, in the same order as IBlockChain.loop
+     */
+    public void putBlock(String groupId, Long blockNum, List<WeEvent> events) {
+        if (this.capacity <= 0 || events == null || events.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            for (int idx = 0; idx < events.size(); idx++) {
+                WeEvent event = events.get(idx);
+                if (event.getEventId() == null) {
+                    continue;
+                }
+
+                Location location = new Location(blockNum, idx, event);
+                Location old = this.locations.put(key(groupId, event.getEventId()), location);
+                if (old != null) {
+                    this.bytes -= old.size;
+                }
+                this.bytes += location.size;
+            }
+
+            // evict the least recently used
+            Iterator<Location> it = this.locations.values().iterator();
+            while (this.bytes > this.capacity && it.hasNext()) {
+                this.bytes -= it.next().size;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * get location of event.
+     *
+     * @param groupId group id
+     * @param eventId event id
+     * @return null if not indexed
+     */
+    public Location get(String groupId, String eventId) {
+        Location location;
+        synchronized (this) {
+            location = this.locations.get(key(groupId, eventId));
+        }
+        if (location == null) {
+            this.missCount.incrementAndGet();
+        } else {
+            this.hitCount.incrementAndGet();
+        }
+        return location;
+    }
+
+    /**
+     * pick the event from block's event list by location.
+     *
+     * @param location location in index
+     * @param events all events in block
+     * @param eventId expected event id
+     * @return null if location is stale
+     */
+    public static WeEvent pick(Location location, List<WeEvent> events, String eventId) {
+        if (location == null || events == null || location.getPosition() >= events.size()) {
+            return null;
+        }
+        WeEvent event = events.get(location.getPosition());
+        return eventId.equals(event.getEventId()) ? event : null;
+    }
+
+    /**
+     * rebuild index from block chain, used after cold start.
+     *
+     * @param groupId group id
+     * @param fromBlock from block height, inclusive
+     * @param toBlock to block height, inclusive
+     * @param loader load events in block
+     * @return how many events indexed
+     * @throws BrokerException BrokerException
+     */
+    public long rebuild(String groupId, Long fromBlock, Long toBlock, BlockEventCache.Loader loader) throws BrokerException {
+        log.info("rebuild event index, group: {} block: [{}, {}]", groupId, fromBlock, toBlock);
+
+        long count = 0;
+        for (long blockNum = Math.max(fromBlock, 1L); blockNum <= toBlock; blockNum++) {
+            List<WeEvent> events = loader.load(blockNum);
+            if (events == null) {
+                log.warn("block is not ready, stop rebuild at block: {}", blockNum);
+                break;
+            }
+            this.putBlock(groupId, blockNum, events);
+            count += events.size();
+        }
+
+        log.info("rebuild event index done, group: {} events: {} {}", groupId, count, this);
+        return count;
+    }
+
+    public synchronized void clear() {
+        this.locations.clear();
+        this.bytes = 0;
+    }
+
+    public synchronized int getSize() {
+        return this.locations.size();
+    }
+
+    public synchronized long getBytes() {
+        return this.bytes;
+    }
+
+    public long getCapacity() {
+        return this.capacity;
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventIndex{size=%d, bytes=%d, capacity=%d, hit=%d, miss=%d}",
+                this.getSize(), this.getBytes(), this.capacity, this.getHitCount(), this.getMissCount());
+    }
+}
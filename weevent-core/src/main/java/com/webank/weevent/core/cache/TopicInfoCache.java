@@ -0,0 +1,158 @@
+package com.webank.weevent.core.cache;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.TopicInfo;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Local memory cache for topic info in one group, used to check topic before publish.
+ * It's a LRU cache bounded by entry count, and every entry expire after a TTL.
+ * The non-existent topic is cached too with a shorter TTL, and it's invalidated after the topic is created here.
+ */
+@Slf4j
+public class TopicInfoCache {
+    /**
+     * load topic info from block chain
+     */
+    public interface Loader {
+        /**
+         * @param topicName topic name
+         * @return empty if topic not exist
+         * @throws BrokerException BrokerException
+         */
+        Optional<TopicInfo> load(String topicName) throws BrokerException;
+    }
+
+    private static class Entry {
+        // null means topic not exist
+        private final TopicInfo topicInfo;
+        private final long expireAt;
+
+        Entry(TopicInfo topicInfo, long expireAt) {
+            this.topicInfo = topicInfo;
+            this.expireAt = expireAt;
+        }
+    }
+
+    // max entry in cache
+    private final int capacity;
+
+    // TTL of exist topic, in ms
+    private final long ttl;
+
+    // TTL of non-existent topic, in ms
+    private final long negativeTtl;
+
+    // (topicName <-> entry), in access order
+    private final LinkedHashMap<String, Entry> entries;
+
+    private final AtomicLong hitCount = new AtomicLong(0);
+    private final AtomicLong negativeHitCount = new AtomicLong(0);
+    private final AtomicLong missCount = new AtomicLong(0);
+
+    /**
+     * @param capacity max entry, cache nothing if not positive
+     * @param ttl TTL of exist topic, in ms
+     * @param negativeTtl TTL of non-existent topic, in ms, not cached if not positive
+     */
+    public TopicInfoCache(int capacity, long ttl, long negativeTtl) {
+        this.capacity = capacity;
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.entries = new LinkedHashMap<String, Entry>(Math.min(Math.max(capacity, 16), 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return this.size() > TopicInfoCache.this.capacity;
+            }
+        };
+
+        log.info("TopicInfoCache initialized with capacity: {} ttl: {}ms negative ttl: {}ms", this.capacity, this.ttl, this.negativeTtl);
+    }
+
+    /**
+     * get topic info from cache, or from loader if missed or expired.
+     *
+     * @param topicName topic name
+     * @param skipCache load from block chain directly
+     * @param loader loader if missed
+     * @return empty if topic not exist
+     * @throws BrokerException BrokerException
+     */
+    public Optional<TopicInfo> get(String topicName, boolean skipCache, Loader loader) throws BrokerException {
+        if (!skipCache) {
+            synchronized (this) {
+                Entry entry = this.entries.get(topicName);
+                if (entry != null) {
+                    if (entry.expireAt > System.currentTimeMillis()) {
+                        if (entry.topicInfo == null) {
+                            this.negativeHitCount.incrementAndGet();
+                            return Optional.empty();
+                        }
+                        this.hitCount.incrementAndGet();
+                        return Optional.of(entry.topicInfo);
+                    }
+                    this.entries.remove(topicName);
+                }
+            }
+        }
+        this.missCount.incrementAndGet();
+
+        Optional<TopicInfo> topicInfo = loader.load(topicName);
+        if (topicInfo.isPresent()) {
+            this.put(topicName, topicInfo.get(), this.ttl);
+        } else {
+            this.put(topicName, null, this.negativeTtl);
+        }
+        return topicInfo;
+    }
+
+    private synchronized void put(String topicName, TopicInfo topicInfo, long ttl) {
+        if (this.capacity <= 0 || ttl <= 0) {
+            this.entries.remove(topicName);
+            return;
+        }
+        this.entries.put(topicName, new Entry(topicInfo, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * remove topic from cache, after it's created or changed.
+     *
+     * @param topicName topic name
+     */
+    public synchronized void invalidate(String topicName) {
+        this.entries.remove(topicName);
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized int getSize() {
+        return this.entries.size();
+    }
+
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    public long getNegativeHitCount() {
+        return this.negativeHitCount.get();
+    }
+
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TopicInfoCache{size=%d, capacity=%d, hit=%d, negativeHit=%d, miss=%d}",
+                this.getSize(), this.capacity, this.getHitCount(), this.getNegativeHitCount(), this.getMissCount());
+    }
+}
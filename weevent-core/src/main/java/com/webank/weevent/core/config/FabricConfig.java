@@ -95,6 +95,18 @@ public class FabricConfig {
     @Value("${consumer.history_merge_block:8}")
     private Integer consumerHistoryMergeBlock;
 
+    @Value("${consumer.prefetch-block:8}")
+    private Integer consumerPrefetchBlock;
+
+    @Value("${consumer.scheduler-threads:0}")
+    private Integer consumerSchedulerThreads;
+
+    @Value("${consumer.notify-queue-size:10000}")
+    private Integer consumerNotifyQueueSize;
+
+    @Value("${consumer.overflow-policy:PAUSE}")
+    private String consumerOverflowPolicy;
+
     /**
      * load configuration without spring
      *
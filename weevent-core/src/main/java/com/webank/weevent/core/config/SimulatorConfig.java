@@ -0,0 +1,51 @@
+package com.webank.weevent.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * Configuration of the in-process block chain simulator, used for load testing without a real network.
+ * Only loaded in spring profile "simulator", see SimulatedChain.
+ */
+@Getter
+@Setter
+@ToString
+@Component
+@Profile("simulator")
+public class SimulatorConfig {
+    // groups in chain, named from "1"
+    @Value("${simulator.group.count:1}")
+    private Integer groupCount;
+
+    // mint a new block every interval if there is pending event, in ms
+    @Value("${simulator.block.interval:1000}")
+    private Integer blockInterval;
+
+    // max events in one block
+    @Value("${simulator.block.size:1000}")
+    private Integer blockSize;
+
+    // latest blocks kept in memory, the elder is empty
+    @Value("${simulator.block.retention:10000}")
+    private Integer blockRetention;
+
+    // simulated latency of every rpc, in ms
+    @Value("${simulator.rpc.latency:0}")
+    private Integer rpcLatency;
+
+    // probability of rpc error, in [0, 1)
+    @Value("${simulator.rpc.fault-rate:0}")
+    private Double rpcFaultRate;
+
+    // consumer idle time if no new block, in ms
+    @Value("${simulator.consumer.idle-time:1000}")
+    private Integer consumerIdleTime;
+
+    // max events in every subscription's notify queue
+    @Value("${simulator.consumer.notify-queue-size:10000}")
+    private Integer consumerNotifyQueueSize;
+}
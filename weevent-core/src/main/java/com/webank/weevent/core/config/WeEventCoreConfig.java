@@ -27,7 +27,39 @@ public class WeEventCoreConfig {
 
     private Integer keepAliveSeconds;
 
+    private Integer receiptPoolSize;
+
+    private Integer topicCacheSize;
+
+    private Integer topicCacheTtl;
+
+    private Integer topicCacheNegativeTtl;
+
+    private Integer producerLingerTime;
+
+    private Integer producerLingerCount;
+
+    private Integer producerLingerBytes;
+
+    private Integer blockCacheSize;
+
+    private String blockStorePath;
+
+    private Integer blockStoreRetention;
+
+    private Integer eventIndexSize;
+
+    private Integer eventIndexRebuildBlocks;
+
     private Integer consumerIdleTime;
 
     private Integer consumerHistoryMergeBlock;
+
+    private Integer consumerPrefetchBlock;
+
+    private Integer consumerSchedulerThreads;
+
+    private Integer consumerNotifyQueueSize;
+
+    private String consumerOverflowPolicy;
 }
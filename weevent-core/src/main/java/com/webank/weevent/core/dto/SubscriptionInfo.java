@@ -33,6 +33,31 @@ public class SubscriptionInfo {
      */
     private String notifyingEventCount;
 
+    /**
+     * max notifying event count, 0 means unbounded.
+     */
+    private String notifyQueueCapacity;
+
+    /**
+     * peak notifying event count.
+     */
+    private String notifyQueuePeak;
+
+    /**
+     * times of notify queue is full.
+     */
+    private String overflowCount;
+
+    /**
+     * dropped event count if notify queue is full.
+     */
+    private String droppedEventCount;
+
+    /**
+     * policy if notify queue is full.
+     */
+    private String overflowPolicy;
+
     /**
      * event notify TimeStamp.
      */
@@ -69,6 +94,11 @@ public class SubscriptionInfo {
         subscriptionInfo.setInterfaceType(subscription.getInterfaceType());
         subscriptionInfo.setNotifiedEventCount(subscription.getNotifiedEventCount().toString());
         subscriptionInfo.setNotifyingEventCount(subscription.getNotifyingEventCount().toString());
+        subscriptionInfo.setNotifyQueueCapacity(String.valueOf(subscription.getNotifyQueueCapacity()));
+        subscriptionInfo.setNotifyQueuePeak(String.valueOf(subscription.getNotifyQueuePeak()));
+        subscriptionInfo.setOverflowCount(subscription.getOverflowCount().toString());
+        subscriptionInfo.setDroppedEventCount(subscription.getDroppedEventCount().toString());
+        subscriptionInfo.setOverflowPolicy(subscription.getNotifyTask().getOverflowPolicy().name());
         subscriptionInfo.setNotifyTimeStamp(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss")
                 .format(subscription.getNotifyTimeStamp()));
         subscriptionInfo.setRemoteIp(subscription.getRemoteIp());
@@ -13,9 +13,12 @@ import com.webank.weevent.client.WeEvent;
 import com.webank.weevent.core.IConsumer;
 import com.webank.weevent.core.dto.SubscriptionInfo;
 import com.webank.weevent.core.fabric.sdk.FabricDelegate;
+import com.webank.weevent.core.fisco.util.EventId;
 import com.webank.weevent.core.fisco.util.ParamCheckUtils;
 import com.webank.weevent.core.task.IBlockChain;
 import com.webank.weevent.core.task.MainEventLoop;
+import com.webank.weevent.core.task.NotifyTask;
+import com.webank.weevent.core.task.SharedScheduler;
 import com.webank.weevent.core.task.Subscription;
 
 import lombok.NonNull;
@@ -28,7 +31,7 @@ import org.apache.commons.lang3.StringUtils;
  * @since 2019/8/28
  */
 @Slf4j
-public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer, IBlockChain {
+public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer, IBlockChain, FabricDelegate.IBlockEventListener {
     /**
      * Subscription ID <-> Subscription
      */
@@ -54,11 +57,43 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
      */
     private int idleTime;
 
+    /**
+     * blocks fetched in advance
+     */
+    private int prefetchBlock;
+
+    /**
+     * run subscription's task in shared scheduler, null means one thread per task
+     */
+    private SharedScheduler scheduler;
+
+    /**
+     * max events in notify queue
+     */
+    private int notifyQueueSize;
+
+    /**
+     * consumer.overflow-policy in fabric.properties, used if SubscribeExt.OverflowPolicy is not given
+     */
+    private NotifyTask.OverflowPolicy overflowPolicy;
+
     public FabricBroker4Consumer(FabricDelegate fabricDelegate) {
         super(fabricDelegate);
 
         this.executor = fabricDelegate.getThreadPool();
         this.idleTime = fabricDelegate.getFabricConfig().getConsumerIdleTime();
+        this.prefetchBlock = fabricDelegate.getFabricConfig().getConsumerPrefetchBlock();
+        int schedulerThreads = fabricDelegate.getFabricConfig().getConsumerSchedulerThreads();
+        this.scheduler = schedulerThreads > 0 ? new SharedScheduler(schedulerThreads) : null;
+        this.notifyQueueSize = fabricDelegate.getFabricConfig().getConsumerNotifyQueueSize();
+        String policy = fabricDelegate.getFabricConfig().getConsumerOverflowPolicy();
+        this.overflowPolicy = NotifyTask.OverflowPolicy.parse(policy);
+        if (this.overflowPolicy == null) {
+            log.error("invalid consumer.overflow-policy in fabric.properties: {}", policy);
+            throw new IllegalArgumentException(String.format("invalid consumer.overflow-policy in fabric.properties: %s, expected one of %s",
+                    policy, Arrays.toString(NotifyTask.OverflowPolicy.values())));
+        }
+        fabricDelegate.setListener(this);
     }
 
     private static boolean isEventId(String offset) {
@@ -74,6 +109,7 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
         ParamCheckUtils.validateOffset(offset);
 
         Long currentBlock = fabricDelegate.getBlockHeight(channelName);
+        EventId offsetEventId = null;
         // topic pattern
         if (Subscription.isTopicPattern(topic)) {
             Subscription.validateTopicPattern(topic);
@@ -81,7 +117,7 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
                 ParamCheckUtils.validateBlockHeight(offset, currentBlock);
             } else if (isEventId(offset)) {
                 // not a topic name
-                ParamCheckUtils.validateEventId("", offset, currentBlock);
+                offsetEventId = ParamCheckUtils.validateEventId("", offset, currentBlock);
             }
         } else {    // topic name
             ParamCheckUtils.validateTopicName(topic);
@@ -94,12 +130,12 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
             if (StringUtils.isNumeric(offset)) {
                 ParamCheckUtils.validateBlockHeight(offset, currentBlock);
             } else if (isEventId(offset)) {
-                ParamCheckUtils.validateEventId(topic, offset, currentBlock);
+                offsetEventId = ParamCheckUtils.validateEventId(topic, offset, currentBlock);
             }
         }
 
         log.info("subscribe channelName: {} topic: {} offset: {} ext: {}", channelName, topic, offset, ext);
-        return subscribeTopic(topic, channelName, offset, ext, listener);
+        return subscribeTopic(topic, channelName, offset, offsetEventId, ext, listener);
     }
 
     @Override
@@ -115,11 +151,12 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
         ParamCheckUtils.validateOffset(offset);
 
         Long currentBlock = fabricDelegate.getBlockHeight(channelName);
+        EventId offsetEventId = null;
         if (StringUtils.isNumeric(offset)) {
             ParamCheckUtils.validateBlockHeight(offset, currentBlock);
         } else if (isEventId(offset)) {
             // do not validate topic name and eventId if more then one topic
-            ParamCheckUtils.validateEventId(topics.length > 1 ? "" : topics[0], offset, currentBlock);
+            offsetEventId = ParamCheckUtils.validateEventId(topics.length > 1 ? "" : topics[0], offset, currentBlock);
         }
 
         for (String topic : topics) {
@@ -135,16 +172,16 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
         }
 
         log.info("subscribe channelName:{} topics: {} offset: {} ext:{}", channelName, Arrays.toString(topics), offset, ext);
-        return subscribeTopic(topics, channelName, offset, ext, listener);
+        return subscribeTopic(topics, channelName, offset, offsetEventId, ext, listener);
     }
 
-    private String subscribeTopic(String topic, String channelName, String offset, Map<SubscribeExt, String> ext,
+    private String subscribeTopic(String topic, String channelName, String offset, EventId offsetEventId, Map<SubscribeExt, String> ext,
                                   ConsumerListener listener) throws BrokerException {
         String[] topics = {topic};
-        return subscribeTopic(topics, channelName, offset, ext, listener);
+        return subscribeTopic(topics, channelName, offset, offsetEventId, ext, listener);
     }
 
-    private String subscribeTopic(String[] topics, String channelName, String offset, Map<SubscribeExt, String> ext,
+    private String subscribeTopic(String[] topics, String channelName, String offset, EventId offsetEventId, Map<SubscribeExt, String> ext,
                                   ConsumerListener listener) throws BrokerException {
         // external params
         String interfaceType = "";
@@ -155,6 +192,13 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
         if (ext.containsKey(SubscribeExt.RemoteIP)) {
             remoteIp = ext.get(SubscribeExt.RemoteIP);
         }
+        NotifyTask.OverflowPolicy policy = this.overflowPolicy;
+        if (ext.containsKey(SubscribeExt.OverflowPolicy)) {
+            policy = NotifyTask.OverflowPolicy.parse(ext.get(SubscribeExt.OverflowPolicy));
+            if (policy == null) {
+                throw new BrokerException(ErrorCode.CGI_INVALID_INPUT);
+            }
+        }
         String tag = "";
         if (ext.containsKey(SubscribeExt.TopicTag)) {
             tag = ext.get(SubscribeExt.TopicTag);
@@ -184,12 +228,14 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
                 topics,
                 channelName,
                 offset,
+                offsetEventId,
                 tag,
                 listener);
         subscription.setIdleTime(this.idleTime);
         subscription.setMergeBlock(fabricDelegate.getFabricConfig().getConsumerHistoryMergeBlock());
         subscription.setInterfaceType(interfaceType);
         subscription.setRemoteIp(remoteIp);
+        subscription.getNotifyTask().setOverflowPolicy(policy);
 
         this.subscriptions.put(subscription.getUuid(), subscription);
         this.mainEventLoops.get(channelName).addSubscription(subscription);
@@ -245,7 +291,7 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
 
         // load MainEventLoop with configuration
         for (String channelName : fabricDelegate.listChannel()) {
-            MainEventLoop mainEventLoop = new MainEventLoop(this.executor, this, channelName);
+            MainEventLoop mainEventLoop = new MainEventLoop(this.executor, this.scheduler, this, channelName);
             mainEventLoop.doStart();
             this.mainEventLoops.put(channelName, mainEventLoop);
         }
@@ -280,13 +326,36 @@ public class FabricBroker4Consumer extends FabricTopicAdmin implements IConsumer
         return fabricDelegate.getBlockHeight(channelName);
     }
 
+    @Override
+    public int getPrefetchBlock() {
+        return this.prefetchBlock;
+    }
+
+    @Override
+    public int getNotifyQueueSize() {
+        return this.notifyQueueSize;
+    }
+
+    @Override
+    public NotifyTask.OverflowPolicy getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
     @Override
     public boolean hasBlockEventNotify() {
-        return false;
+        return fabricDelegate.supportBlockEventNotify();
     }
 
     @Override
     public List<WeEvent> loop(Long blockNum, String channelName) {
         return fabricDelegate.loop(blockNum, channelName);
     }
+
+    // method from FabricDelegate.IBlockEventListener
+    @Override
+    public void onEvent(String channelName, Long blockHeight) {
+        if (this.mainEventLoops.containsKey(channelName)) {
+            this.mainEventLoops.get(channelName).onNewBlock(blockHeight);
+        }
+    }
 }
@@ -8,6 +8,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 
 import com.webank.weevent.client.BrokerException;
@@ -54,9 +55,12 @@ public class Fabric {
     private static ChaincodeID topicControllerChaincodeID;
     // topic info list in local memory
     private Map<String, TopicInfo> topicInfo = new ConcurrentHashMap<>();
+    // ioThreadPool in FabricDelegate
+    private final Executor ioExecutor;
 
-    public Fabric(FabricConfig fabricConfig) {
+    public Fabric(FabricConfig fabricConfig, Executor ioExecutor) {
         this.fabricConfig = fabricConfig;
+        this.ioExecutor = ioExecutor;
     }
 
     public void init(String channelName) throws BrokerException {
@@ -181,9 +185,7 @@ public class Fabric {
     }
 
     public WeEvent getEvent(String eventId) throws BrokerException {
-        ParamCheckUtils.validateEventId("", eventId, getBlockHeight());
-
-        Long blockNum = DataTypeUtils.decodeBlockNumber(eventId);
+        Long blockNum = ParamCheckUtils.validateEventId("", eventId, getBlockHeight()).getBlockNumber();
         List<WeEvent> events = this.loop(blockNum);
         for (WeEvent event : events) {
             if (eventId.equals(event.getEventId())) {
@@ -230,6 +232,23 @@ public class Fabric {
         return FabricSDKWrapper.getChainCodeID(topicContractName, topicContractVersion);
     }
 
+    /**
+     * register block listener on channel.
+     *
+     * @param listener listener
+     * @return true if success, or else polling block height
+     */
+    public boolean setListener(FabricDelegate.IBlockEventListener listener) {
+        try {
+            String handle = FabricSDKWrapper.registerBlockListener(channel, listener);
+            log.info("register block listener on channel: {}, handle: {}", channel.getName(), handle);
+            return true;
+        } catch (InvalidArgumentException e) {
+            log.error("register block listener failed, polling block height instead", e);
+            return false;
+        }
+    }
+
     public Long getBlockHeight() throws BrokerException {
         try {
             return channel.queryBlockchainInfo().getHeight() - 1;
@@ -278,7 +297,7 @@ public class Fabric {
     public ListPage<TbBlock> queryBlockList(BigInteger blockNumber, String blockHash, Integer pageIndex, Integer pageSize) throws BrokerException {
 
         try {
-            return FabricSDKWrapper.queryBlockList(fabricConfig, channel, blockNumber, blockHash, pageIndex, pageSize);
+            return FabricSDKWrapper.queryBlockList(fabricConfig, channel, blockNumber, blockHash, pageIndex, pageSize, this.ioExecutor);
         } catch (InvalidArgumentException | ProposalException | ExecutionException | DecoderException | InvalidProtocolBufferException e) {
             log.error("query block list by transHash and blockNum error", e);
             throw new BrokerException(ErrorCode.FABRICSDK_GETBLOCKINFO_ERROR);
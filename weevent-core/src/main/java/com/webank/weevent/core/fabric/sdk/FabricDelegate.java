@@ -12,6 +12,7 @@ import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.SendResult;
 import com.webank.weevent.client.WeEvent;
 
+import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
@@ -32,6 +33,23 @@ public class FabricDelegate {
     // binding thread pool
     public ThreadPoolTaskExecutor threadPool;
 
+    // thread pool for block list query in Fabric
+    private ThreadPoolTaskExecutor ioThreadPool;
+
+    // block listener registered on every channel
+    private boolean blockEventNotify = false;
+
+    /**
+     * notify from fabric sdk when new block delivered
+     */
+    public interface IBlockEventListener {
+        /**
+         * @param channelName channel name
+         * @param blockHeight new block height
+         */
+        void onEvent(String channelName, Long blockHeight);
+    }
+
     public FabricDelegate() {
         this.fabricMap = new ConcurrentHashMap<>();
     }
@@ -41,8 +59,12 @@ public class FabricDelegate {
         this.threadPool = Web3SDKConnector.initThreadPool(fabricConfig.getCorePoolSize(),
                 fabricConfig.getMaxPoolSize(),
                 fabricConfig.getKeepAliveSeconds());
+        this.ioThreadPool = Web3SDKConnector.initBoundedThreadPool("fabric-chain-io-",
+                fabricConfig.getCorePoolSize(),
+                fabricConfig.getMaxPoolSize(),
+                fabricConfig.getKeepAliveSeconds());
 
-        Fabric fabric = new Fabric(fabricConfig);
+        Fabric fabric = new Fabric(fabricConfig, this.ioThreadPool);
         fabric.init(fabricConfig.getChannelName());
         fabricMap.put(fabricConfig.getChannelName(), fabric);
         channels = fabric.listChannelName(fabricConfig);
@@ -54,6 +76,26 @@ public class FabricDelegate {
         return this.threadPool;
     }
 
+    public boolean supportBlockEventNotify() {
+        return this.blockEventNotify;
+    }
+
+    /**
+     * fabric sdk will notify when new block delivered in every channel.
+     * MainEventLoop still poll the block height if no notify within idle time.
+     *
+     * @param listener listener
+     */
+    public void setListener(@NonNull IBlockEventListener listener) {
+        log.info("set IBlockEventListener for every channel");
+
+        boolean success = !this.fabricMap.isEmpty();
+        for (Map.Entry<String, Fabric> entry : this.fabricMap.entrySet()) {
+            success = entry.getValue().setListener(listener) && success;
+        }
+        this.blockEventNotify = success;
+    }
+
     public CompletableFuture<SendResult> publishEvent(String topicName, String channelName, String eventContent, String extensions) throws BrokerException {
 
         return this.fabricMap.get(channelName).publishEvent(topicName, eventContent, extensions);
@@ -13,6 +13,7 @@ import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
@@ -262,6 +263,19 @@ public class FabricSDKWrapper {
         return completableFuture;
     }
 
+    /**
+     * notify new block height when the channel's peer deliver a block.
+     *
+     * @param channel channel
+     * @param listener listener
+     * @return listener handle
+     * @throws InvalidArgumentException InvalidArgumentException
+     */
+    public static String registerBlockListener(Channel channel, FabricDelegate.IBlockEventListener listener) throws InvalidArgumentException {
+        String channelName = channel.getName();
+        return channel.registerBlockListener(blockEvent -> listener.onEvent(channelName, blockEvent.getBlockNumber()));
+    }
+
     public static List<WeEvent> getBlockChainInfo(Channel channel, Long blockNumber) throws ProposalException, InvalidArgumentException, BrokerException {
         List<WeEvent> weEventList = new ArrayList<>();
         BlockInfo returnedBlock = channel.queryBlockByNumber(blockNumber);
@@ -361,7 +375,8 @@ public class FabricSDKWrapper {
                                                    BigInteger blockNumber,
                                                    String blockHash,
                                                    Integer pageIndex,
-                                                   Integer pageSize) throws ProposalException, InvalidArgumentException, ExecutionException, InterruptedException, DecoderException, InvalidProtocolBufferException {
+                                                   Integer pageSize,
+                                                   Executor executor) throws ProposalException, InvalidArgumentException, ExecutionException, InterruptedException, DecoderException, InvalidProtocolBufferException {
         ListPage<TbBlock> tbBlockListPage = new ListPage<>();
         List<TbBlock> tbBlocks = new CopyOnWriteArrayList<>();
         int blockTotalCount;
@@ -394,7 +409,7 @@ public class FabricSDKWrapper {
                 blockNumberIndex++;
             }
 
-            tbBlocks = getTbBlocKList(channel, blockNums, blockchainInfo);
+            tbBlocks = getTbBlocKList(channel, blockNums, blockchainInfo, executor);
             blockTotalCount = Integer.parseInt(String.valueOf(lastestblockInfo.getBlockNumber()));
             tbBlocks.sort((arg0, arg1) -> arg1.getBlockNumber().compareTo(arg0.getBlockNumber()));
         }
@@ -421,7 +436,7 @@ public class FabricSDKWrapper {
         tbBlock.setBlockNumber(blockNumber);
     }
 
-    private static List<TbBlock> getTbBlocKList(Channel channel, List<Long> blockNums, BlockchainInfo blockchainInfo) throws ExecutionException, InterruptedException {
+    private static List<TbBlock> getTbBlocKList(Channel channel, List<Long> blockNums, BlockchainInfo blockchainInfo, Executor executor) throws ExecutionException, InterruptedException {
         List<CompletableFuture<TbBlock>> futureList = new ArrayList<>();
         blockNums.forEach(blockNumber -> {
             CompletableFuture<TbBlock> future = CompletableFuture.supplyAsync(() -> {
@@ -445,7 +460,7 @@ public class FabricSDKWrapper {
                 }
 
                 return tbBlock;
-            });
+            }, executor);
 
             futureList.add(future);
         });
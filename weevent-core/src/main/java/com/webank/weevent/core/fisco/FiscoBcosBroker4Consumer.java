@@ -11,11 +11,15 @@ import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.WeEvent;
 import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.cache.EventIndex;
 import com.webank.weevent.core.dto.SubscriptionInfo;
+import com.webank.weevent.core.fisco.util.EventId;
 import com.webank.weevent.core.fisco.util.ParamCheckUtils;
 import com.webank.weevent.core.fisco.web3sdk.FiscoBcosDelegate;
 import com.webank.weevent.core.task.IBlockChain;
 import com.webank.weevent.core.task.MainEventLoop;
+import com.webank.weevent.core.task.NotifyTask;
+import com.webank.weevent.core.task.SharedScheduler;
 import com.webank.weevent.core.task.Subscription;
 
 import lombok.NonNull;
@@ -61,12 +65,43 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
      */
     private final int idleTime;
 
+    /**
+     * blocks fetched in advance
+     */
+    private final int prefetchBlock;
+
+    /**
+     * run subscription's task in shared scheduler, null means one thread per task
+     */
+    private final SharedScheduler scheduler;
+
+    /**
+     * max events in notify queue
+     */
+    private final int notifyQueueSize;
+
+    /**
+     * consumerOverflowPolicy in fisco.yml, used if SubscribeExt.OverflowPolicy is not given
+     */
+    private final NotifyTask.OverflowPolicy overflowPolicy;
+
     public FiscoBcosBroker4Consumer(FiscoBcosDelegate fiscoBcosDelegate) {
         super(fiscoBcosDelegate);
 
         this.AMOPSubscriptions = fiscoBcosDelegate.initAMOP();
         this.executor = fiscoBcosDelegate.getThreadPool();
         this.idleTime = fiscoBcosDelegate.getFiscoConfig().getWeEventCoreConfig().getConsumerIdleTime();
+        this.prefetchBlock = fiscoBcosDelegate.getFiscoConfig().getWeEventCoreConfig().getConsumerPrefetchBlock();
+        int schedulerThreads = fiscoBcosDelegate.getFiscoConfig().getWeEventCoreConfig().getConsumerSchedulerThreads();
+        this.scheduler = schedulerThreads > 0 ? new SharedScheduler(schedulerThreads) : null;
+        this.notifyQueueSize = fiscoBcosDelegate.getFiscoConfig().getWeEventCoreConfig().getConsumerNotifyQueueSize();
+        String policy = fiscoBcosDelegate.getFiscoConfig().getWeEventCoreConfig().getConsumerOverflowPolicy();
+        this.overflowPolicy = NotifyTask.OverflowPolicy.parse(policy);
+        if (this.overflowPolicy == null) {
+            log.error("invalid consumerOverflowPolicy in fisco.yml: {}", policy);
+            throw new IllegalArgumentException(String.format("invalid consumerOverflowPolicy in fisco.yml: %s, expected one of %s",
+                    policy, Arrays.toString(NotifyTask.OverflowPolicy.values())));
+        }
         fiscoBcosDelegate.setListener(this);
     }
 
@@ -84,6 +119,7 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
         ParamCheckUtils.validateOffset(offset);
 
         Long currentBlock = fiscoBcosDelegate.getBlockHeight(Integer.parseInt(groupId));
+        EventId offsetEventId = null;
         // topic pattern
         if (Subscription.isTopicPattern(topic)) {
             Subscription.validateTopicPattern(topic);
@@ -91,7 +127,7 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
                 ParamCheckUtils.validateBlockHeight(offset, currentBlock);
             } else if (isEventId(offset)) {
                 // not a topic name
-                ParamCheckUtils.validateEventId("", offset, currentBlock);
+                offsetEventId = ParamCheckUtils.validateEventId("", offset, currentBlock);
             }
         } else {    // topic name
             ParamCheckUtils.validateTopicName(topic);
@@ -104,12 +140,12 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
             if (StringUtils.isNumeric(offset)) {
                 ParamCheckUtils.validateBlockHeight(offset, currentBlock);
             } else if (isEventId(offset)) {
-                ParamCheckUtils.validateEventId(topic, offset, currentBlock);
+                offsetEventId = ParamCheckUtils.validateEventId(topic, offset, currentBlock);
             }
         }
 
         log.info("subscribe groupId: {} topic: {} offset: {} ext: {}", groupId, topic, offset, ext);
-        return subscribeTopic(topic, Long.valueOf(groupId), offset, ext, listener);
+        return subscribeTopic(topic, Long.valueOf(groupId), offset, offsetEventId, ext, listener);
     }
 
     @Override
@@ -126,11 +162,12 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
         ParamCheckUtils.validateOffset(offset);
 
         Long currentBlock = fiscoBcosDelegate.getBlockHeight(Integer.parseInt(groupId));
+        EventId offsetEventId = null;
         if (StringUtils.isNumeric(offset)) {
             ParamCheckUtils.validateBlockHeight(offset, currentBlock);
         } else if (isEventId(offset)) {
             // do not validate topic name and eventId if more then one topic
-            ParamCheckUtils.validateEventId(topics.length > 1 ? "" : topics[0], offset, currentBlock);
+            offsetEventId = ParamCheckUtils.validateEventId(topics.length > 1 ? "" : topics[0], offset, currentBlock);
         }
 
         for (String topic : topics) {
@@ -147,15 +184,15 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
         }
 
         log.info("subscribe groupId:{} topics: {} offset: {} ext:{}", groupId, Arrays.toString(topics), offset, ext);
-        return subscribeTopic(topics, Long.valueOf(groupId), offset, ext, listener);
+        return subscribeTopic(topics, Long.valueOf(groupId), offset, offsetEventId, ext, listener);
     }
 
-    private String subscribeTopic(String topic, Long groupId, String offset, Map<SubscribeExt, String> ext, ConsumerListener listener) throws BrokerException {
+    private String subscribeTopic(String topic, Long groupId, String offset, EventId offsetEventId, Map<SubscribeExt, String> ext, ConsumerListener listener) throws BrokerException {
         String[] topics = {topic};
-        return subscribeTopic(topics, groupId, offset, ext, listener);
+        return subscribeTopic(topics, groupId, offset, offsetEventId, ext, listener);
     }
 
-    private String subscribeTopic(String[] topics, Long groupId, String offset, Map<SubscribeExt, String> ext, ConsumerListener listener) throws BrokerException {
+    private String subscribeTopic(String[] topics, Long groupId, String offset, EventId offsetEventId, Map<SubscribeExt, String> ext, ConsumerListener listener) throws BrokerException {
         // support Ephemeral
         if (ext.containsKey(SubscribeExt.Ephemeral)) {
             AMOPSubscription amopSubscription = this.AMOPSubscriptions.get(groupId);
@@ -171,6 +208,13 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
         if (ext.containsKey(SubscribeExt.RemoteIP)) {
             remoteIp = ext.get(SubscribeExt.RemoteIP);
         }
+        NotifyTask.OverflowPolicy policy = this.overflowPolicy;
+        if (ext.containsKey(SubscribeExt.OverflowPolicy)) {
+            policy = NotifyTask.OverflowPolicy.parse(ext.get(SubscribeExt.OverflowPolicy));
+            if (policy == null) {
+                throw new BrokerException(ErrorCode.CGI_INVALID_INPUT);
+            }
+        }
         String tag = "";
         if (ext.containsKey(SubscribeExt.TopicTag)) {
             tag = ext.get(SubscribeExt.TopicTag);
@@ -200,11 +244,13 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
                 topics,
                 String.valueOf(groupId),
                 offset,
+                offsetEventId,
                 tag,
                 listener);
         subscription.setMergeBlock(fiscoBcosDelegate.getFiscoConfig().getWeEventCoreConfig().getConsumerHistoryMergeBlock());
         subscription.setInterfaceType(interfaceType);
         subscription.setRemoteIp(remoteIp);
+        subscription.getNotifyTask().setOverflowPolicy(policy);
 
         this.subscriptions.put(subscription.getUuid(), subscription);
         this.mainEventLoops.get(groupId).addSubscription(subscription);
@@ -252,7 +298,7 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
 
         // load MainEventLoop with configuration
         for (String groupId : fiscoBcosDelegate.listGroupId()) {
-            MainEventLoop mainEventLoop = new MainEventLoop(this.executor, this, groupId);
+            MainEventLoop mainEventLoop = new MainEventLoop(this.executor, this.scheduler, this, groupId);
             mainEventLoop.doStart();
             Long gid = Long.valueOf(groupId);
             this.mainEventLoops.put(gid, mainEventLoop);
@@ -302,6 +348,21 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
         return this.idleTime;
     }
 
+    @Override
+    public int getPrefetchBlock() {
+        return this.prefetchBlock;
+    }
+
+    @Override
+    public int getNotifyQueueSize() {
+        return this.notifyQueueSize;
+    }
+
+    @Override
+    public NotifyTask.OverflowPolicy getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
     @Override
     public boolean hasBlockEventNotify() {
         return fiscoBcosDelegate.supportBlockEventNotify();
@@ -312,6 +373,11 @@ public class FiscoBcosBroker4Consumer extends FiscoBcosTopicAdmin implements ICo
         return fiscoBcosDelegate.loop(blockNum, Integer.parseInt(groupId));
     }
 
+    @Override
+    public EventIndex.Location locateEvent(String eventId, String groupId) {
+        return fiscoBcosDelegate.getEventIndex().get(groupId, eventId);
+    }
+
     // method from FiscoBcosDelegate.IBlockEventListener
     @Override
     public void onEvent(Long groupId, Long blockHeight) {
@@ -1,13 +1,18 @@
 package com.webank.weevent.core.fisco;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.JsonHelper;
 import com.webank.weevent.client.SendResult;
 import com.webank.weevent.client.WeEvent;
 import com.webank.weevent.core.IProducer;
+import com.webank.weevent.core.config.WeEventCoreConfig;
+import com.webank.weevent.core.fisco.util.ExtensionsCodec;
 import com.webank.weevent.core.fisco.util.ParamCheckUtils;
 import com.webank.weevent.core.fisco.web3sdk.FiscoBcosDelegate;
 
@@ -16,8 +21,21 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class FiscoBcosBroker4Producer extends FiscoBcosTopicAdmin implements IProducer {
 
+    // buffer the published events for a while if producerLingerTime > 0
+    private final ProducerAccumulator accumulator;
+
     public FiscoBcosBroker4Producer(FiscoBcosDelegate fiscoBcosDelegate) {
         super(fiscoBcosDelegate);
+
+        WeEventCoreConfig config = fiscoBcosDelegate.getFiscoConfig().getWeEventCoreConfig();
+        if (config.getProducerLingerTime() > 0) {
+            this.accumulator = new ProducerAccumulator(this::publishBatch,
+                    config.getProducerLingerTime(),
+                    config.getProducerLingerCount(),
+                    config.getProducerLingerBytes());
+        } else {
+            this.accumulator = null;
+        }
     }
 
     @Override
@@ -27,6 +45,9 @@ public class FiscoBcosBroker4Producer extends FiscoBcosTopicAdmin implements IPr
 
     @Override
     public boolean shutdownProducer() {
+        if (this.accumulator != null) {
+            this.accumulator.flush();
+        }
         return true;
     }
 
@@ -48,11 +69,66 @@ public class FiscoBcosBroker4Producer extends FiscoBcosTopicAdmin implements IPr
                 log.info("ephemeral event");
                 return fiscoBcosDelegate.sendAMOP(event.getTopic(), Integer.parseInt(groupId), JsonHelper.object2Json(event));
             } else {
-                return fiscoBcosDelegate.publishEvent(event.getTopic(),
-                        Integer.parseInt(groupId),
-                        new String(event.getContent(), StandardCharsets.UTF_8),
-                        JsonHelper.object2Json(event.getExtensions()));
+                if (this.accumulator != null) {
+                    // the buffered event is published later, check topic now like publishEvent does
+                    if (!this.exist(event.getTopic(), groupId)) {
+                        throw new BrokerException(ErrorCode.TOPIC_NOT_EXIST);
+                    }
+                    return this.accumulator.append(event, groupId);
+                }
+                return this.publishEvent(event, groupId);
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<SendResult> publishEncoded(String topic, byte[] content, byte[] extensionHeader, String groupIdStr) throws BrokerException {
+        ExtensionsCodec.validate(extensionHeader);
+        // signed, ephemeral and buffered event need the extensions in Map
+        if (this.accumulator != null
+                || ExtensionsCodec.containsKey(extensionHeader, WeEvent.WeEvent_SIGN)
+                || ExtensionsCodec.containsKey(extensionHeader, WeEvent.WeEvent_EPHEMERAL)) {
+            return IProducer.super.publishEncoded(topic, content, extensionHeader, groupIdStr);
+        }
+
+        log.debug("publish encoded topic: {} groupId: {}", topic, groupIdStr);
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        if (content == null) {
+            throw new BrokerException(ErrorCode.EVENT_CONTENT_IS_BLANK);
+        }
+        ParamCheckUtils.validateTopicName(topic);
+        String contentStr = new String(content, StandardCharsets.UTF_8);
+        ParamCheckUtils.validateEventContent(contentStr);
+
+        // the header goes into the contract as extensions json directly
+        return fiscoBcosDelegate.publishEvent(topic, Integer.parseInt(groupId), contentStr, ExtensionsCodec.toJson(extensionHeader));
+    }
+
+    private CompletableFuture<SendResult> publishEvent(WeEvent event, String groupId) throws BrokerException {
+        return fiscoBcosDelegate.publishEvent(event.getTopic(),
+                Integer.parseInt(groupId),
+                new String(event.getContent(), StandardCharsets.UTF_8),
+                JsonHelper.object2Json(event.getExtensions()));
+    }
+
+    /*
+     * flush the buffered events one transaction per event, there is no batch transaction in Topic contract.
+     */
+    private List<CompletableFuture<SendResult>> publishBatch(List<WeEvent> events, String groupId) {
+        log.debug("publish batch size: {} groupId: {}", events.size(), groupId);
+
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>(events.size());
+        for (WeEvent event : events) {
+            try {
+                futures.add(this.publishEvent(event, groupId));
+            } catch (BrokerException e) {
+                log.error("publish buffered event failed", e);
+                CompletableFuture<SendResult> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                futures.add(failed);
             }
         }
+        return futures;
     }
 }
@@ -0,0 +1,204 @@
+package com.webank.weevent.core.fisco;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.SendResult;
+import com.webank.weevent.client.WeEvent;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffer the published events per group for a while, and hand them to the publisher as one batch.
+ * A batch is flushed when it's linger time is up, or it reaches the count or bytes limit, whichever comes first.
+ * Every caller get it's own SendResult future, completed with the result of it's event.
+ */
+@Slf4j
+public class ProducerAccumulator {
+    /**
+     * publish a batch of events
+     */
+    public interface BatchPublisher {
+        /**
+         * @param events events in append order
+         * @param groupId group id
+         * @return SendResult future of every event, in the same order
+         * @throws BrokerException fail the whole batch
+         */
+        List<CompletableFuture<SendResult>> publishBatch(List<WeEvent> events, String groupId) throws BrokerException;
+    }
+
+    // one daemon thread for linger timer in all accumulators, publishing is asynchronous
+    private static ScheduledThreadPoolExecutor timer;
+
+    private final BatchPublisher publisher;
+    private final int lingerTime;
+    private final int maxCount;
+    private final int maxBytes;
+
+    // accumulating batch in every group, guarded by this
+    private final Map<String, Batch> batches = new HashMap<>();
+
+    private static class Batch {
+        private final String groupId;
+        private final List<WeEvent> events = new ArrayList<>();
+        private final List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        private int bytes = 0;
+        private ScheduledFuture<?> lingerTask;
+
+        Batch(String groupId) {
+            this.groupId = groupId;
+        }
+    }
+
+    /**
+     * @param publisher batch publisher
+     * @param lingerTime max time an event stays in buffer, in ms
+     * @param maxCount max events in one batch
+     * @param maxBytes max content bytes in one batch
+     */
+    public ProducerAccumulator(BatchPublisher publisher, int lingerTime, int maxCount, int maxBytes) {
+        this.publisher = publisher;
+        this.lingerTime = lingerTime;
+        this.maxCount = Math.max(maxCount, 1);
+        this.maxBytes = Math.max(maxBytes, 1);
+
+        log.info("ProducerAccumulator initialized with linger time: {}ms, max count: {}, max bytes: {}",
+                this.lingerTime, this.maxCount, this.maxBytes);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getTimer() {
+        if (timer == null) {
+            timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "producer-linger");
+                thread.setDaemon(true);
+                return thread;
+            });
+            timer.setRemoveOnCancelPolicy(true);
+        }
+        return timer;
+    }
+
+    private static int sizeOf(WeEvent event) {
+        return event.getContent().length + event.getTopic().length();
+    }
+
+    /**
+     * append event into the batch of it's group.
+     *
+     * @param event validated event
+     * @param groupId group id
+     * @return SendResult future, completed after the event is published
+     */
+    public CompletableFuture<SendResult> append(WeEvent event, String groupId) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        int size = sizeOf(event);
+        List<Batch> full = new ArrayList<>();
+
+        synchronized (this) {
+            Batch batch = this.batches.get(groupId);
+            // not enough room for this one
+            if (batch != null && batch.bytes + size > this.maxBytes) {
+                full.add(this.detach(batch));
+                batch = null;
+            }
+            if (batch == null) {
+                batch = new Batch(groupId);
+                this.batches.put(groupId, batch);
+                Batch lingering = batch;
+                batch.lingerTask = getTimer().schedule(() -> this.flush(lingering), this.lingerTime, TimeUnit.MILLISECONDS);
+            }
+
+            batch.events.add(event);
+            batch.futures.add(future);
+            batch.bytes += size;
+            if (batch.events.size() >= this.maxCount || batch.bytes >= this.maxBytes) {
+                full.add(this.detach(batch));
+            }
+        }
+
+        // publish out of lock
+        for (Batch batch : full) {
+            this.publish(batch);
+        }
+        return future;
+    }
+
+    /**
+     * publish all the buffered events right now.
+     */
+    public void flush() {
+        List<Batch> all;
+        synchronized (this) {
+            all = new ArrayList<>(this.batches.values());
+            all.forEach(this::detach);
+        }
+
+        for (Batch batch : all) {
+            this.publish(batch);
+        }
+    }
+
+    public synchronized int getBufferedCount() {
+        return this.batches.values().stream().mapToInt(batch -> batch.events.size()).sum();
+    }
+
+    // linger time is up
+    private void flush(Batch batch) {
+        synchronized (this) {
+            // flushed already
+            if (this.batches.get(batch.groupId) != batch) {
+                return;
+            }
+            this.detach(batch);
+        }
+
+        this.publish(batch);
+    }
+
+    private Batch detach(Batch batch) {
+        this.batches.remove(batch.groupId);
+        batch.lingerTask.cancel(false);
+        return batch;
+    }
+
+    private void publish(Batch batch) {
+        log.debug("flush batch size: {} bytes: {} groupId: {}", batch.events.size(), batch.bytes, batch.groupId);
+
+        List<CompletableFuture<SendResult>> results;
+        try {
+            results = this.publisher.publishBatch(batch.events, batch.groupId);
+        } catch (BrokerException | RuntimeException e) {
+            log.error("publish batch failed, groupId: " + batch.groupId, e);
+            batch.futures.forEach(future -> future.completeExceptionally(e));
+            return;
+        }
+
+        int size = results == null ? 0 : results.size();
+        if (size != batch.futures.size()) {
+            log.error("publish batch result mismatch, events: {} results: {}", batch.futures.size(), size);
+        }
+        for (int idx = 0; idx < batch.futures.size(); idx++) {
+            CompletableFuture<SendResult> future = batch.futures.get(idx);
+            if (idx < size) {
+                results.get(idx).whenComplete((sendResult, e) -> {
+                    if (e != null) {
+                        future.completeExceptionally(e);
+                    } else {
+                        future.complete(sendResult);
+                    }
+                });
+            } else {
+                future.completeExceptionally(new BrokerException(ErrorCode.TRANSACTION_EXECUTE_ERROR));
+            }
+        }
+    }
+}
@@ -124,11 +124,6 @@ public class WeEventConstants {
 
     public static final int DEFAULT_CHAINCODE_PARAM_COUNT = 4;
 
-    /**
-     * The transaction poll attempts (max).
-     */
-    public static final Integer POLL_TRANSACTION_ATTEMPTS = 10;
-
     /**
      * The FISCO-BCOS Address pattern.
      */
@@ -80,15 +80,7 @@ public final class DataTypeUtils {
      * @return seq
      */
     public static Long decodeSeq(String eventId) throws BrokerException {
-        String[] tokens = eventId.split(WeEventConstants.EVENT_ID_SPLIT_CHAR);
-        if (tokens.length != 3) {
-            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
-        }
-
-        if (tokens[0].length() != WeEventConstants.TOPIC_NAME_ENCODE_LENGTH) {
-            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
-        }
-        return DataTypeUtils.stringToLong(tokens[1]);
+        return EventId.parse(eventId).getSeq();
     }
 
     /*
@@ -98,14 +90,7 @@ public final class DataTypeUtils {
      * @return blockNumber
      */
     public static Long decodeBlockNumber(String eventId) throws BrokerException {
-        String[] tokens = eventId.split(WeEventConstants.EVENT_ID_SPLIT_CHAR);
-        if (tokens.length != 3) {
-            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
-        }
-        if (tokens[0].length() != WeEventConstants.TOPIC_NAME_ENCODE_LENGTH) {
-            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
-        }
-        return DataTypeUtils.stringToLong(tokens[2]);
+        return EventId.parse(eventId).getBlockNumber();
     }
 
     /*
@@ -115,14 +100,7 @@ public final class DataTypeUtils {
      * @return topicName hash
      */
     public static String decodeTopicNameHash(String eventId) throws BrokerException {
-        String[] tokens = eventId.split(WeEventConstants.EVENT_ID_SPLIT_CHAR);
-        if (tokens.length != 3) {
-            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
-        }
-        if (tokens[0].length() != WeEventConstants.TOPIC_NAME_ENCODE_LENGTH) {
-            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
-        }
-        return tokens[0];
+        return EventId.parse(eventId).getTopicNameHash();
     }
 
     /**
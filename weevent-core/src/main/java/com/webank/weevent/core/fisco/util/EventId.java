@@ -0,0 +1,109 @@
+package com.webank.weevent.core.fisco.util;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.core.fisco.constant.WeEventConstants;
+
+/**
+ * Parsed eventId, it's format is "topic name hash-sequence-block number", see DataTypeUtils.encodeEventId.
+ * Decode once and carry it, instead of splitting the string for every field.
+ * Parsing allocate nothing except this object, topic name hash is sliced only if needed.
+ */
+public final class EventId {
+    private static final char SPLIT_CHAR = WeEventConstants.EVENT_ID_SPLIT_CHAR.charAt(0);
+
+    private final String value;
+    private final long seq;
+    private final long blockNumber;
+
+    private EventId(String value, long seq, long blockNumber) {
+        this.value = value;
+        this.seq = seq;
+        this.blockNumber = blockNumber;
+    }
+
+    /**
+     * parse eventId, invalid number is decoded as 0 like DataTypeUtils.stringToLong.
+     *
+     * @param eventId event id
+     * @return parsed eventId
+     * @throws BrokerException if not 3 parts or topic name hash is invalid
+     */
+    public static EventId parse(String eventId) throws BrokerException {
+        if (eventId == null) {
+            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
+        }
+
+        int first = eventId.indexOf(SPLIT_CHAR);
+        int second = first < 0 ? -1 : eventId.indexOf(SPLIT_CHAR, first + 1);
+        if (second < 0 || eventId.indexOf(SPLIT_CHAR, second + 1) >= 0) {
+            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
+        }
+        if (first != WeEventConstants.TOPIC_NAME_ENCODE_LENGTH) {
+            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
+        }
+
+        return new EventId(eventId, parseLong(eventId, first + 1, second), parseLong(eventId, second + 1, eventId.length()));
+    }
+
+    // decimal in [from, to), 0 if empty, not digit or overflow
+    private static long parseLong(String value, int from, int to) {
+        if (from >= to) {
+            return 0L;
+        }
+
+        long result = 0L;
+        for (int idx = from; idx < to; idx++) {
+            int digit = value.charAt(idx) - '0';
+            if (digit < 0 || digit > 9 || result > (Long.MAX_VALUE - digit) / 10) {
+                return 0L;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    public long getSeq() {
+        return this.seq;
+    }
+
+    public long getBlockNumber() {
+        return this.blockNumber;
+    }
+
+    public String getTopicNameHash() {
+        return this.value.substring(0, WeEventConstants.TOPIC_NAME_ENCODE_LENGTH);
+    }
+
+    /**
+     * check topic name hash without slicing.
+     *
+     * @param topicNameHash topic name hash, see DataTypeUtils.genTopicNameHash
+     * @return true if match
+     */
+    public boolean matchTopicNameHash(String topicNameHash) {
+        return topicNameHash.length() == WeEventConstants.TOPIC_NAME_ENCODE_LENGTH
+                && this.value.regionMatches(0, topicNameHash, 0, WeEventConstants.TOPIC_NAME_ENCODE_LENGTH);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EventId)) {
+            return false;
+        }
+        return this.value.equals(((EventId) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.value.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.value;
+    }
+}
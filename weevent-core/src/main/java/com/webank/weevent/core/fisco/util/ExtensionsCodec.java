@@ -0,0 +1,175 @@
+package com.webank.weevent.core.fisco.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.core.fisco.constant.WeEventConstants;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compact binary header for event extensions, instead of json.
+ * It's a sequence of (key length, key, value length, value), length is unsigned varint and string is utf-8.
+ * Encoded once at the edge and validated without decoding, see IProducer.publishEncoded.
+ * It's not stored on chain, the Topic contract still takes the extensions in json, see toJson.
+ */
+@Slf4j
+public final class ExtensionsCodec {
+    private static final byte[] KEY_PREFIX = WeEventConstants.EXTENSIONS_PREFIX_CHAR.getBytes(StandardCharsets.UTF_8);
+
+    private ExtensionsCodec() {
+    }
+
+    /**
+     * encode extensions into binary header.
+     *
+     * @param extensions extensions, null value is encoded as empty
+     * @return binary header
+     */
+    public static byte[] encode(Map<String, String> extensions) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        for (Map.Entry<String, String> entry : extensions.entrySet()) {
+            writeBytes(out, entry.getKey().getBytes(StandardCharsets.UTF_8));
+            writeBytes(out, entry.getValue() == null ? new byte[0] : entry.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * decode binary header into extensions.
+     *
+     * @param header binary header
+     * @return extensions
+     * @throws BrokerException if header is malformed
+     */
+    public static Map<String, String> decode(byte[] header) throws BrokerException {
+        Map<String, String> extensions = new HashMap<>();
+        int[] offset = new int[]{0};
+        while (offset[0] < header.length) {
+            String key = readString(header, offset);
+            String value = readString(header, offset);
+            extensions.put(key, value);
+        }
+        return extensions;
+    }
+
+    /**
+     * check binary header without decoding, every key must start with WeEventConstants.EXTENSIONS_PREFIX_CHAR.
+     *
+     * @param header binary header
+     * @throws BrokerException BrokerException
+     */
+    public static void validate(byte[] header) throws BrokerException {
+        if (header == null) {
+            throw new BrokerException(ErrorCode.EVENT_EXTENSIONS_IS_NUll);
+        }
+        if (header.length > WeEventConstants.EVENT_EXTENSIONS_MAX_LENGTH) {
+            throw new BrokerException(ErrorCode.EVENT_EXTENSIONS_EXCEEDS_MAX_LENGTH);
+        }
+
+        int[] offset = new int[]{0};
+        while (offset[0] < header.length) {
+            int keyLength = readLength(header, offset);
+            if (keyLength < KEY_PREFIX.length) {
+                throw new BrokerException(ErrorCode.EVENT_EXTENSIONS_KEY_INVALID);
+            }
+            for (int idx = 0; idx < KEY_PREFIX.length; idx++) {
+                if (header[offset[0] + idx] != KEY_PREFIX[idx]) {
+                    throw new BrokerException(ErrorCode.EVENT_EXTENSIONS_KEY_INVALID);
+                }
+            }
+            offset[0] += keyLength;
+            int valueLength = readLength(header, offset);
+            offset[0] += valueLength;
+        }
+    }
+
+    /**
+     * check if the key is in a validated binary header.
+     *
+     * @param header validated binary header
+     * @param key extension key
+     * @return true if exist
+     * @throws BrokerException if header is malformed
+     */
+    public static boolean containsKey(byte[] header, String key) throws BrokerException {
+        byte[] target = key.getBytes(StandardCharsets.UTF_8);
+        int[] offset = new int[]{0};
+        while (offset[0] < header.length) {
+            int keyLength = readLength(header, offset);
+            boolean match = keyLength == target.length;
+            for (int idx = 0; match && idx < keyLength; idx++) {
+                match = header[offset[0] + idx] == target[idx];
+            }
+            if (match) {
+                return true;
+            }
+            offset[0] += keyLength;
+            offset[0] += readLength(header, offset);
+        }
+        return false;
+    }
+
+    /**
+     * translate a validated binary header into extensions json object, without the Map in between.
+     *
+     * @param header validated binary header
+     * @return extensions in json
+     * @throws BrokerException if header is malformed
+     */
+    public static String toJson(byte[] header) throws BrokerException {
+        JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+        StringBuilder json = new StringBuilder(header.length + 16);
+        json.append('{');
+        int[] offset = new int[]{0};
+        while (offset[0] < header.length) {
+            if (offset[0] > 0) {
+                json.append(',');
+            }
+            json.append('"').append(encoder.quoteAsString(readString(header, offset))).append("\":\"");
+            json.append(encoder.quoteAsString(readString(header, offset))).append('"');
+        }
+        return json.append('}').toString();
+    }
+
+    private static void writeBytes(ByteArrayOutputStream out, byte[] data) {
+        int length = data.length;
+        while ((length & ~0x7F) != 0) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        out.write(data, 0, data.length);
+    }
+
+    private static int readLength(byte[] header, int[] offset) throws BrokerException {
+        int length = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (offset[0] >= header.length) {
+                break;
+            }
+            byte b = header[offset[0]++];
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (length < 0 || length > header.length - offset[0]) {
+                    break;
+                }
+                return length;
+            }
+        }
+        log.error("malformed extensions header, offset: {}", offset[0]);
+        throw new BrokerException(ErrorCode.EVENT_EXTENSIONS_KEY_INVALID);
+    }
+
+    private static String readString(byte[] header, int[] offset) throws BrokerException {
+        int length = readLength(header, offset);
+        String value = new String(header, offset[0], length, StandardCharsets.UTF_8);
+        offset[0] += length;
+        return value;
+    }
+}
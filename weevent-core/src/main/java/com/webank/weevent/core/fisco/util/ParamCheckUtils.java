@@ -63,7 +63,16 @@ public class ParamCheckUtils {
         }
     }
 
-    public static void validateEventId(String topicName, String eventId, Long blockHeight) throws BrokerException {
+    /**
+     * check eventId, it's decoded only once.
+     *
+     * @param topicName topic name, not checked if blank
+     * @param eventId event id
+     * @param blockHeight current block height
+     * @return parsed eventId
+     * @throws BrokerException BrokerException
+     */
+    public static EventId validateEventId(String topicName, String eventId, Long blockHeight) throws BrokerException {
         if (StringUtils.isBlank(eventId)) {
             throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
         }
@@ -71,21 +80,21 @@ public class ParamCheckUtils {
             throw new BrokerException(ErrorCode.EVENT_ID_EXCEEDS_MAX_LENGTH);
         }
 
+        EventId parsed = EventId.parse(eventId);
         if (!StringUtils.isBlank(topicName)
-                && !DataTypeUtils.genTopicNameHash(topicName).equals(DataTypeUtils.decodeTopicNameHash(eventId))) {
+                && !parsed.matchTopicNameHash(DataTypeUtils.genTopicNameHash(topicName))) {
             throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
         }
 
-        Long lastEventSeq = DataTypeUtils.decodeSeq(eventId);
-        Long lastBlock = DataTypeUtils.decodeBlockNumber(eventId);
-        if (lastEventSeq <= 0 || lastBlock <= 0) {
+        if (parsed.getSeq() <= 0 || parsed.getBlockNumber() <= 0) {
             throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
         }
         if (blockHeight == 0L) {
             throw new BrokerException(ErrorCode.GET_BLOCK_HEIGHT_ERROR);
-        } else if (lastBlock > blockHeight) {
+        } else if (parsed.getBlockNumber() > blockHeight) {
             throw new BrokerException(ErrorCode.EVENT_ID_IS_MISMATCH);
         }
+        return parsed;
     }
 
 
@@ -0,0 +1,66 @@
+package com.webank.weevent.core.fisco.util;
+
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Count the rejected task of a named thread pool, then abort or run it in caller thread like the delegate policy.
+ * All the counters are registered by pool name, see getRejectedCounts.
+ * The pools with the same name share one count, e.g. the pool created for every group.
+ */
+@Slf4j
+public class RejectionCounter implements RejectedExecutionHandler {
+    // (pool name <-> rejected count)
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final RejectedExecutionHandler delegate;
+    private final AtomicLong rejectedCount;
+
+    /**
+     * @param name thread pool name
+     * @param delegate policy after counted
+     */
+    public RejectionCounter(String name, RejectedExecutionHandler delegate) {
+        this.name = name;
+        this.delegate = delegate;
+        this.rejectedCount = counters.computeIfAbsent(name, key -> new AtomicLong(0));
+    }
+
+    @Override
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+        long count = this.rejectedCount.incrementAndGet();
+        // not too much log
+        if (Long.bitCount(count) == 1) {
+            log.warn("thread pool is busy, {} rejected: {} active: {} queue: {}",
+                    this.name, count, executor.getActiveCount(), executor.getQueue().size());
+        }
+        this.delegate.rejectedExecution(runnable, executor);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public long getRejectedCount() {
+        return this.rejectedCount.get();
+    }
+
+    /**
+     * rejected count of all named thread pool.
+     *
+     * @return (pool name <-> rejected count)
+     */
+    public static Map<String, Long> getRejectedCounts() {
+        Map<String, Long> result = new TreeMap<>();
+        counters.forEach((name, count) -> result.put(name, count.get()));
+        return result;
+    }
+}
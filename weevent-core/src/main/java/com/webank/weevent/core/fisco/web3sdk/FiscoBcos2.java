@@ -8,12 +8,14 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.SendResult;
 import com.webank.weevent.client.TopicInfo;
 import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.cache.TopicInfoCache;
 import com.webank.weevent.core.config.FiscoConfig;
 import com.webank.weevent.core.dto.ContractContext;
 import com.webank.weevent.core.dto.GroupGeneral;
@@ -21,11 +23,10 @@ import com.webank.weevent.core.dto.ListPage;
 import com.webank.weevent.core.dto.TbBlock;
 import com.webank.weevent.core.dto.TbNode;
 import com.webank.weevent.core.dto.TbTransHash;
-import com.webank.weevent.core.fisco.constant.WeEventConstants;
 import com.webank.weevent.core.fisco.util.DataTypeUtils;
-import com.webank.weevent.core.fisco.util.ParamCheckUtils;
 import com.webank.weevent.core.fisco.web3sdk.v2.CRUDAddress;
 import com.webank.weevent.core.fisco.web3sdk.v2.SupportedVersion;
+import com.webank.weevent.core.fisco.web3sdk.v2.TransactionReceiptTracker;
 import com.webank.weevent.core.fisco.web3sdk.v2.Web3SDK2Wrapper;
 import com.webank.weevent.core.fisco.web3sdk.v2.Web3SDKConnector;
 import com.webank.weevent.core.fisco.web3sdk.v2.solc10.Topic;
@@ -51,8 +52,10 @@ import org.fisco.bcos.sdk.amop.AmopMsgOut;
 import org.fisco.bcos.sdk.amop.AmopResponse;
 import org.fisco.bcos.sdk.amop.AmopResponseCallback;
 import org.fisco.bcos.sdk.client.Client;
+import org.fisco.bcos.sdk.client.RespCallback;
 import org.fisco.bcos.sdk.client.protocol.response.SendTransaction;
 import org.fisco.bcos.sdk.contract.Contract;
+import org.fisco.bcos.sdk.model.Response;
 import org.fisco.bcos.sdk.model.RetCode;
 import org.fisco.bcos.sdk.model.TransactionReceipt;
 import org.fisco.bcos.sdk.model.TransactionReceiptStatus;
@@ -74,19 +77,28 @@ public class FiscoBcos2 {
     // config
     private final FiscoConfig fiscoConfig;
 
+    // executor to fetch transaction receipt concurrently, may be null
+    private final Executor receiptExecutor;
+
+    // executor for concurrent rpc, like query block list
+    private final Executor ioExecutor;
+
     private BcosSDK sdk;
     private Client client;
     private Amop amop;
     private int timeout;
 
+    // wait receipt of externally signed transaction
+    private TransactionReceiptTracker receiptTracker;
+
     // topic control contract in nowSupport
     private TopicController topicController;
 
     // topic contract in nowSupport
     private Topic topic;
 
-    // topic info list in local memory, some fields may be expired
-    private final Map<String, TopicInfo> topicInfo = new ConcurrentHashMap<>();
+    // topic info in local memory, expired after TTL, some fields may be changed in TTL
+    private final TopicInfoCache topicInfoCache;
 
     // history topic, (address <-> Contract)
     private final Map<String, Contract> historyTopicContract = new ConcurrentHashMap<>();
@@ -94,8 +106,13 @@ public class FiscoBcos2 {
     // history topic, (address <-> version)
     private final Map<String, Long> historyTopicVersion = new ConcurrentHashMap<>();
 
-    public FiscoBcos2(FiscoConfig fiscoConfig) throws BrokerException {
+    public FiscoBcos2(FiscoConfig fiscoConfig, Executor receiptExecutor, Executor ioExecutor) throws BrokerException {
         this.fiscoConfig = fiscoConfig;
+        this.receiptExecutor = receiptExecutor;
+        this.ioExecutor = ioExecutor;
+        this.topicInfoCache = new TopicInfoCache(fiscoConfig.getWeEventCoreConfig().getTopicCacheSize(),
+                fiscoConfig.getWeEventCoreConfig().getTopicCacheTtl(),
+                fiscoConfig.getWeEventCoreConfig().getTopicCacheNegativeTtl());
         this.sdk = Web3SDKConnector.buidBcosSDK(fiscoConfig);
         this.amop = this.sdk.getAmop();
     }
@@ -107,6 +124,12 @@ public class FiscoBcos2 {
     public void init(Integer groupId) throws BrokerException {
         log.info("WeEvent support solidity version, now: {} support: {}", SupportedVersion.nowVersion, SupportedVersion.history);
         this.client = Web3SDKConnector.initClient(this.sdk, groupId, this.fiscoConfig);
+        this.receiptTracker = new TransactionReceiptTracker(this.client);
+        Web3SDK2Wrapper.setBlockNotifyCallBack(this.sdk, (gid, blockHeight) -> {
+            if (gid.intValue() == groupId) {
+                this.receiptTracker.onBlock(blockHeight);
+            }
+        });
 
         if (this.topicController == null) {
             this.timeout = this.fiscoConfig.getWeEventCoreConfig().getTimeout();
@@ -184,6 +207,8 @@ public class FiscoBcos2 {
         }
 
         TransactionReceipt transactionReceipt = this.topicController.addTopicInfo(topicName);
+        // the non-existent topic is cached just now
+        this.topicInfoCache.invalidate(topicName);
         if (!transactionReceipt.isStatusOK()) {
             log.error("addTopicInfo failed due to transaction execution error");
             throw new BrokerException(ErrorCode.TRANSACTION_EXECUTE_ERROR);
@@ -219,10 +244,10 @@ public class FiscoBcos2 {
     }
 
     public Optional<TopicInfo> getTopicInfo(String topicName, boolean skipCache) throws BrokerException {
-        if (!skipCache && this.topicInfo.containsKey(topicName)) {
-            return Optional.of(this.topicInfo.get(topicName));
-        }
+        return this.topicInfoCache.get(topicName, skipCache, this::loadTopicInfo);
+    }
 
+    private Optional<TopicInfo> loadTopicInfo(String topicName) throws BrokerException {
         try {
             Tuple8<Boolean, String, BigInteger, BigInteger, BigInteger, BigInteger, BigInteger, String> topic =
                     this.topicController.getTopicInfo(topicName);
@@ -244,7 +269,6 @@ public class FiscoBcos2 {
             topicInfo.setBlockNumber(topic.getValue6().longValue());
             topicInfo.setLastTimestamp(topic.getValue7().longValue());
 
-            this.topicInfo.put(topicName, topicInfo);
             return Optional.of(topicInfo);
         } catch (ContractException e) {
             log.error("getTopicInfo failed due to web3sdk rpc error.", e);
@@ -252,30 +276,20 @@ public class FiscoBcos2 {
         }
     }
 
-    public WeEvent getEvent(String eventId) throws BrokerException {
-        ParamCheckUtils.validateEventId("", eventId, getBlockHeight());
-
-        Long blockNum = DataTypeUtils.decodeBlockNumber(eventId);
-        List<WeEvent> events = this.loop(BigInteger.valueOf(blockNum));
-        for (WeEvent event : events) {
-            if (eventId.equals(event.getEventId())) {
-                log.info("event:{}", event);
-                return event;
-            }
-        }
-
-        throw new BrokerException(ErrorCode.EVENT_ID_NOT_EXIST);
-    }
-
     public CompletableFuture<SendResult> publishEvent(String topicName, String eventContent, String extensions) throws BrokerException {
         if (!isTopicExist(topicName)) {
             throw new BrokerException(ErrorCode.TOPIC_NOT_EXIST);
         }
 
         log.info("publish async ...");
-        StopWatch sw = StopWatch.createStarted();
         CompletableFuture<SendResult> future = new CompletableFuture<>();
-        this.topic.publishWeEvent(topicName, eventContent, extensions, new TransactionCallback() {
+        this.topic.publishWeEvent(topicName, eventContent, extensions, publishCallback(topicName, future));
+        return future;
+    }
+
+    private TransactionCallback publishCallback(String topicName, CompletableFuture<SendResult> future) {
+        StopWatch sw = StopWatch.createStarted();
+        return new TransactionCallback() {
             @Override
             public void onResponse(TransactionReceipt receipt) {
                 SendResult sendResult = new SendResult();
@@ -293,85 +307,116 @@ public class FiscoBcos2 {
                         sendResult.setEventId(DataTypeUtils.encodeEventId(topicName, Numeric.decodeQuantity(receipt.getBlockNumber()).intValue(), sequence));
                     }
                 } else { // error
-                    try {
-                        RetCode retCode = ReceiptParser.parseTransactionReceipt(receipt);
-                        if (retCode.getCode() == TransactionReceiptStatus.TimeOut.getCode()) {
-                            log.error("publish event failed due to transaction execution timeout. {}", retCode.toString());
-                            sendResult.setStatus(SendResult.SendResultStatus.TIMEOUT);
-                        } else {
-                            log.error("publish event failed due to transaction execution error. {}", retCode.toString());
-                            sendResult.setStatus(SendResult.SendResultStatus.ERROR);
-                        }
-                    } catch (ContractException exception) {
-                        log.error("publish event failed due to transaction execution error. {}, {}", exception.getErrorCode(), exception.getMessage());
-                        sendResult.setStatus(SendResult.SendResultStatus.ERROR);
-                    }
+                    sendResult.setStatus(failedStatus(receipt));
                 }
 
                 sw.stop();
                 log.info("publish async result, {} cost: {} ms", sendResult, sw.getTime());
                 future.complete(sendResult);
             }
-        });
-        return future;
+        };
     }
 
-    public CompletableFuture<SendResult> sendRawTransaction(String topicName, String transactionHex) {
-        return CompletableFuture.supplyAsync(() -> {
-            SendTransaction sendTransaction = this.client.sendRawTransaction(transactionHex);
-
-            SendResult sendResult = new SendResult();
-            sendResult.setTopic(topicName);
-
-            Optional<TransactionReceipt> receiptOptional = getTransactionReceiptRequest(sendTransaction.getTransactionHash());
-            if (receiptOptional.isPresent()) {
-                List<TypeReference<?>> referencesList = Collections.singletonList(new TypeReference<Uint256>() {
-                });
-                List<Type> returnList = FunctionReturnDecoder.decode(
-                        String.valueOf(receiptOptional.get().getOutput()),
-                        Utils.convert(referencesList));
-
-                int sequence = ((BigInteger) returnList.get(0).getValue()).intValue();
-                if (sequence == 0) {
-                    log.error("this FISCO-BCOS account has no permission to publish event");
-                    sendResult.setStatus(SendResult.SendResultStatus.NO_PERMISSION);
-                } else {
-                    sendResult.setStatus(SendResult.SendResultStatus.SUCCESS);
-                    sendResult.setEventId(DataTypeUtils.encodeEventId(topicName,
-                            Numeric.decodeQuantity(receiptOptional.get().getBlockNumber()).intValue(),
-                            sequence));
-                }
+    private static SendResult.SendResultStatus failedStatus(TransactionReceipt receipt) {
+        try {
+            RetCode retCode = ReceiptParser.parseTransactionReceipt(receipt);
+            if (retCode.getCode() == TransactionReceiptStatus.TimeOut.getCode()) {
+                log.error("publish event failed due to transaction execution timeout. {}", retCode.toString());
+                return SendResult.SendResultStatus.TIMEOUT;
             } else {
-                sendResult.setStatus(SendResult.SendResultStatus.ERROR);
+                log.error("publish event failed due to transaction execution error. {}", retCode.toString());
+                return SendResult.SendResultStatus.ERROR;
             }
-
-            return sendResult;
-        });
+        } catch (ContractException exception) {
+            log.error("publish event failed due to transaction execution error. {}, {}", exception.getErrorCode(), exception.getMessage());
+            return SendResult.SendResultStatus.ERROR;
+        }
     }
 
     /**
-     * Get a TransactionReceipt request from a transaction Hash.
+     * send an externally signed transaction, and complete after it's receipt is notified.
      *
-     * @param transactionHash the transactionHash value
-     * @return the transactionReceipt wrapper
+     * @param topicName topic name
+     * @param transactionHex signed transaction
+     * @return SendResult
      */
-    private Optional<TransactionReceipt> getTransactionReceiptRequest(String transactionHash) {
-        Optional<TransactionReceipt> receiptOptional = Optional.empty();
-
-        try {
-            for (int i = 0; i < WeEventConstants.POLL_TRANSACTION_ATTEMPTS; i++) {
-                receiptOptional = this.client.getTransactionReceipt(transactionHash).getTransactionReceipt();
-                if (!receiptOptional.isPresent()) {
-                    Thread.sleep(this.fiscoConfig.getWeEventCoreConfig().getConsumerIdleTime());
-                } else {
-                    return receiptOptional;
+    public CompletableFuture<SendResult> sendRawTransaction(String topicName, String transactionHex) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        this.client.sendRawTransactionAsync(transactionHex, new RespCallback<SendTransaction>() {
+            @Override
+            public void onResponse(SendTransaction sendTransaction) {
+                if (sendTransaction.hasError()) {
+                    log.error("send raw transaction failed, {}", sendTransaction.getError().getMessage());
+                    future.complete(errorResult(topicName));
+                    return;
                 }
+
+                // never leave the caller waiting, even if the receipt can not be decoded
+                receiptTracker.track(sendTransaction.getTransactionHash(), timeout)
+                        .whenComplete((receiptOptional, e) -> {
+                            if (e != null) {
+                                log.error("track raw transaction receipt failed", e);
+                                future.complete(errorResult(topicName));
+                                return;
+                            }
+
+                            try {
+                                future.complete(decodeRawTransactionResult(topicName, receiptOptional));
+                            } catch (RuntimeException ex) {
+                                log.error("decode raw transaction receipt failed", ex);
+                                future.complete(errorResult(topicName));
+                            }
+                        });
+            }
+
+            @Override
+            public void onError(Response errorResponse) {
+                log.error("send raw transaction failed, {}", errorResponse.getErrorMessage());
+                future.complete(errorResult(topicName));
             }
-        } catch (InterruptedException e) {
-            log.error("get transactionReceipt failed.", e);
-            Thread.currentThread().interrupt();
+        });
+        return future;
+    }
+
+    private static SendResult errorResult(String topicName) {
+        SendResult sendResult = new SendResult(SendResult.SendResultStatus.ERROR);
+        sendResult.setTopic(topicName);
+        return sendResult;
+    }
+
+    private static SendResult decodeRawTransactionResult(String topicName, Optional<TransactionReceipt> receiptOptional) {
+        if (!receiptOptional.isPresent()) {
+            SendResult sendResult = new SendResult(SendResult.SendResultStatus.TIMEOUT);
+            sendResult.setTopic(topicName);
+            return sendResult;
+        }
+
+        TransactionReceipt receipt = receiptOptional.get();
+        if (!receipt.isStatusOK()) {
+            SendResult sendResult = new SendResult(failedStatus(receipt));
+            sendResult.setTopic(topicName);
+            return sendResult;
+        }
+
+        SendResult sendResult = new SendResult();
+        sendResult.setTopic(topicName);
+        List<TypeReference<?>> referencesList = Collections.singletonList(new TypeReference<Uint256>() {
+        });
+        List<Type> returnList = FunctionReturnDecoder.decode(
+                String.valueOf(receipt.getOutput()),
+                Utils.convert(referencesList));
+
+        int sequence = ((BigInteger) returnList.get(0).getValue()).intValue();
+        if (sequence == 0) {
+            log.error("this FISCO-BCOS account has no permission to publish event");
+            sendResult.setStatus(SendResult.SendResultStatus.NO_PERMISSION);
+        } else {
+            sendResult.setStatus(SendResult.SendResultStatus.SUCCESS);
+            sendResult.setEventId(DataTypeUtils.encodeEventId(topicName,
+                    Numeric.decodeQuantity(receipt.getBlockNumber()).intValue(),
+                    sequence));
         }
-        return receiptOptional;
+        return sendResult;
     }
 
     /*
@@ -390,7 +435,7 @@ public class FiscoBcos2 {
      * @return java.lang.Integer null if net error
      */
     public List<WeEvent> loop(BigInteger blockNum) throws BrokerException {
-        return Web3SDK2Wrapper.loop(this.client, blockNum, this.historyTopicVersion, this.historyTopicContract);
+        return Web3SDK2Wrapper.loop(this.client, blockNum, this.historyTopicVersion, this.historyTopicContract, this.receiptExecutor);
     }
 
     public GroupGeneral getGroupGeneral() throws BrokerException {
@@ -402,7 +447,7 @@ public class FiscoBcos2 {
     }
 
     public ListPage<TbBlock> queryBlockList(String transHash, BigInteger blockNumber, Integer pageIndex, Integer pageSize) throws BrokerException {
-        return Web3SDK2Wrapper.queryBlockList(this.client, transHash, blockNumber, pageIndex, pageSize);
+        return Web3SDK2Wrapper.queryBlockList(this.client, transHash, blockNumber, pageIndex, pageSize, this.ioExecutor);
     }
 
     public ListPage<TbNode> queryNodeList() throws BrokerException {
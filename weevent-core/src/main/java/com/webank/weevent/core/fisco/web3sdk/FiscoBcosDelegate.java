@@ -14,6 +14,9 @@ import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.SendResult;
 import com.webank.weevent.client.TopicInfo;
 import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.cache.BlockEventCache;
+import com.webank.weevent.core.cache.BlockEventStore;
+import com.webank.weevent.core.cache.EventIndex;
 import com.webank.weevent.core.config.FiscoConfig;
 import com.webank.weevent.core.dto.ContractContext;
 import com.webank.weevent.core.dto.GroupGeneral;
@@ -37,6 +40,7 @@ import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
  * default 1L in 2.x, meanings first group
  * There is 2 different caches for block data. One is local memory, another is redis.
  * All can be opened/closed by configuration. And is independent to each other.
+ * The local memory cache is shared by all MainEventLoop, HistoryEventLoop and getEvent, see BlockEventCache.
  *
  * @author matthewliu
  * @since 2019/04/28
@@ -52,6 +56,21 @@ public class FiscoBcosDelegate {
     // binding thread pool
     public ThreadPoolTaskExecutor threadPool;
 
+    // thread pool to fetch transaction receipt in block, shared by all group
+    private ThreadPoolTaskExecutor receiptThreadPool;
+
+    // short blocking rpc, never in ForkJoinPool.commonPool
+    private ThreadPoolTaskExecutor ioThreadPool;
+
+    // events in block cache, shared by all group
+    private BlockEventCache blockEventCache;
+
+    // optional, events in block store in local disk
+    private BlockEventStore blockEventStore;
+
+    // eventId to it's location in block, shared by all group
+    private EventIndex eventIndex;
+
     // groupId list
     private List<String> groupIdList = new ArrayList<>();
 
@@ -74,6 +93,20 @@ public class FiscoBcosDelegate {
         this.threadPool = Web3SDKConnector.initThreadPool(config.getWeEventCoreConfig().getPoolSize(),
                 config.getWeEventCoreConfig().getMaxPoolSize(),
                 config.getWeEventCoreConfig().getKeepAliveSeconds());
+        this.receiptThreadPool = Web3SDKConnector.initFixedThreadPool("receipt-",
+                config.getWeEventCoreConfig().getReceiptPoolSize());
+        this.ioThreadPool = Web3SDKConnector.initBoundedThreadPool("fisco-chain-io-",
+                config.getWeEventCoreConfig().getPoolSize(),
+                config.getWeEventCoreConfig().getMaxPoolSize(),
+                config.getWeEventCoreConfig().getKeepAliveSeconds());
+        this.blockEventCache = new BlockEventCache(config.getWeEventCoreConfig().getBlockCacheSize() * 1024L * 1024L);
+        this.eventIndex = new EventIndex(config.getWeEventCoreConfig().getEventIndexSize() * 1024L * 1024L);
+        if (StringUtils.isNotBlank(config.getWeEventCoreConfig().getBlockStorePath())) {
+            long retention = config.getWeEventCoreConfig().getBlockStoreRetention() * 1024L * 1024L;
+            this.blockEventStore = new BlockEventStore(config.getWeEventCoreConfig().getBlockStorePath(),
+                    Math.max(retention / 16, 1024L * 1024L),
+                    retention);
+        }
 
         if (StringUtils.isBlank(config.getWeEventCoreConfig().getVersion())) {
             log.error("the fisco version in fisco.yml is empty");
@@ -89,7 +122,7 @@ public class FiscoBcosDelegate {
 
             // 1 is always exist
             Integer defaultGId = Integer.parseInt(WeEvent.DEFAULT_GROUP_ID);
-            FiscoBcos2 defaultFiscoBcos2 = new FiscoBcos2(config);
+            FiscoBcos2 defaultFiscoBcos2 = new FiscoBcos2(config, this.receiptThreadPool, this.ioThreadPool);
             defaultFiscoBcos2.init(defaultGId);
             this.fiscoBcos2Map.put(defaultGId, defaultFiscoBcos2);
             // this call need default group has been initialized
@@ -99,12 +132,27 @@ public class FiscoBcosDelegate {
             groups.remove(WeEvent.DEFAULT_GROUP_ID);
             for (String groupId : groups) {
                 Integer gid = Integer.parseInt(groupId);
-                FiscoBcos2 fiscoBcos2 = new FiscoBcos2(config);
+                FiscoBcos2 fiscoBcos2 = new FiscoBcos2(config, this.receiptThreadPool, this.ioThreadPool);
                 fiscoBcos2.init(gid);
                 this.fiscoBcos2Map.put(gid, fiscoBcos2);
             }
 
             log.info("all group in nodes: {}", this.fiscoBcos2Map.keySet());
+
+            // warm up event index for the latest blocks after cold start
+            int rebuildBlocks = config.getWeEventCoreConfig().getEventIndexRebuildBlocks();
+            if (rebuildBlocks > 0) {
+                for (Integer gid : this.fiscoBcos2Map.keySet()) {
+                    this.threadPool.execute(() -> {
+                        try {
+                            Long height = this.getBlockHeight(gid);
+                            this.rebuildEventIndex(gid, height - rebuildBlocks + 1, height);
+                        } catch (BrokerException e) {
+                            log.error("rebuild event index failed, group: " + gid, e);
+                        }
+                    });
+                }
+            }
         } else {
             log.error("unknown FISCO-BCOS's version");
             throw new BrokerException(ErrorCode.WEB3SDK_INIT_ERROR);
@@ -133,6 +181,17 @@ public class FiscoBcosDelegate {
         }
     }
 
+    /**
+     * release the local resource, close the segment files of block event store.
+     */
+    public void shutdown() {
+        log.info("shutdown FiscoBcosDelegate");
+
+        if (this.blockEventStore != null) {
+            this.blockEventStore.close();
+        }
+    }
+
     /*
      * list all group id
      *
@@ -167,7 +226,31 @@ public class FiscoBcosDelegate {
     }
 
     public WeEvent getEvent(String eventId, Integer groupId) throws BrokerException {
-        return this.fiscoBcos2Map.get(groupId).getEvent(eventId);
+        Long blockNum = ParamCheckUtils.validateEventId("", eventId, this.getBlockHeight(groupId)).getBlockNumber();
+        String group = String.valueOf(groupId);
+        EventIndex.Location location = this.eventIndex.get(group, eventId);
+        if (location != null) {
+            log.info("event in index:{}", location.getEvent());
+            return location.getEvent();
+        }
+
+        // loading the block from local disk or block chain indexes it, search it if the block is cached already
+        List<WeEvent> events = this.loop(blockNum, groupId);
+        location = this.eventIndex.get(group, eventId);
+        if (location != null) {
+            log.info("event:{}", location.getEvent());
+            return location.getEvent();
+        }
+        if (events != null) {
+            for (WeEvent event : events) {
+                if (eventId.equals(event.getEventId())) {
+                    log.info("event:{}", event);
+                    return event;
+                }
+            }
+        }
+
+        throw new BrokerException(ErrorCode.EVENT_ID_NOT_EXIST);
     }
 
     public CompletableFuture<SendResult> publishEvent(String topicName, Integer groupId, String eventContent, String extensions) throws BrokerException {
@@ -198,12 +281,61 @@ public class FiscoBcosDelegate {
             return events;
         }
 
-        // from block chain
-        events = this.fiscoBcos2Map.get(groupId).loop(BigInteger.valueOf(blockNum));
+        // from local cache first, then local disk, block chain at last
+        FiscoBcos2 fiscoBcos2 = this.fiscoBcos2Map.get(groupId);
+        String group = String.valueOf(groupId);
+        List<WeEvent> cached = this.blockEventCache.get(group, blockNum, (num) -> this.loadBlock(fiscoBcos2, group, num));
+        if (cached == null) {
+            return null;
+        }
 
+        // cached list is shared, caller may modify it
+        events.addAll(cached);
         return events;
     }
 
+    /*
+     * load block from local disk first, then block chain, and index the events
+     */
+    private List<WeEvent> loadBlock(FiscoBcos2 fiscoBcos2, String group, Long blockNum) throws BrokerException {
+        List<WeEvent> events = null;
+        if (this.blockEventStore != null) {
+            events = this.blockEventStore.read(group, blockNum);
+        }
+        if (events == null) {
+            events = fiscoBcos2.loop(BigInteger.valueOf(blockNum));
+            if (events != null && this.blockEventStore != null) {
+                this.blockEventStore.write(group, blockNum, events);
+            }
+        }
+
+        this.eventIndex.putBlock(group, blockNum, events);
+        return events;
+    }
+
+    /**
+     * rebuild event index from local disk or block chain, bypass the block cache.
+     *
+     * @param groupId group id
+     * @param fromBlock from block height, inclusive
+     * @param toBlock to block height, inclusive
+     * @return how many events indexed
+     * @throws BrokerException BrokerException
+     */
+    public long rebuildEventIndex(Integer groupId, Long fromBlock, Long toBlock) throws BrokerException {
+        FiscoBcos2 fiscoBcos2 = this.fiscoBcos2Map.get(groupId);
+        String group = String.valueOf(groupId);
+        return this.eventIndex.rebuild(group, fromBlock, toBlock, (num) -> this.loadBlock(fiscoBcos2, group, num));
+    }
+
+    public EventIndex getEventIndex() {
+        return this.eventIndex;
+    }
+
+    public BlockEventCache getBlockEventCache() {
+        return this.blockEventCache;
+    }
+
     public GroupGeneral getGroupGeneral(Integer groupId) throws BrokerException {
         return this.fiscoBcos2Map.get(groupId).getGroupGeneral();
     }
@@ -0,0 +1,117 @@
+package com.webank.weevent.core.fisco.web3sdk.v2;
+
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.sdk.client.Client;
+import org.fisco.bcos.sdk.client.RespCallback;
+import org.fisco.bcos.sdk.client.protocol.response.BcosTransactionReceipt;
+import org.fisco.bcos.sdk.model.Response;
+import org.fisco.bcos.sdk.model.TransactionReceipt;
+
+/**
+ * Wait transaction receipt without blocking any thread.
+ * The pending transactions are keyed by hash, and their receipts are queried asynchronously once when tracked,
+ * and again when new block notified in the group. The receipt future is completed with empty if timeout.
+ */
+@Slf4j
+public class TransactionReceiptTracker {
+    // timer for all groups
+    private static final HashedWheelTimer timer = new HashedWheelTimer(new DefaultThreadFactory("receipt-timer", true),
+            100, TimeUnit.MILLISECONDS);
+
+    private final Client client;
+
+    // pending transaction, (hash <-> future)
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private static class Pending {
+        private final CompletableFuture<Optional<TransactionReceipt>> future = new CompletableFuture<>();
+        private Timeout timeout;
+    }
+
+    public TransactionReceiptTracker(Client client) {
+        this.client = client;
+    }
+
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * track the receipt of transaction.
+     *
+     * @param transactionHash transaction hash
+     * @param timeout timeout in ms
+     * @return receipt, empty if timeout
+     */
+    public CompletableFuture<Optional<TransactionReceipt>> track(String transactionHash, long timeout) {
+        Pending item = new Pending();
+        item.timeout = timer.newTimeout(t -> {
+            if (this.pending.remove(transactionHash, item)) {
+                log.error("wait transaction receipt timeout, {}", transactionHash);
+                item.future.complete(Optional.empty());
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        Pending exist = this.pending.putIfAbsent(transactionHash, item);
+        if (exist != null) {
+            item.timeout.cancel();
+            return exist.future;
+        }
+
+        // the block may be notified already
+        this.query(transactionHash);
+        return item.future;
+    }
+
+    /**
+     * new block mined, query all the pending receipts.
+     *
+     * @param blockHeight block height
+     */
+    public void onBlock(Long blockHeight) {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        log.debug("query pending receipts in block: {}, size: {}", blockHeight, this.pending.size());
+        for (String transactionHash : this.pending.keySet()) {
+            this.query(transactionHash);
+        }
+    }
+
+    private void query(String transactionHash) {
+        this.client.getTransactionReceiptAsync(transactionHash, new RespCallback<BcosTransactionReceipt>() {
+            @Override
+            public void onResponse(BcosTransactionReceipt response) {
+                Optional<TransactionReceipt> receipt = response.getTransactionReceipt();
+                if (receipt.isPresent()) {
+                    complete(transactionHash, receipt.get());
+                }
+            }
+
+            @Override
+            public void onError(Response errorResponse) {
+                // try again in next block
+                log.warn("query transaction receipt failed, {} {}", transactionHash, errorResponse.getErrorMessage());
+            }
+        });
+    }
+
+    private void complete(String transactionHash, TransactionReceipt receipt) {
+        Pending item = this.pending.remove(transactionHash);
+        if (item != null) {
+            item.timeout.cancel();
+            item.future.complete(Optional.of(receipt));
+        }
+    }
+}
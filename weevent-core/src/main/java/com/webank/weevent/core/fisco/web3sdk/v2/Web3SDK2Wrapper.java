@@ -12,6 +12,7 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import com.webank.weevent.client.BrokerException;
@@ -185,11 +186,13 @@ public class Web3SDK2Wrapper {
      * @param blockNum the blockNum
      * @param supportedVersion version list
      * @param historyTopic topic list
+     * @param executor executor to fetch transaction receipt concurrently, fetch one by one if null
      * @return null if net error
      */
     public static List<WeEvent> loop(Client client, BigInteger blockNum,
                                      Map<String, Long> supportedVersion,
-                                     Map<String, Contract> historyTopic) throws BrokerException {
+                                     Map<String, Contract> historyTopic,
+                                     Executor executor) throws BrokerException {
         List<WeEvent> events = new ArrayList<>();
         if (blockNum.compareTo(BigInteger.ZERO) <= 0) {
             return events;
@@ -208,15 +211,14 @@ public class Web3SDK2Wrapper {
             }
             log.debug("tx in block: {}", transactionHashList.size());
 
-            for (String transactionHash : transactionHashList) {
-                Optional<TransactionReceipt> transactionReceipt = client.getTransactionReceipt(transactionHash)
-                        .getTransactionReceipt();
-                if (!transactionReceipt.isPresent()) {
-                    log.error(String.format("loop block empty tx receipt, blockNum: %s tx hash: %s", blockNum, transactionHash));
-                    return null;
-                }
+            List<TransactionReceipt> receipts = fetchTransactionReceipts(client, transactionHashList, executor);
+            if (receipts == null) {
+                log.error("loop block empty tx receipt, blockNum: {}", blockNum);
+                return null;
+            }
 
-                TransactionReceipt receipt = transactionReceipt.get();
+            // receipts is in the same order as transaction index
+            for (TransactionReceipt receipt : receipts) {
                 // tx.to is contract address
                 String address = receipt.getTo();
                 if (historyTopic.containsKey(address)) {
@@ -239,6 +241,49 @@ public class Web3SDK2Wrapper {
         }
     }
 
+    /*
+     * Fetch transaction receipts, run concurrently in executor if exist.
+     * The result is in the same order as transactionHashList.
+     *
+     * @param client client
+     * @param transactionHashList transaction hash list in one block
+     * @param executor executor, fetch one by one in caller thread if null
+     * @return null if any receipt is empty
+     */
+    public static List<TransactionReceipt> fetchTransactionReceipts(Client client,
+                                                                    List<String> transactionHashList,
+                                                                    Executor executor) throws BrokerException {
+        List<CompletableFuture<Optional<TransactionReceipt>>> futureList = new ArrayList<>(transactionHashList.size());
+        for (String transactionHash : transactionHashList) {
+            if (executor == null || transactionHashList.size() == 1) {
+                futureList.add(CompletableFuture.completedFuture(client.getTransactionReceipt(transactionHash).getTransactionReceipt()));
+            } else {
+                futureList.add(CompletableFuture.supplyAsync(() -> client.getTransactionReceipt(transactionHash).getTransactionReceipt(), executor));
+            }
+        }
+
+        List<TransactionReceipt> receipts = new ArrayList<>(futureList.size());
+        try {
+            for (int idx = 0; idx < futureList.size(); idx++) {
+                Optional<TransactionReceipt> transactionReceipt = futureList.get(idx).get();
+                if (!transactionReceipt.isPresent()) {
+                    log.error("empty tx receipt, tx hash: {}", transactionHashList.get(idx));
+                    return null;
+                }
+                receipts.add(transactionReceipt.get());
+            }
+        } catch (ExecutionException e) { // Web3sdk's rpc return null
+            log.error("fetch tx receipt failed due to web3sdk rpc error", e);
+            throw new BrokerException(ErrorCode.WEB3SDK_RPC_ERROR);
+        } catch (InterruptedException e) {
+            log.error("fetch tx receipt failed due to InterruptedException", e);
+            Thread.currentThread().interrupt();
+            throw new BrokerException(ErrorCode.WEB3SDK_RPC_ERROR);
+        }
+
+        return receipts;
+    }
+
     public static GroupGeneral getGroupGeneral(Client client) throws BrokerException {
         // Current number of nodes, number of blocks, number of transactions
         GroupGeneral groupGeneral = new GroupGeneral();
@@ -320,7 +365,12 @@ public class Web3SDK2Wrapper {
     }
 
     //Traverse block
-    public static ListPage<TbBlock> queryBlockList(Client client, String blockHash, BigInteger blockNumber, Integer pageIndex, Integer pageSize) throws BrokerException {
+    public static ListPage<TbBlock> queryBlockList(Client client,
+                                                   String blockHash,
+                                                   BigInteger blockNumber,
+                                                   Integer pageIndex,
+                                                   Integer pageSize,
+                                                   Executor executor) throws BrokerException {
         ListPage<TbBlock> tbBlockListPage = new ListPage<>();
         List<TbBlock> tbBlocks = new CopyOnWriteArrayList<>();
         Integer blockCount;
@@ -351,7 +401,7 @@ public class Web3SDK2Wrapper {
                     blockNumberIndex++;
                 }
                 blockCount = blockNum;
-                tbBlocks = getTbBlock(client, blockNums);
+                tbBlocks = getTbBlock(client, blockNums, executor);
 
                 tbBlocks.sort((arg0, arg1) -> arg1.getBlockNumber().compareTo(arg0.getBlockNumber()));
             }
@@ -488,7 +538,10 @@ public class Web3SDK2Wrapper {
         return nodeIds.contains(nodeId) ? 1 : 0;
     }
 
-    private static List<TbBlock> getTbBlock(Client client, List<Long> blockNums) throws ExecutionException, InterruptedException {
+    /*
+     * fetch blocks concurrently in executor, never in ForkJoinPool.commonPool.
+     */
+    private static List<TbBlock> getTbBlock(Client client, List<Long> blockNums, Executor executor) throws ExecutionException, InterruptedException {
 
         List<CompletableFuture<TbBlock>> futureList = new ArrayList<>();
         for (Long blockNumber : blockNums) {
@@ -508,7 +561,7 @@ public class Web3SDK2Wrapper {
                 TbBlock tbBlock = new TbBlock(block.getHash(), block.getNumber(), blockTimestamp, transactions, sealerIndex);
                 tbBlock.setSealer(block.getSealer());
                 return tbBlock;
-            });
+            }, executor);
 
             futureList.add(future);
         }
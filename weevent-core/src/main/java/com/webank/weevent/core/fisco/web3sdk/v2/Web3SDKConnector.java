@@ -6,10 +6,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.core.config.FiscoConfig;
+import com.webank.weevent.core.fisco.util.RejectionCounter;
 
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
@@ -110,7 +112,7 @@ public class Web3SDKConnector {
         pool.setQueueCapacity(0);
         pool.setKeepAliveSeconds(keepalive);
         // abort policy
-        pool.setRejectedExecutionHandler(null);
+        pool.setRejectedExecutionHandler(new RejectionCounter("web3sdk-", new ThreadPoolExecutor.AbortPolicy()));
         pool.setDaemon(true);
         pool.initialize();
 
@@ -118,6 +120,58 @@ public class Web3SDKConnector {
         return pool;
     }
 
+    /**
+     * fixed size thread pool, run in caller thread if it is busy.
+     *
+     * @param prefix thread name prefix
+     * @param size pool size
+     * @return null if size is not positive
+     */
+    public static ThreadPoolTaskExecutor initFixedThreadPool(String prefix, int size) {
+        if (size <= 0) {
+            log.info("skip ThreadPoolTaskExecutor, {}", prefix);
+            return null;
+        }
+
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setThreadNamePrefix(prefix);
+        pool.setCorePoolSize(size);
+        pool.setMaxPoolSize(size);
+        pool.setQueueCapacity(size * 64);
+        // slow down the submitter instead of abort
+        pool.setRejectedExecutionHandler(new RejectionCounter(prefix, new ThreadPoolExecutor.CallerRunsPolicy()));
+        pool.setDaemon(true);
+        pool.initialize();
+
+        log.info("init fixed ThreadPoolTaskExecutor, {} size: {}", prefix, size);
+        return pool;
+    }
+
+    /**
+     * bounded thread pool for short blocking rpc, instead of ForkJoinPool.commonPool.
+     * Scale up to max threads after the queue is full, and run in caller thread if it is busy.
+     *
+     * @param prefix thread name prefix
+     * @param core core pool size
+     * @param max max pool size
+     * @param keepalive keepalive seconds
+     * @return thread pool
+     */
+    public static ThreadPoolTaskExecutor initBoundedThreadPool(String prefix, int core, int max, int keepalive) {
+        ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+        pool.setThreadNamePrefix(prefix);
+        pool.setCorePoolSize(core);
+        pool.setMaxPoolSize(Math.max(core, max));
+        pool.setQueueCapacity(core * 64);
+        pool.setKeepAliveSeconds(keepalive);
+        pool.setRejectedExecutionHandler(new RejectionCounter(prefix, new ThreadPoolExecutor.CallerRunsPolicy()));
+        pool.setDaemon(true);
+        pool.initialize();
+
+        log.info("init bounded ThreadPoolTaskExecutor, {} core: {} max: {}", prefix, core, max);
+        return pool;
+    }
+
     public static List<String> listGroupId(Client client) {
         return client.getGroupList().getGroupList();
     }
@@ -0,0 +1,291 @@
+package com.webank.weevent.core.simulator;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.JsonHelper;
+import com.webank.weevent.client.SendResult;
+import com.webank.weevent.client.TopicInfo;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.client.WeEventPlus;
+import com.webank.weevent.core.config.SimulatorConfig;
+import com.webank.weevent.core.fisco.util.DataTypeUtils;
+import com.webank.weevent.core.fisco.util.EventId;
+import com.webank.weevent.core.fisco.web3sdk.FiscoBcosDelegate;
+import com.webank.weevent.core.task.StoppableTask;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-process block chain for load testing, without FISCO-BCOS or Fabric network.
+ * Published events are pending in memory, and packed into a new block every block interval, like a real chain.
+ * Every rpc(publish, block height, fetch block) cost the configured latency, and fail in the configured fault rate.
+ */
+@Slf4j
+public class SimulatedChain {
+    private static final String SENDER = "0x0000000000000000000000000000000000000000";
+
+    /**
+     * pending event and it's publisher
+     */
+    private static class Pending {
+        final WeEvent event;
+        final CompletableFuture<SendResult> future;
+
+        Pending(WeEvent event, CompletableFuture<SendResult> future) {
+            this.event = event;
+            this.future = future;
+        }
+    }
+
+    /**
+     * state of one group
+     */
+    private static class Group {
+        // (topic name <-> topic info)
+        final Map<String, TopicInfo> topics = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+        // (block number <-> events), latest blocks only
+        final Map<Long, List<WeEvent>> blocks = new ConcurrentHashMap<>();
+        // start from an empty genesis block, MainEventLoop need a positive block height
+        volatile long height = 1;
+    }
+
+    private final SimulatorConfig config;
+
+    // (groupId <-> group)
+    private final Map<String, Group> groups = new TreeMap<>();
+
+    private final List<FiscoBcosDelegate.IBlockEventListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong transactionCount = new AtomicLong(0);
+    private final AtomicLong faultCount = new AtomicLong(0);
+
+    private final ScheduledExecutorService minter;
+
+    public SimulatedChain(SimulatorConfig config) {
+        this.config = config;
+        for (int i = 1; i <= config.getGroupCount(); i++) {
+            this.groups.put(String.valueOf(i), new Group());
+        }
+
+        this.minter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulator-minter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.minter.scheduleWithFixedDelay(this::mintAll, config.getBlockInterval(), config.getBlockInterval(), TimeUnit.MILLISECONDS);
+
+        log.info("SimulatedChain initialized, {}", config);
+    }
+
+    public SimulatorConfig getConfig() {
+        return this.config;
+    }
+
+    public void setListener(FiscoBcosDelegate.IBlockEventListener listener) {
+        this.listeners.add(listener);
+    }
+
+    public void shutdown() {
+        this.minter.shutdownNow();
+    }
+
+    /*
+     * cost latency, and fail in fault rate
+     */
+    private void rpc() throws BrokerException {
+        if (this.config.getRpcLatency() > 0) {
+            StoppableTask.idle(this.config.getRpcLatency());
+        }
+        if (this.config.getRpcFaultRate() > 0 && ThreadLocalRandom.current().nextDouble() < this.config.getRpcFaultRate()) {
+            this.faultCount.incrementAndGet();
+            throw new BrokerException(ErrorCode.WEB3SDK_RPC_ERROR);
+        }
+    }
+
+    private Group getGroup(String groupId) throws BrokerException {
+        Group group = this.groups.get(groupId);
+        if (group == null) {
+            throw new BrokerException(ErrorCode.WEB3SDK_UNKNOWN_GROUP);
+        }
+        return group;
+    }
+
+    public List<String> listGroupId() {
+        return new ArrayList<>(this.groups.keySet());
+    }
+
+    public boolean createTopic(String topicName, String groupId) throws BrokerException {
+        this.rpc();
+        TopicInfo topicInfo = new TopicInfo();
+        topicInfo.setTopicName(topicName);
+        topicInfo.setTopicAddress(SENDER);
+        topicInfo.setSenderAddress(SENDER);
+        topicInfo.setCreatedTimestamp(System.currentTimeMillis());
+        topicInfo.setSequenceNumber(0L);
+        topicInfo.setBlockNumber(0L);
+        topicInfo.setLastTimestamp(0L);
+        topicInfo.setLastSender("");
+        topicInfo.setLastBlock(0L);
+        if (this.getGroup(groupId).topics.putIfAbsent(topicName, topicInfo) != null) {
+            throw new BrokerException(ErrorCode.TOPIC_ALREADY_EXIST);
+        }
+        return true;
+    }
+
+    public boolean isTopicExist(String topicName, String groupId) throws BrokerException {
+        return this.getGroup(groupId).topics.containsKey(topicName);
+    }
+
+    public List<String> listTopicName(String groupId) throws BrokerException {
+        List<String> topics = new ArrayList<>(this.getGroup(groupId).topics.keySet());
+        Collections.sort(topics);
+        return topics;
+    }
+
+    public TopicInfo getTopicInfo(String topicName, String groupId) throws BrokerException {
+        TopicInfo topicInfo = this.getGroup(groupId).topics.get(topicName);
+        if (topicInfo == null) {
+            throw new BrokerException(ErrorCode.TOPIC_NOT_EXIST);
+        }
+        return topicInfo;
+    }
+
+    /**
+     * publish event, completed after it's packed into block.
+     *
+     * @param event event
+     * @param groupId group id
+     * @return SendResult
+     * @throws BrokerException BrokerException
+     */
+    public CompletableFuture<SendResult> publish(WeEvent event, String groupId) throws BrokerException {
+        this.rpc();
+        Group group = this.getGroup(groupId);
+        if (!group.topics.containsKey(event.getTopic())) {
+            throw new BrokerException(ErrorCode.TOPIC_NOT_EXIST);
+        }
+
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        group.pending.add(new Pending(event, future));
+        return future;
+    }
+
+    public Long getBlockHeight(String groupId) throws BrokerException {
+        this.rpc();
+        return this.getGroup(groupId).height;
+    }
+
+    /**
+     * events in block.
+     *
+     * @param blockNum block height
+     * @param groupId group id
+     * @return null if block is not minted yet, empty if out of retention
+     * @throws BrokerException BrokerException
+     */
+    public List<WeEvent> loop(Long blockNum, String groupId) throws BrokerException {
+        this.rpc();
+        Group group = this.getGroup(groupId);
+        if (blockNum > group.height) {
+            return null;
+        }
+        List<WeEvent> events = group.blocks.get(blockNum);
+        return events == null ? new ArrayList<>() : new ArrayList<>(events);
+    }
+
+    public WeEvent getEvent(String eventId, String groupId) throws BrokerException {
+        List<WeEvent> events = this.loop(EventId.parse(eventId).getBlockNumber(), groupId);
+        if (events != null) {
+            for (WeEvent event : events) {
+                if (eventId.equals(event.getEventId())) {
+                    return event;
+                }
+            }
+        }
+        throw new BrokerException(ErrorCode.EVENT_ID_NOT_EXIST);
+    }
+
+    public long getTransactionCount() {
+        return this.transactionCount.get();
+    }
+
+    public long getFaultCount() {
+        return this.faultCount.get();
+    }
+
+    private void mintAll() {
+        for (Map.Entry<String, Group> entry : this.groups.entrySet()) {
+            try {
+                this.mint(entry.getKey(), entry.getValue());
+            } catch (RuntimeException | BrokerException e) {
+                log.error("mint block failed, group: " + entry.getKey(), e);
+            }
+        }
+    }
+
+    /*
+     * pack up to block size pending events into a new block, no empty block
+     */
+    private void mint(String groupId, Group group) throws BrokerException {
+        if (group.pending.isEmpty()) {
+            return;
+        }
+
+        long height = group.height + 1;
+        long timestamp = System.currentTimeMillis();
+        List<WeEvent> events = new ArrayList<>();
+        List<Pending> packed = new ArrayList<>();
+        Pending pending;
+        while (events.size() < this.config.getBlockSize() && (pending = group.pending.poll()) != null) {
+            TopicInfo topicInfo = group.topics.get(pending.event.getTopic());
+            long seq = topicInfo.getSequenceNumber() + 1;
+            topicInfo.setSequenceNumber(seq);
+            topicInfo.setLastBlock(height);
+            topicInfo.setLastTimestamp(timestamp);
+            topicInfo.setLastSender(SENDER);
+
+            String txHash = String.format("0x%064x", this.transactionCount.incrementAndGet());
+            Map<String, String> extensions = new HashMap<>(pending.event.getExtensions());
+            extensions.put(WeEvent.WeEvent_PLUS, JsonHelper.object2Json(new WeEventPlus(timestamp, height, txHash, SENDER)));
+            WeEvent event = new WeEvent(pending.event.getTopic(), pending.event.getContent(), extensions);
+            event.setEventId(DataTypeUtils.encodeEventId(event.getTopic(), (int) height, seq));
+            events.add(event);
+            packed.add(pending);
+        }
+
+        group.blocks.put(height, events);
+        group.blocks.remove(height - this.config.getBlockRetention());
+        group.height = height;
+        log.debug("mint block, group: {} height: {} events: {}", groupId, height, events.size());
+
+        // complete after the block is visible
+        for (int idx = 0; idx < packed.size(); idx++) {
+            SendResult sendResult = new SendResult(SendResult.SendResultStatus.SUCCESS);
+            sendResult.setTopic(events.get(idx).getTopic());
+            sendResult.setEventId(events.get(idx).getEventId());
+            packed.get(idx).future.complete(sendResult);
+        }
+
+        for (FiscoBcosDelegate.IBlockEventListener listener : this.listeners) {
+            listener.onEvent(Long.valueOf(groupId), height);
+        }
+    }
+}
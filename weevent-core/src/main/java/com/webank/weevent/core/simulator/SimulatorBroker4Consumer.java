@@ -0,0 +1,261 @@
+package com.webank.weevent.core.simulator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.dto.SubscriptionInfo;
+import com.webank.weevent.core.fisco.util.EventId;
+import com.webank.weevent.core.fisco.util.ParamCheckUtils;
+import com.webank.weevent.core.fisco.web3sdk.FiscoBcosDelegate;
+import com.webank.weevent.core.task.IBlockChain;
+import com.webank.weevent.core.task.MainEventLoop;
+import com.webank.weevent.core.task.NotifyTask;
+import com.webank.weevent.core.task.Subscription;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Event broker's consumer implement in SimulatedChain, run the same MainEventLoop as FISCO-BCOS.
+ * Ephemeral subscription is subscribed like the normal.
+ * This class is thread safe.
+ */
+@Slf4j
+public class SimulatorBroker4Consumer extends SimulatorTopicAdmin implements IConsumer, IBlockChain, FiscoBcosDelegate.IBlockEventListener {
+    /**
+     * Subscription ID <-> Subscription
+     */
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * Group ID <-> MainEventLoop
+     */
+    private final Map<Long, MainEventLoop> mainEventLoops = new ConcurrentHashMap<>();
+
+    /**
+     * daemon executor
+     */
+    private final Executor executor;
+
+    /**
+     * Whether the Consumer has started
+     */
+    private boolean consumerStarted = false;
+
+    public SimulatorBroker4Consumer(SimulatedChain simulatedChain, Executor executor) {
+        super(simulatedChain);
+
+        this.executor = executor;
+        simulatedChain.setListener(this);
+    }
+
+    private static boolean isEventId(String offset) {
+        return !WeEvent.OFFSET_FIRST.equals(offset) && !WeEvent.OFFSET_LAST.equals(offset);
+    }
+
+    @Override
+    public String subscribe(String topic, String groupIdStr, String offset,
+                            @NonNull Map<SubscribeExt, String> ext,
+                            @NonNull ConsumerListener listener) throws BrokerException {
+        String[] topics = {topic};
+        return this.subscribe(topics, groupIdStr, offset, offsetEventId, ext, listener);
+    }
+
+    @Override
+    public String subscribe(String[] topics, String groupIdStr, String offset,
+                            @NonNull Map<SubscribeExt, String> ext,
+                            @NonNull ConsumerListener listener) throws BrokerException {
+        if (topics == null || topics.length == 0) {
+            throw new BrokerException(ErrorCode.TOPIC_LIST_IS_NULL);
+        }
+
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        ParamCheckUtils.validateOffset(offset);
+
+        Long currentBlock = simulatedChain.getBlockHeight(groupId);
+        EventId offsetEventId = null;
+        if (StringUtils.isNumeric(offset)) {
+            ParamCheckUtils.validateBlockHeight(offset, currentBlock);
+        } else if (isEventId(offset)) {
+            // do not validate topic name and eventId if more then one topic or topic pattern
+            boolean single = topics.length == 1 && !Subscription.isTopicPattern(topics[0]);
+            offsetEventId = ParamCheckUtils.validateEventId(single ? topics[0] : "", offset, currentBlock);
+        }
+
+        for (String topic : topics) {
+            if (Subscription.isTopicPattern(topic)) {
+                Subscription.validateTopicPattern(topic);
+            } else {
+                ParamCheckUtils.validateTopicName(topic);
+
+                if (!this.exist(topic, groupId)) {
+                    throw new BrokerException(ErrorCode.TOPIC_NOT_EXIST);
+                }
+            }
+        }
+
+        log.info("subscribe groupId: {} topics: {} offset: {} ext: {}", groupId, Arrays.toString(topics), offset, ext);
+        return this.subscribeTopic(topics, groupId, offset, offsetEventId, ext, listener);
+    }
+
+    private String subscribeTopic(String[] topics, String groupId, String offset, EventId offsetEventId, Map<SubscribeExt, String> ext, ConsumerListener listener) throws BrokerException {
+        NotifyTask.OverflowPolicy policy = this.getOverflowPolicy();
+        if (ext.containsKey(SubscribeExt.OverflowPolicy)) {
+            policy = NotifyTask.OverflowPolicy.parse(ext.get(SubscribeExt.OverflowPolicy));
+            if (policy == null) {
+                throw new BrokerException(ErrorCode.CGI_INVALID_INPUT);
+            }
+        }
+        String tag = "";
+        if (ext.containsKey(SubscribeExt.TopicTag)) {
+            tag = ext.get(SubscribeExt.TopicTag);
+            if (StringUtils.isBlank(tag)) {
+                throw new BrokerException(ErrorCode.TOPIC_TAG_IS_BLANK);
+            }
+        }
+
+        String subscriptionId = "";
+        if (ext.containsKey(SubscribeExt.SubscriptionId)) {
+            subscriptionId = ext.get(SubscribeExt.SubscriptionId);
+            ParamCheckUtils.validateSubscriptionId(subscriptionId);
+        }
+        if (this.subscriptions.containsKey(subscriptionId)) {
+            log.info("already exist subscription: {}", subscriptionId);
+            throw new BrokerException(ErrorCode.SUBSCRIPTIONID_ALREADY_EXIST);
+        }
+
+        Subscription subscription = new Subscription(this,
+                subscriptionId,
+                topics,
+                groupId,
+                offset,
+                offsetEventId,
+                tag,
+                listener);
+        subscription.setInterfaceType(ext.getOrDefault(SubscribeExt.InterfaceType, ""));
+        subscription.setRemoteIp(ext.getOrDefault(SubscribeExt.RemoteIP, ""));
+        subscription.getNotifyTask().setOverflowPolicy(policy);
+
+        this.subscriptions.put(subscription.getUuid(), subscription);
+        this.mainEventLoops.get(Long.valueOf(groupId)).addSubscription(subscription);
+
+        return subscription.getUuid();
+    }
+
+    @Override
+    public boolean unSubscribe(String subscriptionId) throws BrokerException {
+        if (StringUtils.isBlank(subscriptionId)) {
+            throw new BrokerException(ErrorCode.SUBSCRIPTIONID_IS_BLANK);
+        }
+
+        Subscription subscription = this.subscriptions.remove(subscriptionId);
+        if (subscription == null) {
+            log.warn("not exist subscriptionId {}", subscriptionId);
+            throw new BrokerException(ErrorCode.SUBSCRIPTIONID_NOT_EXIST);
+        }
+        this.mainEventLoops.get(Long.valueOf(subscription.getGroupId())).removeSubscription(subscription);
+
+        log.info("unSubscribe success, subscriptionId: {}", subscriptionId);
+        return true;
+    }
+
+    @Override
+    public boolean isStarted() {
+        return this.consumerStarted;
+    }
+
+    @Override
+    public synchronized boolean startConsumer() throws BrokerException {
+        if (this.consumerStarted) {
+            throw new BrokerException(ErrorCode.CONSUMER_ALREADY_STARTED);
+        }
+
+        for (String groupId : simulatedChain.listGroupId()) {
+            MainEventLoop mainEventLoop = new MainEventLoop(this.executor, this, groupId);
+            mainEventLoop.doStart();
+            this.mainEventLoops.put(Long.valueOf(groupId), mainEventLoop);
+        }
+
+        this.consumerStarted = true;
+        log.info("start consumer finish");
+        return true;
+    }
+
+    @Override
+    public synchronized boolean shutdownConsumer() {
+        for (MainEventLoop mainEventLoop : this.mainEventLoops.values()) {
+            mainEventLoop.doStop();
+        }
+        this.mainEventLoops.clear();
+        this.subscriptions.clear();
+
+        this.consumerStarted = false;
+
+        log.info("shutdown consumer finish");
+        return true;
+    }
+
+    @Override
+    public synchronized Map<String, SubscriptionInfo> listSubscription(String groupIdStr) throws BrokerException {
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+
+        Map<String, SubscriptionInfo> subscribeIdList = new HashMap<>();
+        for (Subscription subscription : this.subscriptions.values()) {
+            if (groupId.equals(subscription.getGroupId())) {
+                subscribeIdList.put(subscription.getUuid(), SubscriptionInfo.fromSubscription(subscription));
+            }
+        }
+        return subscribeIdList;
+    }
+
+    // methods from IBlockChain
+    @Override
+    public int getIdleTime() {
+        return simulatedChain.getConfig().getConsumerIdleTime();
+    }
+
+    @Override
+    public int getPrefetchBlock() {
+        return 0;
+    }
+
+    @Override
+    public int getNotifyQueueSize() {
+        return simulatedChain.getConfig().getConsumerNotifyQueueSize();
+    }
+
+    @Override
+    public NotifyTask.OverflowPolicy getOverflowPolicy() {
+        return NotifyTask.OverflowPolicy.PAUSE;
+    }
+
+    @Override
+    public boolean hasBlockEventNotify() {
+        return true;
+    }
+
+    @Override
+    public List<WeEvent> loop(Long blockNum, String groupId) throws BrokerException {
+        return simulatedChain.loop(blockNum, groupId);
+    }
+
+    // method from FiscoBcosDelegate.IBlockEventListener
+    @Override
+    public void onEvent(Long groupId, Long blockHeight) {
+        MainEventLoop mainEventLoop = this.mainEventLoops.get(groupId);
+        if (mainEventLoop != null) {
+            mainEventLoop.onNewBlock(blockHeight);
+        }
+    }
+}
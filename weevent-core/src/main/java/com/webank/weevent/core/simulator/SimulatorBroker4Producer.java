@@ -0,0 +1,43 @@
+package com.webank.weevent.core.simulator;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.SendResult;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IProducer;
+import com.webank.weevent.core.fisco.util.ParamCheckUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Event broker's producer implement in SimulatedChain.
+ * Signed and ephemeral event are published like the normal.
+ */
+@Slf4j
+public class SimulatorBroker4Producer extends SimulatorTopicAdmin implements IProducer {
+    public SimulatorBroker4Producer(SimulatedChain simulatedChain) {
+        super(simulatedChain);
+    }
+
+    @Override
+    public boolean startProducer() {
+        return true;
+    }
+
+    @Override
+    public boolean shutdownProducer() {
+        return true;
+    }
+
+    @Override
+    public CompletableFuture<SendResult> publish(WeEvent event, String groupIdStr) throws BrokerException {
+        log.debug("publish {} groupId: {}", event, groupIdStr);
+
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        ParamCheckUtils.validateEvent(event);
+
+        return simulatedChain.publish(event, groupId);
+    }
+}
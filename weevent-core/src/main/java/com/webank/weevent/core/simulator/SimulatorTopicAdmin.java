@@ -0,0 +1,174 @@
+package com.webank.weevent.core.simulator;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.TopicInfo;
+import com.webank.weevent.client.TopicPage;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IEventTopic;
+import com.webank.weevent.core.dto.ContractContext;
+import com.webank.weevent.core.dto.GroupGeneral;
+import com.webank.weevent.core.dto.ListPage;
+import com.webank.weevent.core.dto.QueryEntity;
+import com.webank.weevent.core.dto.TbBlock;
+import com.webank.weevent.core.dto.TbNode;
+import com.webank.weevent.core.dto.TbTransHash;
+import com.webank.weevent.core.fisco.util.ParamCheckUtils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Topic level's admin api in SimulatedChain.
+ * Explorer api(transaction, block and node list) is empty.
+ */
+@Slf4j
+public class SimulatorTopicAdmin implements IEventTopic {
+
+    // simulated chain
+    protected SimulatedChain simulatedChain;
+
+    public SimulatorTopicAdmin(SimulatedChain simulatedChain) {
+        this.simulatedChain = simulatedChain;
+    }
+
+    @Override
+    public boolean open(String topic, String groupIdStr) throws BrokerException {
+        log.info("open topic: {} groupId: {}", topic, groupIdStr);
+
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        ParamCheckUtils.validateTopicName(topic);
+        try {
+            return simulatedChain.createTopic(topic, groupId);
+        } catch (BrokerException e) {
+            if (e.getCode() == ErrorCode.TOPIC_ALREADY_EXIST.getCode()) {
+                return true;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean close(String topic, String groupIdStr) throws BrokerException {
+        log.info("close topic: {} groupId: {}", topic, groupIdStr);
+
+        if (exist(topic, groupIdStr)) {
+            return true;
+        }
+        throw new BrokerException(ErrorCode.TOPIC_NOT_EXIST);
+    }
+
+    @Override
+    public WeEvent getEvent(String eventId, String groupIdStr) throws BrokerException {
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        ParamCheckUtils.validateEventId("", eventId, simulatedChain.getBlockHeight(groupId));
+        return simulatedChain.getEvent(eventId, groupId);
+    }
+
+    @Override
+    public boolean exist(String topic, String groupIdStr) throws BrokerException {
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        ParamCheckUtils.validateTopicName(topic);
+        return simulatedChain.isTopicExist(topic, groupId);
+    }
+
+    @Override
+    public TopicPage list(Integer pageIndex, Integer pageSize, String groupIdStr) throws BrokerException {
+        ParamCheckUtils.validatePagIndexAndSize(pageIndex, pageSize);
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+
+        List<String> topics = simulatedChain.listTopicName(groupId);
+        TopicPage topicPage = new TopicPage();
+        topicPage.setTotal(topics.size());
+        topicPage.setPageIndex(pageIndex);
+        topicPage.setPageSize(pageSize);
+        for (int idx = pageIndex * pageSize; idx < Math.min(topics.size(), (pageIndex + 1) * pageSize); idx++) {
+            topicPage.getTopicInfoList().add(simulatedChain.getTopicInfo(topics.get(idx), groupId));
+        }
+        return topicPage;
+    }
+
+    @Override
+    public TopicInfo state(String topic, String groupIdStr) throws BrokerException {
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        ParamCheckUtils.validateTopicName(topic);
+        return simulatedChain.getTopicInfo(topic, groupId);
+    }
+
+    @Override
+    public Long getBlockHeight(String groupIdStr) throws BrokerException {
+        String groupId = selectGroupId(groupIdStr);
+        this.validateGroupId(groupId);
+        return simulatedChain.getBlockHeight(groupId);
+    }
+
+    @Override
+    public List<String> listGroupId() {
+        return simulatedChain.listGroupId();
+    }
+
+    @Override
+    public GroupGeneral getGroupGeneral(String groupIdStr) throws BrokerException {
+        GroupGeneral groupGeneral = new GroupGeneral();
+        groupGeneral.setNodeCount(1);
+        groupGeneral.setLatestBlock(BigInteger.valueOf(this.getBlockHeight(groupIdStr)));
+        groupGeneral.setTransactionCount(BigInteger.valueOf(simulatedChain.getTransactionCount()));
+        return groupGeneral;
+    }
+
+    @Override
+    public ListPage<TbTransHash> queryTransList(QueryEntity queryEntity) {
+        return new ListPage<>();
+    }
+
+    @Override
+    public ListPage<TbBlock> queryBlockList(QueryEntity queryEntity) {
+        return new ListPage<>();
+    }
+
+    @Override
+    public ListPage<TbNode> queryNodeList(QueryEntity queryEntity) {
+        return new ListPage<>();
+    }
+
+    @Override
+    public ContractContext getContractContext(String groupIdStr) throws BrokerException {
+        ContractContext contractContext = new ContractContext();
+        contractContext.setChainId("simulator");
+        contractContext.setBlockNumber(this.getBlockHeight(groupIdStr));
+        return contractContext;
+    }
+
+    @Override
+    public boolean addOperator(String groupId, String topicName, String operatorAddress) {
+        return true;
+    }
+
+    @Override
+    public boolean delOperator(String groupId, String topicName, String operatorAddress) {
+        return true;
+    }
+
+    @Override
+    public List<String> listOperator(String groupId, String topicName) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public void validateGroupId(String groupId) throws BrokerException {
+        ParamCheckUtils.validateGroupId(groupId, simulatedChain.listGroupId());
+    }
+
+    public String selectGroupId(String groupId) {
+        return StringUtils.isBlank(groupId) ? WeEvent.DEFAULT_GROUP_ID : groupId;
+    }
+}
@@ -1,18 +1,22 @@
 package com.webank.weevent.core.task;
 
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.cache.EventIndex;
+import com.webank.weevent.core.fisco.util.EventId;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 
 /**
- * History event loop task within unique thread.
+ * History event loop task within unique thread, or in a SharedScheduler one block per step.
+ * The loop may be shared by more subscriptions in the same group(see ReplayCoordinator),
+ * every block is fetched once and dispatched to all of them.
  *
  * @author matthewliu
  * @since 2019/08/30
@@ -24,10 +28,15 @@ public class HistoryEventLoop extends StoppableTask {
      */
     private final IBlockChain blockChain;
 
+    /**
+     * binding group
+     */
+    private final String groupId;
+
     /**
      * Last detected block.
      */
-    private Long lastBlock;
+    private volatile Long lastBlock;
 
     /**
      * Cached value for highest block height.
@@ -35,26 +44,43 @@ public class HistoryEventLoop extends StoppableTask {
     private Long cachedBlockHeight = 0L;
 
     /**
-     * binding to dispatch event
+     * binding to dispatch event, guarded by this
      */
-    private final Subscription subscription;
+    private final List<Subscription> subscriptions = new ArrayList<>();
+
+    /**
+     * not null if shared by more subscriptions
+     */
+    private ReplayCoordinator coordinator;
 
     public Long getLastBlock() {
         return this.lastBlock;
     }
 
     public HistoryEventLoop(IBlockChain blockChain, Subscription subscription, Long lastBlock) throws BrokerException {
+        this(blockChain, subscription, lastBlock, subscription.getOffsetEventId());
+    }
+
+    /**
+     * @param blockChain block chain
+     * @param subscription binding subscription
+     * @param lastBlock last block already dispatched
+     * @param offset parsed eventId in last block, null means start from next block directly
+     * @throws BrokerException BrokerException
+     */
+    public HistoryEventLoop(IBlockChain blockChain, Subscription subscription, Long lastBlock, EventId offset) throws BrokerException {
         super("history-event-loop@" + subscription.getUuid());
         this.blockChain = blockChain;
-        this.subscription = subscription;
+        this.groupId = subscription.getGroupId();
+        this.subscriptions.add(subscription);
 
-        // if offset is block height, filter next block directly
-        if (lastBlock != 0 && !StringUtils.isNumeric(this.subscription.getOffset())) {
-            this.dispatchTargetBlock(lastBlock, this.subscription.getOffset());
+        // if offset is not an eventId, filter next block directly
+        if (lastBlock != 0 && offset != null) {
+            this.dispatchTargetBlock(subscription, lastBlock, offset);
         }
         this.lastBlock = lastBlock;
 
-        log.info("HistoryEventLoop initialized with last block: {}, {}", this.lastBlock, this.subscription);
+        log.info("HistoryEventLoop initialized with last block: {}, {}", this.lastBlock, subscription);
     }
 
     /**
@@ -63,110 +89,260 @@ public class HistoryEventLoop extends StoppableTask {
      *
      * @param blockNum block num
      */
-    private void dispatchTargetBlock(Long blockNum, String offset) throws BrokerException {
+    private void dispatchTargetBlock(Subscription subscription, Long blockNum, EventId offset) throws BrokerException {
         // fetch event from block chain
-        List<WeEvent> events = filterBlockEvent(blockNum,
-                this.subscription.getTopics(),
-                this.subscription.getGroupId(),
-                this.subscription.getTag());
-        log.info("fetch events from block height: {} topics: {} tag: {} events num: {}",
-                blockNum,
-                Arrays.toString(this.subscription.getTopics()),
-                this.subscription.getTag(),
-                events.size());
+        List<WeEvent> blockEvents = fetchBlockEvent(blockNum);
 
-        int targetIdx = -1;
-        for (int idx = 0; idx < events.size(); idx++) {
-            if (events.get(idx).getEventId().equals(offset)) {
-                targetIdx = idx;
-                break;
+        // get event after offset, exclusive offset itself
+        String eventId = offset.toString();
+        List<WeEvent> events;
+        EventIndex.Location location = this.blockChain.locateEvent(eventId, this.groupId);
+        if (location != null && location.getBlockNumber() == blockNum && EventIndex.pick(location, blockEvents, eventId) != null) {
+            // offset is in local index, no search
+            events = subscription.filter(blockEvents.subList(location.getPosition() + 1, blockEvents.size()));
+        } else {
+            events = subscription.filter(blockEvents);
+            int targetIdx = -1;
+            for (int idx = 0; idx < events.size(); idx++) {
+                if (events.get(idx).getEventId().equals(eventId)) {
+                    targetIdx = idx;
+                    break;
+                }
             }
-        }
 
-        // can not find offset
-        if (targetIdx < 0) {
-            log.error("can not find eventId: {} in block height: {}", offset, blockNum);
-            throw new BrokerException(ErrorCode.EVENT_ID_NOT_EXIST);
+            // can not find offset
+            if (targetIdx < 0) {
+                log.error("can not find eventId: {} in block height: {}", offset, blockNum);
+                throw new BrokerException(ErrorCode.EVENT_ID_NOT_EXIST);
+            }
+            events = events.subList(targetIdx + 1, events.size());
         }
-
-        // get event after offset, exclusive offset itself
-        events = events.subList(targetIdx + 1, events.size());
+        log.info("fetch events from block height: {} topics: {} tag: {} events num after offset: {}",
+                blockNum,
+                Arrays.toString(subscription.getTopics()),
+                subscription.getTag(),
+                events.size());
 
         // dispatch event after offset
         if (!events.isEmpty()) {
-            this.subscription.dispatch(events, false, blockNum);
+            subscription.dispatch(events, false, blockNum);
         }
     }
 
     /**
-     * filter event from one block
+     * fetch all event from one block
      *
      * @param blockNum block height
-     * @param topics topic list
-     * @param groupId groupId
-     * @param tag tag
      * @return event list
      * @throws BrokerException the exp
      */
-    private List<WeEvent> filterBlockEvent(Long blockNum, String[] topics, String groupId, String tag) throws BrokerException {
+    private List<WeEvent> fetchBlockEvent(Long blockNum) throws BrokerException {
         // idle until get event
         List<WeEvent> blockEventsList = null;
         while (blockEventsList == null) {
-            blockEventsList = this.blockChain.loop(blockNum, groupId);
+            blockEventsList = this.blockChain.loop(blockNum, this.groupId);
             if (blockEventsList == null) {
                 StoppableTask.idle(this.blockChain.getIdleTime());
             }
         }
-
-        // filter target event
-        return Subscription.filter(blockEventsList, topics, tag);
+        return blockEventsList;
     }
 
-    @Override
-    protected void taskOnceLoop() {
-        try {
-            // current block height to deal with in this one loop
-            Long currentBlock = this.lastBlock + 1;
+    /**
+     * refresh the cached block height if needed.
+     *
+     * @param currentBlock block to deal with
+     * @return true if there is new block
+     * @throws BrokerException the exp
+     */
+    private boolean hasNewBlock(Long currentBlock) throws BrokerException {
+        // cache may be expired, refresh it
+        if (currentBlock > this.cachedBlockHeight) {
+            Long blockHeight = this.blockChain.getBlockHeight(this.groupId);
+            if (blockHeight <= 0) {
+                return false;
+            }
+            this.cachedBlockHeight = blockHeight;
 
-            // cache may be expired, refresh it
+            // no new block
             if (currentBlock > this.cachedBlockHeight) {
-                Long blockHeight = this.blockChain.getBlockHeight(this.subscription.getGroupId());
-                if (blockHeight <= 0) {
-                    // Don't try too fast if net error.
-                    StoppableTask.idle(this.blockChain.getIdleTime());
-                    return;
-                }
-                this.cachedBlockHeight = blockHeight;
+                log.debug("no new block in group: {}, idle", this.groupId);
+                return false;
+            }
+        }
+        return true;
+    }
 
-                // no new block
-                if (currentBlock > this.cachedBlockHeight) {
-                    log.debug("no new block in group: {}, idle", this.subscription.getGroupId());
-                    StoppableTask.idle(this.blockChain.getIdleTime());
-                    return;
+    /**
+     * dispatch one block to all the subscriptions in this loop.
+     * Every subscription is dispatched even without event, to move forward it's history block.
+     * The subscription whose notify queue is full leave this loop, and fetch this block again in it's own loop.
+     *
+     * @param currentBlock block
+     * @param blockEvents all events in block
+     * @return false if all the subscriptions refused, try this block again later
+     */
+    private boolean dispatchBlock(Long currentBlock, List<WeEvent> blockEvents) {
+        List<Subscription> refused = new ArrayList<>();
+        synchronized (this) {
+            for (Subscription subscription : this.subscriptions) {
+                List<WeEvent> events = subscription.filter(blockEvents);
+                if (!subscription.dispatch(events, false, currentBlock)) {
+                    refused.add(subscription);
                 }
             }
 
-            // loop one block, and filter target event with topic
-            log.debug("history event loop in group: {}, topics: {} cached block height: {}",
-                    this.subscription.getGroupId(),
-                    Arrays.toString(this.subscription.getTopics()),
-                    this.cachedBlockHeight);
-            List<WeEvent> events = filterBlockEvent(currentBlock,
-                    this.subscription.getTopics(),
-                    this.subscription.getGroupId(),
-                    this.subscription.getTag());
-            log.debug("history event loop done, block: {} event size: {}", currentBlock, events.size());
-
-            // it there is event to notify
-            if (!events.isEmpty()) {
-                this.subscription.dispatch(events, false, currentBlock);
+            if (!refused.isEmpty()) {
+                if (refused.size() == this.subscriptions.size() || this.coordinator == null) {
+                    return false;
+                }
+                this.subscriptions.removeAll(refused);
             }
 
             // next block
             this.lastBlock = currentBlock;
+        }
+
+        if (this.coordinator != null) {
+            if (!refused.isEmpty()) {
+                this.coordinator.split(this, refused, currentBlock - 1);
+            }
+            this.coordinator.tryMerge(this);
+        }
+        return true;
+    }
+
+    private void onException(BrokerException e) {
+        log.error("history event loop exception in group: " + this.groupId, e);
+        for (Subscription subscription : this.getSubscriptions()) {
+            subscription.getNotifyTask().getConsumerListener().onException(e);
+        }
+    }
+
+    /*
+     * deal with one block without idle, retry after idle time if the block is not ready.
+     */
+    @Override
+    protected long taskOnceStep() {
+        try {
+            Long currentBlock = this.lastBlock + 1;
+            if (!this.hasNewBlock(currentBlock)) {
+                return this.blockChain.getIdleTime();
+            }
+
+            List<WeEvent> blockEventsList = this.blockChain.loop(currentBlock, this.groupId);
+            if (blockEventsList == null) {
+                return this.blockChain.getIdleTime();
+            }
+
+            log.debug("history event step done, block: {} event size: {}", currentBlock, blockEventsList.size());
+            if (!this.dispatchBlock(currentBlock, blockEventsList)) {
+                // notify queue is full, try this block again later
+                return this.blockChain.getIdleTime();
+            }
+            return 0;
+        } catch (BrokerException e) {
+            this.onException(e);
+            return this.blockChain.getIdleTime();
+        }
+    }
+
+    @Override
+    protected void taskOnceLoop() {
+        try {
+            // current block height to deal with in this one loop
+            Long currentBlock = this.lastBlock + 1;
+
+            if (!this.hasNewBlock(currentBlock)) {
+                // Don't try too fast if net error or no new block.
+                StoppableTask.idle(this.blockChain.getIdleTime());
+                return;
+            }
+
+            // loop one block, and filter target event with topic in every subscription
+            log.debug("history event loop in group: {}, cached block height: {}", this.groupId, this.cachedBlockHeight);
+            List<WeEvent> blockEventsList = this.fetchBlockEvent(currentBlock);
+            log.debug("history event loop done, block: {} event size: {}", currentBlock, blockEventsList.size());
+
+            if (!this.dispatchBlock(currentBlock, blockEventsList)) {
+                // lastBlock is not moved, the same block is dispatched in next loop
+                StoppableTask.idle(this.blockChain.getIdleTime());
+            }
         } catch (BrokerException e) {
-            log.error("history event loop exception in group: " + this.subscription.getGroupId(), e);
-            this.subscription.getNotifyTask().getConsumerListener().onException(e);
+            this.onException(e);
+        }
+    }
+
+    public synchronized List<Subscription> getSubscriptions() {
+        return new ArrayList<>(this.subscriptions);
+    }
+
+    void setCoordinator(ReplayCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * add subscription into this loop, if it's history block is not behind this loop.
+     *
+     * @param subscription subscription
+     * @param window max blocks fetched again for this subscription
+     * @return true if added
+     */
+    synchronized boolean join(Subscription subscription, int window) {
+        Long historyBlock = subscription.getHistoryBlock();
+        if (this.lastBlock <= historyBlock && historyBlock - this.lastBlock <= window) {
+            this.subscriptions.add(subscription);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * remove subscription from this loop, exit if no subscription any more.
+     *
+     * @param subscription subscription
+     * @return true if exit
+     */
+    synchronized boolean leave(Subscription subscription) {
+        this.subscriptions.remove(subscription);
+        if (this.subscriptions.isEmpty()) {
+            this.doExit();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * stop loop for this subscription.
+     *
+     * @param subscription subscription
+     */
+    public void stop(Subscription subscription) {
+        if (this.coordinator != null) {
+            this.coordinator.leave(subscription);
+        } else {
+            this.leave(subscription);
+        }
+    }
+
+    /**
+     * move all the subscriptions into another loop a few blocks behind, and exit.
+     *
+     * @param to target loop
+     * @param window max blocks fetched again for the subscriptions
+     * @return subscriptions moved, empty if target loop is not nearby
+     */
+    synchronized List<Subscription> moveTo(HistoryEventLoop to, int window) {
+        List<Subscription> moved = new ArrayList<>(this.subscriptions);
+        synchronized (to) {
+            long distance = this.lastBlock - to.lastBlock;
+            if (moved.isEmpty() || distance < 0 || distance > window) {
+                return new ArrayList<>();
+            }
+            to.subscriptions.addAll(moved);
         }
+        this.subscriptions.clear();
+        this.doExit();
+        return moved;
     }
 }
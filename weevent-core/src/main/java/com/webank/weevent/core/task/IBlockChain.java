@@ -5,6 +5,7 @@ import java.util.List;
 
 import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.cache.EventIndex;
 
 /**
  * Block chain interface used by subscribe.
@@ -20,6 +21,27 @@ public interface IBlockChain {
      */
     int getIdleTime();
 
+    /**
+     * how many blocks can be fetched in advance if MainEventLoop is behind the block height
+     *
+     * @return block number, 0 means fetch one by one
+     */
+    int getPrefetchBlock();
+
+    /**
+     * max events in every subscription's notify queue
+     *
+     * @return queue size, 0 means unbounded
+     */
+    int getNotifyQueueSize();
+
+    /**
+     * default policy if notify queue is full
+     *
+     * @return policy
+     */
+    NotifyTask.OverflowPolicy getOverflowPolicy();
+
     /**
      * current block height
      *
@@ -46,4 +68,15 @@ public interface IBlockChain {
      * @throws BrokerException BrokerException
      */
     List<WeEvent> loop(Long blockNum, String groupId) throws BrokerException;
+
+    /**
+     * location of event in local index, see EventIndex
+     *
+     * @param eventId event id
+     * @param groupId group id
+     * @return null if not indexed
+     */
+    default EventIndex.Location locateEvent(String eventId, String groupId) {
+        return null;
+    }
 }
@@ -2,12 +2,19 @@ package com.webank.weevent.core.task;
 
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import com.webank.weevent.client.BrokerException;
@@ -18,6 +25,8 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Detect new event from target group.
+ * If the loop is behind the block height, the following blocks are fetched in advance(see IBlockChain.getPrefetchBlock),
+ * but dispatched one by one in block order.
  *
  * @author matthewliu
  * @since 2019/08/30
@@ -27,6 +36,9 @@ public class MainEventLoop extends StoppableTask {
     // daemon Executor
     private final Executor executor;
 
+    // run subscription's task in shared scheduler if not null
+    private final SharedScheduler scheduler;
+
     // block chain
     private final IBlockChain blockChain;
 
@@ -42,17 +54,32 @@ public class MainEventLoop extends StoppableTask {
     // subscription in main loop
     private final List<String> mainSubscriptionIds = new ArrayList<>();
 
+    // (topic <-> subscription ID) in main loop
+    private final TopicTrie<String> topicTrie = new TopicTrie<>();
+
     // subscription in history loop
     private final List<String> historySubscriptionIds = new ArrayList<>();
 
     // new block notified
     private BlockingDeque<Long> blockNotifyQueue;
 
+    // blocks fetching in advance, (block number <-> events), only accessed in loop thread
+    private final TreeMap<Long, CompletableFuture<List<WeEvent>>> prefetchBlocks = new TreeMap<>();
+
+    // share history loop between subscriptions
+    private final ReplayCoordinator replayCoordinator;
+
     public MainEventLoop(Executor executor, IBlockChain blockChain, String groupId) throws BrokerException {
+        this(executor, null, blockChain, groupId);
+    }
+
+    public MainEventLoop(Executor executor, SharedScheduler scheduler, IBlockChain blockChain, String groupId) throws BrokerException {
         super("main-event-loop-" + groupId);
         this.executor = executor;
+        this.scheduler = scheduler;
         this.blockChain = blockChain;
         this.groupId = groupId;
+        this.replayCoordinator = new ReplayCoordinator(blockChain, executor, scheduler);
 
         // get last block
         Long blockHeight = this.blockChain.getBlockHeight(this.groupId);
@@ -94,19 +121,22 @@ public class MainEventLoop extends StoppableTask {
     }
 
     public synchronized void addSubscription(Subscription subscription) {
-        subscription.doStart(this.executor);
+        subscription.doStart(this.executor, this.scheduler);
 
         this.subscriptions.put(subscription.getUuid(), subscription);
         if (subscription.getHistoryEventLoop() == null) {
             this.mainSubscriptionIds.add(subscription.getUuid());
+            this.index(subscription);
         } else {
             this.historySubscriptionIds.add(subscription.getUuid());
+            this.replayCoordinator.start(subscription);
         }
     }
 
     public synchronized void removeSubscription(Subscription subscription) {
         if (subscription.getHistoryEventLoop() == null) {
             this.mainSubscriptionIds.remove(subscription.getUuid());
+            this.unIndex(subscription);
         } else {
             this.historySubscriptionIds.remove(subscription.getUuid());
         }
@@ -129,12 +159,60 @@ public class MainEventLoop extends StoppableTask {
         if (!stopped.isEmpty()) {
             this.historySubscriptionIds.removeAll(stopped);
             this.mainSubscriptionIds.addAll(stopped);
+            for (String subscriptionId : stopped) {
+                this.index(this.subscriptions.get(subscriptionId));
+            }
         }
     }
 
+    private void index(Subscription subscription) {
+        for (String topic : subscription.getTopics()) {
+            this.topicTrie.add(topic, subscription.getUuid());
+        }
+    }
+
+    private void unIndex(Subscription subscription) {
+        for (String topic : subscription.getTopics()) {
+            this.topicTrie.remove(topic, subscription.getUuid());
+        }
+    }
+
+    /*
+     * notify queue is full, switch subscription from main loop to history loop, it will be merged back after catching up.
+     */
+    private void pause(Subscription subscription, Long lastBlock) {
+        log.warn("notify queue is full, pause subscription at block: {}, {}", lastBlock, subscription);
+        try {
+            subscription.pauseToHistory(this.blockChain, lastBlock);
+        } catch (BrokerException e) {
+            log.error("pause subscription failed, " + subscription.getUuid(), e);
+            subscription.getNotifyTask().getConsumerListener().onException(e);
+            return;
+        }
+
+        this.mainSubscriptionIds.remove(subscription.getUuid());
+        this.unIndex(subscription);
+        this.historySubscriptionIds.add(subscription.getUuid());
+        this.replayCoordinator.start(subscription);
+    }
+
     private synchronized void dispatch(List<WeEvent> events, Long blockHeight) {
-        for (String subscriptionId : this.mainSubscriptionIds) {
-            this.subscriptions.get(subscriptionId).dispatch(events, true, blockHeight);
+        // match subscription once for every topic in block, (topic <-> subscription ID)
+        Map<String, Set<String>> topicMatched = new HashMap<>();
+        // (subscription ID <-> events in block order)
+        Map<String, List<WeEvent>> subscriptionEvents = new LinkedHashMap<>();
+        for (WeEvent event : events) {
+            Set<String> subscriptionIds = topicMatched.computeIfAbsent(event.getTopic(), this.topicTrie::match);
+            for (String subscriptionId : subscriptionIds) {
+                subscriptionEvents.computeIfAbsent(subscriptionId, key -> new ArrayList<>()).add(event);
+            }
+        }
+
+        for (Map.Entry<String, List<WeEvent>> entry : subscriptionEvents.entrySet()) {
+            Subscription subscription = this.subscriptions.get(entry.getKey());
+            if (!subscription.dispatch(entry.getValue(), true, blockHeight)) {
+                this.pause(subscription, blockHeight - 1);
+            }
         }
     }
 
@@ -184,11 +262,15 @@ public class MainEventLoop extends StoppableTask {
             return;
         }
 
-        this.dealOneBlock(currentBlock);
+        this.dealOneBlock(currentBlock, blockHeight);
     }
 
     public void onNewBlock(Long blockHeight) {
         log.info("new block event from web3sdk, {}", blockHeight);
+        if (this.blockNotifyQueue == null) {
+            log.warn("block event notify is not supported in group: {}, ignore", this.groupId);
+            return;
+        }
 
         try {
             if (!this.blockNotifyQueue.offer(blockHeight, this.blockChain.getIdleTime(), TimeUnit.MILLISECONDS)) {
@@ -234,10 +316,10 @@ public class MainEventLoop extends StoppableTask {
             return;
         }
 
-        this.dealOneBlock(currentBlock);
+        this.dealOneBlock(currentBlock, blockHeight);
     }
 
-    private void dealOneBlock(Long currentBlock) throws BrokerException {
+    private void dealOneBlock(Long currentBlock, Long blockHeight) throws BrokerException {
         // merge history if needed
         if (!this.historySubscriptionIds.isEmpty()) {
             this.mergeHistory();
@@ -246,7 +328,7 @@ public class MainEventLoop extends StoppableTask {
         // no need to fetch event if no subscription
         if (!this.mainSubscriptionIds.isEmpty()) {
             // fetch all event from block chain in this block
-            List<WeEvent> events = this.blockChain.loop(currentBlock, this.groupId);
+            List<WeEvent> events = this.fetchBlock(currentBlock, blockHeight);
             // idle until get event information(include empty)
             if (events == null) {
                 log.error("fetch events from block failed, block height: {}", currentBlock);
@@ -256,9 +338,88 @@ public class MainEventLoop extends StoppableTask {
             log.info("fetch events done, block: {} group: {} event size: {}", currentBlock, this.groupId, events.size());
 
             this.dispatch(events, currentBlock);
+        } else if (!this.prefetchBlocks.isEmpty()) {
+            // events in skipped block is useless
+            this.prefetchBlocks.clear();
         }
 
         // next block
         this.lastBlock = currentBlock;
     }
+
+    /**
+     * fetch events in current block, and the following blocks in advance within prefetch window.
+     *
+     * @param currentBlock block to dispatch
+     * @param blockHeight known block height
+     * @return null if block is not ready
+     * @throws BrokerException BrokerException
+     */
+    private List<WeEvent> fetchBlock(Long currentBlock, Long blockHeight) throws BrokerException {
+        int prefetch = this.blockChain.getPrefetchBlock();
+        if (prefetch <= 0) {
+            return this.blockChain.loop(currentBlock, this.groupId);
+        }
+
+        // block before current one is stale
+        this.prefetchBlocks.headMap(currentBlock).clear();
+
+        // never prefetch the block that not exist yet
+        long lastPrefetch = Math.min(currentBlock + prefetch, blockHeight);
+        for (long blockNum = currentBlock + 1; blockNum <= lastPrefetch; blockNum++) {
+            if (!this.prefetchBlocks.containsKey(blockNum)) {
+                CompletableFuture<List<WeEvent>> future = this.prefetch(blockNum);
+                if (future == null) {
+                    break;
+                }
+                this.prefetchBlocks.put(blockNum, future);
+            }
+        }
+
+        CompletableFuture<List<WeEvent>> future = this.prefetchBlocks.remove(currentBlock);
+        if (future == null) {
+            // fetch in loop thread directly
+            return this.blockChain.loop(currentBlock, this.groupId);
+        }
+
+        try {
+            // not ready block will be fetched again in next loop
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BrokerException) {
+                throw (BrokerException) e.getCause();
+            }
+            log.error("prefetch block failed, block height: " + currentBlock, e);
+            throw new BrokerException(ErrorCode.WEB3SDK_RPC_ERROR);
+        } catch (InterruptedException e) {
+            log.error("wait prefetch block interrupted, block height: {}", currentBlock);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * fetch block in executor.
+     *
+     * @param blockNum block height
+     * @return null if executor is busy
+     */
+    private CompletableFuture<List<WeEvent>> prefetch(Long blockNum) {
+        CompletableFuture<List<WeEvent>> future = new CompletableFuture<>();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    future.complete(this.blockChain.loop(blockNum, this.groupId));
+                } catch (BrokerException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("executor is busy, skip prefetch block: {} in group: {}", blockNum, this.groupId);
+            return null;
+        }
+
+        log.debug("prefetch block: {} in group: {}", blockNum, this.groupId);
+        return future;
+    }
 }
@@ -1,6 +1,7 @@
 package com.webank.weevent.core.task;
 
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -16,10 +17,15 @@ import com.webank.weevent.core.IConsumer;
 
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Notify task run in unique thread.
+ * Notify task run in unique thread, or in a SharedScheduler woken by push.
+ * If the listener is a IConsumer.BatchConsumerListener, the events in queue are notified in batch,
+ * and no more than the listener's available, see IConsumer.BatchConsumerListener.getAvailable.
+ * If the queue is bounded, the events over capacity is dealt with OverflowPolicy.
+ * The capacity check and insert is atomic between pushers, the notify thread only take events out of queue.
  *
  * @author matthewliu
  * @since 2019/08/30
@@ -27,14 +33,65 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @Getter
 public class NotifyTask extends StoppableTask {
+    // max events notified in one step in SharedScheduler
+    private static final int MAX_STEP_EVENTS = 64;
+    // delay in ms to check again if the batch listener can not take any event
+    private static final long BUSY_DELAY = 10;
+
+    /**
+     * what to do if the notify queue is full.
+     */
+    public enum OverflowPolicy {
+        // refuse the events, the caller pause it's block cursor and fetch them again later, no event lost
+        PAUSE,
+        // drop the oldest events in queue
+        DROP_OLDEST,
+        // drop the events and notify SUBSCRIPTION_NOTIFY_QUEUE_FULL, the listener should disconnect the client
+        DISCONNECT;
+
+        /**
+         * parse policy name, case insensitive.
+         *
+         * @param policy policy name in config or SubscribeExt.OverflowPolicy
+         * @return null if unknown
+         */
+        public static OverflowPolicy parse(String policy) {
+            if (policy == null) {
+                return null;
+            }
+
+            for (OverflowPolicy value : values()) {
+                if (value.name().equalsIgnoreCase(policy.trim())) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+
     private final String subscriptionId;
     private final IConsumer.ConsumerListener consumerListener;
     private final int idleTime;
 
+    // max events in queue, 0 means unbounded
+    private final int capacity;
+    @Setter
+    private OverflowPolicy overflowPolicy;
+
+    // not bounded by itself, a block bigger than capacity is accepted if queue is empty, see push
     private final BlockingDeque<WeEvent> eventQueue = new LinkedBlockingDeque<>();
     private long notifiedCount = 0;
     private final Date lastTimeStamp = new Date();
 
+    // queue depth metrics, only written in push with lock
+    private volatile int peakSize = 0;
+    private volatile long overflowCount = 0;
+    private volatile long droppedCount = 0;
+    private volatile boolean disconnected = false;
+
+    // deadline of linger in SharedScheduler, 0 means not lingering
+    private long lingerDeadline = 0;
+
     // (eventId <-> timestamp), value is not used yet
     private final Map<String, Long> mergeCache = new FixedFIFOCache<>(1024);
 
@@ -54,32 +111,97 @@ public class NotifyTask extends StoppableTask {
     }
 
     public NotifyTask(String subscriptionId, int idleTime, @NonNull IConsumer.ConsumerListener consumerListener) {
+        this(subscriptionId, idleTime, 0, OverflowPolicy.PAUSE, consumerListener);
+    }
+
+    public NotifyTask(String subscriptionId,
+                      int idleTime,
+                      int capacity,
+                      @NonNull OverflowPolicy overflowPolicy,
+                      @NonNull IConsumer.ConsumerListener consumerListener) {
         super("event-notify@" + subscriptionId);
 
         this.subscriptionId = subscriptionId;
         this.consumerListener = consumerListener;
         this.idleTime = idleTime;
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
     }
 
-    public void push(List<WeEvent> events) {
-        try {
-            // offer event into queue one by one
-            for (WeEvent event : events) {
-                if (!this.eventQueue.offer(event, this.idleTime, TimeUnit.MILLISECONDS)) {
-                    log.error("push notify failed due to queue is full");
-                    this.consumerListener.onException(new BrokerException(ErrorCode.SUBSCRIPTION_NOTIFY_QUEUE_FULL));
-                    return;
-                }
-                log.debug("offer notify queue, event: {}", event);
+    /**
+     * push events into notify queue.
+     * The events from one block are all accepted or all refused, a block bigger than capacity is accepted if queue is empty.
+     *
+     * @param events events
+     * @return false if refused in OverflowPolicy.PAUSE, the caller should push them again later
+     */
+    public boolean push(List<WeEvent> events) {
+        boolean accepted;
+        boolean disconnect;
+        synchronized (this.eventQueue) {
+            boolean before = this.disconnected;
+            accepted = this.offer(events);
+            // only the pusher who set the flag notify the listener
+            disconnect = !before && this.disconnected;
+        }
+
+        // out of lock, the listener may close session or unsubscribe
+        if (disconnect) {
+            log.error("notify queue is full, disconnect subscriptionId: {}", this.subscriptionId);
+            this.consumerListener.onException(new BrokerException(ErrorCode.SUBSCRIPTION_NOTIFY_QUEUE_FULL));
+        }
+        if (accepted) {
+            this.signal();
+        }
+        return accepted;
+    }
+
+    // called with lock on eventQueue, same return as push
+    private boolean offer(List<WeEvent> events) {
+        int size = this.eventQueue.size();
+        if (this.capacity > 0 && size > 0 && size + events.size() > this.capacity) {
+            this.overflowCount++;
+            switch (this.overflowPolicy) {
+                case DROP_OLDEST:
+                    int dropped = 0;
+                    while (dropped < size + events.size() - this.capacity && this.eventQueue.pollFirst() != null) {
+                        dropped++;
+                    }
+                    this.droppedCount += dropped;
+                    log.warn("notify queue is full, drop the oldest events: {}, subscriptionId: {}", dropped, this.subscriptionId);
+                    break;
+
+                case DISCONNECT:
+                    this.droppedCount += events.size();
+                    this.disconnected = true;
+                    return true;
+
+                default:
+                    log.warn("notify queue is full, pause subscriptionId: {}", this.subscriptionId);
+                    return false;
             }
-        } catch (InterruptedException e) {
-            log.error("offer notify queue failed", e);
-            Thread.currentThread().interrupt();
         }
+
+        this.eventQueue.addAll(events);
+        log.debug("offer notify queue, events: {}", events.size());
+        this.peakSize = Math.max(this.peakSize, this.eventQueue.size());
+        return true;
+    }
+
+    // max events the batch listener can take right now, 0 means busy
+    private static int available(IConsumer.BatchConsumerListener listener) {
+        return Math.min(Math.max(listener.getBatchSize(), 1), listener.getAvailable());
     }
 
     @Override
     protected void taskOnceLoop() {
+        if (this.consumerListener instanceof IConsumer.BatchConsumerListener
+                && available((IConsumer.BatchConsumerListener) this.consumerListener) <= 0) {
+            // events are kept in queue until the listener is free
+            StoppableTask.idle(BUSY_DELAY);
+            return;
+        }
+
         try {
             WeEvent event = this.eventQueue.poll(this.idleTime, TimeUnit.MILLISECONDS);
             // empty queue, try next.
@@ -88,23 +210,133 @@ public class NotifyTask extends StoppableTask {
             }
             log.debug("poll from notify queue, event: {}", event);
 
+            if (this.consumerListener instanceof IConsumer.BatchConsumerListener) {
+                this.notifyBatch((IConsumer.BatchConsumerListener) this.consumerListener, event);
+                return;
+            }
+
+            this.notifyOne(event);
+        } catch (Exception e) {
+            this.consumerListener.onException(e);
+        }
+    }
+
+    /*
+     * notify the first event together with the following events in queue or arrived within linger time
+     */
+    private void notifyBatch(IConsumer.BatchConsumerListener listener, WeEvent first) throws InterruptedException {
+        int batchSize = Math.max(available(listener), 1);
+        List<WeEvent> polled = new ArrayList<>(batchSize);
+        polled.add(first);
+        this.eventQueue.drainTo(polled, batchSize - 1);
+
+        long deadline = System.currentTimeMillis() + listener.getLingerTime();
+        while (polled.size() < batchSize) {
+            long wait = deadline - System.currentTimeMillis();
+            if (wait <= 0) {
+                break;
+            }
+            WeEvent event = this.eventQueue.poll(wait, TimeUnit.MILLISECONDS);
+            if (event == null) {
+                break;
+            }
+            polled.add(event);
+            this.eventQueue.drainTo(polled, batchSize - polled.size());
+        }
+
+        this.notifyEvents(listener, polled);
+    }
+
+    /*
+     * notify a single event once time
+     */
+    private void notifyOne(WeEvent event) {
+        // avoid duplicate with FIFO cache
+        if (this.mergeCache.containsKey(event.getEventId())) {
+            log.warn("event to be notify again, skip {}", event.getEventId());
+        } else {
+            this.consumerListener.onEvent(this.subscriptionId, event);
+            this.notifiedCount++;
+            long now = System.currentTimeMillis();
+            this.lastTimeStamp.setTime(now);
+
             // avoid duplicate with FIFO cache
+            this.mergeCache.put(event.getEventId(), now);
+
+            log.debug("notify biz done, subscriptionId: {} eventId: {}", this.subscriptionId, event.getEventId());
+        }
+    }
+
+    private void notifyEvents(IConsumer.BatchConsumerListener listener, List<WeEvent> polled) {
+        // avoid duplicate with FIFO cache
+        long now = System.currentTimeMillis();
+        List<WeEvent> events = new ArrayList<>(polled.size());
+        for (WeEvent event : polled) {
             if (this.mergeCache.containsKey(event.getEventId())) {
                 log.warn("event to be notify again, skip {}", event.getEventId());
-            } else {
-                // notify a single event once time
-                this.consumerListener.onEvent(this.subscriptionId, event);
-                this.notifiedCount++;
-                long now = System.currentTimeMillis();
-                this.lastTimeStamp.setTime(now);
+                continue;
+            }
+            this.mergeCache.put(event.getEventId(), now);
+            events.add(event);
+        }
+        if (events.isEmpty()) {
+            return;
+        }
+
+        listener.onEvents(this.subscriptionId, events);
+        this.notifiedCount += events.size();
+        this.lastTimeStamp.setTime(System.currentTimeMillis());
+
+        log.info("notify biz done, subscriptionId: {} events: {} last eventId: {}",
+                this.subscriptionId, events.size(), events.get(events.size() - 1).getEventId());
+    }
+
+    /*
+     * notify events in queue without blocking, waiting for linger time with a delay.
+     * At most one batch in every step, so the shared threads is fair to other tasks.
+     */
+    @Override
+    protected long taskOnceStep() {
+        if (this.eventQueue.isEmpty()) {
+            // wait for push
+            return -1;
+        }
 
-                // avoid duplicate with FIFO cache
-                this.mergeCache.put(event.getEventId(), now);
+        try {
+            if (this.consumerListener instanceof IConsumer.BatchConsumerListener) {
+                IConsumer.BatchConsumerListener listener = (IConsumer.BatchConsumerListener) this.consumerListener;
+                int batchSize = available(listener);
+                if (batchSize <= 0) {
+                    // do not block the shared thread, events are kept in queue until the listener is free
+                    return BUSY_DELAY;
+                }
+                if (listener.getLingerTime() > 0 && this.eventQueue.size() < batchSize) {
+                    long now = System.currentTimeMillis();
+                    if (this.lingerDeadline == 0) {
+                        this.lingerDeadline = now + listener.getLingerTime();
+                    }
+                    if (now < this.lingerDeadline) {
+                        return this.lingerDeadline - now;
+                    }
+                }
+                this.lingerDeadline = 0;
 
-                log.info("notify biz done, subscriptionId: {} eventId: {}", this.subscriptionId, event.getEventId());
+                List<WeEvent> polled = new ArrayList<>(batchSize);
+                this.eventQueue.drainTo(polled, batchSize);
+                this.notifyEvents(listener, polled);
+            } else {
+                for (int i = 0; i < MAX_STEP_EVENTS; i++) {
+                    WeEvent event = this.eventQueue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    this.notifyOne(event);
+                }
             }
         } catch (Exception e) {
             this.consumerListener.onException(e);
         }
+
+        return this.eventQueue.isEmpty() ? -1 : 0;
     }
 }
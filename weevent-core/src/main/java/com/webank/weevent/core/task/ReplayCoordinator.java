@@ -0,0 +1,158 @@
+package com.webank.weevent.core.task;
+
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import com.webank.weevent.client.BrokerException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Share HistoryEventLoop between the lagging subscriptions in one group, so every block is fetched once for all of them.
+ * A subscription joins a running loop at most Subscription.mergeBlock blocks behind it,
+ * and the blocks it already notified are skipped by Subscription.historyBlock, like the switch from history to main loop.
+ * A loop is merged into another when they are near, and a subscription whose notify queue is full leaves to its own loop.
+ * The loop split for slow consumer is never a merge target, otherwise the others will be dragged back again and again.
+ * Every subscription switch into MainEventLoop alone once it reaches the head, see Subscription.tryStopHistory.
+ * Lock order: Subscription -> ReplayCoordinator -> HistoryEventLoop.
+ */
+@Slf4j
+public class ReplayCoordinator {
+    // block chain
+    private final IBlockChain blockChain;
+
+    // daemon Executor
+    private final Executor executor;
+
+    // run loop in shared scheduler if not null
+    private final SharedScheduler scheduler;
+
+    // running loops
+    private final List<HistoryEventLoop> loops = new ArrayList<>();
+
+    // loops split for slow consumer
+    private final Set<HistoryEventLoop> splitLoops = new HashSet<>();
+
+    public ReplayCoordinator(IBlockChain blockChain, Executor executor, SharedScheduler scheduler) {
+        this.blockChain = blockChain;
+        this.executor = executor;
+        this.scheduler = scheduler;
+    }
+
+    public synchronized int getLoopCount() {
+        return this.loops.size();
+    }
+
+    /**
+     * start the subscription's HistoryEventLoop, or join a running loop nearby instead.
+     *
+     * @param subscription subscription with HistoryEventLoop
+     */
+    public synchronized void start(Subscription subscription) {
+        for (HistoryEventLoop loop : this.loops) {
+            if (loop.join(subscription, subscription.getMergeBlock())) {
+                log.info("join history event loop at block: {}, history block: {}, {}",
+                        loop.getLastBlock(), subscription.getHistoryBlock(), subscription);
+                subscription.setHistoryEventLoop(loop);
+                return;
+            }
+        }
+
+        HistoryEventLoop loop = subscription.getHistoryEventLoop();
+        loop.setCoordinator(this);
+        this.loops.add(loop);
+        Subscription.start(loop, this.executor, this.scheduler);
+    }
+
+    /**
+     * remove subscription from it's loop.
+     *
+     * @param subscription subscription
+     */
+    synchronized void leave(Subscription subscription) {
+        HistoryEventLoop loop = subscription.getHistoryEventLoop();
+        if (loop != null) {
+            if (loop.leave(subscription)) {
+                this.remove(loop);
+            }
+            subscription.setHistoryEventLoop(null);
+        }
+    }
+
+    /**
+     * the subscriptions already removed from loop, fetch from last block again in another loop.
+     *
+     * @param from original loop
+     * @param refused subscriptions
+     * @param lastBlock last block dispatched
+     */
+    synchronized void split(HistoryEventLoop from, List<Subscription> refused, Long lastBlock) {
+        for (Subscription subscription : refused) {
+            // stopped already
+            if (subscription.getHistoryEventLoop() != from) {
+                continue;
+            }
+
+            log.info("notify queue is full, leave history event loop at block: {}, {}", lastBlock, subscription);
+            HistoryEventLoop loop;
+            try {
+                loop = new HistoryEventLoop(this.blockChain, subscription, lastBlock, null);
+            } catch (BrokerException e) {
+                log.error("split history event loop failed, " + subscription.getUuid(), e);
+                subscription.setHistoryEventLoop(null);
+                subscription.getNotifyTask().getConsumerListener().onException(e);
+                continue;
+            }
+            subscription.setHistoryEventLoop(loop);
+            this.start(subscription);
+            // not join others
+            if (subscription.getHistoryEventLoop() == loop) {
+                this.splitLoops.add(loop);
+            }
+        }
+    }
+
+    /**
+     * merge loop into another one a few blocks behind.
+     *
+     * @param loop loop just move forward
+     */
+    synchronized void tryMerge(HistoryEventLoop loop) {
+        if (!this.loops.contains(loop)) {
+            return;
+        }
+
+        List<Subscription> subscriptions = loop.getSubscriptions();
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        int window = subscriptions.get(0).getMergeBlock();
+
+        for (HistoryEventLoop target : this.loops) {
+            if (target == loop || this.splitLoops.contains(target)) {
+                continue;
+            }
+
+            List<Subscription> moved = loop.moveTo(target, window);
+            if (!moved.isEmpty()) {
+                log.info("merge history event loop at block: {} ---> {}, subscriptions: {}",
+                        loop.getLastBlock(), target.getLastBlock(), moved.size());
+
+                for (Subscription subscription : moved) {
+                    subscription.setHistoryEventLoop(target);
+                }
+                this.remove(loop);
+                return;
+            }
+        }
+    }
+
+    private void remove(HistoryEventLoop loop) {
+        this.loops.remove(loop);
+        this.splitLoops.remove(loop);
+    }
+}
@@ -0,0 +1,152 @@
+package com.webank.weevent.core.task;
+
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fixed size scheduler shared by NotifyTask and HistoryEventLoop, instead of one thread per task.
+ * Task run one step at a time(see StoppableTask.taskOnceStep), and never idle the thread.
+ * After every step, the task is run again right now, or after a delay, or until it's signaled.
+ */
+@Slf4j
+public class SharedScheduler {
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int DELAYED = 2;
+    private static final int RUNNING = 3;
+    private static final int RUNNING_SIGNALED = 4;
+    private static final int CANCELLED = 5;
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    // registered task
+    private final AtomicInteger taskCount = new AtomicInteger(0);
+
+    /**
+     * @param threads fixed thread number
+     */
+    public SharedScheduler(int threads) {
+        AtomicInteger index = new AtomicInteger(0);
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "shared-scheduler-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+
+        log.info("SharedScheduler initialized with threads: {}", threads);
+    }
+
+    /**
+     * bind task to this scheduler, and run it's first step.
+     *
+     * @param task task
+     */
+    public void schedule(StoppableTask task) {
+        Handle handle = new Handle(task);
+        task.bind(handle);
+        this.taskCount.incrementAndGet();
+        handle.signal();
+    }
+
+    public int getThreadCount() {
+        return this.executor.getCorePoolSize();
+    }
+
+    public int getTaskCount() {
+        return this.taskCount.get();
+    }
+
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * schedule state of one task
+     */
+    class Handle implements Runnable {
+        private final StoppableTask task;
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+
+        Handle(StoppableTask task) {
+            this.task = task;
+        }
+
+        /**
+         * wake up the task, run it's step as soon as possible.
+         */
+        void signal() {
+            while (true) {
+                int current = this.state.get();
+                switch (current) {
+                    case IDLE:
+                    case DELAYED:
+                        // the pending delayed run is ignored if already running
+                        if (this.state.compareAndSet(current, SCHEDULED)) {
+                            executor.execute(this);
+                            return;
+                        }
+                        break;
+
+                    case RUNNING:
+                        // run again after this step
+                        if (this.state.compareAndSet(current, RUNNING_SIGNALED)) {
+                            return;
+                        }
+                        break;
+
+                    default:
+                        return;
+                }
+            }
+        }
+
+        void cancel() {
+            if (this.state.getAndSet(CANCELLED) != CANCELLED) {
+                taskCount.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (!this.state.compareAndSet(SCHEDULED, RUNNING) && !this.state.compareAndSet(DELAYED, RUNNING)) {
+                // stale trigger
+                return;
+            }
+
+            long delay;
+            try {
+                delay = this.task.step();
+            } catch (RuntimeException e) {
+                log.error("Exception in task step, " + this.task.getName(), e);
+                delay = -1;
+            }
+
+            while (true) {
+                int current = this.state.get();
+                if (current == CANCELLED) {
+                    return;
+                }
+
+                if (current == RUNNING_SIGNALED || delay == 0) {
+                    if (this.state.compareAndSet(current, SCHEDULED)) {
+                        executor.execute(this);
+                        return;
+                    }
+                } else if (delay > 0) {
+                    if (this.state.compareAndSet(current, DELAYED)) {
+                        executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+                        return;
+                    }
+                } else if (this.state.compareAndSet(current, IDLE)) {
+                    // wait for signal
+                    return;
+                }
+            }
+        }
+    }
+}
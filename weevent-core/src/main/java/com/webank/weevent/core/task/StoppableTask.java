@@ -4,6 +4,7 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Task that can be stopped by exit flag.
+ * It runs taskOnceLoop in a unique thread, or runs taskOnceStep in a SharedScheduler.
  *
  * @author matthewliu
  * @since 2018/11/09
@@ -15,10 +16,17 @@ public abstract class StoppableTask implements Runnable {
     // flag to exit task
     private volatile boolean exit = false;
 
+    // not null if run in SharedScheduler
+    private volatile SharedScheduler.Handle handle;
+
     public StoppableTask(String name) {
         this.name = name;
     }
 
+    public String getName() {
+        return this.name;
+    }
+
     /*
      * Idle the caller thread some time
      */
@@ -34,11 +42,47 @@ public abstract class StoppableTask implements Runnable {
     public void doExit() {
         log.info("set exit flag, name: {}", this.name);
         this.exit = true;
+        if (this.handle != null) {
+            this.handle.cancel();
+        }
     }
 
     // task's real do loop
     protected abstract void taskOnceLoop();
 
+    /**
+     * task's one step in SharedScheduler, should not idle the thread.
+     * Default is one taskOnceLoop and run again right now, override it if taskOnceLoop may idle.
+     *
+     * @return delay in ms to run again, 0 means right now, negative means wait for signal
+     */
+    protected long taskOnceStep() {
+        this.taskOnceLoop();
+        return 0;
+    }
+
+    void bind(SharedScheduler.Handle handle) {
+        this.handle = handle;
+    }
+
+    // called by SharedScheduler
+    long step() {
+        if (this.exit) {
+            return -1;
+        }
+        return this.taskOnceStep();
+    }
+
+    /**
+     * wake up the task in SharedScheduler if there is something to do.
+     */
+    protected void signal() {
+        SharedScheduler.Handle current = this.handle;
+        if (current != null) {
+            current.signal();
+        }
+    }
+
     @Override
     public void run() {
         log.info("task enter, name: {}", this.name);
@@ -14,7 +14,7 @@ import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.WeEvent;
 import com.webank.weevent.core.IConsumer;
 import com.webank.weevent.core.fisco.constant.WeEventConstants;
-import com.webank.weevent.core.fisco.util.DataTypeUtils;
+import com.webank.weevent.core.fisco.util.EventId;
 
 import lombok.Getter;
 import lombok.Setter;
@@ -34,6 +34,8 @@ import org.apache.commons.lang3.StringUtils;
  * But the switch action is done by MainEventLoop in another thread, HistoryEventLoop may float forward a few block at the same time.
  * Because once loop (both in HistoryEventLoop and MainEventLoop) is a long blocking task,
  * so we use a merge cache to avoid repeat notify, not a strict consistency. Like ideas showed in optimistic lock.
+ * The lagging subscriptions in one group may share a HistoryEventLoop(see ReplayCoordinator),
+ * every block at or before historyBlock is skipped, so it's safe to join a loop a few blocks behind.
  *
  * @author matthewliu
  * @since 2019/08/30
@@ -53,6 +55,12 @@ public class Subscription {
      */
     private String[] topics;
 
+    /**
+     * index of binding topics, match every event once even if the patterns overlap, like MainEventLoop.
+     */
+    @ToString.Exclude
+    private final TopicTrie<String> topicTrie = new TopicTrie<>();
+
     /**
      * Binding groupId.
      */
@@ -63,6 +71,12 @@ public class Subscription {
      */
     private String offset;
 
+    /**
+     * parsed offset if it's an eventId, decoded once and used by HistoryEventLoop.
+     */
+    @ToString.Exclude
+    private EventId offsetEventId;
+
     /**
      * optional tag.
      */
@@ -98,7 +112,7 @@ public class Subscription {
      * optional, if offset != WeEvent.OFFSET_LAST then need an event loop to fetch history event
      */
     @ToString.Exclude
-    private HistoryEventLoop historyEventLoop;
+    private volatile HistoryEventLoop historyEventLoop;
 
     /**
      * helper to avoid repeat notify if exist HistoryEventLoop
@@ -112,11 +126,26 @@ public class Subscription {
     private int mergeBlock = 8;
 
     /**
-     * first block in HistoryEventLoop dispatch
+     * last block dispatched from HistoryEventLoop
      */
-    private Long historyBlock = 0L;
+    private volatile Long historyBlock = 0L;
 
     public Subscription(IBlockChain blockChain, String uuid, String[] topics, String groupId, String offset, String tag, IConsumer.ConsumerListener listener) throws BrokerException {
+        this(blockChain, uuid, topics, groupId, offset, null, tag, listener);
+    }
+
+    /**
+     * @param blockChain block chain
+     * @param uuid subscription id, generated if blank
+     * @param topics topic names or patterns
+     * @param groupId group id
+     * @param offset eventId, block height, WeEvent.OFFSET_FIRST or WeEvent.OFFSET_LAST
+     * @param offsetEventId parsed offset if it's an eventId, see ParamCheckUtils.validateEventId, parsed here if null
+     * @param tag optional tag
+     * @param listener listener
+     * @throws BrokerException BrokerException
+     */
+    public Subscription(IBlockChain blockChain, String uuid, String[] topics, String groupId, String offset, EventId offsetEventId, String tag, IConsumer.ConsumerListener listener) throws BrokerException {
         if (StringUtils.isBlank(uuid)) {
             this.uuid = UUID.randomUUID().toString();
         } else {
@@ -124,12 +153,19 @@ public class Subscription {
         }
 
         this.topics = topics;
+        for (String topic : topics) {
+            this.topicTrie.add(topic, this.uuid);
+        }
         this.groupId = groupId;
         this.offset = offset;
         this.tag = tag;
         this.idleTime = blockChain.getIdleTime();
 
-        this.notifyTask = new NotifyTask(this.uuid, this.idleTime, listener);
+        this.notifyTask = new NotifyTask(this.uuid,
+                this.idleTime,
+                blockChain.getNotifyQueueSize(),
+                blockChain.getOverflowPolicy(),
+                listener);
 
         // not OFFSET_LAST, need history help task
         if (!WeEvent.OFFSET_LAST.equals(this.offset)) {
@@ -141,7 +177,8 @@ public class Subscription {
             } else if (WeEvent.OFFSET_FIRST.equals(this.offset)) {
                 lastBlock = 0L;
             } else {
-                lastBlock = DataTypeUtils.decodeBlockNumber(offset);
+                this.offsetEventId = offsetEventId != null ? offsetEventId : EventId.parse(offset);
+                lastBlock = this.offsetEventId.getBlockNumber();
             }
             this.historyEventLoop = new HistoryEventLoop(blockChain, this, lastBlock);
 
@@ -162,26 +199,47 @@ public class Subscription {
         return this.notifyTask.getLastTimeStamp();
     }
 
-    // mainLoop = true meanings dispatch from MainEventLoop, always history first then main loop
-    public void dispatch(List<WeEvent> events, boolean mainLoop, Long blockHeight) {
+    public int getNotifyQueueCapacity() {
+        return this.notifyTask.getCapacity();
+    }
+
+    public int getNotifyQueuePeak() {
+        return this.notifyTask.getPeakSize();
+    }
+
+    public Long getOverflowCount() {
+        return this.notifyTask.getOverflowCount();
+    }
+
+    public Long getDroppedEventCount() {
+        return this.notifyTask.getDroppedCount();
+    }
+
+    /**
+     * dispatch events in one block into notify queue.
+     * mainLoop = true meanings dispatch from MainEventLoop, always history first then main loop
+     *
+     * @param events events
+     * @param mainLoop from MainEventLoop or HistoryEventLoop
+     * @param blockHeight block
+     * @return false if notify queue is full, the caller should pause and dispatch this block again later
+     */
+    public boolean dispatch(List<WeEvent> events, boolean mainLoop, Long blockHeight) {
         // skip block before notified history block
         if (blockHeight <= this.historyBlock) {
-            return;
+            return true;
         }
 
         List<WeEvent> topicEvents;
         if (mainLoop) {
-            // filter the events if from main loop
-            topicEvents = filter(events, this.topics, this.tag);
+            // events from main loop is already matched by topic in TopicTrie, filter the tag only
+            topicEvents = filterTag(events, this.tag);
             if (topicEvents.isEmpty()) {
-                return;
+                return true;
             }
         } else {
-            log.info("dispatch from HistoryEventLoop");
-
-            // record last history block
-            if (blockHeight > this.historyBlock) {
-                this.historyBlock = blockHeight;
+            if (!events.isEmpty()) {
+                log.info("dispatch from HistoryEventLoop");
             }
 
             // already filter if from history
@@ -189,8 +247,22 @@ public class Subscription {
         }
 
         // need merge in cache
+        boolean merged = false;
+        if (this.mergeCache != null) {
+            merged = topicEvents.removeIf((event) -> this.mergeCache.containsKey(event.getEventId()));
+        }
+
+        // notify to remote really
+        if (!topicEvents.isEmpty() && !this.notifyTask.push(topicEvents)) {
+            return false;
+        }
+
+        // record last history block
+        if (!mainLoop && blockHeight > this.historyBlock) {
+            this.historyBlock = blockHeight;
+        }
+
         if (this.mergeCache != null) {
-            topicEvents.removeIf((event) -> this.mergeCache.containsKey(event.getEventId()));
             Long now = System.currentTimeMillis();
             for (WeEvent event : topicEvents) {
                 this.mergeCache.put(event.getEventId(), now);
@@ -205,22 +277,45 @@ public class Subscription {
             }
         }
 
-        if (topicEvents.isEmpty()) {
+        if (merged && topicEvents.isEmpty()) {
             log.info("event list is empty after filter by merge cache");
-            return;
         }
+        return true;
+    }
 
-        // notify to remote really
-        this.notifyTask.push(topicEvents);
+    /**
+     * start notify task, the history task is started by ReplayCoordinator.
+     *
+     * @param executor run task in unique thread
+     * @param scheduler run task in shared scheduler if not null
+     */
+    public synchronized void doStart(Executor executor, SharedScheduler scheduler) {
+        start(this.notifyTask, executor, scheduler);
     }
 
-    public synchronized void doStart(Executor executor) {
-        executor.execute(this.notifyTask);
-        if (this.historyEventLoop != null) {
-            executor.execute(this.historyEventLoop);
+    static void start(StoppableTask task, Executor executor, SharedScheduler scheduler) {
+        if (scheduler != null) {
+            scheduler.schedule(task);
+        } else {
+            executor.execute(task);
         }
     }
 
+    /**
+     * pause notify from MainEventLoop because the notify queue is full,
+     * fetch the following blocks in a HistoryEventLoop until it catch up with MainEventLoop again.
+     * The HistoryEventLoop is started by ReplayCoordinator.
+     *
+     * @param blockChain block chain
+     * @param lastBlock last block dispatched into notify queue
+     * @throws BrokerException BrokerException
+     */
+    public synchronized void pauseToHistory(IBlockChain blockChain, Long lastBlock) throws BrokerException {
+        this.historyEventLoop = new HistoryEventLoop(blockChain, this, lastBlock, null);
+        this.historyBlock = lastBlock;
+        this.mergeCache = new HashMap<>();
+    }
+
     // can not doStart again after doStop
     public synchronized void doStop() {
         this.notifyTask.doExit();
@@ -234,16 +329,19 @@ public class Subscription {
     }
 
     public synchronized void stopHistory() {
-        if (this.historyEventLoop != null) {
-            this.historyEventLoop.doExit();
+        HistoryEventLoop loop = this.historyEventLoop;
+        if (loop != null) {
+            // leave the loop, it exit if no other subscription
+            loop.stop(this);
             this.historyEventLoop = null;
         }
     }
 
     public synchronized boolean tryStopHistory(Long mainLastBlock) {
-        if (mainLastBlock > 0 && mainLastBlock <= this.historyEventLoop.getLastBlock()) {
+        // history block is this subscription's own cursor, even if the loop is shared
+        if (mainLastBlock > 0 && mainLastBlock <= this.historyBlock) {
             log.info("switch history to main event loop, {} ---> {}, {}",
-                    this.historyEventLoop.getLastBlock(), mainLastBlock, this);
+                    this.historyBlock, mainLastBlock, this);
 
             stopHistory();
             return true;
@@ -276,15 +374,8 @@ public class Subscription {
                     }
                 }
 
-                if (topic_target) {
-                    // subscription without tag
-                    if (StringUtils.isBlank(tag)) {
-                        to.add(event);
-                    } else {    // subscription in tag plus
-                        if (tag.equals(event.getExtensions().get(WeEvent.WeEvent_TAG))) {
-                            to.add(event);
-                        }
-                    }
+                if (topic_target && matchTag(event, tag)) {
+                    to.add(event);
                 }
             }
         }
@@ -292,6 +383,49 @@ public class Subscription {
         return to;
     }
 
+    /**
+     * filter event with this subscription's topics and tag, used in history.
+     * Every event is matched once in TopicTrie, the same as MainEventLoop.
+     *
+     * @param from original event list
+     * @return target event list
+     */
+    public List<WeEvent> filter(List<WeEvent> from) {
+        List<WeEvent> to = new ArrayList<>();
+        for (WeEvent event : from) {
+            if (!this.topicTrie.match(event.getTopic()).isEmpty() && matchTag(event, this.tag)) {
+                to.add(event);
+            }
+        }
+        return to;
+    }
+
+    /*
+     * filter event with tag
+     *
+     * @param from original event list
+     * @param tag tag value
+     * @return target event list
+     */
+    public static List<WeEvent> filterTag(List<WeEvent> from, String tag) {
+        List<WeEvent> to = new ArrayList<>();
+        for (WeEvent event : from) {
+            if (matchTag(event, tag)) {
+                to.add(event);
+            }
+        }
+        return to;
+    }
+
+    private static boolean matchTag(WeEvent event, String tag) {
+        // subscription without tag
+        if (StringUtils.isBlank(tag)) {
+            return true;
+        }
+        // subscription in tag plus
+        return tag.equals(event.getExtensions().get(WeEvent.WeEvent_TAG));
+    }
+
     /**
      * see match
      *
@@ -364,12 +498,14 @@ public class Subscription {
 
         // '+' means 1 layer
         if (pattern.contains(WeEvent.WILD_CARD_ONE_LAYER)) {
-            // layer must be same
-            if (topicLayer.length != patternLayer.length) {
+            // layer must be same, or more then pattern if end with '#'
+            boolean allLayer = patternLayer[patternLayer.length - 1].equals(WeEvent.WILD_CARD_ALL_LAYER);
+            if (allLayer ? topicLayer.length < patternLayer.length : topicLayer.length != patternLayer.length) {
                 return false;
             }
 
-            for (int idx = 0; idx < patternLayer.length; idx++) {
+            int depth = allLayer ? patternLayer.length - 1 : patternLayer.length;
+            for (int idx = 0; idx < depth; idx++) {
                 // the layer except '+' must be match
                 if (!patternLayer[idx].equals(WeEvent.WILD_CARD_ONE_LAYER)
                         && !patternLayer[idx].equals(topicLayer[idx])) {
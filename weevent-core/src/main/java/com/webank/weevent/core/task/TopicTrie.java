@@ -0,0 +1,166 @@
+package com.webank.weevent.core.task;
+
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.webank.weevent.client.WeEvent;
+
+/**
+ * Index from topic name or pattern to subscriber, see Subscription.patternMatch.
+ * Topic name is matched in a hash map, and topic pattern is matched in a trie with one layer in each node,
+ * so matching one topic cost is bounded by the topic's layer depth, not the subscriber count.
+ * This class is not thread safe.
+ */
+public class TopicTrie<V> {
+    private static class Node<V> {
+        // (layer <-> child), '+' is a child too
+        private final Map<String, Node<V>> children = new HashMap<>();
+
+        // pattern end at this node
+        private final Set<V> values = new LinkedHashSet<>();
+
+        // pattern end with '#' after this node
+        private final Set<V> allLayerValues = new LinkedHashSet<>();
+
+        private boolean isEmpty() {
+            return this.children.isEmpty() && this.values.isEmpty() && this.allLayerValues.isEmpty();
+        }
+    }
+
+    // (topic name <-> subscriber)
+    private final Map<String, Set<V>> topics = new HashMap<>();
+
+    private final Node<V> root = new Node<>();
+
+    private int size = 0;
+
+    /**
+     * add a subscriber into index
+     *
+     * @param topic topic name or pattern
+     * @param value subscriber
+     */
+    public void add(String topic, V value) {
+        boolean added;
+        if (Subscription.isTopicPattern(topic)) {
+            String[] layers = topic.split(WeEvent.LAYER_SEPARATE);
+            Node<V> node = this.root;
+            int depth = isAllLayer(layers) ? layers.length - 1 : layers.length;
+            for (int idx = 0; idx < depth; idx++) {
+                node = node.children.computeIfAbsent(layers[idx], key -> new Node<>());
+            }
+            added = depth < layers.length ? node.allLayerValues.add(value) : node.values.add(value);
+        } else {
+            added = this.topics.computeIfAbsent(topic, key -> new LinkedHashSet<>()).add(value);
+        }
+
+        if (added) {
+            this.size++;
+        }
+    }
+
+    /**
+     * remove a subscriber from index
+     *
+     * @param topic topic name or pattern
+     * @param value subscriber
+     * @return true if exist
+     */
+    public boolean remove(String topic, V value) {
+        boolean removed;
+        if (Subscription.isTopicPattern(topic)) {
+            removed = remove(this.root, topic.split(WeEvent.LAYER_SEPARATE), 0, value);
+        } else {
+            Set<V> values = this.topics.get(topic);
+            removed = values != null && values.remove(value);
+            if (values != null && values.isEmpty()) {
+                this.topics.remove(topic);
+            }
+        }
+
+        if (removed) {
+            this.size--;
+        }
+        return removed;
+    }
+
+    // remove value and prune the empty node
+    private static <V> boolean remove(Node<V> node, String[] layers, int idx, V value) {
+        if (isAllLayer(layers) && idx == layers.length - 1) {
+            return node.allLayerValues.remove(value);
+        }
+        if (idx == layers.length) {
+            return node.values.remove(value);
+        }
+
+        Node<V> child = node.children.get(layers[idx]);
+        if (child == null) {
+            return false;
+        }
+        boolean removed = remove(child, layers, idx + 1, value);
+        if (child.isEmpty()) {
+            node.children.remove(layers[idx]);
+        }
+        return removed;
+    }
+
+    /**
+     * all subscribers that match the topic name
+     *
+     * @param topic topic name
+     * @return subscribers, empty if nothing
+     */
+    public Set<V> match(String topic) {
+        Set<V> result = new LinkedHashSet<>();
+        Set<V> values = this.topics.get(topic);
+        if (values != null) {
+            result.addAll(values);
+        }
+
+        if (!this.root.isEmpty()) {
+            match(this.root, topic.split(WeEvent.LAYER_SEPARATE), 0, result);
+        }
+        return result;
+    }
+
+    private static <V> void match(Node<V> node, String[] layers, int idx, Set<V> result) {
+        if (idx == layers.length) {
+            result.addAll(node.values);
+            return;
+        }
+
+        // '#' match all the remaining layers, at least one
+        result.addAll(node.allLayerValues);
+
+        Node<V> child = node.children.get(layers[idx]);
+        if (child != null) {
+            match(child, layers, idx + 1, result);
+        }
+        // '+' match exactly one layer
+        child = node.children.get(WeEvent.WILD_CARD_ONE_LAYER);
+        if (child != null) {
+            match(child, layers, idx + 1, result);
+        }
+    }
+
+    // '#' must be in last layer, otherwise it's just a normal layer and never match
+    private static boolean isAllLayer(String[] layers) {
+        return layers.length > 0 && WeEvent.WILD_CARD_ALL_LAYER.equals(layers[layers.length - 1]);
+    }
+
+    /**
+     * count of (topic, subscriber)
+     *
+     * @return size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+}
@@ -0,0 +1,173 @@
+package com.webank.weevent.core.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.task.StoppableTask;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * BlockEventCache Tester.
+ */
+@Slf4j
+public class BlockEventCacheTest extends JUnitTestBase {
+    private final String groupId = "1";
+    private final AtomicInteger loaded = new AtomicInteger(0);
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+    }
+
+    private List<WeEvent> load(Long blockNum) {
+        this.loaded.incrementAndGet();
+        StoppableTask.idle(100);
+
+        List<WeEvent> events = new ArrayList<>();
+        WeEvent event = new WeEvent("com.weevent.test", "hello world".getBytes(StandardCharsets.UTF_8));
+        event.setEventId("317e7c4c-1-" + blockNum);
+        events.add(event);
+        return events;
+    }
+
+    /**
+     * hit after load
+     */
+    @Test
+    public void testHit() throws Exception {
+        BlockEventCache cache = new BlockEventCache(1024 * 1024);
+
+        List<WeEvent> first = cache.get(this.groupId, 10L, this::load);
+        List<WeEvent> second = cache.get(this.groupId, 10L, this::load);
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(1, this.loaded.get());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.getLoadCount());
+    }
+
+    /**
+     * different group is different key
+     */
+    @Test
+    public void testGroup() throws Exception {
+        BlockEventCache cache = new BlockEventCache(1024 * 1024);
+
+        cache.get("1", 10L, this::load);
+        cache.get("2", 10L, this::load);
+
+        Assert.assertEquals(2, this.loaded.get());
+        Assert.assertEquals(2, cache.getSize());
+    }
+
+    /**
+     * not ready block is not cached
+     */
+    @Test
+    public void testNotReady() throws Exception {
+        BlockEventCache cache = new BlockEventCache(1024 * 1024);
+
+        Assert.assertNull(cache.get(this.groupId, 10L, (blockNum) -> null));
+        Assert.assertEquals(0, cache.getSize());
+        Assert.assertNotNull(cache.get(this.groupId, 10L, this::load));
+    }
+
+    /**
+     * evict the least recently used block if exceed capacity
+     */
+    @Test
+    public void testEvict() throws Exception {
+        BlockEventCache cache = new BlockEventCache(2048);
+
+        for (long blockNum = 1; blockNum <= 100; blockNum++) {
+            cache.get(this.groupId, blockNum, this::load);
+            Assert.assertTrue(cache.getBytes() <= cache.getCapacity());
+        }
+        Assert.assertTrue(cache.getSize() < 100);
+
+        // the latest one is still in cache
+        cache.get(this.groupId, 100L, this::load);
+        Assert.assertEquals(100, this.loaded.get());
+        Assert.assertEquals(1, cache.getHitCount());
+    }
+
+    /**
+     * disable cache
+     */
+    @Test
+    public void testDisable() throws Exception {
+        BlockEventCache cache = new BlockEventCache(0);
+
+        cache.get(this.groupId, 10L, this::load);
+        cache.get(this.groupId, 10L, this::load);
+        Assert.assertEquals(2, this.loaded.get());
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * N concurrent loading in the same block, only one really load
+     */
+    @Test
+    public void testSingleFlight() throws Exception {
+        BlockEventCache cache = new BlockEventCache(1024 * 1024);
+
+        int threads = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger success = new AtomicInteger(0);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    if (cache.get(this.groupId, 10L, this::load) != null) {
+                        success.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    log.error("get from cache failed", e);
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        Assert.assertEquals(threads, success.get());
+        Assert.assertEquals(1, this.loaded.get());
+        Assert.assertEquals(1, cache.getLoadCount());
+        // every get is counted once, found in double check is a hit
+        Assert.assertEquals(threads, cache.getHitCount() + cache.getMissCount());
+    }
+
+    /**
+     * exception in loading is thrown to the waiter too
+     */
+    @Test
+    public void testLoadException() {
+        BlockEventCache cache = new BlockEventCache(1024 * 1024);
+
+        try {
+            cache.get(this.groupId, 10L, (blockNum) -> {
+                throw new BrokerException(ErrorCode.WEB3SDK_RPC_ERROR);
+            });
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.WEB3SDK_RPC_ERROR.getCode(), e.getCode());
+        }
+        Assert.assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,172 @@
+package com.webank.weevent.core.cache;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.JUnitTestBase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * BlockEventStore Tester.
+ */
+@Slf4j
+public class BlockEventStoreTest extends JUnitTestBase {
+    private final String groupId = "1";
+    private Path path;
+
+    @Before
+    public void before() throws Exception {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.path = Files.createTempDirectory("block-event-store");
+    }
+
+    @After
+    public void after() throws Exception {
+        Files.walk(this.path).sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+    }
+
+    private List<WeEvent> newEvents(Long blockNum, int size) {
+        List<WeEvent> events = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            WeEvent event = new WeEvent("com.weevent.test", ("hello world " + i).getBytes(StandardCharsets.UTF_8));
+            event.setEventId("317e7c4c-" + i + "-" + blockNum);
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * write and read
+     */
+    @Test
+    public void testReadWrite() throws Exception {
+        BlockEventStore store = new BlockEventStore(this.path.toString(), 1024 * 1024, 1024 * 1024);
+
+        Assert.assertNull(store.read(this.groupId, 10L));
+
+        store.write(this.groupId, 10L, this.newEvents(10L, 3));
+        store.write(this.groupId, 11L, new ArrayList<>());
+
+        List<WeEvent> events = store.read(this.groupId, 10L);
+        Assert.assertNotNull(events);
+        Assert.assertEquals(3, events.size());
+        Assert.assertEquals("317e7c4c-2-10", events.get(1).getEventId());
+        Assert.assertEquals("hello world 2", new String(events.get(1).getContent(), StandardCharsets.UTF_8));
+
+        // empty block is stored too
+        Assert.assertNotNull(store.read(this.groupId, 11L));
+        Assert.assertTrue(store.read(this.groupId, 11L).isEmpty());
+
+        // other group
+        Assert.assertNull(store.read("2", 10L));
+        store.close();
+    }
+
+    /**
+     * data is still exist after reopen, like broker restart
+     */
+    @Test
+    public void testReopen() throws Exception {
+        BlockEventStore store = new BlockEventStore(this.path.toString(), 1024 * 1024, 1024 * 1024);
+        for (long blockNum = 1; blockNum <= 100; blockNum++) {
+            store.write(this.groupId, blockNum, this.newEvents(blockNum, 2));
+        }
+        store.close();
+
+        store = new BlockEventStore(this.path.toString(), 1024 * 1024, 1024 * 1024);
+        for (long blockNum = 1; blockNum <= 100; blockNum++) {
+            Assert.assertTrue(store.contains(this.groupId, blockNum));
+            Assert.assertEquals(2, store.read(this.groupId, blockNum).size());
+        }
+        store.close();
+    }
+
+    /**
+     * closed store never open segment again, and the tail segment is flushed for the next open
+     */
+    @Test
+    public void testReopenAfterClose() throws Exception {
+        BlockEventStore store = new BlockEventStore(this.path.toString(), 1024 * 1024, 1024 * 1024);
+        store.write(this.groupId, 1L, this.newEvents(1L, 2));
+        long bytes = store.getBytes(this.groupId);
+        store.close();
+        // close twice is ok
+        store.close();
+
+        // closed store is not usable
+        Assert.assertNull(store.read(this.groupId, 1L));
+        Assert.assertFalse(store.contains(this.groupId, 1L));
+        store.write(this.groupId, 2L, this.newEvents(2L, 2));
+
+        File[] segments = this.path.resolve(this.groupId).toFile().listFiles();
+        Assert.assertNotNull(segments);
+        Assert.assertEquals(1, segments.length);
+        Assert.assertEquals(bytes, segments[0].length());
+
+        store = new BlockEventStore(this.path.toString(), 1024 * 1024, 1024 * 1024);
+        Assert.assertEquals(2, store.read(this.groupId, 1L).size());
+        Assert.assertFalse(store.contains(this.groupId, 2L));
+        Assert.assertEquals(bytes, store.getBytes(this.groupId));
+        store.close();
+    }
+
+    /**
+     * broken tail record is truncated while loading
+     */
+    @Test
+    public void testRecover() throws Exception {
+        BlockEventStore store = new BlockEventStore(this.path.toString(), 1024 * 1024, 1024 * 1024);
+        store.write(this.groupId, 1L, this.newEvents(1L, 2));
+        store.write(this.groupId, 2L, this.newEvents(2L, 2));
+        long bytes = store.getBytes(this.groupId);
+        store.close();
+
+        // crash in writing the last record
+        File[] segments = this.path.resolve(this.groupId).toFile().listFiles();
+        Assert.assertNotNull(segments);
+        Assert.assertEquals(1, segments.length);
+        try (RandomAccessFile file = new RandomAccessFile(segments[0], "rw")) {
+            file.setLength(bytes - 10);
+        }
+
+        store = new BlockEventStore(this.path.toString(), 1024 * 1024, 1024 * 1024);
+        Assert.assertNotNull(store.read(this.groupId, 1L));
+        Assert.assertNull(store.read(this.groupId, 2L));
+
+        // write again
+        store.write(this.groupId, 2L, this.newEvents(2L, 2));
+        Assert.assertEquals(2, store.read(this.groupId, 2L).size());
+        store.close();
+    }
+
+    /**
+     * the eldest segment is deleted
+     */
+    @Test
+    public void testRetention() throws Exception {
+        BlockEventStore store = new BlockEventStore(this.path.toString(), 4096, 16 * 1024);
+        for (long blockNum = 1; blockNum <= 1000; blockNum++) {
+            store.write(this.groupId, blockNum, this.newEvents(blockNum, 2));
+            Assert.assertTrue(store.getBytes(this.groupId) <= 16 * 1024 + 4096);
+        }
+
+        Assert.assertFalse(store.contains(this.groupId, 1L));
+        Assert.assertTrue(store.contains(this.groupId, 1000L));
+        store.close();
+    }
+}
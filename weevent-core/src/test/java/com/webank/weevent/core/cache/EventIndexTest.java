@@ -0,0 +1,135 @@
+package com.webank.weevent.core.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.JUnitTestBase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * EventIndex Tester.
+ */
+@Slf4j
+public class EventIndexTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String groupId = "1";
+    private final int eventPerBlock = 4;
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+    }
+
+    /*
+     * events in block
+     */
+    private List<WeEvent> block(long blockNum) {
+        List<WeEvent> events = new ArrayList<>();
+        for (int i = 0; i < this.eventPerBlock; i++) {
+            WeEvent event = new WeEvent(this.topicName, "hello".getBytes(StandardCharsets.UTF_8));
+            event.setEventId(String.format("317e7c4c-%d-%d", i, blockNum));
+            events.add(event);
+        }
+        return events;
+    }
+
+    /**
+     * location of every event in block
+     */
+    @Test
+    public void testPutBlock() {
+        EventIndex eventIndex = new EventIndex(1024 * 1024);
+        List<WeEvent> events = this.block(5);
+        eventIndex.putBlock(this.groupId, 5L, events);
+        Assert.assertEquals(this.eventPerBlock, eventIndex.getSize());
+
+        EventIndex.Location location = eventIndex.get(this.groupId, "317e7c4c-1-5");
+        Assert.assertNotNull(location);
+        Assert.assertEquals(5, location.getBlockNumber());
+        Assert.assertEquals(1, location.getPosition());
+
+        location = eventIndex.get(this.groupId, "317e7c4c-3-5");
+        Assert.assertEquals(3, location.getPosition());
+        Assert.assertSame(events.get(3), location.getEvent());
+        Assert.assertEquals("317e7c4c-3-5", EventIndex.pick(location, events, "317e7c4c-3-5").getEventId());
+
+        // other group
+        Assert.assertNull(eventIndex.get("2", "317e7c4c-3-5"));
+        Assert.assertEquals(2, eventIndex.getHitCount());
+        Assert.assertEquals(1, eventIndex.getMissCount());
+    }
+
+    /**
+     * stale location is not picked
+     */
+    @Test
+    public void testPickStale() {
+        EventIndex eventIndex = new EventIndex(1024 * 1024);
+        eventIndex.putBlock(this.groupId, 5L, this.block(5));
+        EventIndex.Location location = eventIndex.get(this.groupId, "317e7c4c-3-5");
+
+        Assert.assertNull(EventIndex.pick(location, this.block(5).subList(0, 2), "317e7c4c-3-5"));
+        Assert.assertNull(EventIndex.pick(location, this.block(6), "317e7c4c-3-5"));
+        Assert.assertNull(EventIndex.pick(null, this.block(5), "317e7c4c-3-5"));
+    }
+
+    /**
+     * bounded by estimated bytes, nothing if disabled
+     */
+    @Test
+    public void testCapacity() {
+        // room for 2 blocks, all events are the same size
+        long capacity = EventIndex.estimate(this.block(1).get(0)) * this.eventPerBlock * 2;
+        EventIndex eventIndex = new EventIndex(capacity);
+        for (long blockNum = 1; blockNum <= 3; blockNum++) {
+            eventIndex.putBlock(this.groupId, blockNum, this.block(blockNum));
+        }
+        Assert.assertEquals(this.eventPerBlock * 2, eventIndex.getSize());
+        Assert.assertEquals(capacity, eventIndex.getBytes());
+        Assert.assertNull(eventIndex.get(this.groupId, "317e7c4c-0-1"));
+        Assert.assertNotNull(eventIndex.get(this.groupId, "317e7c4c-0-3"));
+
+        EventIndex disabled = new EventIndex(0);
+        disabled.putBlock(this.groupId, 1L, this.block(1));
+        Assert.assertEquals(0, disabled.getSize());
+    }
+
+    /**
+     * index the same block again, bytes are not counted twice
+     */
+    @Test
+    public void testPutAgain() {
+        EventIndex eventIndex = new EventIndex(1024 * 1024);
+        eventIndex.putBlock(this.groupId, 5L, this.block(5));
+        long bytes = eventIndex.getBytes();
+
+        eventIndex.putBlock(this.groupId, 5L, this.block(5));
+        Assert.assertEquals(this.eventPerBlock, eventIndex.getSize());
+        Assert.assertEquals(bytes, eventIndex.getBytes());
+
+        eventIndex.clear();
+        Assert.assertEquals(0, eventIndex.getBytes());
+    }
+
+    /**
+     * rebuild from block chain, stop at the block not ready
+     */
+    @Test
+    public void testRebuild() throws Exception {
+        EventIndex eventIndex = new EventIndex(1024 * 1024);
+        long count = eventIndex.rebuild(this.groupId, 1L, 10L, (blockNum) -> blockNum <= 8 ? this.block(blockNum) : null);
+
+        Assert.assertEquals(8 * this.eventPerBlock, count);
+        Assert.assertEquals(8 * this.eventPerBlock, eventIndex.getSize());
+        Assert.assertEquals(8, eventIndex.get(this.groupId, "317e7c4c-2-8").getBlockNumber());
+        Assert.assertNull(eventIndex.get(this.groupId, "317e7c4c-2-9"));
+    }
+}
@@ -0,0 +1,151 @@
+package com.webank.weevent.core.cache;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.webank.weevent.client.TopicInfo;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.task.StoppableTask;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * TopicInfoCache Tester.
+ */
+@Slf4j
+public class TopicInfoCacheTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String notExist = "com.weevent.not.exist";
+
+    // simulated rpc latency of TopicController.getTopicInfo, in ms
+    private final int latency = 2;
+
+    private final AtomicInteger loadCount = new AtomicInteger(0);
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.loadCount.set(0);
+    }
+
+    private Optional<TopicInfo> load(String topicName) {
+        this.loadCount.incrementAndGet();
+        StoppableTask.idle(this.latency);
+
+        if (this.notExist.equals(topicName)) {
+            return Optional.empty();
+        }
+        TopicInfo topicInfo = new TopicInfo();
+        topicInfo.setTopicName(topicName);
+        return Optional.of(topicInfo);
+    }
+
+    /**
+     * exist topic is cached until TTL
+     */
+    @Test
+    public void testTtl() throws Exception {
+        TopicInfoCache cache = new TopicInfoCache(16, 200, 100);
+
+        Assert.assertTrue(cache.get(this.topicName, false, this::load).isPresent());
+        Assert.assertTrue(cache.get(this.topicName, false, this::load).isPresent());
+        Assert.assertEquals(1, this.loadCount.get());
+        Assert.assertEquals(1, cache.getHitCount());
+
+        // skip cache
+        Assert.assertTrue(cache.get(this.topicName, true, this::load).isPresent());
+        Assert.assertEquals(2, this.loadCount.get());
+
+        StoppableTask.idle(300);
+        Assert.assertTrue(cache.get(this.topicName, false, this::load).isPresent());
+        Assert.assertEquals(3, this.loadCount.get());
+    }
+
+    /**
+     * non-existent topic is cached with negative TTL, and invalidated after created
+     */
+    @Test
+    public void testNegative() throws Exception {
+        TopicInfoCache cache = new TopicInfoCache(16, 60000, 200);
+
+        Assert.assertFalse(cache.get(this.notExist, false, this::load).isPresent());
+        Assert.assertFalse(cache.get(this.notExist, false, this::load).isPresent());
+        Assert.assertEquals(1, this.loadCount.get());
+        Assert.assertEquals(1, cache.getNegativeHitCount());
+
+        StoppableTask.idle(300);
+        Assert.assertFalse(cache.get(this.notExist, false, this::load).isPresent());
+        Assert.assertEquals(2, this.loadCount.get());
+
+        // created
+        cache.invalidate(this.notExist);
+        Assert.assertFalse(cache.get(this.notExist, false, this::load).isPresent());
+        Assert.assertEquals(3, this.loadCount.get());
+    }
+
+    /**
+     * no negative cache if negative TTL is 0
+     */
+    @Test
+    public void testNegativeDisable() throws Exception {
+        TopicInfoCache cache = new TopicInfoCache(16, 60000, 0);
+
+        Assert.assertFalse(cache.get(this.notExist, false, this::load).isPresent());
+        Assert.assertFalse(cache.get(this.notExist, false, this::load).isPresent());
+        Assert.assertEquals(2, this.loadCount.get());
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * bounded by capacity, the least recently used is evicted
+     */
+    @Test
+    public void testCapacity() throws Exception {
+        TopicInfoCache cache = new TopicInfoCache(4, 60000, 60000);
+
+        for (int i = 0; i < 4; i++) {
+            cache.get(this.topicName + i, false, this::load);
+        }
+        // touch the eldest
+        cache.get(this.topicName + 0, false, this::load);
+        cache.get(this.topicName + 4, false, this::load);
+        Assert.assertEquals(4, cache.getSize());
+        Assert.assertEquals(5, this.loadCount.get());
+
+        cache.get(this.topicName + 0, false, this::load);
+        Assert.assertEquals(5, this.loadCount.get());
+        cache.get(this.topicName + 1, false, this::load);
+        Assert.assertEquals(6, this.loadCount.get());
+    }
+
+    /**
+     * check topic before publish, rpc only once in warm cache for exist and non-existent topic.
+     * See TopicInfoCacheBenchmark for the cost.
+     */
+    @Test
+    public void testWarmCache() throws Exception {
+        int times = 200;
+        TopicInfoCache cache = new TopicInfoCache(4096, 60000, 3000);
+
+        for (String topic : new String[]{this.topicName, this.notExist}) {
+            this.loadCount.set(0);
+            for (int i = 0; i < times; i++) {
+                cache.get(topic, true, this::load);
+            }
+            Assert.assertEquals(times, this.loadCount.get());
+
+            this.loadCount.set(0);
+            for (int i = 0; i < times; i++) {
+                cache.get(topic, false, this::load);
+            }
+            Assert.assertEquals(0, this.loadCount.get());
+        }
+        log.info("{}", cache);
+    }
+}
@@ -0,0 +1,217 @@
+package com.webank.weevent.core.fabric.sdk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.task.IBlockChain;
+import com.webank.weevent.core.task.MainEventLoop;
+import com.webank.weevent.core.task.NotifyTask;
+import com.webank.weevent.core.task.Subscription;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hyperledger.fabric.sdk.BlockEvent;
+import org.hyperledger.fabric.sdk.BlockListener;
+import org.hyperledger.fabric.sdk.Channel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * FabricSDKWrapper block listener Tester with a mocked channel.
+ */
+@Slf4j
+public class FabricSDKWrapperTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String channelName = "mychannel";
+
+    private Channel channel;
+    private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+    /*
+     * channel with a new block every time, and idle long time if polling
+     */
+    static class ChannelBlockChain implements IBlockChain {
+        private final String topicName;
+        private final int idleTime;
+        private final boolean blockEventNotify;
+        final AtomicLong blockHeight = new AtomicLong(1);
+
+        ChannelBlockChain(String topicName, int idleTime, boolean blockEventNotify) {
+            this.topicName = topicName;
+            this.idleTime = idleTime;
+            this.blockEventNotify = blockEventNotify;
+        }
+
+        @Override
+        public int getIdleTime() {
+            return this.idleTime;
+        }
+
+        @Override
+        public int getPrefetchBlock() {
+            return 0;
+        }
+
+        @Override
+        public int getNotifyQueueSize() {
+            return 0;
+        }
+
+        @Override
+        public NotifyTask.OverflowPolicy getOverflowPolicy() {
+            return NotifyTask.OverflowPolicy.PAUSE;
+        }
+
+        @Override
+        public Long getBlockHeight(String channelName) {
+            return this.blockHeight.get();
+        }
+
+        @Override
+        public boolean hasBlockEventNotify() {
+            return this.blockEventNotify;
+        }
+
+        @Override
+        public List<WeEvent> loop(Long blockNum, String channelName) {
+            WeEvent event = new WeEvent(this.topicName, "hello world".getBytes(StandardCharsets.UTF_8));
+            event.setEventId(String.format("317e7c4c-1-%d", blockNum));
+            return Collections.singletonList(event);
+        }
+    }
+
+    static class LatchListener implements IConsumer.ConsumerListener {
+        final List<String> received = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(String subscriptionId, WeEvent event) {
+            this.received.add(event.getEventId());
+            this.latch.countDown();
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            log.error("onException", e);
+        }
+    }
+
+    @Before
+    public void before() throws Exception {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.channel = mock(Channel.class);
+        when(this.channel.getName()).thenReturn(this.channelName);
+        when(this.channel.registerBlockListener(any(BlockListener.class))).thenReturn("handle");
+
+        this.threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        this.threadPoolTaskExecutor.setCorePoolSize(10);
+        this.threadPoolTaskExecutor.setMaxPoolSize(20);
+        this.threadPoolTaskExecutor.setQueueCapacity(0);
+        this.threadPoolTaskExecutor.setDaemon(true);
+        this.threadPoolTaskExecutor.initialize();
+    }
+
+    @After
+    public void after() {
+        this.threadPoolTaskExecutor.destroy();
+    }
+
+    /*
+     * deliver a block into the registered channel listener
+     */
+    private BlockListener captureListener() throws Exception {
+        ArgumentCaptor<BlockListener> captor = ArgumentCaptor.forClass(BlockListener.class);
+        verify(this.channel).registerBlockListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private static BlockEvent newBlockEvent(long blockNumber) {
+        BlockEvent blockEvent = mock(BlockEvent.class);
+        when(blockEvent.getBlockNumber()).thenReturn(blockNumber);
+        return blockEvent;
+    }
+
+    /**
+     * block event is notified with channel name and block number
+     */
+    @Test
+    public void testRegisterBlockListener() throws Exception {
+        List<String> notified = new ArrayList<>();
+        String handle = FabricSDKWrapper.registerBlockListener(this.channel,
+                (channelName, blockHeight) -> notified.add(channelName + ":" + blockHeight));
+        Assert.assertEquals("handle", handle);
+
+        BlockListener blockListener = this.captureListener();
+        blockListener.received(newBlockEvent(10L));
+        blockListener.received(newBlockEvent(11L));
+        Assert.assertEquals(2, notified.size());
+        Assert.assertEquals(this.channelName + ":10", notified.get(0));
+        Assert.assertEquals(this.channelName + ":11", notified.get(1));
+    }
+
+    /**
+     * new block is dispatched once notified, without waiting for the idle time
+     */
+    @Test
+    public void testNotifyMainEventLoop() throws Exception {
+        ChannelBlockChain blockChain = new ChannelBlockChain(this.topicName, 10000, true);
+        MainEventLoop mainEventLoop = new MainEventLoop(this.threadPoolTaskExecutor, blockChain, this.channelName);
+        FabricSDKWrapper.registerBlockListener(this.channel, (channelName, blockHeight) -> mainEventLoop.onNewBlock(blockHeight));
+        BlockListener blockListener = this.captureListener();
+
+        LatchListener listener = new LatchListener();
+        Subscription subscription = new Subscription(blockChain, "", new String[]{this.topicName}, this.channelName, WeEvent.OFFSET_LAST, "", listener);
+        mainEventLoop.addSubscription(subscription);
+        mainEventLoop.doStart();
+
+        long start = System.currentTimeMillis();
+        blockChain.blockHeight.incrementAndGet();
+        blockListener.received(newBlockEvent(2L));
+        Assert.assertTrue(listener.latch.await(3, TimeUnit.SECONDS));
+        log.info("notified in {} ms", System.currentTimeMillis() - start);
+        Assert.assertEquals("317e7c4c-1-2", listener.received.get(0));
+
+        mainEventLoop.doExit();
+        subscription.getNotifyTask().doExit();
+    }
+
+    /**
+     * polling block height if no block event notified
+     */
+    @Test
+    public void testPollingFallback() throws Exception {
+        ChannelBlockChain blockChain = new ChannelBlockChain(this.topicName, 100, true);
+        MainEventLoop mainEventLoop = new MainEventLoop(this.threadPoolTaskExecutor, blockChain, this.channelName);
+
+        LatchListener listener = new LatchListener();
+        Subscription subscription = new Subscription(blockChain, "", new String[]{this.topicName}, this.channelName, WeEvent.OFFSET_LAST, "", listener);
+        mainEventLoop.addSubscription(subscription);
+        mainEventLoop.doStart();
+
+        blockChain.blockHeight.incrementAndGet();
+        Assert.assertTrue(listener.latch.await(3, TimeUnit.SECONDS));
+        Assert.assertEquals("317e7c4c-1-2", listener.received.get(0));
+
+        mainEventLoop.doExit();
+        subscription.getNotifyTask().doExit();
+    }
+}
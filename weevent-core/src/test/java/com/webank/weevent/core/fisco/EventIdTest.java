@@ -0,0 +1,100 @@
+package com.webank.weevent.core.fisco;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.fisco.constant.WeEventConstants;
+import com.webank.weevent.core.fisco.util.DataTypeUtils;
+import com.webank.weevent.core.fisco.util.EventId;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * EventId Tester.
+ */
+@Slf4j
+public class EventIdTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+    }
+
+    /*
+     * decode block number by split, as before
+     */
+    private static Long splitBlockNumber(String eventId) throws BrokerException {
+        String[] tokens = eventId.split(WeEventConstants.EVENT_ID_SPLIT_CHAR);
+        if (tokens.length != 3) {
+            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
+        }
+        if (tokens[0].length() != WeEventConstants.TOPIC_NAME_ENCODE_LENGTH) {
+            throw new BrokerException(ErrorCode.EVENT_ID_IS_ILLEGAL);
+        }
+        return DataTypeUtils.stringToLong(tokens[2]);
+    }
+
+    /**
+     * decode the encoded
+     */
+    @Test
+    public void testParse() throws Exception {
+        String eventId = DataTypeUtils.encodeEventId(this.topicName, 123456, 789L);
+        EventId parsed = EventId.parse(eventId);
+
+        Assert.assertEquals(789L, parsed.getSeq());
+        Assert.assertEquals(123456L, parsed.getBlockNumber());
+        Assert.assertEquals(DataTypeUtils.genTopicNameHash(this.topicName), parsed.getTopicNameHash());
+        Assert.assertTrue(parsed.matchTopicNameHash(DataTypeUtils.genTopicNameHash(this.topicName)));
+        Assert.assertFalse(parsed.matchTopicNameHash(DataTypeUtils.genTopicNameHash("com.weevent.other")));
+        Assert.assertEquals(eventId, parsed.toString());
+        Assert.assertEquals(EventId.parse(eventId), parsed);
+
+        Assert.assertEquals(Long.valueOf(789L), DataTypeUtils.decodeSeq(eventId));
+        Assert.assertEquals(Long.valueOf(123456L), DataTypeUtils.decodeBlockNumber(eventId));
+    }
+
+    /**
+     * invalid number is 0, like before
+     */
+    @Test
+    public void testInvalidNumber() throws Exception {
+        Assert.assertEquals(0L, EventId.parse("317e7c4c-x-5").getSeq());
+        Assert.assertEquals(0L, EventId.parse("317e7c4c--5").getSeq());
+        Assert.assertEquals(0L, EventId.parse("317e7c4c-1-99999999999999999999").getBlockNumber());
+        Assert.assertEquals(Long.MAX_VALUE, EventId.parse("317e7c4c-1-" + Long.MAX_VALUE).getBlockNumber());
+    }
+
+    /**
+     * illegal format
+     */
+    @Test
+    public void testIllegal() {
+        String[] illegals = new String[]{"", "317e7c4c", "317e7c4c-1", "317e7c4c-1-2-3", "317e7c-1-2", "317e7c4c00-1-2"};
+        for (String illegal : illegals) {
+            try {
+                EventId.parse(illegal);
+                Assert.fail(illegal);
+            } catch (BrokerException e) {
+                Assert.assertEquals(ErrorCode.EVENT_ID_IS_ILLEGAL.getCode(), e.getCode());
+            }
+        }
+    }
+
+    /**
+     * decode the same block number as split, timing see EventIdBenchmark in weevent-benchmark
+     */
+    @Test
+    public void testSameAsSplit() throws Exception {
+        for (int i = 1; i <= 1000; i++) {
+            String eventId = DataTypeUtils.encodeEventId(this.topicName, i * 7, i);
+            Assert.assertEquals(splitBlockNumber(eventId).longValue(), EventId.parse(eventId).getBlockNumber());
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.webank.weevent.core.fisco;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.JsonHelper;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.fisco.constant.WeEventConstants;
+import com.webank.weevent.core.fisco.util.ExtensionsCodec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ExtensionsCodec Tester.
+ */
+@Slf4j
+public class ExtensionsCodecTest extends JUnitTestBase {
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+    }
+
+    /**
+     * encode and decode
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        Map<String, String> extensions = new HashMap<>();
+        extensions.put("weevent-format", "json");
+        extensions.put("weevent-empty", "");
+        extensions.put("weevent-中文", "值");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append('a');
+        }
+        // length over 127 need 2 bytes
+        extensions.put("weevent-long", sb.toString());
+
+        byte[] header = ExtensionsCodec.encode(extensions);
+        ExtensionsCodec.validate(header);
+        Assert.assertEquals(extensions, ExtensionsCodec.decode(header));
+    }
+
+    /**
+     * empty extensions is empty header
+     */
+    @Test
+    public void testEmpty() throws Exception {
+        byte[] header = ExtensionsCodec.encode(new HashMap<>());
+        Assert.assertEquals(0, header.length);
+        ExtensionsCodec.validate(header);
+        Assert.assertTrue(ExtensionsCodec.decode(header).isEmpty());
+    }
+
+    /**
+     * header into json, the same as extensions in json
+     */
+    @Test
+    public void testToJson() throws Exception {
+        Map<String, String> extensions = new HashMap<>();
+        extensions.put("weevent-format", "json");
+        extensions.put("weevent-quote", "a\"b\\c\n");
+        extensions.put("weevent-中文", "值");
+
+        String json = ExtensionsCodec.toJson(ExtensionsCodec.encode(extensions));
+        Assert.assertEquals(extensions, JsonHelper.json2Object(json, new TypeReference<Map<String, String>>() {
+        }));
+        Assert.assertEquals("{}", ExtensionsCodec.toJson(new byte[0]));
+    }
+
+    /**
+     * find key without decoding
+     */
+    @Test
+    public void testContainsKey() throws Exception {
+        Map<String, String> extensions = new HashMap<>();
+        extensions.put("weevent-format", "weevent-sign");
+        extensions.put("weevent-ephemeral", "true");
+        byte[] header = ExtensionsCodec.encode(extensions);
+
+        Assert.assertTrue(ExtensionsCodec.containsKey(header, "weevent-ephemeral"));
+        Assert.assertTrue(ExtensionsCodec.containsKey(header, "weevent-format"));
+        // value is not key
+        Assert.assertFalse(ExtensionsCodec.containsKey(header, "weevent-sign"));
+        Assert.assertFalse(ExtensionsCodec.containsKey(header, "weevent-form"));
+    }
+
+    /**
+     * key without prefix
+     */
+    @Test
+    public void testInvalidKey() {
+        Map<String, String> extensions = new HashMap<>();
+        extensions.put("format", "json");
+        try {
+            ExtensionsCodec.validate(ExtensionsCodec.encode(extensions));
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.EVENT_EXTENSIONS_KEY_INVALID.getCode(), e.getCode());
+        }
+    }
+
+    /**
+     * truncated header
+     */
+    @Test
+    public void testMalformed() throws Exception {
+        Map<String, String> extensions = new HashMap<>();
+        extensions.put("weevent-format", "json");
+        byte[] header = ExtensionsCodec.encode(extensions);
+        byte[] truncated = new byte[header.length - 1];
+        System.arraycopy(header, 0, truncated, 0, truncated.length);
+
+        try {
+            ExtensionsCodec.validate(truncated);
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.EVENT_EXTENSIONS_KEY_INVALID.getCode(), e.getCode());
+        }
+        try {
+            ExtensionsCodec.decode(truncated);
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.EVENT_EXTENSIONS_KEY_INVALID.getCode(), e.getCode());
+        }
+    }
+
+    /**
+     * null or too long header
+     */
+    @Test
+    public void testLength() {
+        try {
+            ExtensionsCodec.validate(null);
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.EVENT_EXTENSIONS_IS_NUll.getCode(), e.getCode());
+        }
+        try {
+            ExtensionsCodec.validate(new byte[WeEventConstants.EVENT_EXTENSIONS_MAX_LENGTH + 1]);
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.EVENT_EXTENSIONS_EXCEEDS_MAX_LENGTH.getCode(), e.getCode());
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.webank.weevent.core.fisco;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.SendResult;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.JUnitTestBase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * ProducerAccumulator Tester.
+ */
+@Slf4j
+public class ProducerAccumulatorTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String groupId = "1";
+
+    // size of every published batch
+    private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.batches.clear();
+    }
+
+    private List<CompletableFuture<SendResult>> publishBatch(List<WeEvent> events, String groupId) {
+        this.batches.add(events.size());
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (WeEvent event : events) {
+            SendResult sendResult = new SendResult(SendResult.SendResultStatus.SUCCESS);
+            sendResult.setTopic(event.getTopic());
+            sendResult.setEventId(new String(event.getContent(), StandardCharsets.UTF_8) + "@" + groupId);
+            futures.add(CompletableFuture.completedFuture(sendResult));
+        }
+        return futures;
+    }
+
+    private WeEvent newEvent(int idx) {
+        return new WeEvent(this.topicName, String.valueOf(idx).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * flush after linger time
+     */
+    @Test
+    public void testLinger() throws Exception {
+        ProducerAccumulator accumulator = new ProducerAccumulator(this::publishBatch, 200, 100, 1024 * 1024);
+
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(accumulator.append(this.newEvent(i), this.groupId));
+        }
+        Assert.assertEquals(10, accumulator.getBufferedCount());
+        Assert.assertFalse(futures.get(0).isDone());
+
+        for (int i = 0; i < 10; i++) {
+            SendResult sendResult = futures.get(i).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(SendResult.SendResultStatus.SUCCESS, sendResult.getStatus());
+            Assert.assertEquals(i + "@" + this.groupId, sendResult.getEventId());
+        }
+        Assert.assertEquals(Collections.singletonList(10), this.batches);
+        Assert.assertEquals(0, accumulator.getBufferedCount());
+    }
+
+    /**
+     * flush right now if reach max count
+     */
+    @Test
+    public void testMaxCount() throws Exception {
+        ProducerAccumulator accumulator = new ProducerAccumulator(this::publishBatch, 60000, 4, 1024 * 1024);
+
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(accumulator.append(this.newEvent(i), this.groupId));
+        }
+        Assert.assertEquals(2, accumulator.getBufferedCount());
+        Assert.assertTrue(futures.get(7).isDone());
+        Assert.assertFalse(futures.get(8).isDone());
+
+        accumulator.flush();
+        Assert.assertEquals("9@" + this.groupId, futures.get(9).get(5, TimeUnit.SECONDS).getEventId());
+        Assert.assertEquals(3, this.batches.size());
+        Assert.assertEquals(2, this.batches.get(2).intValue());
+    }
+
+    /**
+     * flush right now if reach max bytes, the event never exceed max bytes in one batch
+     */
+    @Test
+    public void testMaxBytes() throws Exception {
+        int eventSize = this.topicName.length() + 1;
+        ProducerAccumulator accumulator = new ProducerAccumulator(this::publishBatch, 60000, 100, eventSize * 3 + 1);
+
+        for (int i = 0; i < 7; i++) {
+            accumulator.append(this.newEvent(i), this.groupId);
+        }
+        Assert.assertEquals(2, this.batches.size());
+        Assert.assertEquals(3, this.batches.get(0).intValue());
+        Assert.assertEquals(3, this.batches.get(1).intValue());
+        Assert.assertEquals(1, accumulator.getBufferedCount());
+        accumulator.flush();
+    }
+
+    /**
+     * events in different group are not mixed
+     */
+    @Test
+    public void testGroup() throws Exception {
+        ProducerAccumulator accumulator = new ProducerAccumulator(this::publishBatch, 60000, 100, 1024 * 1024);
+
+        CompletableFuture<SendResult> future1 = accumulator.append(this.newEvent(1), "1");
+        CompletableFuture<SendResult> future2 = accumulator.append(this.newEvent(2), "2");
+        accumulator.flush();
+
+        Assert.assertEquals("1@1", future1.get(5, TimeUnit.SECONDS).getEventId());
+        Assert.assertEquals("2@2", future2.get(5, TimeUnit.SECONDS).getEventId());
+        Assert.assertEquals(2, this.batches.size());
+    }
+
+    /**
+     * every caller get the exception if batch failed
+     */
+    @Test
+    public void testFailed() throws Exception {
+        ProducerAccumulator accumulator = new ProducerAccumulator((events, groupId) -> {
+            throw new BrokerException(ErrorCode.TRANSACTION_EXECUTE_ERROR);
+        }, 50, 100, 1024 * 1024);
+
+        CompletableFuture<SendResult> future1 = accumulator.append(this.newEvent(1), this.groupId);
+        CompletableFuture<SendResult> future2 = accumulator.append(this.newEvent(2), this.groupId);
+        for (CompletableFuture<SendResult> future : new CompletableFuture[]{future1, future2}) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof BrokerException);
+            }
+        }
+    }
+
+    /**
+     * only the caller of the failed event get the exception
+     */
+    @Test
+    public void testEventFailed() throws Exception {
+        ProducerAccumulator accumulator = new ProducerAccumulator((events, groupId) -> {
+            List<CompletableFuture<SendResult>> futures = this.publishBatch(events, groupId);
+            CompletableFuture<SendResult> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new BrokerException(ErrorCode.TRANSACTION_EXECUTE_ERROR));
+            futures.set(0, failed);
+            return futures;
+        }, 60000, 100, 1024 * 1024);
+
+        CompletableFuture<SendResult> future1 = accumulator.append(this.newEvent(1), this.groupId);
+        CompletableFuture<SendResult> future2 = accumulator.append(this.newEvent(2), this.groupId);
+        accumulator.flush();
+
+        try {
+            future1.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof BrokerException);
+        }
+        Assert.assertEquals("2@" + this.groupId, future2.get(5, TimeUnit.SECONDS).getEventId());
+    }
+
+    /**
+     * the caller without result get the exception, not hang
+     */
+    @Test
+    public void testResultMismatch() throws Exception {
+        ProducerAccumulator accumulator = new ProducerAccumulator((events, groupId) ->
+                this.publishBatch(events.subList(0, 1), groupId), 60000, 100, 1024 * 1024);
+
+        CompletableFuture<SendResult> future1 = accumulator.append(this.newEvent(1), this.groupId);
+        CompletableFuture<SendResult> future2 = accumulator.append(this.newEvent(2), this.groupId);
+        accumulator.flush();
+
+        Assert.assertEquals("1@" + this.groupId, future1.get(5, TimeUnit.SECONDS).getEventId());
+        try {
+            future2.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof BrokerException);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.webank.weevent.core.fisco.web3sdk.v2;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.webank.weevent.core.JUnitTestBase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.sdk.client.Client;
+import org.fisco.bcos.sdk.client.RespCallback;
+import org.fisco.bcos.sdk.client.protocol.response.BcosTransactionReceipt;
+import org.fisco.bcos.sdk.model.TransactionReceipt;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * TransactionReceiptTracker Tester with a mocked client.
+ */
+@Slf4j
+public class TransactionReceiptTrackerTest extends JUnitTestBase {
+    private final String transactionHash = "0x8b3f8d7c9e0f2a1b";
+
+    // mined transaction, (hash <-> receipt)
+    private final Map<String, TransactionReceipt> mined = new ConcurrentHashMap<>();
+    private final AtomicInteger queryCount = new AtomicInteger(0);
+    private TransactionReceiptTracker tracker;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.mined.clear();
+        this.queryCount.set(0);
+
+        Client client = mock(Client.class);
+        doAnswer(invocation -> {
+            this.queryCount.incrementAndGet();
+            String hash = (String) invocation.getArguments()[0];
+            RespCallback<BcosTransactionReceipt> callback = (RespCallback<BcosTransactionReceipt>) invocation.getArguments()[1];
+
+            BcosTransactionReceipt response = new BcosTransactionReceipt();
+            response.setResult(this.mined.get(hash));
+            callback.onResponse(response);
+            return null;
+        }).when(client).getTransactionReceiptAsync(anyString(), any(RespCallback.class));
+        this.tracker = new TransactionReceiptTracker(client);
+    }
+
+    private void mine(String hash) {
+        TransactionReceipt receipt = new TransactionReceipt();
+        receipt.setTransactionHash(hash);
+        receipt.setBlockNumber("0x10");
+        this.mined.put(hash, receipt);
+    }
+
+    /**
+     * receipt is completed after the block notified
+     */
+    @Test
+    public void testReceiptInBlock() throws Exception {
+        CompletableFuture<Optional<TransactionReceipt>> future = this.tracker.track(this.transactionHash, 10000);
+        Assert.assertFalse(future.isDone());
+        Assert.assertEquals(1, this.tracker.getPendingCount());
+
+        // block without this transaction
+        this.tracker.onBlock(15L);
+        Assert.assertFalse(future.isDone());
+
+        this.mine(this.transactionHash);
+        this.tracker.onBlock(16L);
+        Optional<TransactionReceipt> receipt = future.get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(receipt.isPresent());
+        Assert.assertEquals(this.transactionHash, receipt.get().getTransactionHash());
+        Assert.assertEquals(0, this.tracker.getPendingCount());
+        Assert.assertEquals(3, this.queryCount.get());
+
+        // nothing to query
+        this.tracker.onBlock(17L);
+        Assert.assertEquals(3, this.queryCount.get());
+    }
+
+    /**
+     * the block is notified before tracking
+     */
+    @Test
+    public void testMinedBeforeTrack() throws Exception {
+        this.mine(this.transactionHash);
+
+        CompletableFuture<Optional<TransactionReceipt>> future = this.tracker.track(this.transactionHash, 10000);
+        Assert.assertTrue(future.get(1, TimeUnit.SECONDS).isPresent());
+        Assert.assertEquals(0, this.tracker.getPendingCount());
+    }
+
+    /**
+     * complete with empty if no receipt before timeout
+     */
+    @Test
+    public void testTimeout() throws Exception {
+        CompletableFuture<Optional<TransactionReceipt>> future = this.tracker.track(this.transactionHash, 300);
+        Assert.assertFalse(future.isDone());
+
+        Assert.assertFalse(future.get(5, TimeUnit.SECONDS).isPresent());
+        Assert.assertEquals(0, this.tracker.getPendingCount());
+
+        // late receipt is ignored
+        this.mine(this.transactionHash);
+        this.tracker.onBlock(16L);
+        Assert.assertFalse(future.get().isPresent());
+    }
+
+    /**
+     * many pending transactions without thread
+     */
+    @Test
+    public void testManyPending() throws Exception {
+        int count = 10000;
+        CompletableFuture<?>[] futures = new CompletableFuture[count];
+        for (int i = 0; i < count; i++) {
+            futures[i] = this.tracker.track(this.transactionHash + i, 10000);
+        }
+        Assert.assertEquals(count, this.tracker.getPendingCount());
+
+        for (int i = 0; i < count; i++) {
+            this.mine(this.transactionHash + i);
+        }
+        this.tracker.onBlock(16L);
+        CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(0, this.tracker.getPendingCount());
+    }
+}
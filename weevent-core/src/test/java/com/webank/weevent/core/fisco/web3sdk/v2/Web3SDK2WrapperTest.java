@@ -0,0 +1,186 @@
+package com.webank.weevent.core.fisco.web3sdk.v2;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.fisco.util.DataTypeUtils;
+import com.webank.weevent.core.fisco.web3sdk.v2.solc10.Topic;
+
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.sdk.abi.FunctionEncoder;
+import org.fisco.bcos.sdk.abi.TypeReference;
+import org.fisco.bcos.sdk.abi.datatypes.Function;
+import org.fisco.bcos.sdk.abi.datatypes.Type;
+import org.fisco.bcos.sdk.abi.datatypes.Utf8String;
+import org.fisco.bcos.sdk.client.Client;
+import org.fisco.bcos.sdk.client.protocol.response.BcosBlock;
+import org.fisco.bcos.sdk.client.protocol.response.BcosTransactionReceipt;
+import org.fisco.bcos.sdk.contract.Contract;
+import org.fisco.bcos.sdk.crypto.CryptoSuite;
+import org.fisco.bcos.sdk.model.CryptoType;
+import org.fisco.bcos.sdk.model.TransactionReceipt;
+import org.fisco.bcos.sdk.utils.Numeric;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Web3SDK2Wrapper Tester with a stubbed Client, no need FISCO-BCOS node.
+ */
+@Slf4j
+public class Web3SDK2WrapperTest extends JUnitTestBase {
+    private final static String topicName = "com.weevent.test";
+    private final static String topicAddress = "0x1111111111111111111111111111111111111111";
+    private final static long blockNumber = 100L;
+    private final static int txCount = 64;
+
+    private final CryptoSuite cryptoSuite = new CryptoSuite(CryptoType.ECDSA_TYPE);
+    private final Map<String, TransactionReceipt> receipts = new ConcurrentHashMap<>();
+    private final List<String> transactionHashList = new ArrayList<>();
+    private final AtomicInteger receiptRequest = new AtomicInteger(0);
+
+    private Client client;
+    private ThreadPoolTaskExecutor executor;
+    private Map<String, Long> supportedVersion;
+    private Map<String, Contract> historyTopic;
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        FunctionEncoder functionEncoder = new FunctionEncoder(this.cryptoSuite);
+        for (int i = 1; i <= txCount; i++) {
+            String hash = String.format("0x%064x", i);
+            Function function = new Function(Topic.FUNC_PUBLISHWEEVENT,
+                    Arrays.<Type>asList(new Utf8String(topicName), new Utf8String("hello weevent " + i), new Utf8String("{}")),
+                    new ArrayList<TypeReference<?>>());
+
+            TransactionReceipt receipt = new TransactionReceipt();
+            receipt.setTransactionHash(hash);
+            receipt.setBlockNumber(Numeric.toHexStringWithPrefix(BigInteger.valueOf(blockNumber)));
+            receipt.setFrom(topicAddress);
+            receipt.setTo(topicAddress);
+            receipt.setInput(functionEncoder.encode(function));
+            // publishWeEvent return the sequence
+            receipt.setOutput(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(i), 64));
+
+            this.receipts.put(hash, receipt);
+            this.transactionHashList.add(hash);
+        }
+
+        this.client = this.stubClient();
+        this.supportedVersion = new HashMap<>();
+        this.supportedVersion.put(topicAddress, SupportedVersion.nowVersion);
+        this.historyTopic = new HashMap<>();
+        this.historyTopic.put(topicAddress, Topic.load(topicAddress, this.client, this.cryptoSuite.getCryptoKeyPair()));
+
+        this.executor = Web3SDKConnector.initFixedThreadPool("receipt-test-", 8);
+    }
+
+    @After
+    public void after() {
+        this.executor.destroy();
+    }
+
+    /*
+     * stub Client, the earlier transaction in block cost more time to get it's receipt
+     */
+    private Client stubClient() {
+        return (Client) Proxy.newProxyInstance(Client.class.getClassLoader(), new Class<?>[]{Client.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getCryptoSuite":
+                    return this.cryptoSuite;
+                case "getGroupId":
+                    return 1;
+                case "getChainId":
+                    return "1";
+                case "getBlockByNumber": {
+                    List<BcosBlock.TransactionResult> transactions = new ArrayList<>();
+                    for (String hash : this.transactionHashList) {
+                        transactions.add(new BcosBlock.TransactionHash(hash));
+                    }
+                    BcosBlock.Block block = new BcosBlock.Block();
+                    block.setNumber(Numeric.toHexStringWithPrefix(BigInteger.valueOf(blockNumber)));
+                    block.setTimestamp(Numeric.toHexStringWithPrefix(BigInteger.valueOf(System.currentTimeMillis())));
+                    block.setTransactions(transactions);
+
+                    BcosBlock bcosBlock = new BcosBlock();
+                    bcosBlock.setResult(block);
+                    return bcosBlock;
+                }
+                case "getTransactionReceipt": {
+                    String hash = (String) args[0];
+                    this.receiptRequest.incrementAndGet();
+                    Thread.sleep(txCount - this.transactionHashList.indexOf(hash));
+
+                    BcosTransactionReceipt bcosTransactionReceipt = new BcosTransactionReceipt();
+                    bcosTransactionReceipt.setResult(this.receipts.get(hash));
+                    return bcosTransactionReceipt;
+                }
+                case "toString":
+                    return "stub client";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    private void checkOrder(List<WeEvent> events) {
+        Assert.assertNotNull(events);
+        Assert.assertEquals(txCount, events.size());
+        for (int i = 0; i < txCount; i++) {
+            Assert.assertEquals(DataTypeUtils.encodeEventId(topicName, (int) blockNumber, i + 1), events.get(i).getEventId());
+            Assert.assertEquals("hello weevent " + (i + 1), new String(events.get(i).getContent()));
+        }
+        Assert.assertEquals(txCount, this.receiptRequest.get());
+    }
+
+    /**
+     * fetch receipt one by one
+     */
+    @Test
+    public void testLoopSequential() throws Exception {
+        List<WeEvent> events = Web3SDK2Wrapper.loop(this.client, BigInteger.valueOf(blockNumber),
+                this.supportedVersion, this.historyTopic, null);
+        this.checkOrder(events);
+    }
+
+    /**
+     * fetch receipt concurrently, events must be in transaction index order
+     */
+    @Test
+    public void testLoopConcurrent() throws Exception {
+        List<WeEvent> events = Web3SDK2Wrapper.loop(this.client, BigInteger.valueOf(blockNumber),
+                this.supportedVersion, this.historyTopic, this.executor);
+        this.checkOrder(events);
+    }
+
+    /**
+     * any empty receipt means the block is not ready
+     */
+    @Test
+    public void testLoopEmptyReceipt() throws Exception {
+        this.receipts.remove(this.transactionHashList.get(txCount / 2));
+
+        List<WeEvent> events = Web3SDK2Wrapper.loop(this.client, BigInteger.valueOf(blockNumber),
+                this.supportedVersion, this.historyTopic, this.executor);
+        Assert.assertNull(events);
+    }
+}
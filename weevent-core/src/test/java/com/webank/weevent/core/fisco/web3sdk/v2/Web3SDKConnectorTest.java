@@ -0,0 +1,158 @@
+package com.webank.weevent.core.fisco.web3sdk.v2;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.dto.ListPage;
+import com.webank.weevent.core.dto.TbBlock;
+import com.webank.weevent.core.fisco.util.RejectionCounter;
+import com.webank.weevent.core.task.StoppableTask;
+
+import lombok.extern.slf4j.Slf4j;
+import org.fisco.bcos.sdk.client.Client;
+import org.fisco.bcos.sdk.client.protocol.response.BcosBlock;
+import org.fisco.bcos.sdk.client.protocol.response.BlockNumber;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Web3SDKConnector thread pool Tester with a mocked client.
+ */
+@Slf4j
+public class Web3SDKConnectorTest extends JUnitTestBase {
+    // simulated rpc latency of getBlockByNumber, in ms
+    private final int latency = 20;
+
+    // thread name who called getBlockByNumber
+    private final Set<String> rpcThreads = ConcurrentHashMap.newKeySet();
+
+    private Client client;
+    private ThreadPoolTaskExecutor pool;
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.client = mock(Client.class);
+        BlockNumber blockNumber = new BlockNumber();
+        blockNumber.setResult("0x64");
+        when(this.client.getBlockNumber()).thenReturn(blockNumber);
+        doAnswer(invocation -> {
+            this.rpcThreads.add(Thread.currentThread().getName());
+            StoppableTask.idle(this.latency);
+
+            BigInteger number = (BigInteger) invocation.getArguments()[0];
+            BcosBlock.Block block = new BcosBlock.Block();
+            block.setNumber("0x" + number.toString(16));
+            block.setHash("0x" + number.toString(16));
+            block.setTimestamp("0x" + Long.toHexString(System.currentTimeMillis()));
+            block.setSealer("0x0");
+            block.setTransactions(new ArrayList<>());
+            BcosBlock bcosBlock = new BcosBlock();
+            bcosBlock.setResult(block);
+            return bcosBlock;
+        }).when(this.client).getBlockByNumber(any(BigInteger.class), anyBoolean());
+
+        this.pool = Web3SDKConnector.initBoundedThreadPool("chain-io-test-", 2, 4, 10);
+    }
+
+    @After
+    public void after() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * query block list in bounded pool
+     */
+    @Test
+    public void testQueryBlockList() throws Exception {
+        ListPage<TbBlock> blocks = Web3SDK2Wrapper.queryBlockList(this.client, null, null, 1, 10, this.pool);
+
+        Assert.assertEquals(100, blocks.getTotal().intValue());
+        Assert.assertEquals(10, blocks.getPageData().size());
+        // sorted desc
+        Assert.assertEquals(10, blocks.getPageData().get(0).getBlockNumber().intValue());
+        for (String name : this.rpcThreads) {
+            Assert.assertTrue(name, name.startsWith("chain-io-test-"));
+        }
+    }
+
+    /**
+     * many concurrent query, rpc never run in commonPool, and commonPool is free for others
+     */
+    @Test
+    public void testCommonPoolFree() throws Exception {
+        int callers = 16;
+        CountDownLatch done = new CountDownLatch(callers);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    Web3SDK2Wrapper.queryBlockList(this.client, null, null, 1, 50, this.pool);
+                } catch (Exception e) {
+                    log.error("query block list failed", e);
+                } finally {
+                    done.countDown();
+                }
+            }, "caller-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+
+        // unrelated work in commonPool is not starved
+        StoppableTask.idle(this.latency * 2);
+        Assert.assertEquals(Integer.valueOf(1), CompletableFuture.supplyAsync(() -> 1).get(1, TimeUnit.SECONDS));
+        log.info("commonPool active: {} during load", ForkJoinPool.commonPool().getActiveThreadCount());
+
+        Assert.assertTrue(done.await(60, TimeUnit.SECONDS));
+        for (String name : this.rpcThreads) {
+            Assert.assertFalse(name, name.startsWith("ForkJoinPool.commonPool"));
+            Assert.assertTrue(name, name.startsWith("chain-io-test-") || name.startsWith("caller-"));
+        }
+
+        // the pool is bounded, busy rpc is run in caller thread and counted
+        Assert.assertTrue(this.pool.getThreadPoolExecutor().getLargestPoolSize() <= 4);
+        long rejected = RejectionCounter.getRejectedCounts().get("chain-io-test-");
+        log.info("rejected: {}", rejected);
+        Assert.assertTrue(rejected > 0);
+    }
+
+    /**
+     * the pools with the same name are counted together
+     */
+    @Test
+    public void testRejectedCountSameName() {
+        ThreadPoolExecutor executor = this.pool.getThreadPoolExecutor();
+        RejectionCounter first = new RejectionCounter("same-name-test-", new ThreadPoolExecutor.DiscardPolicy());
+        RejectionCounter second = new RejectionCounter("same-name-test-", new ThreadPoolExecutor.DiscardPolicy());
+
+        first.rejectedExecution(() -> {
+        }, executor);
+        second.rejectedExecution(() -> {
+        }, executor);
+        second.rejectedExecution(() -> {
+        }, executor);
+
+        Assert.assertEquals(Long.valueOf(3), RejectionCounter.getRejectedCounts().get("same-name-test-"));
+    }
+}
@@ -0,0 +1,204 @@
+package com.webank.weevent.core.simulator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.client.BrokerException;
+import com.webank.weevent.client.ErrorCode;
+import com.webank.weevent.client.SendResult;
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.config.SimulatorConfig;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SimulatedChain Tester.
+ */
+@Slf4j
+public class SimulatedChainTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String groupId = WeEvent.DEFAULT_GROUP_ID;
+    private SimulatorConfig config;
+    private SimulatedChain simulatedChain;
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.config = new SimulatorConfig();
+        this.config.setGroupCount(1);
+        this.config.setBlockInterval(50);
+        this.config.setBlockSize(10);
+        this.config.setBlockRetention(5);
+        this.config.setRpcLatency(0);
+        this.config.setRpcFaultRate(0.0);
+        this.config.setConsumerIdleTime(100);
+        this.config.setConsumerNotifyQueueSize(10000);
+    }
+
+    @After
+    public void after() {
+        if (this.simulatedChain != null) {
+            this.simulatedChain.shutdown();
+        }
+    }
+
+    private WeEvent newEvent(int idx) {
+        return new WeEvent(this.topicName, ("hello " + idx).getBytes(StandardCharsets.UTF_8), new HashMap<>());
+    }
+
+    /**
+     * pending events are packed in block size
+     */
+    @Test
+    public void testMint() throws Exception {
+        this.simulatedChain = new SimulatedChain(this.config);
+        SimulatorBroker4Producer producer = new SimulatorBroker4Producer(this.simulatedChain);
+        Assert.assertTrue(producer.open(this.topicName, this.groupId));
+        Assert.assertTrue(producer.open(this.topicName, this.groupId));
+
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            futures.add(producer.publish(this.newEvent(i), this.groupId));
+        }
+        for (CompletableFuture<SendResult> future : futures) {
+            SendResult sendResult = future.get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(SendResult.SendResultStatus.SUCCESS, sendResult.getStatus());
+            Assert.assertNotNull(producer.getEvent(sendResult.getEventId(), this.groupId));
+        }
+
+        // 10 events at most in one block, and no empty block
+        long height = producer.getBlockHeight(this.groupId);
+        Assert.assertTrue(height >= 4);
+        int events = 0;
+        for (long blockNum = 2; blockNum <= height; blockNum++) {
+            int size = this.simulatedChain.loop(blockNum, this.groupId).size();
+            Assert.assertTrue(size > 0 && size <= 10);
+            events += size;
+        }
+        Assert.assertEquals(25, events);
+        Assert.assertTrue(this.simulatedChain.loop(1L, this.groupId).isEmpty());
+        Assert.assertNull(this.simulatedChain.loop(height + 1, this.groupId));
+        Assert.assertEquals(25L, producer.state(this.topicName, this.groupId).getSequenceNumber().longValue());
+        Assert.assertEquals(25L, this.simulatedChain.getTransactionCount());
+    }
+
+    /**
+     * elder block is empty out of retention
+     */
+    @Test
+    public void testRetention() throws Exception {
+        this.config.setBlockSize(1);
+        this.simulatedChain = new SimulatedChain(this.config);
+        SimulatorBroker4Producer producer = new SimulatorBroker4Producer(this.simulatedChain);
+        producer.open(this.topicName, this.groupId);
+
+        CompletableFuture<SendResult> last = null;
+        for (int i = 0; i < 8; i++) {
+            last = producer.publish(this.newEvent(i), this.groupId);
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(9L, this.simulatedChain.getBlockHeight(this.groupId).longValue());
+        Assert.assertTrue(this.simulatedChain.loop(2L, this.groupId).isEmpty());
+        Assert.assertEquals(1, this.simulatedChain.loop(9L, this.groupId).size());
+    }
+
+    /**
+     * rpc cost latency and fail in fault rate
+     */
+    @Test
+    public void testLatencyAndFault() throws Exception {
+        this.config.setRpcLatency(20);
+        this.config.setRpcFaultRate(0.5);
+        this.simulatedChain = new SimulatedChain(this.config);
+
+        int faults = 0;
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) {
+            try {
+                this.simulatedChain.getBlockHeight(this.groupId);
+            } catch (BrokerException e) {
+                Assert.assertEquals(ErrorCode.WEB3SDK_RPC_ERROR.getCode(), e.getCode());
+                faults++;
+            }
+        }
+        long cost = System.currentTimeMillis() - start;
+        log.info("20 rpc cost: {} ms, faults: {}", cost, faults);
+
+        Assert.assertTrue(cost >= 20 * 20);
+        Assert.assertTrue(faults > 0 && faults < 20);
+        Assert.assertEquals(faults, this.simulatedChain.getFaultCount());
+    }
+
+    /**
+     * unknown group and topic
+     */
+    @Test
+    public void testInvalid() throws Exception {
+        this.simulatedChain = new SimulatedChain(this.config);
+        SimulatorBroker4Producer producer = new SimulatorBroker4Producer(this.simulatedChain);
+
+        try {
+            producer.publish(this.newEvent(0), this.groupId);
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.TOPIC_NOT_EXIST.getCode(), e.getCode());
+        }
+        try {
+            producer.open(this.topicName, "2");
+            Assert.fail();
+        } catch (BrokerException e) {
+            Assert.assertEquals(ErrorCode.WEB3SDK_UNKNOWN_GROUP.getCode(), e.getCode());
+        }
+    }
+
+    /**
+     * publish and subscribe through the MainEventLoop
+     */
+    @Test
+    public void testSubscribe() throws Exception {
+        this.simulatedChain = new SimulatedChain(this.config);
+        SimulatorBroker4Producer producer = new SimulatorBroker4Producer(this.simulatedChain);
+        SimulatorBroker4Consumer consumer = new SimulatorBroker4Consumer(this.simulatedChain, Executors.newCachedThreadPool());
+        producer.open(this.topicName, this.groupId);
+        Assert.assertTrue(consumer.startConsumer());
+
+        int total = 30;
+        CountDownLatch latch = new CountDownLatch(total);
+        String subscriptionId = consumer.subscribe(this.topicName, this.groupId, WeEvent.OFFSET_LAST, new HashMap<>(), new IConsumer.ConsumerListener() {
+            @Override
+            public void onEvent(String subscriptionId, WeEvent event) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                log.error("onException", e);
+            }
+        });
+        Assert.assertEquals(1, consumer.listSubscription(this.groupId).size());
+
+        for (int i = 0; i < total; i++) {
+            producer.publish(this.newEvent(i), this.groupId);
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        Assert.assertTrue(consumer.unSubscribe(subscriptionId));
+        Assert.assertTrue(consumer.shutdownConsumer());
+    }
+}
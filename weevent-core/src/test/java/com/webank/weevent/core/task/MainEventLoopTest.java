@@ -0,0 +1,263 @@
+package com.webank.weevent.core.task;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.JUnitTestBase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * MainEventLoop Tester with a simulated block chain.
+ * Assert on loop count and concurrency rather than wall clock, the cost is only logged, see MainEventLoopBenchmark for throughput.
+ */
+@Slf4j
+public class MainEventLoopTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String groupId = "1";
+    private final int blockCount = 100;
+    private final int eventPerBlock = 2;
+    private final long latency = 20;
+
+    private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+
+    /*
+     * block chain in memory, every loop cost fixed latency
+     */
+    static class SimulatedBlockChain implements IBlockChain {
+        private final String topicName;
+        private final int eventPerBlock;
+        private final long latency;
+        private final int prefetchBlock;
+        int notifyQueueSize = 0;
+        final AtomicLong blockHeight = new AtomicLong(1);
+        final AtomicInteger loopCount = new AtomicInteger(0);
+        // loop in progress and the max of it
+        final AtomicInteger concurrent = new AtomicInteger(0);
+        final AtomicInteger maxConcurrent = new AtomicInteger(0);
+        // block number <-> not ready times
+        final Map<Long, AtomicInteger> notReady = new ConcurrentHashMap<>();
+
+        SimulatedBlockChain(String topicName, int eventPerBlock, long latency, int prefetchBlock) {
+            this.topicName = topicName;
+            this.eventPerBlock = eventPerBlock;
+            this.latency = latency;
+            this.prefetchBlock = prefetchBlock;
+        }
+
+        @Override
+        public int getIdleTime() {
+            return 10;
+        }
+
+        @Override
+        public int getPrefetchBlock() {
+            return this.prefetchBlock;
+        }
+
+        @Override
+        public int getNotifyQueueSize() {
+            return this.notifyQueueSize;
+        }
+
+        @Override
+        public NotifyTask.OverflowPolicy getOverflowPolicy() {
+            return NotifyTask.OverflowPolicy.PAUSE;
+        }
+
+        @Override
+        public Long getBlockHeight(String groupId) {
+            return this.blockHeight.get();
+        }
+
+        @Override
+        public boolean hasBlockEventNotify() {
+            return false;
+        }
+
+        @Override
+        public List<WeEvent> loop(Long blockNum, String groupId) {
+            this.loopCount.incrementAndGet();
+            this.maxConcurrent.accumulateAndGet(this.concurrent.incrementAndGet(), Math::max);
+            StoppableTask.idle(this.latency);
+            this.concurrent.decrementAndGet();
+
+            AtomicInteger times = this.notReady.get(blockNum);
+            if (times != null && times.getAndDecrement() > 0) {
+                return null;
+            }
+
+            List<WeEvent> events = new ArrayList<>();
+            for (int i = 1; i <= this.eventPerBlock; i++) {
+                WeEvent event = new WeEvent(this.topicName, ("hello world " + i).getBytes(StandardCharsets.UTF_8));
+                event.setEventId(String.format("317e7c4c-%d-%d", i, blockNum));
+                events.add(event);
+            }
+            return events;
+        }
+    }
+
+    static class OrderListener implements IConsumer.ConsumerListener {
+        // written in notify thread
+        final List<String> received = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch;
+        // slow consumer
+        private final long delay;
+
+        OrderListener(int expected) {
+            this(expected, 0);
+        }
+
+        OrderListener(int expected, long delay) {
+            this.latch = new CountDownLatch(expected);
+            this.delay = delay;
+        }
+
+        @Override
+        public void onEvent(String subscriptionId, WeEvent event) {
+            if (this.delay > 0) {
+                StoppableTask.idle(this.delay);
+            }
+            this.received.add(event.getEventId());
+            this.latch.countDown();
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            log.error("onException", e);
+        }
+    }
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        this.threadPoolTaskExecutor.setCorePoolSize(10);
+        this.threadPoolTaskExecutor.setMaxPoolSize(200);
+        this.threadPoolTaskExecutor.setQueueCapacity(0);
+        this.threadPoolTaskExecutor.setDaemon(true);
+        this.threadPoolTaskExecutor.initialize();
+    }
+
+    @After
+    public void after() {
+        this.threadPoolTaskExecutor.destroy();
+    }
+
+    /*
+     * catch up blockCount blocks behind, and check events are notified in block order
+     */
+    private void catchUp(SimulatedBlockChain blockChain) throws Exception {
+        this.catchUp(blockChain, new OrderListener(this.blockCount * this.eventPerBlock));
+    }
+
+    private void catchUp(SimulatedBlockChain blockChain, OrderListener listener) throws Exception {
+        MainEventLoop mainEventLoop = new MainEventLoop(this.threadPoolTaskExecutor, blockChain, this.groupId);
+        Subscription subscription = new Subscription(blockChain, "", new String[]{this.topicName}, this.groupId, WeEvent.OFFSET_LAST, "", listener);
+        mainEventLoop.addSubscription(subscription);
+
+        long start = System.currentTimeMillis();
+        blockChain.blockHeight.addAndGet(this.blockCount);
+        mainEventLoop.doStart();
+        Assert.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+        long cost = System.currentTimeMillis() - start;
+        mainEventLoop.doStop();
+
+        Assert.assertEquals(this.blockCount * this.eventPerBlock, listener.received.size());
+        int idx = 0;
+        for (long blockNum = 2; blockNum <= this.blockCount + 1; blockNum++) {
+            for (int i = 1; i <= this.eventPerBlock; i++) {
+                Assert.assertEquals(String.format("317e7c4c-%d-%d", i, blockNum), listener.received.get(idx++));
+            }
+        }
+
+        log.info("catch up {} blocks, latency: {}ms prefetch: {} cost: {}ms max concurrent: {}",
+                this.blockCount, this.latency, blockChain.getPrefetchBlock(), cost, blockChain.maxConcurrent.get());
+    }
+
+    /**
+     * fetch block one by one
+     */
+    @Test
+    public void testSequential() throws Exception {
+        SimulatedBlockChain blockChain = new SimulatedBlockChain(this.topicName, this.eventPerBlock, this.latency, 0);
+        this.catchUp(blockChain);
+
+        Assert.assertEquals(this.blockCount, blockChain.loopCount.get());
+        Assert.assertEquals(1, blockChain.maxConcurrent.get());
+    }
+
+    /**
+     * fetch block in advance, but notify in order
+     */
+    @Test
+    public void testPrefetch() throws Exception {
+        SimulatedBlockChain blockChain = new SimulatedBlockChain(this.topicName, this.eventPerBlock, this.latency, 8);
+        this.catchUp(blockChain);
+
+        // every block is fetched only once, and more than one in flight
+        Assert.assertEquals(this.blockCount, blockChain.loopCount.get());
+        Assert.assertTrue(blockChain.maxConcurrent.get() > 1);
+        Assert.assertTrue(blockChain.maxConcurrent.get() <= 8 + 1);
+    }
+
+    /**
+     * not ready block in prefetch window is fetched again
+     */
+    @Test
+    public void testPrefetchNotReady() throws Exception {
+        SimulatedBlockChain blockChain = new SimulatedBlockChain(this.topicName, this.eventPerBlock, this.latency, 8);
+        blockChain.notReady.put(10L, new AtomicInteger(2));
+        blockChain.notReady.put(50L, new AtomicInteger(1));
+        this.catchUp(blockChain);
+
+        Assert.assertTrue(blockChain.loopCount.get() >= this.blockCount + 3);
+    }
+
+    /**
+     * blocks in flight never exceed the prefetch window
+     */
+    @Test
+    public void testPrefetchWindow() throws Exception {
+        for (int prefetch : new int[]{0, 4, 16}) {
+            SimulatedBlockChain blockChain = new SimulatedBlockChain(this.topicName, this.eventPerBlock, this.latency, prefetch);
+            this.catchUp(blockChain);
+
+            Assert.assertTrue(blockChain.maxConcurrent.get() <= prefetch + 1);
+            if (prefetch > 0) {
+                Assert.assertTrue(blockChain.maxConcurrent.get() > 1);
+            }
+        }
+    }
+
+    /**
+     * slow consumer with bounded notify queue, pause to history and no event lost
+     */
+    @Test
+    public void testPauseToHistory() throws Exception {
+        SimulatedBlockChain blockChain = new SimulatedBlockChain(this.topicName, this.eventPerBlock, 1, 0);
+        blockChain.notifyQueueSize = 4;
+        this.catchUp(blockChain, new OrderListener(this.blockCount * this.eventPerBlock, 5));
+
+        // paused block is fetched again in history loop
+        Assert.assertTrue(blockChain.loopCount.get() > this.blockCount);
+    }
+}
@@ -2,7 +2,14 @@ package com.webank.weevent.core.task;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.webank.weevent.core.IConsumer;
 import com.webank.weevent.core.JUnitTestBase;
@@ -45,6 +52,49 @@ public class NotifyTaskTest extends JUnitTestBase {
         }
     }
 
+    static class MyBatchListener implements IConsumer.BatchConsumerListener {
+        public final List<List<WeEvent>> batches = new ArrayList<>();
+        public long received = 0;
+        // free window, taken by every notified event
+        public volatile int available = Integer.MAX_VALUE;
+        private final int batchSize;
+        private final int lingerTime;
+
+        MyBatchListener(int batchSize, int lingerTime) {
+            this.batchSize = batchSize;
+            this.lingerTime = lingerTime;
+        }
+
+        @Override
+        public void onEvents(String subscriptionId, List<WeEvent> events) {
+            this.batches.add(new ArrayList<>(events));
+            received += events.size();
+            if (this.available != Integer.MAX_VALUE) {
+                this.available -= events.size();
+            }
+        }
+
+        @Override
+        public int getAvailable() {
+            return this.available;
+        }
+
+        @Override
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        @Override
+        public int getLingerTime() {
+            return this.lingerTime;
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            received = -10000;
+        }
+    }
+
     @Before
     public void before() {
         log.info("=============================={}.{}==============================",
@@ -156,4 +206,242 @@ public class NotifyTaskTest extends JUnitTestBase {
         Assert.assertEquals(subscriptionId, listener.subscriptionId);
         Assert.assertEquals(notifyTask.getNotifiedCount(), listener.received);
     }
-} 
+
+    /**
+     * push in batch, at most batch size in one notify
+     */
+    @Test
+    public void testPushBatch() throws Exception {
+        MyBatchListener listener = new MyBatchListener(4, 0);
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, listener);
+
+        List<WeEvent> data = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            data.add(this.newEvent("a" + i));
+        }
+        // push before start, so all events are in queue already
+        notifyTask.push(data);
+        this.threadPoolTaskExecutor.execute(notifyTask);
+        Thread.sleep(wait3s);
+
+        Assert.assertEquals(10, listener.received);
+        Assert.assertEquals(3, listener.batches.size());
+        Assert.assertEquals(4, listener.batches.get(0).size());
+        Assert.assertEquals(2, listener.batches.get(2).size());
+        Assert.assertEquals("a9", listener.batches.get(2).get(1).getEventId());
+        Assert.assertEquals(notifyTask.getNotifiedCount(), listener.received);
+    }
+
+    /**
+     * events arrived within linger time are notified together, and merged
+     */
+    @Test
+    public void testPushBatchLinger() throws Exception {
+        MyBatchListener listener = new MyBatchListener(64, 1000);
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, listener);
+        this.threadPoolTaskExecutor.execute(notifyTask);
+
+        List<WeEvent> data1 = new ArrayList<>();
+        data1.add(this.newEvent("a"));
+        data1.add(this.newEvent("b"));
+        notifyTask.push(data1);
+
+        Thread.sleep(100);
+        List<WeEvent> data2 = new ArrayList<>();
+        data2.add(this.newEvent("b"));
+        data2.add(this.newEvent("c"));
+        notifyTask.push(data2);
+
+        Thread.sleep(wait3s);
+
+        Assert.assertEquals(1, listener.batches.size());
+        Assert.assertEquals(3, listener.received);
+        Assert.assertEquals(notifyTask.getNotifiedCount(), listener.received);
+    }
+
+    /**
+     * refuse the whole block if queue is full
+     */
+    @Test
+    public void testOverflowPause() {
+        MyListener listener = new MyListener();
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, 3, NotifyTask.OverflowPolicy.PAUSE, listener);
+
+        Assert.assertTrue(notifyTask.push(Arrays.asList(this.newEvent("a"), this.newEvent("b"))));
+        Assert.assertFalse(notifyTask.push(Arrays.asList(this.newEvent("c"), this.newEvent("d"))));
+        Assert.assertEquals(2, notifyTask.getEventQueue().size());
+        Assert.assertEquals(1, notifyTask.getOverflowCount());
+        Assert.assertEquals(0, notifyTask.getDroppedCount());
+
+        // block bigger than capacity is accepted if queue is empty
+        notifyTask.getEventQueue().clear();
+        Assert.assertTrue(notifyTask.push(Arrays.asList(this.newEvent("c"), this.newEvent("d"), this.newEvent("e"), this.newEvent("f"))));
+        Assert.assertEquals(4, notifyTask.getPeakSize());
+    }
+
+    /**
+     * drop the oldest events if queue is full
+     */
+    @Test
+    public void testOverflowDropOldest() {
+        MyListener listener = new MyListener();
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, 3, NotifyTask.OverflowPolicy.DROP_OLDEST, listener);
+
+        Assert.assertTrue(notifyTask.push(Arrays.asList(this.newEvent("a"), this.newEvent("b"))));
+        Assert.assertTrue(notifyTask.push(Arrays.asList(this.newEvent("c"), this.newEvent("d"))));
+        Assert.assertEquals(3, notifyTask.getEventQueue().size());
+        Assert.assertEquals("b", notifyTask.getEventQueue().peekFirst().getEventId());
+        Assert.assertEquals(1, notifyTask.getDroppedCount());
+        Assert.assertEquals(0, listener.received);
+    }
+
+    /**
+     * notify SUBSCRIPTION_NOTIFY_QUEUE_FULL once if queue is full
+     */
+    @Test
+    public void testOverflowDisconnect() {
+        MyListener listener = new MyListener();
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, 2, NotifyTask.OverflowPolicy.DISCONNECT, listener);
+
+        Assert.assertTrue(notifyTask.push(Arrays.asList(this.newEvent("a"), this.newEvent("b"))));
+        Assert.assertTrue(notifyTask.push(Collections.singletonList(this.newEvent("c"))));
+        Assert.assertTrue(notifyTask.push(Collections.singletonList(this.newEvent("d"))));
+        Assert.assertEquals(-10000, listener.received);
+        Assert.assertEquals(2, notifyTask.getEventQueue().size());
+        Assert.assertEquals(2, notifyTask.getDroppedCount());
+        Assert.assertEquals(2, notifyTask.getOverflowCount());
+    }
+
+    /**
+     * listener is notified out of the queue lock, it may unsubscribe or close session
+     */
+    @Test
+    public void testOverflowDisconnectOutOfLock() {
+        AtomicReference<NotifyTask> task = new AtomicReference<>();
+        AtomicInteger notified = new AtomicInteger(0);
+        AtomicBoolean holdsLock = new AtomicBoolean(false);
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, 1, NotifyTask.OverflowPolicy.DISCONNECT, new IConsumer.ConsumerListener() {
+            @Override
+            public void onEvent(String subscriptionId, WeEvent event) {
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                notified.incrementAndGet();
+                holdsLock.set(Thread.holdsLock(task.get().getEventQueue()));
+            }
+        });
+        task.set(notifyTask);
+
+        Assert.assertTrue(notifyTask.push(Collections.singletonList(this.newEvent("a"))));
+        Assert.assertTrue(notifyTask.push(Collections.singletonList(this.newEvent("b"))));
+        Assert.assertTrue(notifyTask.push(Collections.singletonList(this.newEvent("c"))));
+        Assert.assertEquals(1, notified.get());
+        Assert.assertFalse(holdsLock.get());
+    }
+
+    /**
+     * concurrent push never exceed the capacity
+     */
+    @Test
+    public void testOverflowConcurrentPush() throws Exception {
+        MyListener listener = new MyListener();
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, 10, NotifyTask.OverflowPolicy.PAUSE, listener);
+        Assert.assertTrue(notifyTask.push(Collections.singletonList(this.newEvent("first"))));
+
+        int threads = 8;
+        int pushPerThread = 100;
+        AtomicInteger accepted = new AtomicInteger(0);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            String prefix = String.valueOf(i);
+            new Thread(() -> {
+                for (int j = 0; j < pushPerThread; j++) {
+                    if (notifyTask.push(Collections.singletonList(this.newEvent(prefix + "-" + j)))) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                latch.countDown();
+            }).start();
+        }
+        Assert.assertTrue(latch.await(this.wait3s, TimeUnit.MILLISECONDS));
+
+        Assert.assertEquals(9, accepted.get());
+        Assert.assertEquals(10, notifyTask.getEventQueue().size());
+        Assert.assertEquals(10, notifyTask.getPeakSize());
+        Assert.assertEquals(threads * pushPerThread - 9, notifyTask.getOverflowCount());
+    }
+
+    /**
+     * events are kept in queue while the batch listener is busy, and notified no more than it's available
+     */
+    @Test
+    public void testPushBatchAvailable() throws Exception {
+        MyBatchListener listener = new MyBatchListener(64, 0);
+        listener.available = 0;
+        NotifyTask notifyTask = new NotifyTask(this.subscriptionId, 1000, listener);
+        this.threadPoolTaskExecutor.execute(notifyTask);
+
+        List<WeEvent> data = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            data.add(this.newEvent("a" + i));
+        }
+        notifyTask.push(data);
+        Thread.sleep(500);
+        Assert.assertEquals(0, listener.received);
+        Assert.assertEquals(10, notifyTask.getEventQueue().size());
+
+        listener.available = 3;
+        Thread.sleep(500);
+        Assert.assertEquals(3, listener.received);
+        Assert.assertEquals(3, listener.batches.get(0).size());
+
+        listener.available = Integer.MAX_VALUE;
+        Thread.sleep(500);
+        Assert.assertEquals(10, listener.received);
+        Assert.assertEquals(notifyTask.getNotifiedCount(), listener.received);
+    }
+
+    /**
+     * the busy batch listener do not hold the shared thread, other tasks go on
+     */
+    @Test
+    public void testPushBatchBusyInScheduler() throws Exception {
+        SharedScheduler scheduler = new SharedScheduler(1);
+        try {
+            MyBatchListener busy = new MyBatchListener(64, 0);
+            busy.available = 0;
+            NotifyTask busyTask = new NotifyTask(this.subscriptionId, 1000, busy);
+            scheduler.schedule(busyTask);
+
+            MyBatchListener free = new MyBatchListener(64, 0);
+            NotifyTask freeTask = new NotifyTask("def", 1000, free);
+            scheduler.schedule(freeTask);
+
+            busyTask.push(Collections.singletonList(this.newEvent("a")));
+            freeTask.push(Collections.singletonList(this.newEvent("b")));
+            Thread.sleep(500);
+
+            Assert.assertEquals(0, busy.received);
+            Assert.assertEquals(1, free.received);
+
+            busy.available = Integer.MAX_VALUE;
+            Thread.sleep(500);
+            Assert.assertEquals(1, busy.received);
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * policy name in config is case insensitive
+     */
+    @Test
+    public void testParseOverflowPolicy() {
+        Assert.assertEquals(NotifyTask.OverflowPolicy.PAUSE, NotifyTask.OverflowPolicy.parse("PAUSE"));
+        Assert.assertEquals(NotifyTask.OverflowPolicy.DROP_OLDEST, NotifyTask.OverflowPolicy.parse(" drop_oldest "));
+        Assert.assertNull(NotifyTask.OverflowPolicy.parse("drop"));
+        Assert.assertNull(NotifyTask.OverflowPolicy.parse(""));
+        Assert.assertNull(NotifyTask.OverflowPolicy.parse(null));
+    }
+}
@@ -0,0 +1,156 @@
+package com.webank.weevent.core.task;
+
+import java.util.concurrent.TimeUnit;
+
+import com.webank.weevent.core.JUnitTestBase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * ReplayCoordinator Tester.
+ */
+@Slf4j
+public class ReplayCoordinatorTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String groupId = "1";
+    private final int blockCount = 100;
+    private final int eventPerBlock = 2;
+
+    private ThreadPoolTaskExecutor threadPoolTaskExecutor;
+    private MainEventLoopTest.SimulatedBlockChain blockChain;
+    private ReplayCoordinator replayCoordinator;
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        this.threadPoolTaskExecutor.setCorePoolSize(10);
+        this.threadPoolTaskExecutor.setMaxPoolSize(200);
+        this.threadPoolTaskExecutor.setQueueCapacity(0);
+        this.threadPoolTaskExecutor.setDaemon(true);
+        this.threadPoolTaskExecutor.initialize();
+
+        this.blockChain = new MainEventLoopTest.SimulatedBlockChain(this.topicName, this.eventPerBlock, 1, 0);
+        this.replayCoordinator = new ReplayCoordinator(this.blockChain, this.threadPoolTaskExecutor, null);
+    }
+
+    @After
+    public void after() {
+        this.threadPoolTaskExecutor.destroy();
+    }
+
+    private Subscription subscribe(String offset, MainEventLoopTest.OrderListener listener, int mergeBlock) throws Exception {
+        Subscription subscription = new Subscription(this.blockChain, "", new String[]{this.topicName}, this.groupId, offset, "", listener);
+        subscription.setMergeBlock(mergeBlock);
+        subscription.doStart(this.threadPoolTaskExecutor, null);
+        this.replayCoordinator.start(subscription);
+        return subscription;
+    }
+
+    private static void unsubscribe(Subscription subscription) {
+        subscription.stopHistory();
+        subscription.getNotifyTask().doExit();
+    }
+
+    /*
+     * every event after offset is notified in block order
+     */
+    private void checkOrder(MainEventLoopTest.OrderListener listener, long offset) throws Exception {
+        Assert.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+
+        long lastBlock = this.blockCount + 1;
+        Assert.assertEquals((lastBlock - offset) * this.eventPerBlock, listener.received.size());
+        int idx = 0;
+        for (long blockNum = offset + 1; blockNum <= lastBlock; blockNum++) {
+            for (int i = 1; i <= this.eventPerBlock; i++) {
+                Assert.assertEquals(String.format("317e7c4c-%d-%d", i, blockNum), listener.received.get(idx++));
+            }
+        }
+    }
+
+    private MainEventLoopTest.OrderListener newListener(long offset) {
+        return new MainEventLoopTest.OrderListener((int) (this.blockCount + 1 - offset) * this.eventPerBlock);
+    }
+
+    /**
+     * subscriptions near by share one loop, every block is fetched once
+     */
+    @Test
+    public void testShareLoop() throws Exception {
+        MainEventLoopTest.OrderListener listener0 = this.newListener(0);
+        MainEventLoopTest.OrderListener listener2 = this.newListener(2);
+        MainEventLoopTest.OrderListener listener5 = this.newListener(5);
+        Subscription subscription0 = this.subscribe("0", listener0, 8);
+        Subscription subscription2 = this.subscribe("2", listener2, 8);
+        Subscription subscription5 = this.subscribe("5", listener5, 8);
+        Assert.assertEquals(1, this.replayCoordinator.getLoopCount());
+        Assert.assertSame(subscription0.getHistoryEventLoop(), subscription5.getHistoryEventLoop());
+
+        this.blockChain.blockHeight.addAndGet(this.blockCount);
+        this.checkOrder(listener0, 0);
+        this.checkOrder(listener2, 2);
+        this.checkOrder(listener5, 5);
+        log.info("loop count: {}", this.blockChain.loopCount.get());
+        Assert.assertTrue(this.blockChain.loopCount.get() < 2 * this.blockCount);
+
+        unsubscribe(subscription0);
+        unsubscribe(subscription2);
+        Assert.assertEquals(1, this.replayCoordinator.getLoopCount());
+        unsubscribe(subscription5);
+        Assert.assertEquals(0, this.replayCoordinator.getLoopCount());
+    }
+
+    /**
+     * the loop ahead is merged into the one behind
+     */
+    @Test
+    public void testMergeLoops() throws Exception {
+        MainEventLoopTest.OrderListener listener20 = this.newListener(20);
+        MainEventLoopTest.OrderListener listener10 = this.newListener(10);
+        Subscription subscription20 = this.subscribe("20", listener20, 16);
+        Subscription subscription10 = this.subscribe("10", listener10, 16);
+        Assert.assertEquals(2, this.replayCoordinator.getLoopCount());
+
+        this.blockChain.blockHeight.addAndGet(this.blockCount);
+        this.checkOrder(listener20, 20);
+        this.checkOrder(listener10, 10);
+        Assert.assertEquals(1, this.replayCoordinator.getLoopCount());
+        Assert.assertSame(subscription10.getHistoryEventLoop(), subscription20.getHistoryEventLoop());
+        log.info("loop count: {}", this.blockChain.loopCount.get());
+        Assert.assertTrue(this.blockChain.loopCount.get() < this.blockCount + 20);
+
+        unsubscribe(subscription10);
+        unsubscribe(subscription20);
+        Assert.assertEquals(0, this.replayCoordinator.getLoopCount());
+    }
+
+    /**
+     * slow consumer leave the shared loop, without holding back the others
+     */
+    @Test
+    public void testSplitSlow() throws Exception {
+        this.blockChain.notifyQueueSize = 4;
+        MainEventLoopTest.OrderListener fast = this.newListener(0);
+        MainEventLoopTest.OrderListener slow = new MainEventLoopTest.OrderListener((this.blockCount + 1) * this.eventPerBlock, 5);
+        Subscription fastSubscription = this.subscribe("0", fast, 8);
+        Subscription slowSubscription = this.subscribe("0", slow, 8);
+        Assert.assertEquals(1, this.replayCoordinator.getLoopCount());
+
+        this.blockChain.blockHeight.addAndGet(this.blockCount);
+        this.checkOrder(fast, 0);
+        Assert.assertTrue(slow.latch.getCount() > 0);
+        this.checkOrder(slow, 0);
+
+        unsubscribe(fastSubscription);
+        unsubscribe(slowSubscription);
+        Assert.assertEquals(0, this.replayCoordinator.getLoopCount());
+    }
+}
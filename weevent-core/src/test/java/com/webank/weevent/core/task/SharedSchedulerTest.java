@@ -0,0 +1,209 @@
+package com.webank.weevent.core.task;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.IConsumer;
+import com.webank.weevent.core.JUnitTestBase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * SharedScheduler Tester, also a soak test for many subscriptions.
+ */
+@Slf4j
+public class SharedSchedulerTest extends JUnitTestBase {
+    private final String topicName = "com.weevent.test";
+    private final String groupId = "1";
+    private final int threads = 4;
+
+    private SharedScheduler scheduler;
+
+    static class CountListener implements IConsumer.ConsumerListener {
+        private final AtomicInteger received = new AtomicInteger(0);
+        private volatile CountDownLatch latch;
+
+        @Override
+        public void onEvent(String subscriptionId, WeEvent event) {
+            this.received.incrementAndGet();
+            this.latch.countDown();
+        }
+
+        @Override
+        public void onException(Throwable e) {
+            log.error("onException", e);
+        }
+    }
+
+    @Before
+    public void before() {
+        log.info("=============================={}.{}==============================",
+                this.getClass().getSimpleName(),
+                this.testName.getMethodName());
+
+        this.scheduler = new SharedScheduler(this.threads);
+    }
+
+    @After
+    public void after() {
+        this.scheduler.shutdown();
+    }
+
+    private static WeEvent newEvent(int idx) {
+        WeEvent event = new WeEvent("com.weevent.test", ("hello world " + idx).getBytes(StandardCharsets.UTF_8));
+        event.setEventId("317e7c4c-" + idx + "-1");
+        return event;
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            StoppableTask.idle(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * events are notified in order after push
+     */
+    @Test
+    public void testNotifyInOrder() throws Exception {
+        MainEventLoopTest.OrderListener listener = new MainEventLoopTest.OrderListener(1000);
+        NotifyTask notifyTask = new NotifyTask("sub", 1000, listener);
+        this.scheduler.schedule(notifyTask);
+
+        for (int i = 0; i < 1000; i++) {
+            notifyTask.push(Collections.singletonList(newEvent(i)));
+        }
+
+        Assert.assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertEquals("317e7c4c-" + i + "-1", listener.received.get(i));
+        }
+        Assert.assertEquals(1, this.scheduler.getTaskCount());
+
+        notifyTask.doExit();
+        Assert.assertEquals(0, this.scheduler.getTaskCount());
+    }
+
+    /**
+     * batch listener with linger time, woken by delay instead of sleep
+     */
+    @Test
+    public void testNotifyBatchLinger() throws Exception {
+        List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch latch = new CountDownLatch(10);
+        IConsumer.BatchConsumerListener listener = new IConsumer.BatchConsumerListener() {
+            @Override
+            public void onEvents(String subscriptionId, List<WeEvent> events) {
+                batches.add(events.size());
+                events.forEach(event -> latch.countDown());
+            }
+
+            @Override
+            public int getLingerTime() {
+                return 200;
+            }
+
+            @Override
+            public void onException(Throwable e) {
+                log.error("onException", e);
+            }
+        };
+        NotifyTask notifyTask = new NotifyTask("sub", 1000, listener);
+        this.scheduler.schedule(notifyTask);
+
+        for (int i = 0; i < 10; i++) {
+            notifyTask.push(Collections.singletonList(newEvent(i)));
+            StoppableTask.idle(5);
+        }
+
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(10, batches.get(0).intValue());
+        notifyTask.doExit();
+    }
+
+    /**
+     * history loop catch up in scheduler, one block per step
+     */
+    @Test
+    public void testHistoryLoop() throws Exception {
+        MainEventLoopTest.SimulatedBlockChain blockChain = new MainEventLoopTest.SimulatedBlockChain(this.topicName, 2, 0, 0);
+        blockChain.notReady.put(5L, new AtomicInteger(2));
+        MainEventLoopTest.OrderListener listener = new MainEventLoopTest.OrderListener(40);
+        Subscription subscription = new Subscription(blockChain, "", new String[]{this.topicName}, this.groupId, "0", "", listener);
+        Assert.assertNotNull(subscription.getHistoryEventLoop());
+
+        subscription.doStart(null, this.scheduler);
+        new ReplayCoordinator(blockChain, null, this.scheduler).start(subscription);
+        blockChain.blockHeight.addAndGet(20);
+
+        Assert.assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+        for (int idx = 0; idx < 40; idx++) {
+            Assert.assertEquals(String.format("317e7c4c-%d-%d", idx % 2 + 1, idx / 2 + 1), listener.received.get(idx));
+        }
+        subscription.stopHistory();
+        subscription.getNotifyTask().doExit();
+    }
+
+    /**
+     * soak test, thread count and memory stay flat as subscriptions grow
+     */
+    @Test
+    public void testManySubscription() throws Exception {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        int baseThreads = threadMXBean.getThreadCount();
+        long baseMemory = usedMemory();
+
+        List<NotifyTask> tasks = new ArrayList<>();
+        CountListener listener = new CountListener();
+        int round = 0;
+        long lastMemory = baseMemory;
+        for (int total : new int[]{1000, 5000, 10000}) {
+            listener.latch = new CountDownLatch(total);
+            while (tasks.size() < total) {
+                NotifyTask notifyTask = new NotifyTask("sub-" + tasks.size(), 1000, listener);
+                this.scheduler.schedule(notifyTask);
+                tasks.add(notifyTask);
+            }
+
+            round++;
+            for (NotifyTask notifyTask : tasks) {
+                notifyTask.push(Collections.singletonList(newEvent(round)));
+            }
+            Assert.assertTrue(listener.latch.await(30, TimeUnit.SECONDS));
+
+            int threadCount = threadMXBean.getThreadCount();
+            long memory = usedMemory();
+            log.info("subscriptions: {} threads: {} used memory: {}KB, {} bytes per subscription",
+                    total, threadCount, memory / 1024, (memory - baseMemory) / total);
+
+            // only the shared threads is created
+            Assert.assertTrue(threadCount <= baseThreads + this.threads + 2);
+            // idle subscription cost a few KB, not a thread stack
+            Assert.assertTrue(memory - lastMemory < 64 * 1024 * 1024);
+            lastMemory = memory;
+        }
+        Assert.assertEquals(10000, this.scheduler.getTaskCount());
+        Assert.assertEquals(1000 + 5000 + 10000, listener.received.get());
+
+        for (NotifyTask notifyTask : tasks) {
+            notifyTask.doExit();
+        }
+        Assert.assertEquals(0, this.scheduler.getTaskCount());
+    }
+}
@@ -6,10 +6,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.webank.weevent.core.JUnitTestBase;
 import com.webank.weevent.client.BrokerException;
 import com.webank.weevent.client.ErrorCode;
 import com.webank.weevent.client.WeEvent;
+import com.webank.weevent.core.JUnitTestBase;
+import com.webank.weevent.core.cache.EventIndex;
 
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Assert;
@@ -30,6 +31,30 @@ public class SubscriptionTest extends JUnitTestBase {
     private final static String tag = "tag_name";
     private final static byte[] content = "hello world".getBytes(StandardCharsets.UTF_8);
 
+    /*
+     * simulated block chain which index the events while loop
+     */
+    static class IndexedBlockChain extends MainEventLoopTest.SimulatedBlockChain {
+        final EventIndex eventIndex = new EventIndex(1024 * 1024);
+
+        IndexedBlockChain(String topicName, int eventPerBlock) {
+            super(topicName, eventPerBlock, 0, 0);
+            this.blockHeight.set(10);
+        }
+
+        @Override
+        public List<WeEvent> loop(Long blockNum, String groupId) {
+            List<WeEvent> events = super.loop(blockNum, groupId);
+            this.eventIndex.putBlock(groupId, blockNum, events);
+            return events;
+        }
+
+        @Override
+        public EventIndex.Location locateEvent(String eventId, String groupId) {
+            return this.eventIndex.get(groupId, eventId);
+        }
+    }
+
     @Before
     public void before() {
         log.info("=============================={}.{}==============================",
@@ -450,5 +475,43 @@ public class SubscriptionTest extends JUnitTestBase {
         List<WeEvent> to = Subscription.filter(from, topics, tag);
         Assert.assertEquals(to.size(), 2L);
     }
-}
 
+    /**
+     * overlapping patterns in history match every event once, the same as main loop
+     */
+    @Test
+    public void testFilterOverlapping() throws BrokerException {
+        Map<String, String> ext = new HashMap<>();
+        ext.put(WeEvent.WeEvent_TAG, tag);
+
+        List<WeEvent> from = new ArrayList<>();
+        from.add(new WeEvent(patternTopic, content, ext));
+        from.add(new WeEvent(patternTopic, content));
+        from.add(new WeEvent("com/weevent", content, ext));
+
+        IBlockChain blockChain = new MainEventLoopTest.SimulatedBlockChain(topicName, 1, 0, 0);
+        Subscription subscription = new Subscription(blockChain, "", new String[]{"com/#", "com/weevent/+", patternTopic},
+                "1", WeEvent.OFFSET_LAST, tag, new NotifyTaskTest.MyListener());
+        List<WeEvent> to = subscription.filter(from);
+        Assert.assertEquals(2, to.size());
+        Assert.assertSame(from.get(0), to.get(0));
+        Assert.assertSame(from.get(2), to.get(1));
+    }
+
+    /**
+     * resume subscription from an indexed eventId, only the events after it are dispatched
+     */
+    @Test
+    public void testResumeFromIndex() throws BrokerException {
+        int eventPerBlock = 4;
+        IndexedBlockChain blockChain = new IndexedBlockChain(topicName, eventPerBlock);
+        // index block 5 like MainEventLoop
+        blockChain.loop(5L, "1");
+
+        Subscription subscription = new Subscription(blockChain, "", new String[]{topicName}, "1",
+                "317e7c4c-2-5", "", new MainEventLoopTest.OrderListener(0));
+        Assert.assertEquals(eventPerBlock - 2, subscription.getNotifyingEventCount().intValue());
+        Assert.assertEquals(1, blockChain.eventIndex.getHitCount());
+        subscription.getNotifyTask().doExit();
+    }
+}